@@ -217,6 +217,13 @@ public class VideoGroup {
         return mMediaGroup;
     }
 
+    /**
+     * Used to continue the group that was restored without the media group (e.g. from the snapshot).
+     */
+    public void setMediaGroup(MediaGroup mediaGroup) {
+        mMediaGroup = mediaGroup;
+    }
+
     public BrowseSection getSection() {
         return mSection;
     }
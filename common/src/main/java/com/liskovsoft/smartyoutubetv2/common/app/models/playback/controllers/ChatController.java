@@ -13,8 +13,10 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.ChatReceiver
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.OptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
+import com.liskovsoft.smartyoutubetv2.common.utils.MultiPatternMatcher;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -25,6 +27,7 @@ public class ChatController extends BasePlayerController {
      * NOTE: Don't remove duplicates! They contain different chars.
      */
     private static final String[] BLACK_LIST = {". XYZ", ". ХYZ", "⠄XYZ", "⠄ХYZ", "Ricardo Merlino", "⠄СОM", ".COM", ".СОM", ". COM"};
+    private static final MultiPatternMatcher BLACK_LIST_MATCHER = new MultiPatternMatcher(BLACK_LIST);
     private LiveChatService mChatService;
     private Disposable mChatAction;
     private String mLiveChatKey;
@@ -61,7 +64,9 @@ public class ChatController extends BasePlayerController {
         ChatReceiver chatReceiver = new ChatReceiverImpl();
         getPlayer().setChatReceiver(chatReceiver);
 
+        // Filter and buffer off the main thread. The receiver passes the items to the ui once per frame.
         mChatAction = mChatService.openLiveChatObserve(mLiveChatKey)
+                .observeOn(Schedulers.computation())
                 .subscribe(
                         chatItem -> {
                             Log.d(TAG, chatItem.getMessage());
@@ -146,15 +151,7 @@ public class ChatController extends BasePlayerController {
             return false;
         }
 
-        String authorName = chatItem.getAuthorName();
-
-        for (String spammer : BLACK_LIST) {
-            if (authorName.toLowerCase().contains(spammer.toLowerCase())) {
-                return false;
-            }
-        }
-
-        return true;
+        return !BLACK_LIST_MATCHER.matches(chatItem.getAuthorName());
     }
 
     private void enableLiveChat(boolean enabled) {
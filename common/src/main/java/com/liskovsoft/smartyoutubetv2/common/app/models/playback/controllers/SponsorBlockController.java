@@ -1,11 +1,12 @@
 package com.liskovsoft.smartyoutubetv2.common.app.models.playback.controllers;
 
+import android.text.TextUtils;
+
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
 import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemMetadata;
-import com.liskovsoft.mediaserviceinterfaces.data.SponsorSegment;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.helpers.MessageHelpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
@@ -18,29 +19,36 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.SeekBarSegme
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.settings.SponsorBlockSettingsPresenter;
+import com.liskovsoft.smartyoutubetv2.common.misc.PersistentCache;
+import com.liskovsoft.smartyoutubetv2.common.misc.SponsorSegmentIndex;
+import com.liskovsoft.smartyoutubetv2.common.misc.SponsorSegmentIndex.Segment;
 import com.liskovsoft.smartyoutubetv2.common.prefs.SponsorBlockData;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
-import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.TreeSet;
 
 public class SponsorBlockController extends BasePlayerController {
     private static final String TAG = SponsorBlockController.class.getSimpleName();
-    private static final long POLL_INTERVAL_MS = 1_000;
     private static final int CONTENT_BLOCK_ID = 144;
+    private static final long MIN_CHECK_DELAY_MS = 50;
+    private static final String CACHE_NAME = "sponsor_segments";
+    private static final int CACHE_MAX_SIZE = 1_000;
+    private static final long CACHE_TTL_MS = 24 * 60 * 60 * 1_000L;
+    private static PersistentCache sCache;
     private MediaItemService mMediaItemService;
-    private List<SponsorSegment> mOriginalSegments;
-    private List<SponsorSegment> mActiveSegments;
+    private SuggestionsController mSuggestionsController;
+    private SponsorSegmentIndex mIndex;
     private long mLastSkipPosMs;
     private boolean mSkipExclude;
     private Disposable mSegmentsAction;
-    private Observable<List<SponsorSegment>> mCachedSegmentsAction;
+    private Disposable mPrefetchAction;
     private String mVideoId;
+    private final Runnable mCheckSegments = this::checkSegments;
 
     public static class SegmentAction {
         public String segmentCategory;
@@ -82,6 +90,11 @@ public class SponsorBlockController extends BasePlayerController {
     public void onInit() {
         ServiceManager service = YouTubeServiceManager.instance();
         mMediaItemService = service.getMediaItemService();
+        mSuggestionsController = getController(SuggestionsController.class);
+
+        if (sCache == null) {
+            sCache = new PersistentCache(getContext().getApplicationContext(), CACHE_NAME, CACHE_MAX_SIZE, CACHE_TTL_MS);
+        }
     }
 
     @Override
@@ -119,12 +132,40 @@ public class SponsorBlockController extends BasePlayerController {
                 getPlayer().setButtonState(R.id.action_content_block, PlayerUI.BUTTON_OFF);
             }
             disposeActions();
+        } else {
+            prefetchNextSegments();
         }
     }
 
     @Override
     public void onEngineReleased() {
         disposeActions();
+        RxHelper.disposeActions(mPrefetchAction);
+    }
+
+    @Override
+    public void onPlay() {
+        startChecking();
+    }
+
+    @Override
+    public void onSeekEnd() {
+        startChecking();
+    }
+
+    @Override
+    public void onSpeedChanged(float speed) {
+        startChecking();
+    }
+
+    @Override
+    public void onPause() {
+        Utils.removeCallbacks(mCheckSegments);
+    }
+
+    @Override
+    public void onPlayEnd() {
+        Utils.removeCallbacks(mCheckSegments);
     }
 
     @Override
@@ -134,11 +175,11 @@ public class SponsorBlockController extends BasePlayerController {
         }
 
         if (buttonId == R.id.action_content_block) {
-            List<SponsorSegment> foundSegments = findMatchedSegments(getPlayer().getPositionMs(), mOriginalSegments, true);
+            List<Integer> foundSegments = findMatchedSegments(getPlayer().getPositionMs(), true);
 
             if (foundSegments != null) {
-                SponsorSegment lastSegment = foundSegments.get(foundSegments.size() - 1);
-                setPositionMs(lastSegment.getEndMs());
+                Segment lastSegment = mIndex.get(foundSegments.get(foundSegments.size() - 1));
+                setPositionMs(lastSegment.endMs);
             } else {
                 Video video = getVideo();
                 String channelId = video != null ? video.channelId : null;
@@ -167,52 +208,93 @@ public class SponsorBlockController extends BasePlayerController {
     }
 
     private void updateSponsorSegmentsAndWatch(Video item) {
+        mIndex = null;
+
         if (item == null || item.videoId == null || item.isLive || getSponsorBlockData().getEnabledCategories().isEmpty()) {
-            mActiveSegments = mOriginalSegments = null;
-            mCachedSegmentsAction = null;
             return;
         }
 
-        if (!Helpers.equals(mVideoId, item.videoId) || mCachedSegmentsAction == null) {
-            // NOTE: SponsorBlock (when happened java.net.SocketTimeoutException) could block whole application with Schedulers.io()
-            // Because Schedulers.io() reuses blocked threads in RxJava 2: https://github.com/ReactiveX/RxJava/issues/6542
-            mCachedSegmentsAction = mMediaItemService.getSponsorSegmentsObserve(item.videoId, getSponsorBlockData().getEnabledCategories())
-                    .cache();
-            mVideoId = item.videoId;
+        mVideoId = item.videoId;
+        String cacheKey = getCacheKey(item.videoId);
+
+        // Rewatch or the prefetched queue item
+        if (sCache.contains(cacheKey)) {
+            startSponsorWatcher(SponsorSegmentIndex.fromString(sCache.get(cacheKey)));
+            return;
         }
 
-        mSegmentsAction = mCachedSegmentsAction
-                .flatMap(this::startSponsorWatcher)
+        // NOTE: SponsorBlock (when happened java.net.SocketTimeoutException) could block whole application with Schedulers.io()
+        // Because Schedulers.io() reuses blocked threads in RxJava 2: https://github.com/ReactiveX/RxJava/issues/6542
+        mSegmentsAction = mMediaItemService.getSponsorSegmentsObserve(item.videoId, getSponsorBlockData().getEnabledCategories())
                 .subscribe(
-                        this::skipSegment,
+                        segments -> {
+                            SponsorSegmentIndex index = SponsorSegmentIndex.from(segments);
+                            sCache.put(cacheKey, index.toString());
+                            startSponsorWatcher(index);
+                        },
                         error -> Log.d(TAG, "It's ok. Nothing to block in this video. Error msg: %s", error.getMessage())
                 );
     }
 
-    private Observable<Long> startSponsorWatcher(List<SponsorSegment> segments) {
-        if (getPlayer() == null || segments == null || segments.isEmpty()) {
-            mActiveSegments = mOriginalSegments = null;
-            return Observable.empty();
+    /**
+     * The next video of the queue or the suggestions is fetched in advance, so its segments are ready at the start.
+     */
+    private void prefetchNextSegments() {
+        if (mSuggestionsController == null || RxHelper.isAnyActionRunning(mPrefetchAction)) {
+            return;
+        }
+
+        Video next = mSuggestionsController.getNext();
+
+        if (next == null || next.videoId == null || next.isLive || getSponsorBlockData().getEnabledCategories().isEmpty()) {
+            return;
+        }
+
+        String cacheKey = getCacheKey(next.videoId);
+
+        if (sCache.contains(cacheKey)) {
+            return;
         }
 
-        mOriginalSegments = segments;
+        mPrefetchAction = mMediaItemService.getSponsorSegmentsObserve(next.videoId, getSponsorBlockData().getEnabledCategories())
+                .subscribe(
+                        segments -> sCache.put(cacheKey, SponsorSegmentIndex.from(segments).toString()),
+                        error -> Log.d(TAG, "Can't prefetch segments of %s: %s", next.videoId, error.getMessage())
+                );
+    }
+
+    /**
+     * Segments depend on the enabled categories.
+     */
+    private String getCacheKey(String videoId) {
+        return videoId + "," + TextUtils.join(",", new TreeSet<>(getSponsorBlockData().getEnabledCategories()));
+    }
+
+    private void startSponsorWatcher(SponsorSegmentIndex index) {
+        if (getPlayer() == null || index.isEmpty()) {
+            mIndex = null;
+            return;
+        }
 
-        mActiveSegments = new ArrayList<>(segments);
+        mIndex = index;
 
         if (getSponsorBlockData().isColorMarkersEnabled()) {
-            getPlayer().setSeekBarSegments(toSeekBarSegments(segments));
+            getPlayer().setSeekBarSegments(toSeekBarSegments(index.getSegments()));
         }
-        if (getSponsorBlockData().isActionsEnabled()) {
-            // Warn. Try to not access player object here.
-            // Or you'll get "Player is accessed on the wrong thread" error.
-            return RxHelper.interval(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
-        } else {
-            return Observable.empty();
+
+        startChecking();
+    }
+
+    private void startChecking() {
+        if (mIndex != null && getSponsorBlockData().isActionsEnabled()) {
+            // Don't run inside of the player callback
+            Utils.post(mCheckSegments);
         }
     }
 
     private void disposeActions() {
         RxHelper.disposeActions(mSegmentsAction);
+        Utils.removeCallbacks(mCheckSegments);
 
         // Note, removes all segments at once
         //getPlayer().setSeekBarSegments(null); // reset colors
@@ -221,8 +303,11 @@ public class SponsorBlockController extends BasePlayerController {
         mLastSkipPosMs = 0;
     }
 
-    private void skipSegment(long interval) {
-        if (mActiveSegments == null || mActiveSegments.isEmpty() || getVideo() == null || !Helpers.equals(mVideoId, getVideo().videoId)) {
+    /**
+     * Runs at the segment boundaries only. Rescheduled on play, seek and speed change.
+     */
+    private void checkSegments() {
+        if (getPlayer() == null || mIndex == null || getVideo() == null || !Helpers.equals(mVideoId, getVideo().videoId)) {
             disposeActions();
             return;
         }
@@ -234,26 +319,48 @@ public class SponsorBlockController extends BasePlayerController {
 
         long positionMs = getPlayer().getPositionMs();
 
-        List<SponsorSegment> foundSegments = findMatchedSegments(positionMs, mActiveSegments, false);
+        List<Integer> foundSegments = findMatchedSegments(positionMs, false);
 
         applyActions(foundSegments);
 
-        // Skip each segment only once
-        if (foundSegments != null && getSponsorBlockData().isDontSkipSegmentAgainEnabled()) {
-            mActiveSegments.removeAll(foundSegments);
+        long nextCheckMs;
+
+        if (foundSegments != null) {
+            // Check again when the trigger window is passed (resets the last skip)
+            nextCheckMs = mIndex.get(foundSegments.get(0)).getTriggerEndMs(getTriggerWindowMs()) + 1;
+
+            // Skip each segment only once
+            if (getSponsorBlockData().isDontSkipSegmentAgainEnabled()) {
+                for (int index : foundSegments) {
+                    mIndex.setSkipped(index);
+                }
+            }
+        } else {
+            nextCheckMs = mIndex.findNextStartMs(positionMs);
         }
+
+        if (nextCheckMs == -1) {
+            return;
+        }
+
+        // Media time to real time
+        long delayMs = (long) ((nextCheckMs - positionMs) / getPlayer().getSpeed());
+        Utils.postDelayed(mCheckSegments, Math.max(delayMs, MIN_CHECK_DELAY_MS));
     }
 
-    private boolean isPositionInsideSegment(long positionMs, SponsorSegment segment, boolean fullMatch) {
+    private long getTriggerWindowMs() {
+        return (long) (2_000 * getPlayer().getSpeed());
+    }
+
+    private boolean isPositionInsideSegment(long positionMs, Segment segment, boolean fullMatch) {
         // NOTE: in case of using Player.setSeekParameters (inaccurate seeking) increase sponsor segment window
         // int seekShift = 1_000;
         // return positionMs >= (segment.getStartMs() - seekShift) && positionMs <= (segment.getEndMs() + seekShift);
 
         if (fullMatch) {
-            return positionMs >= segment.getStartMs() && positionMs <= segment.getEndMs();
+            return positionMs >= segment.startMs && positionMs <= segment.endMs;
         } else {
-            long windowSizeMs = (long) (2_000 * getPlayer().getSpeed());
-            return positionMs >= segment.getStartMs() && positionMs <= Math.min(segment.getStartMs() + windowSizeMs, segment.getEndMs());
+            return positionMs >= segment.startMs && positionMs <= segment.getTriggerEndMs(getTriggerWindowMs());
         }
     }
 
@@ -310,24 +417,24 @@ public class SponsorBlockController extends BasePlayerController {
         dialogPresenter.showDialog(getContext().getString(R.string.content_block_provider));
     }
 
-    private List<SeekBarSegment> toSeekBarSegments(List<SponsorSegment> segments) {
+    private List<SeekBarSegment> toSeekBarSegments(List<Segment> segments) {
         if (segments == null) {
             return null;
         }
 
         List<SeekBarSegment> result = new ArrayList<>();
 
-        for (SponsorSegment sponsorSegment : segments) {
-            if (!getSponsorBlockData().isColorMarkerEnabled(sponsorSegment.getCategory())) {
+        for (Segment sponsorSegment : segments) {
+            if (!getSponsorBlockData().isColorMarkerEnabled(sponsorSegment.category)) {
                 continue;
             }
 
             SeekBarSegment seekBarSegment = new SeekBarSegment();
-            float startRatio = (float) sponsorSegment.getStartMs() / getPlayer().getDurationMs(); // Range: [0, 1]
-            float endRatio = (float) sponsorSegment.getEndMs() / getPlayer().getDurationMs(); // Range: [0, 1]
+            float startRatio = (float) sponsorSegment.startMs / getPlayer().getDurationMs(); // Range: [0, 1]
+            float endRatio = (float) sponsorSegment.endMs / getPlayer().getDurationMs(); // Range: [0, 1]
             seekBarSegment.startProgress = startRatio;
             seekBarSegment.endProgress = endRatio;
-            seekBarSegment.color = ContextCompat.getColor(getContext(), getSponsorBlockData().getColorRes(sponsorSegment.getCategory()));
+            seekBarSegment.color = ContextCompat.getColor(getContext(), getSponsorBlockData().getColorRes(sponsorSegment.category));
             result.add(seekBarSegment);
         }
 
@@ -345,54 +452,65 @@ public class SponsorBlockController extends BasePlayerController {
     }
 
     /**
-     * @param fullMatch Match only the beginning or the full segment length
+     * @param fullMatch Match only the beginning or the full segment length. The skipped segments are ignored by the beginning match.
+     * @return indexes of the segments in the index
      */
-    private List<SponsorSegment> findMatchedSegments(long positionMs, List<SponsorSegment> segments, boolean fullMatch) {
-        if (segments == null) {
+    private List<Integer> findMatchedSegments(long positionMs, boolean fullMatch) {
+        if (mIndex == null) {
             return null;
         }
 
-        List<SponsorSegment> foundSegment = null;
+        int first = fullMatch ? mIndex.findContaining(positionMs) : mIndex.findTriggered(positionMs, getTriggerWindowMs());
 
-        for (SponsorSegment segment : segments) {
-            int action = getSponsorBlockData().getAction(segment.getCategory());
-            boolean isSkipAction = action == SponsorBlockData.ACTION_SKIP_ONLY ||
-                    action == SponsorBlockData.ACTION_SKIP_WITH_TOAST;
-            if (foundSegment == null) {
-                if (isPositionInsideSegment(positionMs, segment, fullMatch)) {
-                    foundSegment = new ArrayList<>();
-                    foundSegment.add(segment);
+        if (first == -1) {
+            return null;
+        }
 
-                    // Action grouping aren't supported for dialogs
-                    if (!isSkipAction) {
-                        break;
-                    }
-                }
-            } else {
-                SponsorSegment lastSegment = foundSegment.get(foundSegment.size() - 1);
-                if (isSkipAction && isPositionInsideSegment(lastSegment.getEndMs() + 3_000, segment, fullMatch)) {
-                    foundSegment.add(segment);
-                }
+        List<Integer> foundSegment = new ArrayList<>();
+        foundSegment.add(first);
+
+        // Action grouping aren't supported for dialogs
+        if (!isSkipAction(mIndex.get(first))) {
+            return foundSegment;
+        }
+
+        // Sorted by the start. Segments after the join position can't be grouped.
+        for (int i = first + 1; i < mIndex.size(); i++) {
+            Segment segment = mIndex.get(i);
+            Segment lastSegment = mIndex.get(foundSegment.get(foundSegment.size() - 1));
+            long joinPosMs = lastSegment.endMs + 3_000;
+
+            if (segment.startMs > joinPosMs) {
+                break;
+            }
+
+            if ((fullMatch || !mIndex.isSkipped(i)) && isSkipAction(segment) && isPositionInsideSegment(joinPosMs, segment, fullMatch)) {
+                foundSegment.add(i);
             }
         }
 
         return foundSegment;
     }
 
-    private void applyActions(List<SponsorSegment> foundSegments) {
-        if (getPlayer() == null || foundSegments == null) {
+    private boolean isSkipAction(Segment segment) {
+        int action = getSponsorBlockData().getAction(segment.category);
+        return action == SponsorBlockData.ACTION_SKIP_ONLY || action == SponsorBlockData.ACTION_SKIP_WITH_TOAST;
+    }
+
+    private void applyActions(List<Integer> foundSegments) {
+        if (getPlayer() == null || mIndex == null || foundSegments == null) {
             mLastSkipPosMs = 0;
             return;
         }
 
-        SponsorSegment lastSegment = foundSegments.get(foundSegments.size() - 1);
+        Segment lastSegment = mIndex.get(foundSegments.get(foundSegments.size() - 1));
 
-        Integer resId = getSponsorBlockData().getLocalizedRes(lastSegment.getCategory());
-        String skipMessage = resId != null ? getContext().getString(resId) : lastSegment.getCategory();
+        Integer resId = getSponsorBlockData().getLocalizedRes(lastSegment.category);
+        String skipMessage = resId != null ? getContext().getString(resId) : lastSegment.category;
 
-        int type = getSponsorBlockData().getAction(lastSegment.getCategory());
+        int type = getSponsorBlockData().getAction(lastSegment.category);
 
-        long skipPosMs = lastSegment.getEndMs();
+        long skipPosMs = lastSegment.endMs;
         // Fix infinite skip loop by ignoring short segments. TextureView has a seek bug.
         long skipDurationMs = Math.min(skipPosMs, getPlayer().getDurationMs()) - getPlayer().getPositionMs();
         boolean isDurationIgnored = (skipDurationMs < 10_000 && getPlayerTweaksData().isTextureViewEnabled())
@@ -21,6 +21,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.playback.manager.PlayerC
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.VideoActionPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.views.PlaybackView;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.PlaybackMetrics;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
@@ -37,6 +38,7 @@ public class VideoLoaderController extends BasePlayerController {
     private ErrorFixerController mErrorFixerController;
     private long mSleepTimerStartMs;
     private Disposable mFormatInfoAction;
+    private String mPrefetchedVideoId;
     private final Runnable mReloadVideo = () -> {
         getMainController().onNewVideo(getVideo());
     };
@@ -211,6 +213,7 @@ public class VideoLoaderController extends BasePlayerController {
     @Override
     public void onTickle() {
         checkSleepTimer();
+        preloadNextVideoIfNeeded();
     }
 
     private void checkSleepTimer() {
@@ -285,6 +288,8 @@ public class VideoLoaderController extends BasePlayerController {
         Utils.post(mShowProgressBar);
         disposeActions();
 
+        PlaybackMetrics.instance(getContext()).onFormatInfoRequested(video.videoId);
+
         ServiceManager service = YouTubeServiceManager.instance();
         MediaItemService mediaItemManager = service.getMediaItemService();
         mFormatInfoAction = mediaItemManager.getFormatInfoObserve(video.videoId)
@@ -302,6 +307,8 @@ public class VideoLoaderController extends BasePlayerController {
             return;
         }
 
+        PlaybackMetrics.instance(getContext()).onFormatInfoLoaded(getVideo().videoId);
+
         String bgImageUrl = null;
 
         getVideo().sync(formatInfo);
@@ -655,8 +662,21 @@ public class VideoLoaderController extends BasePlayerController {
             return;
         }
 
+        Video next = mSuggestionsController.getNext();
+
+        if (next == null || next.videoId == null || next.videoId.equals(mPrefetchedVideoId) || !getPlayer().isPlaying()) {
+            return;
+        }
+
         if (getPlayer().getDurationMs() - getPlayer().getPositionMs() < 50_000) {
-            MediaServiceManager.instance().loadFormatInfo(mSuggestionsController.getNext(), formatInfo -> {});
+            mPrefetchedVideoId = next.videoId;
+            MediaServiceManager.instance().loadFormatInfo(next, formatInfo -> {
+                // Same conditions as in processFormatInfo. Only dash videos could be prefetched.
+                if (getPlayer() != null && !formatInfo.isUnplayable() && !formatInfo.isLive() && acceptAdaptiveFormats(formatInfo)
+                        && !formatInfo.containsSabrFormats() && formatInfo.containsDashFormats()) {
+                    getPlayer().prefetch(formatInfo);
+                }
+            });
         }
     }
 }
@@ -6,26 +6,37 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs.ProfileChangeListener;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class VideoStateService implements ProfileChangeListener {
+    private static final String TAG = VideoStateService.class.getSimpleName();
     @SuppressLint("StaticFieldLeak")
     private static VideoStateService sInstance;
-    private static final int LOW_RAM_STATE_MAX_SIZE = 50;
-    private static final int HIGH_RAM_STATE_MAX_SIZE = 300;
+    private static final int LOW_RAM_STATE_MAX_SIZE = 1_000;
+    private static final int HIGH_RAM_STATE_MAX_SIZE = 20_000;
     private static final long PERSIST_DELAY_MS = 10_000;
+    private static final String STORE_DIR_NAME = "video_states";
     // Don't store state inside Video object.
     // As one video might correspond to multiple Video objects.
-    //private final Map<String, State> mStates = Helpers.createLRUMap(MAX_PERSISTENT_STATE_SIZE);
-    private final List<State> mStates;
+    // Ordered from the oldest to the newest (LRU)
+    private final Map<String, State> mStates;
+    private final VideoStateStore mStore;
     private final AppPrefs mPrefs;
     private static final String DELIM = "&si;";
     private boolean mIsHistoryBroken;
+    private boolean mIsHistoryBrokenPersisted;
+    private State mLastState;
     private final Runnable mPersistStateInt = () -> {
         try {
             persistStateInt();
@@ -38,12 +49,21 @@ public class VideoStateService implements ProfileChangeListener {
     private VideoStateService(Context context) {
         mPrefs = AppPrefs.instance(context);
         mPrefs.addListener(this);
-        mStates = Helpers.createSafeLRUList(
-                Utils.isEnoughRam() ? HIGH_RAM_STATE_MAX_SIZE : LOW_RAM_STATE_MAX_SIZE);
+        int maxSize = Utils.isEnoughRam() ? HIGH_RAM_STATE_MAX_SIZE : LOW_RAM_STATE_MAX_SIZE;
+        mStates = new LinkedHashMap<String, State>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, State> eldest) {
+                return size() > maxSize;
+            }
+        };
+        mStore = new VideoStateStore(new File(context.getFilesDir(), STORE_DIR_NAME));
         restoreState();
     }
 
-    public static VideoStateService instance(Context context) {
+    /**
+     * Created in the background on the app start. Blocks until the states are restored.
+     */
+    public static synchronized VideoStateService instance(Context context) {
         if (sInstance == null && context != null) {
             sInstance = new VideoStateService(context.getApplicationContext());
         }
@@ -51,44 +71,70 @@ public class VideoStateService implements ProfileChangeListener {
         return sInstance;
     }
 
-    public List<State> getStates() {
-        return mStates;
+    /**
+     * Snapshot of the states. From the oldest to the newest.
+     */
+    public synchronized List<State> getStates() {
+        return new ArrayList<>(mStates.values());
     }
 
-    public @Nullable State getLastState() {
-        if (isEmpty()) {
-            return null;
+    /**
+     * Snapshot of the newest states. From the oldest to the newest.
+     */
+    public synchronized List<State> getLastStates(int maxCount) {
+        List<State> result = new ArrayList<>(Math.min(maxCount, mStates.size()));
+        int skip = mStates.size() - maxCount;
+
+        for (State state : mStates.values()) {
+            if (skip-- > 0) {
+                continue;
+            }
+
+            result.add(state);
         }
 
-        return mStates.get(mStates.size() - 1);
+        return result;
     }
 
-    public State getByVideoId(String videoId) {
-        for (State state : mStates) {
-            if (Helpers.equals(videoId, state.video.videoId)) {
-                return state;
-            }
-        }
+    public synchronized @Nullable State getLastState() {
+        return mLastState;
+    }
 
-        return null;
+    public synchronized State getByVideoId(String videoId) {
+        return videoId != null ? mStates.get(videoId) : null;
     }
 
-    public void removeByVideoId(String videoId) {
-        Helpers.removeIf(mStates, state -> Helpers.equals(state.video.videoId, videoId));
+    public synchronized void removeByVideoId(String videoId) {
+        if (videoId == null || mStates.remove(videoId) == null) {
+            return;
+        }
+
+        mStore.remove(videoId);
+        updateLastState();
         persistState();
     }
 
-    public boolean isEmpty() {
+    public synchronized boolean isEmpty() {
         return mStates.isEmpty();
     }
 
-    public void save(State state) {
-        mStates.add(state);
+    public synchronized void save(State state) {
+        if (state == null || state.video.videoId == null) {
+            return;
+        }
+
+        // Move to the end of the access order
+        mStates.remove(state.video.videoId);
+        mStates.put(state.video.videoId, state);
+        mLastState = state;
+        mStore.put(state);
         persistState();
     }
 
-    public void clear() {
+    public synchronized void clear() {
         mStates.clear();
+        mLastState = null;
+        mStore.clear();
         persistState();
     }
 
@@ -104,23 +150,60 @@ public class VideoStateService implements ProfileChangeListener {
         return mSessionStartTimeMs;
     }
 
-    private void restoreState() {
-        mStates.clear();
+    private synchronized void restoreState() {
+        long startTimeMs = System.currentTimeMillis();
         String data = mPrefs.getStateUpdaterData();
 
         String[] split = Helpers.splitData(data);
 
-        setStateData(Helpers.parseStr(split, 0));
         mIsHistoryBroken = Helpers.parseBoolean(split, 1);
+        mIsHistoryBrokenPersisted = mIsHistoryBroken;
+        // The states of the previous profile are still there
+        mStore.open(mPrefs.getStateUpdaterName(), mStates.values());
+        mStates.clear();
+
+        String legacyData = Helpers.parseStr(split, 0);
+
+        // The legacy data is removed after the migration (could be restored from an old backup)
+        if (legacyData != null && !legacyData.isEmpty()) {
+            migrateStateData(legacyData);
+        } else {
+            mStore.load(mStates);
+        }
+
+        updateLastState();
         mSessionStartTimeMs = System.currentTimeMillis();
+        Log.d(TAG, "Restored %s states in %s ms", mStates.size(), mSessionStartTimeMs - startTimeMs);
     }
 
-    private void persistStateInt() {
-        if (mIsHistoryBroken) {
-            mPrefs.setStateUpdaterData(Helpers.mergeData(getStateData(), mIsHistoryBroken));
-        } else {
-            // Eliminate additional string creation with the merge
-            mPrefs.setStateUpdaterData(getStateData());
+    /**
+     * One time move of the states from the prefs string to the store.
+     */
+    private void migrateStateData(String data) {
+        setStateDataSafe(data);
+
+        if (mStore.write(mStates.values())) {
+            // Keep the flags only
+            mPrefs.setStateUpdaterData(Helpers.mergeData(null, mIsHistoryBroken));
+        }
+    }
+
+    private synchronized void persistStateInt() {
+        mStore.persist(mStates);
+
+        if (mIsHistoryBroken != mIsHistoryBrokenPersisted) {
+            mPrefs.setStateUpdaterData(Helpers.mergeData(null, mIsHistoryBroken));
+            mIsHistoryBrokenPersisted = mIsHistoryBroken;
+        }
+    }
+
+    private void updateLastState() {
+        mLastState = null;
+
+        Iterator<State> iterator = mStates.values().iterator();
+
+        while (iterator.hasNext()) {
+            mLastState = iterator.next();
         }
     }
 
@@ -156,6 +239,12 @@ public class VideoStateService implements ProfileChangeListener {
             this.speed = speed;
         }
 
+        public static State from(Video video, long positionMs, long durationMs, float speed) {
+            video.percentWatched = (positionMs * 100f) / durationMs;
+
+            return new State(video, positionMs, durationMs, speed);
+        }
+
         public static State from(String spec) {
             if (spec == null) {
                 return null;
@@ -176,9 +265,7 @@ public class VideoStateService implements ProfileChangeListener {
                 video.videoId = videoId;
             }
 
-            video.percentWatched = (positionMs * 100f) / lengthMs;
-
-            return new State(video, positionMs, lengthMs, speed);
+            return from(video, positionMs, lengthMs, speed);
         }
 
         @NonNull
@@ -217,24 +304,11 @@ public class VideoStateService implements ProfileChangeListener {
             for (String spec : split) {
                 State state = State.from(spec);
 
-                if (state != null) {
-                    mStates.add(state);
+                if (state != null && state.video.videoId != null) {
+                    mStates.remove(state.video.videoId);
+                    mStates.put(state.video.videoId, state);
                 }
             }
         }
     }
-
-    private String getStateData() {
-        StringBuilder sb = new StringBuilder();
-
-        for (State state : mStates) {
-            if (sb.length() != 0) {
-                sb.append(DELIM);
-            }
-
-            sb.append(state);
-        }
-
-        return sb.toString();
-    }
 }
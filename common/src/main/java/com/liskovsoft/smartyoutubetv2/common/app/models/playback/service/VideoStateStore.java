@@ -0,0 +1,275 @@
+package com.liskovsoft.smartyoutubetv2.common.app.models.playback.service;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.playback.service.VideoStateService.State;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only log of the video states.<br/>
+ * Changes are buffered and appended to the file in the background. The log is rewritten (compacted)
+ * when it contains much more records than the live states.
+ */
+class VideoStateStore {
+    private static final String TAG = VideoStateStore.class.getSimpleName();
+    private static final String FILE_EXTENSION = ".log";
+    private static final int MAGIC = 0x56535431; // VST1
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final byte RECORD_CLEAR = 3;
+    private static final int COMPACT_MIN_RECORDS = 1_000;
+    private static final int COMPACT_RATIO = 2;
+    private final File mDir;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private ByteArrayOutputStream mPendingBytes = new ByteArrayOutputStream();
+    private DataOutputStream mPending = new DataOutputStream(mPendingBytes);
+    private int mPendingRecords;
+    private int mRecordCount;
+    private boolean mIsCompactionNeeded;
+    private File mFile;
+
+    public VideoStateStore(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * Switches to the log of another profile. The changes of the previous one are written first.
+     * @param previousStates states of the previous profile. Used when its log should be rewritten (e.g. after the clear).
+     */
+    public synchronized void open(String name, Collection<State> previousStates) {
+        if (mFile != null && mIsCompactionNeeded) {
+            File file = mFile;
+            List<State> snapshot = new ArrayList<>(previousStates);
+            mPendingBytes.reset();
+            mPendingRecords = 0;
+
+            // Wait for the rewrite. Otherwise the old records are back on the next load.
+            try {
+                mExecutor.submit(() -> writeAll(file, snapshot)).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Can't rewrite the log: %s", e.getMessage());
+            }
+        } else {
+            flushPending();
+        }
+
+        mFile = new File(mDir, name + FILE_EXTENSION);
+        mRecordCount = 0;
+        mIsCompactionNeeded = false;
+    }
+
+    public synchronized boolean exists() {
+        return mFile != null && mFile.exists();
+    }
+
+    /**
+     * Replays the log. Stops at the first broken record (e.g. an interrupted append).
+     */
+    public synchronized void load(Map<String, State> states) {
+        if (!exists()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+            if (in.readInt() != MAGIC) {
+                Log.e(TAG, "Unknown log format: %s", mFile.getName());
+                mIsCompactionNeeded = true;
+                return;
+            }
+
+            while (true) {
+                byte type;
+
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    break; // normal end of the log
+                }
+
+                switch (type) {
+                    case RECORD_PUT:
+                        State state = readState(in);
+                        if (state.video.videoId != null) {
+                            // Move to the end of the access order
+                            states.remove(state.video.videoId);
+                            states.put(state.video.videoId, state);
+                        }
+                        break;
+                    case RECORD_REMOVE:
+                        states.remove(in.readUTF());
+                        break;
+                    case RECORD_CLEAR:
+                        states.clear();
+                        break;
+                    default:
+                        throw new IOException("Unknown record type: " + type);
+                }
+
+                mRecordCount++;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Log is broken after %s records: %s", mRecordCount, e.getMessage());
+            mIsCompactionNeeded = true;
+        }
+    }
+
+    /**
+     * Synchronous rewrite of the whole log. Used for the migration.
+     */
+    public synchronized boolean write(Collection<State> states) {
+        mPendingBytes.reset();
+        mPendingRecords = 0;
+        mRecordCount = states.size();
+        mIsCompactionNeeded = false;
+        return writeAll(mFile, new ArrayList<>(states));
+    }
+
+    public synchronized void put(State state) {
+        try {
+            mPending.writeByte(RECORD_PUT);
+            writeState(mPending, state);
+            mPendingRecords++;
+        } catch (IOException e) {
+            // ByteArrayOutputStream never throws
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized void remove(String videoId) {
+        try {
+            mPending.writeByte(RECORD_REMOVE);
+            mPending.writeUTF(videoId);
+            mPendingRecords++;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized void clear() {
+        // No need to keep the old records
+        mPendingBytes.reset();
+        mPendingRecords = 0;
+        mIsCompactionNeeded = true;
+    }
+
+    /**
+     * Appends the pending changes or compacts the log if it's too big.
+     */
+    public synchronized void persist(Map<String, State> states) {
+        if (mFile == null) {
+            return;
+        }
+
+        if (mIsCompactionNeeded || mRecordCount + mPendingRecords > Math.max(COMPACT_MIN_RECORDS, states.size() * COMPACT_RATIO)) {
+            List<State> snapshot = new ArrayList<>(states.values());
+            File file = mFile;
+            mPendingBytes.reset();
+            mPendingRecords = 0;
+            mRecordCount = snapshot.size();
+            mIsCompactionNeeded = false;
+            mExecutor.execute(() -> writeAll(file, snapshot));
+        } else {
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        if (mFile == null || mPendingRecords == 0) {
+            return;
+        }
+
+        File file = mFile;
+        byte[] data = mPendingBytes.toByteArray();
+        mRecordCount += mPendingRecords;
+        mPendingBytes = new ByteArrayOutputStream();
+        mPending = new DataOutputStream(mPendingBytes);
+        mPendingRecords = 0;
+        mExecutor.execute(() -> append(file, data));
+    }
+
+    private static void append(File file, byte[] data) {
+        if (!file.exists()) {
+            // Header first
+            writeAll(file, new ArrayList<>());
+        }
+
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(data);
+        } catch (IOException e) {
+            Log.e(TAG, "Can't append to the log: %s", e.getMessage());
+        }
+    }
+
+    private static boolean writeAll(File file, List<State> states) {
+        long startTimeMs = System.currentTimeMillis();
+        File tempFile = new File(file.getPath() + ".tmp");
+        File dir = file.getParentFile();
+
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            for (State state : states) {
+                out.writeByte(RECORD_PUT);
+                writeState(out, state);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't write the log: %s", e.getMessage());
+            tempFile.delete();
+            return false;
+        }
+
+        if (!tempFile.renameTo(file)) {
+            Log.e(TAG, "Can't replace the log: %s", file.getName());
+            tempFile.delete();
+            return false;
+        }
+
+        Log.d(TAG, "Log with %s states written in %s ms", states.size(), System.currentTimeMillis() - startTimeMs);
+
+        return true;
+    }
+
+    private static void writeState(DataOutputStream out, State state) throws IOException {
+        out.writeUTF(String.valueOf(state.video));
+        out.writeLong(state.positionMs);
+        out.writeLong(state.durationMs);
+        out.writeFloat(state.speed);
+    }
+
+    private static State readState(DataInputStream in) throws IOException {
+        String videoSpec = in.readUTF();
+        long positionMs = in.readLong();
+        long durationMs = in.readLong();
+        float speed = in.readFloat();
+
+        Video video = Video.fromString(videoSpec);
+
+        if (video == null) {
+            video = new Video();
+        }
+
+        return State.from(video, positionMs, durationMs, speed);
+    }
+}
@@ -2,10 +2,18 @@ package com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui;
 
 import com.liskovsoft.mediaserviceinterfaces.data.ChatItem;
 
+import java.util.List;
+
 public interface ChatReceiver {
     interface Callback {
-        void onChatItem(ChatItem chatItem);
+        /**
+         * Items received since the previous frame. In chronological order.
+         */
+        void onChatItems(List<ChatItem> chatItems);
     }
+    /**
+     * Could be called from any thread
+     */
     void addChatItem(ChatItem chatItem);
     void setCallback(Callback callback);
 }
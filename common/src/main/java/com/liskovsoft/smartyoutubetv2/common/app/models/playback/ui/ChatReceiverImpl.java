@@ -1,19 +1,61 @@
 package com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui;
 
+import android.view.Choreographer;
 import com.liskovsoft.mediaserviceinterfaces.data.ChatItem;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers the items and passes them to the ui once per frame.<br/>
+ * Only the newest items are kept when the ui can't keep up.
+ */
 public class ChatReceiverImpl implements ChatReceiver {
+    private static final int MAX_PENDING_ITEMS = 50;
+    private final ArrayDeque<ChatItem> mPendingItems = new ArrayDeque<>();
+    private final Choreographer.FrameCallback mFlush = frameTimeNanos -> flush();
+    // Choreographer is bound to the thread
+    private final Runnable mScheduleFlush = () -> Choreographer.getInstance().postFrameCallback(mFlush);
     private Callback mCallback;
+    private boolean mIsFlushScheduled;
 
     @Override
     public void addChatItem(ChatItem chatItem) {
-        if (mCallback != null) {
-            mCallback.onChatItem(chatItem);
+        synchronized (mPendingItems) {
+            if (mPendingItems.size() >= MAX_PENDING_ITEMS) {
+                mPendingItems.pollFirst();
+            }
+
+            mPendingItems.addLast(chatItem);
+
+            if (mIsFlushScheduled) {
+                return;
+            }
+
+            mIsFlushScheduled = true;
         }
+
+        Utils.post(mScheduleFlush);
     }
 
     @Override
     public void setCallback(Callback callback) {
         mCallback = callback;
     }
+
+    private void flush() {
+        List<ChatItem> chatItems;
+
+        synchronized (mPendingItems) {
+            chatItems = new ArrayList<>(mPendingItems);
+            mPendingItems.clear();
+            mIsFlushScheduled = false;
+        }
+
+        if (mCallback != null && !chatItems.isEmpty()) {
+            mCallback.onChatItems(chatItems);
+        }
+    }
 }
@@ -2,6 +2,7 @@ package com.liskovsoft.smartyoutubetv2.common.app.presenters;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Pair;
 
@@ -38,8 +39,10 @@ import com.liskovsoft.smartyoutubetv2.common.app.presenters.interfaces.VideoGrou
 import com.liskovsoft.smartyoutubetv2.common.app.views.BrowseView;
 import com.liskovsoft.smartyoutubetv2.common.misc.AppDataSourceManager;
 import com.liskovsoft.smartyoutubetv2.common.misc.BrowseProcessorManager;
+import com.liskovsoft.smartyoutubetv2.common.misc.BrowseSnapshotCache;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager.AccountChangeListener;
+import com.liskovsoft.smartyoutubetv2.common.misc.StartupInitializer;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AccountsData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.BlockedChannelData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.MainUIData;
@@ -52,12 +55,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.BooleanSupplier;
 
 public class BrowsePresenter extends BasePresenter<BrowseView> implements SectionPresenter, VideoGroupPresenter, AccountChangeListener {
     private static final String TAG = BrowsePresenter.class.getSimpleName();
+    // Don't flood the history section with the whole local history
+    private static final int MAX_HISTORY_STATES = 300;
     @SuppressLint("StaticFieldLeak")
     private static BrowsePresenter sInstance;
     private final List<BrowseSection> mSections;
@@ -69,6 +77,7 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
     private final Map<Integer, BrowseSection> mSectionsMapping;
     private final AppDataSourceManager mDataSourcePresenter;
     private final BrowseProcessorManager mBrowseProcessor;
+    private final BrowseSnapshotCache mSnapshotCache;
     private final List<Disposable> mActions;
     private final Runnable mRefreshSection = this::refresh;
     private BrowseSection mCurrentSection;
@@ -90,6 +99,7 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
         MediaServiceManager.instance().addAccountListener(this);
 
         mBrowseProcessor = new BrowseProcessorManager(getContext(), this::syncItem);
+        mSnapshotCache = BrowseSnapshotCache.instance(getContext());
         mActions = new ArrayList<>();
 
         initSectionMappings();
@@ -644,6 +654,9 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
     }
 
     private void updateSection(BrowseSection section) {
+        // The first frame waits only for the network setup. No-op after the startup.
+        StartupInitializer.instance().await(SplashPresenter.INIT_PROXY);
+
         switch (section.getType()) {
             case BrowseSection.TYPE_GRID:
             case BrowseSection.TYPE_SHORTS_GRID:
@@ -728,10 +741,35 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
             return;
         }
 
-        Disposable updateAction = groups
+        long startTimeMs = SystemClock.elapsedRealtime();
+
+        if (!BrowseSnapshotCache.isSupported(section)) {
+            loadVideoRows(section, groups, null, startTimeMs);
+            return;
+        }
+
+        // Rows of the previous launch. Replaced one by one when the fresh rows arrive.
+        Disposable snapshotAction = mSnapshotCache.getObserve(section, -1)
+                .subscribe(
+                        snapshot -> loadVideoRows(section, groups, showSnapshot(section, snapshot, startTimeMs), startTimeMs),
+                        error -> loadVideoRows(section, groups, null, startTimeMs)
+                );
+
+        mActions.add(snapshotAction);
+    }
+
+    private void loadVideoRows(BrowseSection section, Observable<List<MediaGroup>> groups, @Nullable List<VideoGroup> snapshot, long startTimeMs) {
+        List<VideoGroup> freshGroups = new ArrayList<>();
+
+        Disposable updateAction = retryOverSnapshot(groups, () -> snapshot != null && freshGroups.isEmpty())
                 .subscribe(
                         mediaGroups -> {
                             getView().showProgressBar(false);
+                            onContentShown();
+
+                            if (freshGroups.isEmpty()) {
+                                Log.d(TAG, "Section %s: fresh rows after %s ms", section.getTitle(), SystemClock.elapsedRealtime() - startTimeMs);
+                            }
 
                             filterHomeIfNeeded(mediaGroups);
 
@@ -747,16 +785,22 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
                                     videoGroup.setTitle(getContext().getString(R.string.suggestions));
                                 }
 
-                                getView().updateSection(videoGroup);
+                                videoGroup = mergeSnapshotRow(snapshot, videoGroup, freshGroups.size());
                                 mBrowseProcessor.process(videoGroup);
+                                freshGroups.add(videoGroup);
 
                                 continueGroupIfNeeded(videoGroup, false);
                             }
+
+                            mSnapshotCache.put(section, freshGroups);
                         },
                         error -> {
                             Log.e(TAG, "updateRowsHeader error: %s", error.getMessage());
                             handleLoadError(error);
-                        }, () -> handleLoadError(null));
+                        }, () -> {
+                            removeSnapshotRows(snapshot);
+                            handleLoadError(null);
+                        });
 
         mActions.add(updateAction);
     }
@@ -785,10 +829,30 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
             return;
         }
 
-        Disposable updateAction = group
+        long startTimeMs = SystemClock.elapsedRealtime();
+
+        if (column > 0 || !BrowseSnapshotCache.isSupported(section)) {
+            loadVideoGrid(section, group, column, baseGroup, null, startTimeMs);
+            return;
+        }
+
+        // Content of the previous launch. Shown inside the base group.
+        Disposable snapshotAction = mSnapshotCache.getObserve(section, baseGroup.getPosition())
+                .subscribe(
+                        snapshot -> loadVideoGrid(section, group, column, baseGroup, showSnapshot(section, baseGroup, snapshot, startTimeMs), startTimeMs),
+                        error -> loadVideoGrid(section, group, column, baseGroup, null, startTimeMs)
+                );
+
+        mActions.add(snapshotAction);
+    }
+
+    private void loadVideoGrid(BrowseSection section, Observable<MediaGroup> group, int column, VideoGroup baseGroup,
+                               @Nullable List<VideoGroup> snapshot, long startTimeMs) {
+        Disposable updateAction = retryOverSnapshot(group, () -> snapshot != null && !snapshot.isEmpty())
                 .subscribe(
                         mediaGroup -> {
                             getView().showProgressBar(false);
+                            onContentShown();
 
                             if (getView() == null) {
                                 Log.e(TAG, "Browse view has been unloaded from the memory. Low RAM?");
@@ -796,11 +860,37 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
                                 return;
                             }
 
+                            boolean replaceSnapshot = false;
+
+                            if (snapshot != null && !snapshot.isEmpty()) {
+                                Log.d(TAG, "Section %s: fresh grid after %s ms", section.getTitle(), SystemClock.elapsedRealtime() - startTimeMs);
+                                snapshot.clear();
+
+                                if (mergeSnapshotGrid(baseGroup, mediaGroup, section, column)) {
+                                    mBrowseProcessor.process(baseGroup);
+                                    mSnapshotCache.put(section, Collections.singletonList(baseGroup));
+                                    continueGroupIfNeeded(baseGroup);
+                                    return;
+                                }
+
+                                replaceSnapshot = true;
+                            }
+
                             VideoGroup videoGroup = VideoGroup.from(baseGroup, mediaGroup);
                             appendLocalHistory(videoGroup);
+
+                            if (replaceSnapshot) {
+                                videoGroup.setAction(VideoGroup.ACTION_REPLACE);
+                            }
+
                             getView().updateSection(videoGroup);
                             mBrowseProcessor.process(videoGroup);
 
+                            if (column <= 0) {
+                                // Not the uploads of the selected channel
+                                mSnapshotCache.put(section, Collections.singletonList(videoGroup));
+                            }
+
                             continueGroupIfNeeded(videoGroup);
                         },
                         error -> {
@@ -811,6 +901,176 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
         mActions.add(updateAction);
     }
 
+    /**
+     * Draws the rows of the previous launch, so the section isn't empty while the fresh content is loading.
+     */
+    @Nullable
+    private List<VideoGroup> showSnapshot(BrowseSection section, List<VideoGroup> snapshot, long startTimeMs) {
+        if (snapshot.isEmpty() || getView() == null) {
+            return null;
+        }
+
+        for (VideoGroup group : snapshot) {
+            getView().updateSection(group);
+        }
+
+        getView().showProgressBar(false);
+        onContentShown();
+        Log.d(TAG, "Section %s: snapshot rows after %s ms", section.getTitle(), SystemClock.elapsedRealtime() - startTimeMs);
+
+        return snapshot;
+    }
+
+    /**
+     * The grid is a single group. The snapshot goes into the base group, so the continuation works as usual.
+     */
+    @Nullable
+    private List<VideoGroup> showSnapshot(BrowseSection section, VideoGroup baseGroup, List<VideoGroup> snapshot, long startTimeMs) {
+        if (snapshot.isEmpty() || getView() == null) {
+            return null;
+        }
+
+        for (Video video : snapshot.get(0).getVideos()) {
+            baseGroup.add(video);
+        }
+
+        baseGroup.setAction(VideoGroup.ACTION_APPEND);
+        getView().updateSection(baseGroup);
+        getView().showProgressBar(false);
+        onContentShown();
+        Log.d(TAG, "Section %s: snapshot grid after %s ms", section.getTitle(), SystemClock.elapsedRealtime() - startTimeMs);
+
+        return snapshot;
+    }
+
+    /**
+     * While the snapshot is on the screen, the failed load is repeated silently: the section isn't cleared and the focus stays.
+     */
+    private <T> Observable<T> retryOverSnapshot(Observable<T> source, BooleanSupplier isSnapshotShown) {
+        return source.retryWhen(errors -> errors.flatMap(error -> {
+            if (!isSnapshotShown.getAsBoolean()) {
+                return Observable.error(error);
+            }
+
+            Log.e(TAG, "Section load error. Keep the snapshot and retry: %s", error.getMessage());
+
+            return Observable.timer(30, TimeUnit.SECONDS, AndroidSchedulers.mainThread());
+        }));
+    }
+
+    /**
+     * Unchanged rows stay on the screen, changed ones are replaced in place, new ones are inserted.
+     * @return the group that is shown
+     */
+    private VideoGroup mergeSnapshotRow(@Nullable List<VideoGroup> snapshot, VideoGroup freshGroup, int position) {
+        VideoGroup cachedGroup = null;
+
+        if (snapshot != null) {
+            cachedGroup = Helpers.findFirst(snapshot, group -> Helpers.equals(group.getTitle(), freshGroup.getTitle()));
+            // Insert between the snapshot rows
+            freshGroup.setPosition(position);
+        }
+
+        if (cachedGroup == null) {
+            getView().updateSection(freshGroup);
+            return freshGroup;
+        }
+
+        snapshot.remove(cachedGroup);
+
+        if (hasSameVideos(cachedGroup, freshGroup.getVideos())) {
+            adoptFreshVideos(cachedGroup, freshGroup.getVideos());
+            cachedGroup.setMediaGroup(freshGroup.getMediaGroup());
+            return cachedGroup;
+        }
+
+        freshGroup.setId(cachedGroup.getId());
+        freshGroup.setAction(VideoGroup.ACTION_REPLACE);
+        getView().updateSection(freshGroup);
+
+        return freshGroup;
+    }
+
+    /**
+     * @return true if the base group already shows the fresh content
+     */
+    private boolean mergeSnapshotGrid(VideoGroup baseGroup, MediaGroup mediaGroup, BrowseSection section, int column) {
+        VideoGroup freshGroup = VideoGroup.from(mediaGroup, section, column);
+
+        if (hasSameVideos(baseGroup, freshGroup.getVideos())) {
+            adoptFreshVideos(baseGroup, freshGroup.getVideos());
+            baseGroup.setMediaGroup(mediaGroup);
+            return true;
+        }
+
+        // The content is changed (e.g. new uploads). The whole grid will be replaced.
+        baseGroup.clear();
+
+        return false;
+    }
+
+    /**
+     * Snapshot rows that aren't present anymore.
+     */
+    private void removeSnapshotRows(@Nullable List<VideoGroup> snapshot) {
+        if (snapshot == null || getView() == null) {
+            return;
+        }
+
+        for (VideoGroup group : snapshot) {
+            // Row position is set, so only this row is removed
+            VideoGroup removedGroup = VideoGroup.from(group.getSection(), 0);
+            removedGroup.setId(group.getId());
+            removedGroup.setAction(VideoGroup.ACTION_REPLACE);
+            getView().updateSection(removedGroup);
+        }
+
+        snapshot.clear();
+    }
+
+    private static boolean hasSameVideos(VideoGroup cachedGroup, @Nullable List<Video> freshVideos) {
+        if (cachedGroup.isEmpty() || freshVideos == null || cachedGroup.getSize() != freshVideos.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < freshVideos.size(); i++) {
+            Video cached = cachedGroup.get(i);
+            Video fresh = freshVideos.get(i);
+
+            if (!Helpers.equals(cached.videoId, fresh.videoId) || !Helpers.equals(cached.playlistId, fresh.playlistId) ||
+                    !Helpers.equals(cached.channelId, fresh.channelId)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Cards on the screen get the data that isn't stored in the snapshot. Then redraw the watch progress and badges.
+     */
+    private void adoptFreshVideos(VideoGroup cachedGroup, List<Video> freshVideos) {
+        for (int i = 0; i < freshVideos.size(); i++) {
+            Video cached = cachedGroup.get(i);
+            Video fresh = freshVideos.get(i);
+            cached.mediaItem = fresh.mediaItem;
+            cached.clickTrackingParams = fresh.clickTrackingParams;
+            cached.badge = fresh.badge;
+            cached.sync(fresh);
+        }
+
+        cachedGroup.setAction(VideoGroup.ACTION_SYNC);
+        getView().updateSection(cachedGroup);
+        cachedGroup.setAction(VideoGroup.ACTION_APPEND);
+    }
+
+    /**
+     * Starts the init tasks that were deferred until the first content. No-op after the startup.
+     */
+    private static void onContentShown() {
+        StartupInitializer.instance().complete(SplashPresenter.MILESTONE_BROWSE_CONTENT);
+    }
+
     private void continueGroup(VideoGroup group) {
         continueGroup(group, true);
     }
@@ -1223,7 +1483,7 @@ public class BrowsePresenter extends BasePresenter<BrowseView> implements Sectio
             return;
         }
 
-        for (State state : stateService.getStates()) {
+        for (State state : stateService.getLastStates(MAX_HISTORY_STATES)) {
             if (lastHistoryItem == null || state.timestamp > stateService.getSessionStartTimeMs()) {
                 videoGroup.add(0, state.video);
             }
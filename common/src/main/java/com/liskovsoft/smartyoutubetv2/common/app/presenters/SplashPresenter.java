@@ -23,6 +23,8 @@ import com.liskovsoft.smartyoutubetv2.common.app.views.ViewManager;
 import com.liskovsoft.smartyoutubetv2.common.misc.GDriveBackupWorker;
 import com.liskovsoft.smartyoutubetv2.common.misc.LocalDriveBackupWorker;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
+import com.liskovsoft.smartyoutubetv2.common.misc.StartupInitializer;
+import com.liskovsoft.smartyoutubetv2.common.misc.StartupTrace;
 import com.liskovsoft.smartyoutubetv2.common.misc.StreamReminderService;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AccountsData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.GeneralData;
@@ -38,13 +40,25 @@ import java.util.List;
 public class SplashPresenter extends BasePresenter<SplashView> {
     private static final String TAG = SplashPresenter.class.getSimpleName();
     private static final long APP_INIT_DELAY_MS = 10_000;
+    public static final String INIT_GLOBAL_PREFS = "global_prefs";
+    public static final String INIT_PROXY = "proxy";
+    public static final String INIT_VIDEO_STATE = "video_state";
+    public static final String INIT_STREAM_REMINDER = "stream_reminder";
+    public static final String INIT_BACKGROUND_TASKS = "background_tasks";
+    public static final String INIT_TRACE_DUMP = "trace_dump";
+    /**
+     * The first rows of the browse section are on the screen (or the delay is passed).
+     */
+    public static final String MILESTONE_BROWSE_CONTENT = "browse_content";
     @SuppressLint("StaticFieldLeak")
     private static SplashPresenter sInstance;
     private static boolean sRunOnce;
     private boolean mRunPerInstance;
+    private boolean mIsColdStart;
     private final List<IntentProcessor> mIntentChain = new ArrayList<>();
     private String mBridgePackageName;
     private final Runnable mRunBackgroundTasks = this::runBackgroundTasks;
+    private static final Runnable sCompleteBrowseContent = () -> StartupInitializer.instance().complete(MILESTONE_BROWSE_CONTENT);
     private final Runnable mCheckForUpdates = this::checkForUpdates;
 
     private interface IntentProcessor {
@@ -85,21 +99,46 @@ public class SplashPresenter extends BasePresenter<SplashView> {
         runPerViewTasks();
     }
 
+    /**
+     * The intent chain and the browse wait only for the prefs and the network setup (see {@link BrowsePresenter}).<br/>
+     * The rest runs in the background or after the first browse content.
+     */
     private void runOnceTasks() {
         if (!sRunOnce) {
             sRunOnce = true;
-            RxHelper.setupGlobalErrorHandler();
-            initGlobalPrefs();
-            initProxy();
-            initVideoStateService();
-            initStreamReminderService();
+            mIsColdStart = true;
+            Context context = getContext().getApplicationContext();
+            StartupInitializer initializer = StartupInitializer.instance();
+            initializer
+                    .addMilestone(MILESTONE_BROWSE_CONTENT)
+                    .add(INIT_GLOBAL_PREFS, StartupInitializer.THREAD_MAIN, () -> initGlobalPrefs(context))
+                    .add(INIT_PROXY, StartupInitializer.THREAD_BACKGROUND, () -> initProxy(context), INIT_GLOBAL_PREFS)
+                    .add(INIT_VIDEO_STATE, StartupInitializer.THREAD_BACKGROUND, () -> VideoStateService.instance(context), INIT_GLOBAL_PREFS)
+                    .add(INIT_STREAM_REMINDER, StartupInitializer.THREAD_MAIN,
+                            () -> StreamReminderService.instance(context).startStop(), INIT_GLOBAL_PREFS, MILESTONE_BROWSE_CONTENT)
+                    .add(INIT_BACKGROUND_TASKS, StartupInitializer.THREAD_MAIN, () -> {
+                        if (sInstance != null) {
+                            sInstance.runBackgroundTasks();
+                        }
+                    }, INIT_GLOBAL_PREFS, MILESTONE_BROWSE_CONTENT)
+                    .add(INIT_TRACE_DUMP, StartupInitializer.THREAD_BACKGROUND, () -> StartupTrace.instance().dump(context),
+                            INIT_PROXY, INIT_VIDEO_STATE, INIT_STREAM_REMINDER, INIT_BACKGROUND_TASKS)
+                    .start();
+            // Used by the account selection and the intent chain below.
+            // The intents may start the playback, so the proxy should be applied before them.
+            initializer.await(INIT_GLOBAL_PREFS, INIT_PROXY);
+            // In case the browse isn't shown (e.g. the app is started by the intent)
+            Utils.postDelayed(sCompleteBrowseContent, APP_INIT_DELAY_MS);
         }
     }
 
     private void runPerInstanceTasks() {
         if (!mRunPerInstance) {
             mRunPerInstance = true;
-            Utils.postDelayed(mRunBackgroundTasks, APP_INIT_DELAY_MS);
+            if (!mIsColdStart) {
+                // The app is restarted inside of the same process. The init graph is already done.
+                Utils.postDelayed(mRunBackgroundTasks, APP_INIT_DELAY_MS);
+            }
             initIntentChain();
         }
     }
@@ -115,6 +154,7 @@ public class SplashPresenter extends BasePresenter<SplashView> {
     }
 
     private void runBackgroundTasks() {
+        Utils.removeCallbacks(mRunBackgroundTasks);
         YouTubeServiceManager.instance().refreshCacheIfNeeded(); // warm up player engine
         enableHistoryIfNeeded();
         Utils.updateChannels(getContext());
@@ -141,39 +181,26 @@ public class SplashPresenter extends BasePresenter<SplashView> {
         updatePresenter.start();
     }
 
-    private void initVideoStateService() {
-        if (getContext() != null) {
-            VideoStateService.instance(getContext());
-        }
-    }
-
-    private void initStreamReminderService() {
-        if (getContext() != null) {
-            StreamReminderService.instance(getContext()).startStop();
-        }
-    }
-
     /**
      * Need to be the first line and executed on earliest stage once.<br/>
      * Do init media service language and context.<br/>
      * NOTE: this command should run before using any of the media service api.
      */
-    private void initGlobalPrefs() {
+    private static void initGlobalPrefs(Context context) {
         Log.d(TAG, "initGlobalData called...");
 
-        if (getContext() != null) {
-            // 1) Auth token storage init
-            // 2) Media service language setup (I assume that context has proper language)
-            GlobalPreferences.instance(getContext());
-        }
+        RxHelper.setupGlobalErrorHandler();
+        // 1) Auth token storage init
+        // 2) Media service language setup (I assume that context has proper language)
+        GlobalPreferences.instance(context);
+        // The prefs instance() isn't synchronized. Create them before the background tasks.
+        GeneralData.instance(context);
     }
 
-    private void initProxy() {
-        if (getContext() != null) {
-            // Apply proxy config after global prefs but before starting networking.
-            if (GeneralData.instance(getContext()).isProxyEnabled()) {
-                new ProxyManager(getContext()).configureSystemProxy();
-            }
+    private static void initProxy(Context context) {
+        // Apply proxy config after global prefs but before starting networking.
+        if (GeneralData.instance(context).isProxyEnabled()) {
+            new ProxyManager(context).configureSystemProxy();
         }
     }
 
@@ -13,6 +13,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.base.BasePresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.service.SidebarService;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.PlaybackMetrics;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.TrackSelectorUtil;
 import com.liskovsoft.smartyoutubetv2.common.prefs.GeneralData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
@@ -79,6 +80,7 @@ public class PlayerSettingsPresenter extends BasePresenter<Void> {
         appendSleepTimerCategory(settingsPresenter);
         appendMiscCategory(settingsPresenter);
         appendDeveloperCategory(settingsPresenter);
+        appendPlaybackStatsCategory(settingsPresenter);
 
         settingsPresenter.showDialog(getContext().getString(R.string.settings_player), mOnFinish);
     }
@@ -489,6 +491,28 @@ public class PlayerSettingsPresenter extends BasePresenter<Void> {
         settingsPresenter.appendCheckedCategory(getContext().getString(R.string.player_other), options);
     }
 
+    private void appendPlaybackStatsCategory(AppDialogPresenter settingsPresenter) {
+        PlaybackMetrics metrics = PlaybackMetrics.instance(getContext());
+        List<OptionItem> options = new ArrayList<>();
+
+        for (String summary : metrics.getSummary()) {
+            options.add(UiOptionItem.from(summary));
+        }
+
+        if (options.isEmpty()) {
+            options.add(UiOptionItem.from(getContext().getString(R.string.playback_stats_empty)));
+        }
+
+        options.add(UiOptionItem.from(getContext().getString(R.string.playback_stats_files, metrics.getExportPath())));
+
+        options.add(UiOptionItem.from(getContext().getString(R.string.playback_stats_clear), option -> {
+            metrics.clear();
+            MessageHelpers.showMessage(getContext(), R.string.msg_done);
+        }));
+
+        settingsPresenter.appendStringsCategory(getContext().getString(R.string.playback_stats), options);
+    }
+
     private void appendDeveloperCategory(AppDialogPresenter settingsPresenter) {
         List<OptionItem> options = new ArrayList<>();
 
@@ -502,6 +526,11 @@ public class PlayerSettingsPresenter extends BasePresenter<Void> {
                 option -> mPlayerTweaksData.setNetworkErrorFixingDisabled(option.isSelected()),
                 mPlayerTweaksData.isNetworkErrorFixingDisabled()));
 
+        options.add(UiOptionItem.from(getContext().getString(R.string.player_segment_cache),
+                getContext().getString(R.string.player_segment_cache_desc),
+                option -> mPlayerTweaksData.setSegmentCacheEnabled(option.isSelected()),
+                mPlayerTweaksData.isSegmentCacheEnabled()));
+
         // Oculus Quest fix: back button not closing the activity
         options.add(UiOptionItem.from(getContext().getString(R.string.oculus_quest_fix),
                 option -> {
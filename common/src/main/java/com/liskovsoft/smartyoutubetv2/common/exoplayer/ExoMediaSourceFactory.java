@@ -5,7 +5,9 @@ import android.content.Context;
 import android.net.Uri;
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.ext.cronet.CronetDataSourceFactory;
 import com.google.android.exoplayer2.ext.cronet.CronetEngineWrapper;
 import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
@@ -15,11 +17,13 @@ import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.dash.DashChunkSource;
 import com.google.android.exoplayer2.source.dash.DashMediaSource;
 import com.google.android.exoplayer2.source.dash.DefaultDashChunkSource;
+import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
 import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
 import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser;
 import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser2;
 import com.google.android.exoplayer2.source.dash.manifest.Period;
 import com.google.android.exoplayer2.source.dash.manifest.ProgramInformation;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
 import com.google.android.exoplayer2.source.dash.manifest.UtcTimingElement;
 import com.google.android.exoplayer2.source.hls.HlsMediaSource;
 import com.google.android.exoplayer2.source.sabr.DefaultSabrChunkSource;
@@ -31,11 +35,11 @@ import com.google.android.exoplayer2.source.smoothstreaming.DefaultSsChunkSource
 import com.google.android.exoplayer2.source.smoothstreaming.SsMediaSource;
 import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DataSource.Factory;
-import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
 import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
 import com.google.android.exoplayer2.upstream.HttpDataSource;
 import com.google.android.exoplayer2.upstream.HttpDataSource.BaseFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
 import com.google.android.exoplayer2.util.Util;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItemFormatInfo;
 import com.liskovsoft.sharedutils.cronet.CronetManager;
@@ -45,12 +49,16 @@ import com.liskovsoft.sharedutils.okhttp.OkHttpManager;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.DashDefaultLoadErrorHandlingPolicy;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.SabrDefaultLoadErrorHandlingPolicy;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.TrackErrorFixer;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.BandwidthEstimator;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.MediaPrefetcher;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.SegmentCacheManager;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.googlecommon.common.helpers.DefaultHeaders;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executors;
 
@@ -60,15 +68,15 @@ public class ExoMediaSourceFactory {
     //private static ExoMediaSourceFactory sInstance;
     private static final int MAX_SEGMENTS_PER_LOAD = 1; // default - 1 (1-5)
     private static final String USER_AGENT = DefaultHeaders.APP_USER_AGENT;
-    @SuppressLint("StaticFieldLeak")
-    private static final DefaultBandwidthMeter BANDWIDTH_METER = new DefaultBandwidthMeter();
     private final Context mContext;
     private static final Uri DASH_MANIFEST_URI = Uri.parse("https://example.com/test.mpd");
     private static final String DASH_MANIFEST_EXTENSION = "mpd";
     private static final String HLS_PLAYLIST_EXTENSION = "m3u8";
-    private static final boolean USE_BANDWIDTH_METER = false;
+    private static final boolean USE_BANDWIDTH_METER = true;
     private TrackErrorFixer mTrackErrorFixer;
     private Factory mMediaDataSourceFactory;
+    private MediaItemFormatInfo mPrefetchedFormatInfo;
+    private DashManifest mPrefetchedManifest;
 
     public ExoMediaSourceFactory(Context context) {
         mContext = context;
@@ -105,29 +113,77 @@ public class ExoMediaSourceFactory {
         return mediaSources[0]; // item with max resolution
     }
 
+    /**
+     * Loads the beginning of the dash video into the memory so the {@link #fromDashFormatInfo} starts without delay.<br/>
+     * The tracks are chosen to match the currently playing formats.
+     */
+    public void prefetch(MediaItemFormatInfo formatInfo, @Nullable Format videoFormat, @Nullable Format audioFormat) {
+        prefetch(formatInfo, videoFormat, audioFormat, false);
+    }
+
+    /**
+     * Same as {@link #prefetch} but for the card previews. Doesn't replace the prefetched next video.
+     */
+    public void prefetchPreview(MediaItemFormatInfo formatInfo, @Nullable Format videoFormat, @Nullable Format audioFormat) {
+        prefetch(formatInfo, videoFormat, audioFormat, true);
+    }
+
+    private void prefetch(MediaItemFormatInfo formatInfo, @Nullable Format videoFormat, @Nullable Format audioFormat, boolean isPreview) {
+        if (formatInfo == null || formatInfo.isLive() || !formatInfo.containsDashFormats()) {
+            return;
+        }
+
+        DashManifest manifest = getManifest(formatInfo);
+        mPrefetchedFormatInfo = formatInfo;
+        mPrefetchedManifest = manifest;
+
+        List<Representation> representations = new ArrayList<>();
+
+        // Audio goes first. It's small and required to start the playback.
+        Representation audio = findRepresentation(manifest, C.TRACK_TYPE_AUDIO, audioFormat);
+        Representation video = findRepresentation(manifest, C.TRACK_TYPE_VIDEO, videoFormat);
+
+        if (audio != null) {
+            representations.add(audio);
+        }
+
+        if (video != null) {
+            representations.add(video);
+        }
+
+        if (representations.isEmpty()) {
+            return;
+        }
+
+        // Separate factory without bandwidth meter. Background loads shouldn't affect the track selection.
+        MediaPrefetcher.instance(mContext).prefetch(formatInfo.getVideoId(), buildDataSourceFactory(false), representations, isPreview);
+    }
+
     /**
      * Returns a new DataSource factory.
      *
-     * @param useBandwidthMeter Whether to set {@link #BANDWIDTH_METER} as a listener to the new
+     * @param useBandwidthMeter Whether to set {@link BandwidthEstimator} as a listener to the new
      *                          DataSource factory.
      * @return A new DataSource factory.
      */
     private DataSource.Factory buildDataSourceFactory(boolean useBandwidthMeter) {
-        DefaultBandwidthMeter bandwidthMeter = useBandwidthMeter ? BANDWIDTH_METER : null;
-        return new DefaultDataSourceFactory(mContext, bandwidthMeter, buildHttpDataSourceFactory(useBandwidthMeter));
+        TransferListener bandwidthMeter = useBandwidthMeter ? BandwidthEstimator.instance(mContext) : null;
+        DataSource.Factory dataSourceFactory = new DefaultDataSourceFactory(mContext, bandwidthMeter, buildHttpDataSourceFactory(useBandwidthMeter));
+        return PlayerTweaksData.instance(mContext).isSegmentCacheEnabled() ?
+                SegmentCacheManager.instance(mContext).wrap(dataSourceFactory) : dataSourceFactory;
     }
 
     /**
      * Returns a new HttpDataSource factory.
      *
-     * @param useBandwidthMeter Whether to set {@link #BANDWIDTH_METER} as a listener to the new
+     * @param useBandwidthMeter Whether to set {@link BandwidthEstimator} as a listener to the new
      *                          DataSource factory.
      * @return A new HttpDataSource factory.
      */
     private HttpDataSource.Factory buildHttpDataSourceFactory(boolean useBandwidthMeter) {
         PlayerTweaksData tweaksData = PlayerTweaksData.instance(mContext);
         int source = tweaksData.getPlayerDataSource();
-        DefaultBandwidthMeter bandwidthMeter = useBandwidthMeter ? BANDWIDTH_METER : null;
+        TransferListener bandwidthMeter = useBandwidthMeter ? BandwidthEstimator.instance(mContext) : null;
         return source == PlayerTweaksData.PLAYER_DATA_SOURCE_OKHTTP ? buildOkHttpDataSourceFactory(bandwidthMeter) :
                         source == PlayerTweaksData.PLAYER_DATA_SOURCE_CRONET && CronetManager.getEngine(mContext) != null ? buildCronetDataSourceFactory(bandwidthMeter) :
                                 buildDefaultHttpDataSourceFactory(bandwidthMeter);
@@ -243,10 +299,18 @@ public class ExoMediaSourceFactory {
 
     private SabrManifest getSabrManifest(MediaItemFormatInfo formatInfo) {
         SabrManifestParser parser = new SabrManifestParser();
-        return parser.parse(formatInfo);
+        SabrManifest manifest = parser.parse(formatInfo);
+        manifest.setBandwidthMeter(BandwidthEstimator.instance(mContext));
+        // Same network stack as the loads. The probes shouldn't affect the bandwidth estimate.
+        manifest.setProbeDataSourceFactory(buildDataSourceFactory(false));
+        return manifest;
     }
 
     private DashManifest getManifest(MediaItemFormatInfo formatInfo) {
+        if (formatInfo == mPrefetchedFormatInfo && mPrefetchedManifest != null) {
+            return mPrefetchedManifest;
+        }
+
         DashManifestParser2 parser = new DashManifestParser2();
         return parser.parse(formatInfo);
     }
@@ -276,14 +340,14 @@ public class ExoMediaSourceFactory {
     /**
      * Use OkHttp for networking
      */
-    private HttpDataSource.Factory buildOkHttpDataSourceFactory(DefaultBandwidthMeter bandwidthMeter) {
+    private HttpDataSource.Factory buildOkHttpDataSourceFactory(TransferListener bandwidthMeter) {
         OkHttpDataSourceFactory dataSourceFactory = new OkHttpDataSourceFactory(OkHttpManager.instance().getClient(), USER_AGENT,
                 bandwidthMeter);
         addCommonHeaders(dataSourceFactory);
         return dataSourceFactory;
     }
 
-    private HttpDataSource.Factory buildCronetDataSourceFactory(DefaultBandwidthMeter bandwidthMeter) {
+    private HttpDataSource.Factory buildCronetDataSourceFactory(TransferListener bandwidthMeter) {
         CronetDataSourceFactory dataSourceFactory =
                 new CronetDataSourceFactory(
                         new CronetEngineWrapper(CronetManager.getEngine(mContext)),
@@ -301,7 +365,7 @@ public class ExoMediaSourceFactory {
     /**
      * Use built-in component for networking
      */
-    private HttpDataSource.Factory buildDefaultHttpDataSourceFactory(DefaultBandwidthMeter bandwidthMeter) {
+    private HttpDataSource.Factory buildDefaultHttpDataSourceFactory(TransferListener bandwidthMeter) {
         DefaultHttpDataSourceFactory dataSourceFactory = new DefaultHttpDataSourceFactory(
                 USER_AGENT, bandwidthMeter, (int) OkHttpManager.getConnectTimeoutMs(),
                 (int) OkHttpManager.getReadTimeoutMs(), true); // allowCrossProtocolRedirects = true
@@ -354,6 +418,8 @@ public class ExoMediaSourceFactory {
 
     public void release() {
         mMediaDataSourceFactory = null;
+        mPrefetchedFormatInfo = null;
+        mPrefetchedManifest = null;
     }
 
     @NonNull
@@ -373,12 +439,53 @@ public class ExoMediaSourceFactory {
 
     private Factory getMediaDataSourceFactory() {
         if (mMediaDataSourceFactory == null) {
-            mMediaDataSourceFactory = buildDataSourceFactory(USE_BANDWIDTH_METER);
+            mMediaDataSourceFactory = MediaPrefetcher.instance(mContext).wrap(buildDataSourceFactory(USE_BANDWIDTH_METER));
         }
 
         return mMediaDataSourceFactory;
     }
 
+    /**
+     * Same codec, the closest quality (and the same language for audio).
+     */
+    @Nullable
+    private static Representation findRepresentation(DashManifest manifest, int trackType, @Nullable Format target) {
+        if (target == null || manifest.getPeriodCount() == 0) {
+            return null;
+        }
+
+        Representation result = null;
+        long resultDistance = Long.MAX_VALUE;
+
+        for (AdaptationSet adaptationSet : manifest.getPeriod(0).adaptationSets) {
+            if (adaptationSet.type != trackType) {
+                continue;
+            }
+
+            for (Representation representation : adaptationSet.representations) {
+                Format format = representation.format;
+
+                if (!Util.areEqual(format.sampleMimeType, target.sampleMimeType)) {
+                    continue;
+                }
+
+                long distance = trackType == C.TRACK_TYPE_VIDEO ?
+                        Math.abs(format.height - target.height) : Math.abs(format.bitrate - target.bitrate);
+
+                if (trackType == C.TRACK_TYPE_AUDIO && !Util.areEqual(format.language, target.language)) {
+                    distance += Integer.MAX_VALUE; // other language only as a last resort
+                }
+
+                if (distance < resultDistance) {
+                    result = representation;
+                    resultDistance = distance;
+                }
+            }
+        }
+
+        return result;
+    }
+
     // EXO: 2.10 - 2.12
     private static class StaticDashManifestParser extends DashManifestParser {
         @Override
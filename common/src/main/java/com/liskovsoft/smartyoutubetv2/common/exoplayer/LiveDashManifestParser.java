@@ -15,6 +15,7 @@ import com.google.android.exoplayer2.source.dash.manifest.Representation.MultiSe
 import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.MultiSegmentBase;
 import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentList;
 import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentTimelineElement;
+import com.google.android.exoplayer2.source.dash.manifest.SegmentTimelineList;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.querystringparser.UrlQueryString;
@@ -25,8 +26,12 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
 /**
- * Supported ExoPlayer versions: 2.10.6
+ * Supported ExoPlayer versions: 2.10.6<br/>
+ * Refreshed manifests are merged into the first one. Segments that are already known aren't parsed again.
  */
 @SuppressWarnings("unchecked")
 public class LiveDashManifestParser extends DashManifestParser {
@@ -37,8 +42,12 @@ public class LiveDashManifestParser extends DashManifestParser {
     // Usually gaming streams. 10 hrs max.
     private static final long MAX_PAST_STREAM_LENGTH_MS = 12 * 60 * 60 * 1_000;
     private static final long MAX_NEW_STREAM_LENGTH_MS = 30 * 1_000;
+    // Known segments are replaced with this one. Trimmed before the segment list is built.
+    private static final RangedUri SKIPPED_SEGMENT = new RangedUri(null, 0, 0);
     private DashManifest mOldManifest;
     private long mOldSegmentNum;
+    private int mSkipSegmentCount;
+    private int mSegmentUrlCount;
 
     @Override
     public DashManifest parse(Uri uri, InputStream inputStream) throws IOException {
@@ -53,6 +62,65 @@ public class LiveDashManifestParser extends DashManifestParser {
         return mOldManifest;
     }
 
+    @Override
+    protected SegmentList parseSegmentList(XmlPullParser xpp, SegmentList parent) throws XmlPullParserException, IOException {
+        mSkipSegmentCount = getKnownSegmentCount(xpp);
+        mSegmentUrlCount = 0;
+
+        return super.parseSegmentList(xpp, parent);
+    }
+
+    @Override
+    protected RangedUri parseSegmentUrl(XmlPullParser xpp) {
+        return mSegmentUrlCount++ < mSkipSegmentCount ? SKIPPED_SEGMENT : super.parseSegmentUrl(xpp);
+    }
+
+    /**
+     * Drops the known segments. The start number is shifted so that the segment numbers remain the same.
+     */
+    @Override
+    protected SegmentList buildSegmentList(
+            RangedUri initialization,
+            long timescale,
+            long presentationTimeOffset,
+            long startNumber,
+            long duration,
+            List<SegmentTimelineElement> timeline,
+            List<RangedUri> segments) {
+        int skipCount = mSkipSegmentCount;
+        mSkipSegmentCount = 0;
+
+        // Inherited segments of the parent are already trimmed
+        if (skipCount > 0 && mSegmentUrlCount > 0 && segments != null && timeline instanceof SegmentTimelineList) {
+            skipCount = Math.min(skipCount, Math.min(segments.size(), timeline.size()));
+            segments = new ArrayList<>(segments.subList(skipCount, segments.size()));
+            timeline = ((SegmentTimelineList) timeline).tail(skipCount);
+            startNumber += skipCount;
+        }
+
+        return super.buildSegmentList(initialization, timescale, presentationTimeOffset, startNumber, duration, timeline, segments);
+    }
+
+    /**
+     * Only the refreshed manifests of the long streams are merged (see {@link #appendManifest}).
+     * The list that inherits the start number of the parent isn't touched.
+     */
+    private int getKnownSegmentCount(XmlPullParser xpp) {
+        String startNumberText = xpp.getAttributeValue(null, "startNumber");
+
+        if (mOldManifest == null || startNumberText == null) {
+            return 0;
+        }
+
+        long startNumber = Helpers.parseLong(startNumberText);
+
+        if (startNumber <= 0 || mOldSegmentNum < startNumber) {
+            return 0;
+        }
+
+        return (int) Math.min(Integer.MAX_VALUE, mOldSegmentNum - startNumber + 1);
+    }
+
     private void appendManifest(DashManifest newManifest) {
         if (newManifest == null) {
             return;
@@ -153,6 +221,15 @@ public class LiveDashManifestParser extends DashManifestParser {
 
         // segmentTimeline is the same for all segments
         if (oldMediaSegments.size() != oldSegmentTimeline.size()) {
+            if (oldSegmentTimeline instanceof SegmentTimelineList) {
+                // Extends the last run. No new objects.
+                SegmentTimelineList oldTimelineList = (SegmentTimelineList) oldSegmentTimeline;
+                int lastIndex = oldTimelineList.size() - 1;
+                long lastTimelineDuration = oldTimelineList.getDuration(lastIndex);
+                oldTimelineList.append(oldTimelineList.getStartTime(lastIndex) + lastTimelineDuration, lastTimelineDuration, (int) segmentNumShift);
+                return;
+            }
+
             SegmentTimelineElement lastTimeline = oldSegmentTimeline.get(oldSegmentTimeline.size() - 1);
             // TODO: modified
             //long lastTimelineDuration = lastTimeline.duration;
@@ -23,6 +23,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.playback.listener.PlayerEventListener;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.ExoMediaSourceFactory;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.errors.TrackErrorFixer;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.PlaybackMetrics;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.VolumeBooster;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.ExoFormatItem;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.FormatItem;
@@ -46,6 +47,7 @@ public class ExoPlayerController implements Player.EventListener {
     private final TrackSelectorManager mTrackSelectorManager;
     private final TrackInfoFormatter2 mTrackFormatter;
     private final TrackErrorFixer mTrackErrorFixer;
+    private final PlaybackMetrics.Tracker mMetrics;
     private boolean mOnSourceChanged;
     private WeakReference<Video> mVideo;
     private final PlayerEventListener mEventListener;
@@ -63,6 +65,7 @@ public class ExoPlayerController implements Player.EventListener {
         mTrackFormatter = new TrackInfoFormatter2();
         mTrackFormatter.enableBitrate(PlayerTweaksData.instance(context).isQualityInfoBitrateEnabled());
         mTrackErrorFixer = new TrackErrorFixer(mTrackSelectorManager);
+        mMetrics = PlaybackMetrics.instance(context).createTracker();
 
         mMediaSourceFactory.setTrackErrorFixer(mTrackErrorFixer);
         mEventListener = eventListener;
@@ -80,47 +83,74 @@ public class ExoPlayerController implements Player.EventListener {
     }
 
     public void openSabr(MediaItemFormatInfo formatInfo) {
+        startMetrics(PlaybackMetrics.SOURCE_SABR);
         MediaSource mediaSource = mMediaSourceFactory.fromSabrFormatInfo(formatInfo);
         openMediaSource(mediaSource);
     }
 
     public void openDash(MediaItemFormatInfo formatInfo) {
+        startMetrics(PlaybackMetrics.SOURCE_DASH);
         MediaSource mediaSource = mMediaSourceFactory.fromDashFormatInfo(formatInfo);
         openMediaSource(mediaSource);
     }
 
     public void openDash(InputStream dashManifest) {
+        startMetrics(PlaybackMetrics.SOURCE_DASH);
         MediaSource mediaSource = mMediaSourceFactory.fromDashManifest(dashManifest);
         openMediaSource(mediaSource);
     }
 
     public void openDashUrl(String dashManifestUrl) {
+        startMetrics(PlaybackMetrics.SOURCE_DASH_LIVE);
         MediaSource mediaSource = mMediaSourceFactory.fromDashManifestUrl(dashManifestUrl);
         openMediaSource(mediaSource);
     }
 
     public void openHlsUrl(String hlsPlaylistUrl) {
+        startMetrics(PlaybackMetrics.SOURCE_HLS);
         MediaSource mediaSource = mMediaSourceFactory.fromHlsPlaylist(hlsPlaylistUrl);
         openMediaSource(mediaSource);
     }
 
     public void openUrlList(List<String> urlList) {
+        startMetrics(PlaybackMetrics.SOURCE_URL_LIST);
         MediaSource mediaSource = mMediaSourceFactory.fromUrlList(urlList);
         openMediaSource(mediaSource);
     }
 
     public void openMerged(MediaItemFormatInfo formatInfo, String hlsPlaylistUrl) {
+        startMetrics(PlaybackMetrics.SOURCE_MERGED);
         MediaSource dashMediaSource = mMediaSourceFactory.fromDashFormatInfo(formatInfo);
         MediaSource hlsMediaSource = mMediaSourceFactory.fromHlsPlaylist(hlsPlaylistUrl);
         openMediaSource(new MergingMediaSource(dashMediaSource, hlsMediaSource));
     }
 
     public void openMerged(InputStream dashManifest, String hlsPlaylistUrl) {
+        startMetrics(PlaybackMetrics.SOURCE_MERGED);
         MediaSource dashMediaSource = mMediaSourceFactory.fromDashManifest(dashManifest);
         MediaSource hlsMediaSource = mMediaSourceFactory.fromHlsPlaylist(hlsPlaylistUrl);
         openMediaSource(new MergingMediaSource(dashMediaSource, hlsMediaSource));
     }
 
+    /**
+     * Warm up the next video. Uses the formats of the current video as a hint.
+     */
+    public void prefetch(MediaItemFormatInfo formatInfo) {
+        if (mPlayer == null) {
+            return;
+        }
+
+        mMediaSourceFactory.prefetch(formatInfo, mPlayer.getVideoFormat(), mPlayer.getAudioFormat());
+    }
+
+    /**
+     * Before the media source is built, so the manifest stage includes it.
+     */
+    private void startMetrics(String sourceType) {
+        Video video = getVideo();
+        mMetrics.onSourceOpened(video != null ? video.videoId : null, sourceType);
+    }
+
     private void openMediaSource(MediaSource mediaSource) {
         resetPlayerState(); // fixes occasional video artifacts and problems with quality switching
         setQualityInfo("");
@@ -206,6 +236,7 @@ public class ExoPlayerController implements Player.EventListener {
     public void setPlayer(SimpleExoPlayer player) {
         mPlayer = player;
         player.addListener(this);
+        player.addAnalyticsListener(mMetrics);
     }
 
     //@Override
@@ -491,8 +522,11 @@ public class ExoPlayerController implements Player.EventListener {
             return;
         }
 
+        mMetrics.finishSession();
+
         try {
             mPlayer.removeListener(this);
+            mPlayer.removeAnalyticsListener(mMetrics);
             mPlayer.stop(true); // Cause input lags due to high cpu load?
             mPlayer.clearVideoSurface();
             mPlayer.release();
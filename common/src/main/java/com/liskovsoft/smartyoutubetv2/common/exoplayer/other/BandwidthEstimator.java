@@ -0,0 +1,311 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.util.EventDispatcher;
+import com.google.android.exoplayer2.util.SlidingPercentile;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.misc.PersistentCache;
+
+import java.util.Locale;
+
+/**
+ * Bandwidth meter that remembers the throughput of every network (Wi-Fi name or the connection type).<br/>
+ * The recent samples are persisted, so the first segments after the app restart are selected by the real link speed,
+ * not by the country based guess of the {@link DefaultBandwidthMeter}.<br/>
+ * Used by the player (adaptive track selection) and by the SABR requests (bandwidth hint).
+ */
+public class BandwidthEstimator implements BandwidthMeter, TransferListener {
+    private static final String TAG = BandwidthEstimator.class.getSimpleName();
+    private static final String CACHE_NAME = "bandwidth";
+    private static final int MAX_NETWORKS = 16;
+    private static final long NETWORK_TTL_MS = 30L * 24 * 60 * 60 * 1_000;
+    private static final long NETWORK_CHECK_INTERVAL_MS = 10_000;
+    private static final int MAX_WEIGHT = DefaultBandwidthMeter.DEFAULT_SLIDING_WINDOW_MAX_WEIGHT;
+    /** Samples kept on the disk. Enough to fill the sliding window after the restart. */
+    private static final int PERSISTED_SAMPLES = 20;
+    private static final long ELAPSED_MILLIS_FOR_ESTIMATE = 2_000;
+    private static final long BYTES_TRANSFERRED_FOR_ESTIMATE = 512 * 1024;
+    private static final String UNKNOWN_SSID = "<unknown ssid>";
+    private static final String UNKNOWN_NETWORK = "unknown";
+    @SuppressLint("StaticFieldLeak")
+    private static BandwidthEstimator sInstance;
+    private final Context mContext;
+    private final PersistentCache mCache;
+    private final EventDispatcher<EventListener> mEventDispatcher = new EventDispatcher<>();
+    private final SlidingPercentile mSlidingPercentile = new SlidingPercentile(MAX_WEIGHT);
+    private final int[] mSampleWeights = new int[PERSISTED_SAMPLES];
+    private final float[] mSampleValues = new float[PERSISTED_SAMPLES];
+    private final long mDefaultEstimate;
+    private int mSampleCount;
+    private String mNetworkKey;
+    private long mNetworkCheckTimeMs;
+    private int mStreamCount;
+    private long mSampleStartTimeMs;
+    private long mSampleBytesTransferred;
+    private long mTotalElapsedTimeMs;
+    private long mTotalBytesTransferred;
+    private boolean mHasHistory;
+    private boolean mIsRestorePending;
+    private long mBitrateEstimate;
+
+    private BandwidthEstimator(Context context) {
+        mContext = context;
+        mCache = new PersistentCache(context, CACHE_NAME, MAX_NETWORKS, NETWORK_TTL_MS);
+        // Country and connection type based guess for the unknown networks
+        mDefaultEstimate = new DefaultBandwidthMeter.Builder(context).build().getBitrateEstimate();
+        mBitrateEstimate = mDefaultEstimate;
+    }
+
+    public static BandwidthEstimator instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new BandwidthEstimator(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    @Override
+    public synchronized long getBitrateEstimate() {
+        checkNetwork();
+        return mBitrateEstimate;
+    }
+
+    @Nullable
+    @Override
+    public TransferListener getTransferListener() {
+        return this;
+    }
+
+    @Override
+    public void addEventListener(Handler eventHandler, EventListener eventListener) {
+        mEventDispatcher.addListener(eventHandler, eventListener);
+    }
+
+    @Override
+    public void removeEventListener(EventListener eventListener) {
+        mEventDispatcher.removeListener(eventListener);
+    }
+
+    @Override
+    public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        // Do nothing.
+    }
+
+    @Override
+    public synchronized void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        if (!isNetwork) {
+            return;
+        }
+
+        checkNetwork();
+
+        if (mStreamCount == 0) {
+            mSampleStartTimeMs = SystemClock.elapsedRealtime();
+        }
+
+        mStreamCount++;
+    }
+
+    @Override
+    public synchronized void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+        if (!isNetwork) {
+            return;
+        }
+
+        mSampleBytesTransferred += bytesTransferred;
+    }
+
+    /**
+     * Same sampling as the {@link DefaultBandwidthMeter}: the parallel loads are measured as one.
+     */
+    @Override
+    public synchronized void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        if (!isNetwork || mStreamCount == 0) {
+            return;
+        }
+
+        long nowMs = SystemClock.elapsedRealtime();
+        int sampleElapsedTimeMs = (int) (nowMs - mSampleStartTimeMs);
+        mTotalElapsedTimeMs += sampleElapsedTimeMs;
+        mTotalBytesTransferred += mSampleBytesTransferred;
+
+        if (sampleElapsedTimeMs > 0) {
+            float bitsPerSecond = (mSampleBytesTransferred * 8000f) / sampleElapsedTimeMs;
+            addSample((int) Math.sqrt(mSampleBytesTransferred), bitsPerSecond);
+
+            if (mHasHistory || mTotalElapsedTimeMs >= ELAPSED_MILLIS_FOR_ESTIMATE
+                    || mTotalBytesTransferred >= BYTES_TRANSFERRED_FOR_ESTIMATE) {
+                mBitrateEstimate = (long) mSlidingPercentile.getPercentile(0.5f);
+                persist();
+            }
+
+            notifyBandwidthSample(sampleElapsedTimeMs, mSampleBytesTransferred, mBitrateEstimate);
+            mSampleStartTimeMs = nowMs;
+            mSampleBytesTransferred = 0;
+        } // Else the bytes are carried forward into the next sample.
+
+        mStreamCount--;
+    }
+
+    private void addSample(int weight, float value) {
+        mSlidingPercentile.addSample(weight, value);
+
+        int index = mSampleCount % PERSISTED_SAMPLES;
+        mSampleWeights[index] = weight;
+        mSampleValues[index] = value;
+        mSampleCount++;
+    }
+
+    /**
+     * The estimate of the previous network is not valid anymore. Restore the one of the new network.
+     */
+    private void checkNetwork() {
+        checkPendingRestore();
+
+        long nowMs = SystemClock.elapsedRealtime();
+
+        if (mNetworkCheckTimeMs != 0 && nowMs - mNetworkCheckTimeMs < NETWORK_CHECK_INTERVAL_MS) {
+            return;
+        }
+
+        mNetworkCheckTimeMs = nowMs;
+        String networkKey = getNetworkKey();
+
+        if (networkKey == null || networkKey.equals(mNetworkKey)) {
+            // The same network or offline
+            return;
+        }
+
+        mNetworkKey = networkKey;
+        mSlidingPercentile.reset();
+        mSampleCount = 0;
+        mTotalElapsedTimeMs = 0;
+        mTotalBytesTransferred = 0;
+        mIsRestorePending = !mCache.isLoaded();
+        mHasHistory = restore(networkKey);
+        mBitrateEstimate = mHasHistory ? (long) mSlidingPercentile.getPercentile(0.5f) : mDefaultEstimate;
+
+        Log.d(TAG, "Network %s, initial bitrate estimate %s (restored: %s)", networkKey, mBitrateEstimate, mHasHistory);
+
+        notifyBandwidthSample(0, 0, mBitrateEstimate);
+    }
+
+    /**
+     * The cache is loaded in the background. The network may be detected before that.
+     */
+    private void checkPendingRestore() {
+        if (!mIsRestorePending || !mCache.isLoaded()) {
+            return;
+        }
+
+        mIsRestorePending = false;
+
+        // Don't mix the history with the samples of the current session
+        if (mSampleCount == 0 && restore(mNetworkKey)) {
+            mHasHistory = true;
+            mBitrateEstimate = (long) mSlidingPercentile.getPercentile(0.5f);
+
+            Log.d(TAG, "Network %s, restored bitrate estimate %s", mNetworkKey, mBitrateEstimate);
+
+            notifyBandwidthSample(0, 0, mBitrateEstimate);
+        }
+    }
+
+    /**
+     * Weight and value pairs of the recent samples: "w:v;w:v".
+     */
+    private void persist() {
+        if (mNetworkKey == null) {
+            return;
+        }
+
+        StringBuilder result = new StringBuilder();
+        int count = Math.min(mSampleCount, PERSISTED_SAMPLES);
+
+        for (int i = mSampleCount - count; i < mSampleCount; i++) {
+            int index = i % PERSISTED_SAMPLES;
+
+            if (result.length() > 0) {
+                result.append(';');
+            }
+
+            result.append(mSampleWeights[index]).append(':').append((long) mSampleValues[index]);
+        }
+
+        mCache.put(mNetworkKey, result.toString());
+    }
+
+    private boolean restore(String networkKey) {
+        String samples = mCache.get(networkKey);
+
+        if (TextUtils.isEmpty(samples)) {
+            return false;
+        }
+
+        try {
+            for (String sample : samples.split(";")) {
+                String[] pair = sample.split(":");
+                addSample(Integer.parseInt(pair[0]), Long.parseLong(pair[1]));
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            Log.e(TAG, "Malformed bandwidth samples: %s", samples);
+            mSlidingPercentile.reset();
+            mSampleCount = 0;
+            return false;
+        }
+
+        return mSampleCount > 0;
+    }
+
+    /**
+     * Connection type plus the hash of the Wi-Fi name (APN on mobile) when available.<br/>
+     * Null when offline.
+     */
+    @Nullable
+    private String getNetworkKey() {
+        ConnectivityManager manager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        if (manager == null) {
+            return UNKNOWN_NETWORK;
+        }
+
+        NetworkInfo networkInfo;
+
+        try {
+            networkInfo = manager.getActiveNetworkInfo();
+        } catch (SecurityException e) {
+            // Expected if permission was revoked.
+            return UNKNOWN_NETWORK;
+        }
+
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return null;
+        }
+
+        String result = networkInfo.getTypeName().toLowerCase(Locale.ROOT);
+        String extraInfo = networkInfo.getExtraInfo();
+
+        if (!TextUtils.isEmpty(extraInfo) && !UNKNOWN_SSID.equals(extraInfo)) {
+            // Don't store the network names
+            result += "_" + Integer.toHexString(extraInfo.hashCode());
+        }
+
+        return result;
+    }
+
+    private void notifyBandwidthSample(int elapsedMs, long bytesTransferred, long bitrateEstimate) {
+        mEventDispatcher.dispatch(listener -> listener.onBandwidthSample(elapsedMs, bytesTransferred, bitrateEstimate));
+    }
+}
@@ -38,6 +38,7 @@ import com.liskovsoft.smartyoutubetv2.common.autoframerate.internal.DisplayHolde
 import com.liskovsoft.smartyoutubetv2.common.autoframerate.internal.UhdHelper;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.versions.ExoUtils;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
+import com.liskovsoft.smartyoutubetv2.common.misc.UnlocalizedTitleProcessor;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
@@ -398,6 +399,39 @@ public final class DebugInfoManager implements Runnable, Player.EventListener {
                 (FileHelpers.getDirSize(FileHelpers.getCacheDir(mContext)) + FileHelpers.getDirSize(FileHelpers.getExternalCacheDir(mContext)))
                         / 1024 / 1024
         ));
+        appendSegmentCacheInfo();
+        appendTitleCacheInfo();
+    }
+
+    private void appendSegmentCacheInfo() {
+        SegmentCacheManager cacheManager = SegmentCacheManager.instance(mContext);
+
+        if (!cacheManager.isCreated()) {
+            return;
+        }
+
+        long hitBytes = cacheManager.getHitBytes();
+        long missBytes = cacheManager.getMissBytes();
+        long totalBytes = hitBytes + missBytes;
+
+        appendRow("Segment cache (Size/Hit/Miss, MB)", String.format(Locale.US, "%s/%s/%s (%s%%)",
+                cacheManager.getCacheSpaceBytes() / 1024 / 1024,
+                hitBytes / 1024 / 1024,
+                missBytes / 1024 / 1024,
+                totalBytes > 0 ? hitBytes * 100 / totalBytes : 0
+        ));
+    }
+
+    private void appendTitleCacheInfo() {
+        if (UnlocalizedTitleProcessor.getCacheSize() == 0) {
+            return;
+        }
+
+        appendRow("Title cache (Size/Hit/In-flight)", String.format(Locale.US, "%s/%s%%/%s",
+                UnlocalizedTitleProcessor.getCacheSize(),
+                UnlocalizedTitleProcessor.getCacheHitRate(),
+                UnlocalizedTitleProcessor.getInFlightCount()
+        ));
     }
 
     private void appendMemoryInfo() {
@@ -1,16 +1,21 @@
 package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.os.Build;
 import android.os.Handler;
 import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.AdaptiveLoadControl;
 import com.google.android.exoplayer2.C;
-import com.google.android.exoplayer2.DefaultLoadControl;
 import com.google.android.exoplayer2.DefaultRenderersFactory;
 import com.google.android.exoplayer2.ExoPlayerFactory;
+import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SeekParameters;
 import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.Timeline;
 import com.google.android.exoplayer2.audio.AudioAttributes;
+import com.google.android.exoplayer2.audio.LoudnessAudioProcessor;
 import com.google.android.exoplayer2.drm.DefaultDrmSessionManager;
 import com.google.android.exoplayer2.drm.DrmSessionManager;
 import com.google.android.exoplayer2.drm.ExoMediaDrm.KeyRequest;
@@ -20,8 +25,10 @@ import com.google.android.exoplayer2.drm.MediaDrmCallback;
 import com.google.android.exoplayer2.drm.UnsupportedDrmException;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
 import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
 import com.google.android.exoplayer2.upstream.TransferListener;
 import com.liskovsoft.sharedutils.helpers.DeviceHelpers;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.versions.renderer.CustomOverridesRenderersFactory;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
 
@@ -33,7 +40,11 @@ public class ExoPlayerInitializer {
     private final PlayerTweaksData mPlayerTweaksData;
     private VolumeBooster mVolumeBooster;
     private float mVolumeBoost;
+    private LoudnessAudioProcessor mLoudnessProcessor;
     private SimpleExoPlayer mPlayer;
+    private Context mContext;
+    private ComponentCallbacks2 mMemoryCallbacks;
+    private Player.EventListener mLiveListener;
     private static AudioAttributes sAudioAttributes;
 
     public ExoPlayerInitializer(Context context) {
@@ -45,17 +56,25 @@ public class ExoPlayerInitializer {
         // If ram is too big, bigger then max int value DeviceRam will return a negative number...
         // use 196MB as that can only happens if device has more than 17GB of RAM, so 196 is enough and safe
         // https://github.com/yuliskov/SmartYouTubeTV/issues/532
-        mMaxBufferBytes = deviceRam <= 0 ? 196_000_000 : (int)(deviceRam / 18);
+        int maxBufferBytes = deviceRam <= 0 ? 196_000_000 : (int)(deviceRam / 18);
+
+        // The buffer lives in the java heap. Leave the most of the heap to the app.
+        mMaxBufferBytes = (int) Math.min(maxBufferBytes, Runtime.getRuntime().maxMemory() / 4);
     }
 
     public SimpleExoPlayer createPlayer(Context context, DefaultRenderersFactory renderersFactory, DefaultTrackSelector trackSelector) {
-        DefaultLoadControl loadControl = createLoadControl();
+        AdaptiveLoadControl loadControl = createLoadControl();
 
         // HDR fix?
         //trackSelector.setParameters(trackSelector.buildUponParameters().setTunnelingAudioSessionId(C.generateAudioSessionIdV21(context)));
 
         // Old initializer
-        SimpleExoPlayer player = ExoPlayerFactory.newSimpleInstance(context, renderersFactory, trackSelector, loadControl);
+        //SimpleExoPlayer player = ExoPlayerFactory.newSimpleInstance(context, renderersFactory, trackSelector, loadControl);
+
+        // Adaptive selection starts from the measured throughput of the current network
+        SimpleExoPlayer player = ExoPlayerFactory.newSimpleInstance(
+                context, renderersFactory, trackSelector, loadControl, null, BandwidthEstimator.instance(context)
+        );
 
         // New initializer
         //SimpleExoPlayer player = ExoPlayerFactory.newSimpleInstance(
@@ -75,7 +94,9 @@ public class ExoPlayerInitializer {
 
         setupAudioFocus(player);
 
-        setupVolumeBoost(player);
+        setupVolumeBoost(player, renderersFactory);
+
+        setupLoadControl(context, player, loadControl);
 
         mPlayer = player;
 
@@ -94,12 +115,11 @@ public class ExoPlayerInitializer {
     }
 
     /**
-     * Increase player's min/max buffer size to 60 secs
+     * The user preset sets the buffer durations. The size in bytes follows the bitrate of the selected tracks
+     * and is limited by the memory. Live streams and audio only playback get own durations.
      * @return load control
      */
-    private DefaultLoadControl createLoadControl() {
-        DefaultLoadControl.Builder baseBuilder = new DefaultLoadControl.Builder();
-
+    private AdaptiveLoadControl createLoadControl() {
         // Default values
         //DefaultLoadControl.DEFAULT_MIN_BUFFER_MS // 15_000
         //DefaultLoadControl.DEFAULT_MAX_BUFFER_MS // 50_000
@@ -111,6 +131,7 @@ public class ExoPlayerInitializer {
         int maxBufferMs = 30_000;
         int bufferForPlaybackMs = 2_500;
         int bufferForPlaybackAfterRebufferMs = 5_000;
+        int backBufferMs = 0;
 
         switch (mPlayerData.getVideoBufferType()) {
             case PlayerData.BUFFER_HIGHEST:
@@ -118,14 +139,12 @@ public class ExoPlayerInitializer {
                 maxBufferMs = 100_000;
                 // Infinite buffer works awfully on live streams. Constant stuttering.
                 //maxBufferMs = 36_000_000; // technical infinity, recommended here a very high number, the max will be based on setTargetBufferBytes() value
-                baseBuilder
-                        .setTargetBufferBytes(mMaxBufferBytes);
-                baseBuilder.setBackBuffer(minBufferMs, true);
+                backBufferMs = minBufferMs;
                 break;
             case PlayerData.BUFFER_HIGH:
                 minBufferMs = 50_000;
                 maxBufferMs = 50_000;
-                baseBuilder.setBackBuffer(minBufferMs, true);
+                backBufferMs = minBufferMs;
                 break;
             case PlayerData.BUFFER_MEDIUM:
                 //minBufferMs = 30_000;
@@ -139,19 +158,64 @@ public class ExoPlayerInitializer {
                 break;
         }
 
-        baseBuilder
-                .setBufferDurationsMs(minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs);
-
         // Decrease buffer size?
-        //baseBuilder.setAllocator(new DefaultAllocator(true, 16 * 1024));
+        //new DefaultAllocator(true, 16 * 1024);
 
-        return baseBuilder.createDefaultLoadControl();
+        return new AdaptiveLoadControl(new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE),
+                minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs, backBufferMs, mMaxBufferBytes);
     }
 
-    private void setupVolumeBoost(SimpleExoPlayer player) {
+    /**
+     * Resize the buffer at runtime: on memory warnings and when the live stream is opened.
+     */
+    private void setupLoadControl(Context context, SimpleExoPlayer player, AdaptiveLoadControl loadControl) {
+        mContext = context.getApplicationContext();
+
+        mMemoryCallbacks = new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                loadControl.onTrimMemory(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+                // NOP
+            }
+
+            @Override
+            public void onLowMemory() {
+                loadControl.onTrimMemory(TRIM_MEMORY_COMPLETE);
+            }
+        };
+        mContext.registerComponentCallbacks(mMemoryCallbacks);
+
+        mLiveListener = new Player.EventListener() {
+            @Override
+            public void onTimelineChanged(Timeline timeline, @Nullable Object manifest, int reason) {
+                loadControl.setLive(player.isCurrentWindowDynamic());
+            }
+        };
+        player.addListener(mLiveListener);
+    }
+
+    private void setupVolumeBoost(SimpleExoPlayer player, DefaultRenderersFactory renderersFactory) {
+        boolean autoVolume = mPlayerTweaksData.isPlayerAutoVolumeEnabled();
+
+        if (renderersFactory instanceof CustomOverridesRenderersFactory) {
+            // Measured loudness instead of the fixed auto volume multiplier. Any channel count, no effect engine needed.
+            LoudnessAudioProcessor processor = ((CustomOverridesRenderersFactory) renderersFactory).getLoudnessProcessor();
+            float volume = mPlayerData.getPlayerVolume();
+            processor.setGain(Math.max(volume, 1f));
+            processor.setNormalizationEnabled(autoVolume);
+            processor.setEnabled(volume > 1f || autoVolume);
+            mLoudnessProcessor = processor;
+            mVolumeBoost = Math.max(volume, 1f);
+            return;
+        }
+
         // 5.1 audio cannot be boosted (format isn't supported error)
         // also, other 2.0 tracks in 5.1 group is already too loud. so cancel them too.
-        float volume = mPlayerTweaksData.isPlayerAutoVolumeEnabled() ? mPlayerData.getPlayerVolume() * 2.0f : mPlayerData.getPlayerVolume();
+        float volume = autoVolume ? mPlayerData.getPlayerVolume() * 2.0f : mPlayerData.getPlayerVolume();
         if (volume > 1f && Build.VERSION.SDK_INT >= 19) {
             mVolumeBooster = new VolumeBooster(true, volume, player);
             player.addAudioListener(mVolumeBooster);
@@ -187,7 +251,7 @@ public class ExoPlayerInitializer {
     }
 
     public float getVolumeBoost() {
-        return mVolumeBoost;
+        return mLoudnessProcessor != null ? mVolumeBoost * mLoudnessProcessor.getNormalizationGain() : mVolumeBoost;
     }
 
     public void release() {
@@ -199,7 +263,18 @@ public class ExoPlayerInitializer {
             mPlayer.removeAudioListener(mVolumeBooster);
         }
 
+        if (mPlayer != null && mLiveListener != null) {
+            mPlayer.removeListener(mLiveListener);
+        }
+
+        if (mContext != null && mMemoryCallbacks != null) {
+            mContext.unregisterComponentCallbacks(mMemoryCallbacks);
+        }
+
         mVolumeBooster = null;
+        mLoudnessProcessor = null;
+        mLiveListener = null;
+        mMemoryCallbacks = null;
         mPlayer = null;
     }
 
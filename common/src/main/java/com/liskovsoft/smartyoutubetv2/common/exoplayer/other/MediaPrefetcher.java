@@ -0,0 +1,318 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.source.dash.manifest.RangedUri;
+import com.google.android.exoplayer2.source.dash.manifest.Representation;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.liskovsoft.sharedutils.helpers.DeviceHelpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads the beginning of the next video (init + index + first seconds of media) into the memory
+ * so the playback of the next video starts without waiting for the network.<br/>
+ * Holds the data of the next video and of the card preview. The pool size depends on the device RAM.<br/>
+ * The preview has its own smaller slot so a focused card doesn't evict the next video.<br/>
+ * NOTE: only the DASH (GET) formats. SABR requests depend on the state of the session.
+ */
+public class MediaPrefetcher {
+    private static final String TAG = MediaPrefetcher.class.getSimpleName();
+    private static final long PREFETCH_DURATION_MS = 5_000;
+    private static final long MIN_POOL_SIZE_BYTES = 4L * 1024 * 1024;
+    private static final long MAX_POOL_SIZE_BYTES = 32L * 1024 * 1024;
+    private static final long DEFAULT_POOL_SIZE_BYTES = 16L * 1024 * 1024;
+    private static final int RAM_FRACTION = 64;
+    private static final int PREVIEW_POOL_FRACTION = 4;
+    @SuppressLint("StaticFieldLeak")
+    private static MediaPrefetcher sInstance;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Slot mNextSlot;
+    private final Slot mPreviewSlot;
+
+    private static class Slot {
+        private final long mSizeBytes;
+        private final Map<String, byte[]> mPool = new HashMap<>();
+        private String mVideoId;
+        private Future<?> mPrefetchAction;
+
+        private Slot(long sizeBytes) {
+            mSizeBytes = sizeBytes;
+        }
+
+        private void clear() {
+            if (mPrefetchAction != null) {
+                mPrefetchAction.cancel(true);
+                mPrefetchAction = null;
+            }
+
+            mPool.clear();
+            mVideoId = null;
+        }
+    }
+
+    private MediaPrefetcher(Context context) {
+        long deviceRam = DeviceHelpers.getDeviceRam(context);
+
+        // Negative when the ram is bigger than max int (see ExoPlayerInitializer)
+        long poolSizeBytes = deviceRam <= 0 ? DEFAULT_POOL_SIZE_BYTES :
+                Math.max(MIN_POOL_SIZE_BYTES, Math.min(MAX_POOL_SIZE_BYTES, deviceRam / RAM_FRACTION));
+
+        mNextSlot = new Slot(poolSizeBytes);
+        // The previews are low quality
+        mPreviewSlot = new Slot(poolSizeBytes / PREVIEW_POOL_FRACTION);
+    }
+
+    public static MediaPrefetcher instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new MediaPrefetcher(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Serves the prefetched data from the memory. The rest of the request goes to the upstream.
+     */
+    public DataSource.Factory wrap(DataSource.Factory upstreamFactory) {
+        return () -> new PrefetchDataSource(upstreamFactory.createDataSource());
+    }
+
+    /**
+     * Replaces the previous prefetched video of the same slot.<br/>
+     * Representations should be ordered by priority (e.g. audio first). The ones that don't fit the pool are skipped.
+     */
+    public synchronized void prefetch(String videoId, DataSource.Factory upstreamFactory, List<Representation> representations, boolean isPreview) {
+        Slot slot = isPreview ? mPreviewSlot : mNextSlot;
+
+        if (videoId == null || videoId.equals(mNextSlot.mVideoId) || videoId.equals(mPreviewSlot.mVideoId)) {
+            return;
+        }
+
+        slot.clear();
+        slot.mVideoId = videoId;
+
+        slot.mPrefetchAction = mExecutor.submit(() -> {
+            long freeBytes = slot.mSizeBytes;
+
+            for (Representation representation : representations) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                String key = representation.getCacheKey();
+                long length = getPrefetchLength(representation);
+
+                if (key == null || length <= 0) {
+                    continue;
+                }
+
+                length = Math.min(length, freeBytes);
+
+                if (length <= 0) {
+                    break;
+                }
+
+                byte[] data = download(upstreamFactory, representation, key, length);
+
+                if (data != null && put(slot, videoId, key, data)) {
+                    freeBytes -= data.length;
+                }
+            }
+        });
+    }
+
+    public synchronized void clear() {
+        mNextSlot.clear();
+        mPreviewSlot.clear();
+    }
+
+    private synchronized boolean put(Slot slot, String videoId, String key, byte[] data) {
+        // Another video is prefetched already
+        if (!videoId.equals(slot.mVideoId)) {
+            return false;
+        }
+
+        slot.mPool.put(key, data);
+        return true;
+    }
+
+    @Nullable
+    private synchronized byte[] get(String key) {
+        if (key == null) {
+            return null;
+        }
+
+        byte[] data = mNextSlot.mPool.get(key);
+
+        return data != null ? data : mPreviewSlot.mPool.get(key);
+    }
+
+    /**
+     * Init and index data plus a few seconds of the media.
+     */
+    private static long getPrefetchLength(Representation representation) {
+        RangedUri initUri = representation.getInitializationUri();
+        RangedUri indexUri = representation.getIndexUri();
+
+        if (initUri == null || indexUri == null || initUri.start != 0 || indexUri.length == C.LENGTH_UNSET) {
+            return 0;
+        }
+
+        int bitrate = representation.format.bitrate;
+
+        if (bitrate == Format.NO_VALUE) {
+            return 0;
+        }
+
+        long headerEnd = Math.max(initUri.start + initUri.length, indexUri.start + indexUri.length);
+
+        return headerEnd + bitrate * PREFETCH_DURATION_MS / 1_000 / 8;
+    }
+
+    @Nullable
+    private static byte[] download(DataSource.Factory upstreamFactory, Representation representation, String key, long length) {
+        Uri uri = representation.getInitializationUri().resolveUri(representation.baseUrl);
+        DataSource dataSource = upstreamFactory.createDataSource();
+        byte[] data = new byte[(int) length];
+        int position = 0;
+
+        try {
+            dataSource.open(new DataSpec(uri, 0, length, key));
+
+            while (position < length && !Thread.currentThread().isInterrupted()) {
+                int read = dataSource.read(data, position, data.length - position);
+
+                if (read == C.RESULT_END_OF_INPUT) {
+                    break;
+                }
+
+                position += read;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Prefetch error: %s", e.getMessage());
+            return null;
+        } finally {
+            try {
+                dataSource.close();
+            } catch (IOException e) {
+                // NOP
+            }
+        }
+
+        if (position < length) {
+            // Interrupted or the media is shorter than expected
+            byte[] result = new byte[position];
+            System.arraycopy(data, 0, result, 0, position);
+            return position > 0 ? result : null;
+        }
+
+        Log.d(TAG, "Prefetched %s bytes of %s", length, key);
+
+        return data;
+    }
+
+    private class PrefetchDataSource implements DataSource {
+        private final DataSource mUpstreamDataSource;
+        private Uri mUri;
+        private byte[] mData;
+        private int mReadPosition;
+        private int mDataEnd;
+        private DataSpec mUpstreamDataSpec;
+        private boolean mIsUpstreamOpened;
+
+        public PrefetchDataSource(DataSource upstreamDataSource) {
+            mUpstreamDataSource = upstreamDataSource;
+        }
+
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+            mUpstreamDataSource.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            byte[] data = dataSpec.httpMethod == DataSpec.HTTP_METHOD_GET ? get(dataSpec.key) : null;
+            long position = dataSpec.absoluteStreamPosition;
+
+            if (data == null || position >= data.length) {
+                mIsUpstreamOpened = true;
+                return mUpstreamDataSource.open(dataSpec);
+            }
+
+            mUri = dataSpec.uri;
+            mData = data;
+            mReadPosition = (int) position;
+            long requestEnd = dataSpec.length == C.LENGTH_UNSET ? C.LENGTH_UNSET : position + dataSpec.length;
+
+            if (requestEnd != C.LENGTH_UNSET && requestEnd <= data.length) {
+                mDataEnd = (int) requestEnd;
+            } else {
+                // The tail of the request isn't prefetched
+                mDataEnd = data.length;
+                mUpstreamDataSpec = dataSpec.subrange(data.length - position);
+            }
+
+            return dataSpec.length;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int readLength) throws IOException {
+            if (readLength == 0) {
+                return 0;
+            }
+
+            if (mData != null && mReadPosition < mDataEnd) {
+                int length = Math.min(readLength, mDataEnd - mReadPosition);
+                System.arraycopy(mData, mReadPosition, buffer, offset, length);
+                mReadPosition += length;
+                return length;
+            }
+
+            if (mUpstreamDataSpec != null && !mIsUpstreamOpened) {
+                mIsUpstreamOpened = true;
+                mUpstreamDataSource.open(mUpstreamDataSpec);
+            }
+
+            return mIsUpstreamOpened ? mUpstreamDataSource.read(buffer, offset, readLength) : C.RESULT_END_OF_INPUT;
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return mIsUpstreamOpened ? mUpstreamDataSource.getUri() : mUri;
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return mIsUpstreamOpened ? mUpstreamDataSource.getResponseHeaders() : DataSource.super.getResponseHeaders();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (mIsUpstreamOpened) {
+                    mUpstreamDataSource.close();
+                }
+            } finally {
+                mUri = null;
+                mData = null;
+                mUpstreamDataSpec = null;
+                mIsUpstreamOpened = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.Surface;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.source.MediaSourceEventListener.LoadEventInfo;
+import com.google.android.exoplayer2.source.MediaSourceEventListener.MediaLoadData;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Quality of experience of the playback. One session per opened media source.<br/>
+ * Every player has its own {@link Tracker}, so the preview players don't interrupt the session of the main one.<br/>
+ * Time to first frame by stage (format info, manifest, first chunk, first frame), rebuffering, dropped frames,
+ * bitrate switches and the source type.<br/>
+ * The last sessions are kept in memory for the summary, all of them are appended to the local files.<br/>
+ * The player events arrive on the main thread.
+ */
+public class PlaybackMetrics {
+    public static final String SOURCE_SABR = "sabr";
+    public static final String SOURCE_DASH = "dash";
+    public static final String SOURCE_DASH_LIVE = "dash_live";
+    public static final String SOURCE_HLS = "hls";
+    public static final String SOURCE_MERGED = "merged";
+    public static final String SOURCE_URL_LIST = "url_list";
+    private static final int MAX_SESSIONS = 256;
+    @SuppressLint("StaticFieldLeak")
+    private static PlaybackMetrics sInstance;
+    // Ring buffer: written on the main thread, read by the summary
+    private final AtomicReferenceArray<Session> mSessions = new AtomicReferenceArray<>(MAX_SESSIONS);
+    private final AtomicLong mSessionCount = new AtomicLong();
+    private final PlaybackMetricsExporter mExporter;
+    private String mRequestVideoId;
+    private long mRequestTimeMs = -1;
+    private long mFormatInfoMs = -1;
+
+    public static class Session {
+        public final long startTimeMs = System.currentTimeMillis();
+        public final String videoId;
+        public final String sourceType;
+        public long formatInfoMs = -1;
+        public long manifestMs = -1;
+        public long firstChunkMs = -1;
+        public long firstFrameMs = -1;
+        public long timeToFirstFrameMs = -1;
+        public int rebufferCount;
+        public long rebufferMs;
+        public long playMs;
+        public int droppedFrames;
+        public int bitrateSwitches;
+        public int startBitrate = Format.NO_VALUE;
+        public int endBitrate = Format.NO_VALUE;
+        public int height = Format.NO_VALUE;
+        public int errorCount;
+        private final long mOpenTimeMs;
+        private long mRequestTimeMs = -1;
+        private long mPreparedTimeMs = -1;
+        private long mFirstChunkTimeMs = -1;
+        private long mStateTimeMs;
+        private int mState = Player.STATE_IDLE;
+        private boolean mPlayWhenReady;
+        private boolean mIsSeeking;
+
+        private Session(String videoId, String sourceType, long openTimeMs) {
+            this.videoId = videoId;
+            this.sourceType = sourceType;
+            mOpenTimeMs = openTimeMs;
+            mStateTimeMs = openTimeMs;
+        }
+
+        public float getRebufferRatio() {
+            long totalMs = playMs + rebufferMs;
+            return totalMs > 0 ? (float) rebufferMs / totalMs : 0;
+        }
+
+        private boolean isRendered() {
+            return timeToFirstFrameMs != -1;
+        }
+
+        private boolean isRebuffering() {
+            return mState == Player.STATE_BUFFERING && mPlayWhenReady && isRendered() && !mIsSeeking;
+        }
+
+        private void updateState(long nowMs, boolean playWhenReady, int state) {
+            long durationMs = nowMs - mStateTimeMs;
+
+            if (isRebuffering()) {
+                rebufferMs += durationMs;
+            } else if (mState == Player.STATE_READY && mPlayWhenReady) {
+                playMs += durationMs;
+            }
+
+            boolean wasRebuffering = isRebuffering();
+
+            mStateTimeMs = nowMs;
+            mState = state;
+            mPlayWhenReady = playWhenReady;
+
+            if (state == Player.STATE_READY || state == Player.STATE_ENDED) {
+                mIsSeeking = false;
+            }
+
+            if (isRebuffering() && !wasRebuffering) {
+                rebufferCount++;
+            }
+        }
+    }
+
+    private PlaybackMetrics(Context context) {
+        mExporter = new PlaybackMetricsExporter(context);
+    }
+
+    public static PlaybackMetrics instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PlaybackMetrics(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * The first stage of the time to first frame.
+     */
+    public void onFormatInfoRequested(String videoId) {
+        mRequestVideoId = videoId;
+        mRequestTimeMs = SystemClock.elapsedRealtime();
+        mFormatInfoMs = -1;
+    }
+
+    public void onFormatInfoLoaded(String videoId) {
+        if (mRequestTimeMs != -1 && Helpers.equals(videoId, mRequestVideoId)) {
+            mFormatInfoMs = SystemClock.elapsedRealtime() - mRequestTimeMs;
+        }
+    }
+
+    /**
+     * Per player. Attach it to the player as the analytics listener.
+     */
+    public Tracker createTracker() {
+        return new Tracker();
+    }
+
+    /**
+     * The last sessions, from the oldest to the newest.
+     */
+    public List<Session> getSessions() {
+        long count = mSessionCount.get();
+        List<Session> result = new ArrayList<>();
+
+        for (long i = Math.max(0, count - MAX_SESSIONS); i < count; i++) {
+            Session session = mSessions.get((int) (i % MAX_SESSIONS));
+
+            if (session != null) {
+                result.add(session);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * One line per source type. Medians of the time to first frame and its stages.
+     */
+    public List<String> getSummary() {
+        Map<String, List<Session>> sessionsByType = new LinkedHashMap<>();
+
+        for (Session session : getSessions()) {
+            List<Session> sessions = sessionsByType.get(session.sourceType);
+
+            if (sessions == null) {
+                sessions = new ArrayList<>();
+                sessionsByType.put(session.sourceType, sessions);
+            }
+
+            sessions.add(session);
+        }
+
+        List<String> result = new ArrayList<>();
+
+        for (Map.Entry<String, List<Session>> entry : sessionsByType.entrySet()) {
+            result.add(getSummary(entry.getKey(), entry.getValue()));
+        }
+
+        return result;
+    }
+
+    public String getExportPath() {
+        return mExporter.getPath();
+    }
+
+    public void clear() {
+        for (int i = 0; i < MAX_SESSIONS; i++) {
+            mSessions.set(i, null);
+        }
+
+        mSessionCount.set(0);
+        mExporter.clear();
+    }
+
+    private static String getSummary(String sourceType, List<Session> sessions) {
+        List<Long> ttff = new ArrayList<>();
+        List<Long> formatInfo = new ArrayList<>();
+        List<Long> manifest = new ArrayList<>();
+        List<Long> firstChunk = new ArrayList<>();
+        List<Long> firstFrame = new ArrayList<>();
+        long playMs = 0;
+        long rebufferMs = 0;
+        int rebufferCount = 0;
+        int droppedFrames = 0;
+        int bitrateSwitches = 0;
+        int errorCount = 0;
+
+        for (Session session : sessions) {
+            addIfSet(ttff, session.timeToFirstFrameMs);
+            addIfSet(formatInfo, session.formatInfoMs);
+            addIfSet(manifest, session.manifestMs);
+            addIfSet(firstChunk, session.firstChunkMs);
+            addIfSet(firstFrame, session.firstFrameMs);
+            playMs += session.playMs;
+            rebufferMs += session.rebufferMs;
+            rebufferCount += session.rebufferCount;
+            droppedFrames += session.droppedFrames;
+            bitrateSwitches += session.bitrateSwitches;
+            errorCount += session.errorCount;
+        }
+
+        float playMinutes = playMs / 60_000f;
+
+        return String.format("%s: %s sessions, first frame %s ms (p90 %s ms) = format %s + manifest %s + chunk %s + render %s ms, " +
+                        "rebuffers %s (%.2f%%), dropped %.1f/min, switches %.1f/session, errors %s",
+                sourceType.toUpperCase(), sessions.size(), percentile(ttff, 50), percentile(ttff, 90),
+                percentile(formatInfo, 50), percentile(manifest, 50), percentile(firstChunk, 50), percentile(firstFrame, 50),
+                rebufferCount, playMs + rebufferMs > 0 ? rebufferMs * 100f / (playMs + rebufferMs) : 0,
+                playMinutes > 0 ? droppedFrames / playMinutes : 0, (float) bitrateSwitches / sessions.size(), errorCount);
+    }
+
+    private static void addIfSet(List<Long> values, long value) {
+        if (value != -1) {
+            values.add(value);
+        }
+    }
+
+    private static long percentile(List<Long> values, int percent) {
+        if (values.isEmpty()) {
+            return -1;
+        }
+
+        Collections.sort(values);
+
+        return values.get(Math.min(values.size() - 1, values.size() * percent / 100));
+    }
+
+    private void onSessionFinished(Session session) {
+        long index = mSessionCount.getAndIncrement();
+        mSessions.set((int) (index % MAX_SESSIONS), session);
+        mExporter.append(session);
+    }
+
+    /**
+     * Session of a single player.
+     */
+    public class Tracker implements AnalyticsListener {
+        private Session mSession;
+
+        private Tracker() {
+        }
+
+        /**
+         * Called before the media source is built. Starts a new session.
+         */
+        public void onSourceOpened(@Nullable String videoId, String sourceType) {
+            finishSession();
+
+            mSession = new Session(videoId, sourceType, SystemClock.elapsedRealtime());
+
+            if (mRequestTimeMs != -1 && Helpers.equals(videoId, mRequestVideoId)) {
+                mSession.mRequestTimeMs = mRequestTimeMs;
+                mSession.formatInfoMs = mFormatInfoMs;
+                // The engine restart opens the same video without the format request
+                mRequestTimeMs = -1;
+            }
+        }
+
+        /**
+         * The playback is stopped or the player is released.
+         */
+        public void finishSession() {
+            if (mSession == null) {
+                return;
+            }
+
+            Session session = mSession;
+            mSession = null;
+            session.updateState(SystemClock.elapsedRealtime(), false, Player.STATE_IDLE);
+
+            onSessionFinished(session);
+        }
+
+        @Override
+        public void onPlayerStateChanged(EventTime eventTime, boolean playWhenReady, int playbackState) {
+            if (mSession != null) {
+                mSession.updateState(eventTime.realtimeMs, playWhenReady, playbackState);
+            }
+        }
+
+        @Override
+        public void onTimelineChanged(EventTime eventTime, int reason) {
+            if (mSession != null && reason == Player.TIMELINE_CHANGE_REASON_PREPARED && mSession.mPreparedTimeMs == -1) {
+                mSession.mPreparedTimeMs = eventTime.realtimeMs;
+                mSession.manifestMs = eventTime.realtimeMs - mSession.mOpenTimeMs;
+            }
+        }
+
+        @Override
+        public void onLoadCompleted(EventTime eventTime, LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData) {
+            if (mSession != null && mediaLoadData.dataType == C.DATA_TYPE_MEDIA && mSession.mFirstChunkTimeMs == -1) {
+                mSession.mFirstChunkTimeMs = eventTime.realtimeMs;
+                mSession.firstChunkMs = eventTime.realtimeMs - Math.max(mSession.mOpenTimeMs, mSession.mPreparedTimeMs);
+            }
+        }
+
+        @Override
+        public void onRenderedFirstFrame(EventTime eventTime, @Nullable Surface surface) {
+            if (mSession == null || mSession.isRendered()) {
+                return;
+            }
+
+            long chunkTimeMs = mSession.mFirstChunkTimeMs != -1 ? mSession.mFirstChunkTimeMs : Math.max(mSession.mOpenTimeMs, mSession.mPreparedTimeMs);
+            mSession.firstFrameMs = eventTime.realtimeMs - chunkTimeMs;
+            mSession.timeToFirstFrameMs = eventTime.realtimeMs - (mSession.mRequestTimeMs != -1 ? mSession.mRequestTimeMs : mSession.mOpenTimeMs);
+        }
+
+        @Override
+        public void onSeekStarted(EventTime eventTime) {
+            if (mSession != null) {
+                // The buffering after the seek isn't a rebuffer
+                mSession.mIsSeeking = true;
+            }
+        }
+
+        @Override
+        public void onDroppedVideoFrames(EventTime eventTime, int droppedFrames, long elapsedMs) {
+            if (mSession != null) {
+                mSession.droppedFrames += droppedFrames;
+            }
+        }
+
+        @Override
+        public void onDownstreamFormatChanged(EventTime eventTime, MediaLoadData mediaLoadData) {
+            Format format = mediaLoadData.trackFormat;
+
+            if (mSession == null || mediaLoadData.trackType != C.TRACK_TYPE_VIDEO || format == null) {
+                return;
+            }
+
+            if (mSession.endBitrate != Format.NO_VALUE && format.bitrate != mSession.endBitrate) {
+                mSession.bitrateSwitches++;
+            }
+
+            if (mSession.startBitrate == Format.NO_VALUE) {
+                mSession.startBitrate = format.bitrate;
+            }
+
+            mSession.endBitrate = format.bitrate;
+            mSession.height = format.height;
+        }
+
+        @Override
+        public void onPlayerError(EventTime eventTime, ExoPlaybackException error) {
+            if (mSession != null) {
+                mSession.errorCount++;
+            }
+        }
+    }
+}
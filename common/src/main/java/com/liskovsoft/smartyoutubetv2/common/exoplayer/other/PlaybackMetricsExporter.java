@@ -0,0 +1,149 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.content.Context;
+import android.os.Build;
+
+import com.liskovsoft.sharedutils.helpers.AppInfoHelpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.other.PlaybackMetrics.Session;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Appends the playback sessions to the local JSONL and CSV files (one line per session).<br/>
+ * Rolling: the full file becomes the backup, so at most two files per format are kept.<br/>
+ * Every line contains the app version and the device, so the files of different builds and devices could be merged.
+ */
+class PlaybackMetricsExporter {
+    private static final String TAG = PlaybackMetricsExporter.class.getSimpleName();
+    private static final String DIR_NAME = "playback_metrics";
+    private static final String JSONL_FILE_NAME = "sessions.jsonl";
+    private static final String CSV_FILE_NAME = "sessions.csv";
+    private static final String BACKUP_SUFFIX = ".1";
+    private static final long MAX_FILE_BYTES = 512 * 1024;
+    private static final String CSV_HEADER = "time,app_version,device,sdk,max_memory_mb,video_id,source," +
+            "format_info_ms,manifest_ms,first_chunk_ms,first_frame_ms,ttff_ms," +
+            "rebuffer_count,rebuffer_ms,play_ms,rebuffer_ratio,dropped_frames,bitrate_switches,start_bitrate,end_bitrate,height,errors";
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final File mDir;
+    private final String mAppVersion;
+    private final String mDevice;
+    private final int mMaxMemoryMb;
+
+    PlaybackMetricsExporter(Context context) {
+        mDir = new File(context.getFilesDir(), DIR_NAME);
+        mAppVersion = AppInfoHelpers.getAppVersionName(context);
+        mDevice = Build.MANUFACTURER + " " + Build.MODEL;
+        // The device class
+        mMaxMemoryMb = (int) (Runtime.getRuntime().maxMemory() / (1024 * 1024));
+    }
+
+    void append(Session session) {
+        // Serialize now, the session isn't changed after that
+        String json = toJson(session);
+        String csv = toCsv(session);
+
+        mExecutor.execute(() -> {
+            if (!mDir.exists() && !mDir.mkdirs()) {
+                Log.e(TAG, "Can't create metrics dir");
+                return;
+            }
+
+            if (json != null) {
+                append(new File(mDir, JSONL_FILE_NAME), null, json);
+            }
+
+            append(new File(mDir, CSV_FILE_NAME), CSV_HEADER, csv);
+        });
+    }
+
+    void clear() {
+        mExecutor.execute(() -> {
+            File[] files = mDir.listFiles();
+
+            if (files == null) {
+                return;
+            }
+
+            for (File file : files) {
+                file.delete();
+            }
+        });
+    }
+
+    String getPath() {
+        return mDir.getAbsolutePath();
+    }
+
+    private static void append(File file, String header, String line) {
+        if (file.length() > MAX_FILE_BYTES) {
+            File backup = new File(file.getPath() + BACKUP_SUFFIX);
+            backup.delete();
+            file.renameTo(backup);
+        }
+
+        boolean writeHeader = header != null && !file.exists();
+
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            if (writeHeader) {
+                out.write((header + "\n").getBytes("UTF-8"));
+            }
+
+            out.write((line + "\n").getBytes("UTF-8"));
+        } catch (IOException e) {
+            Log.e(TAG, "Can't write %s: %s", file.getName(), e.getMessage());
+        }
+    }
+
+    private String toJson(Session session) {
+        try {
+            return new JSONObject()
+                    .put("time", session.startTimeMs)
+                    .put("app_version", mAppVersion)
+                    .put("device", mDevice)
+                    .put("sdk", Build.VERSION.SDK_INT)
+                    .put("max_memory_mb", mMaxMemoryMb)
+                    .put("video_id", session.videoId)
+                    .put("source", session.sourceType)
+                    .put("format_info_ms", session.formatInfoMs)
+                    .put("manifest_ms", session.manifestMs)
+                    .put("first_chunk_ms", session.firstChunkMs)
+                    .put("first_frame_ms", session.firstFrameMs)
+                    .put("ttff_ms", session.timeToFirstFrameMs)
+                    .put("rebuffer_count", session.rebufferCount)
+                    .put("rebuffer_ms", session.rebufferMs)
+                    .put("play_ms", session.playMs)
+                    .put("rebuffer_ratio", session.getRebufferRatio())
+                    .put("dropped_frames", session.droppedFrames)
+                    .put("bitrate_switches", session.bitrateSwitches)
+                    .put("start_bitrate", session.startBitrate)
+                    .put("end_bitrate", session.endBitrate)
+                    .put("height", session.height)
+                    .put("errors", session.errorCount)
+                    .toString();
+        } catch (JSONException e) {
+            Log.e(TAG, "Can't serialize session: %s", e.getMessage());
+            return null;
+        }
+    }
+
+    private String toCsv(Session session) {
+        return session.startTimeMs + "," + quote(mAppVersion) + "," + quote(mDevice) + "," + Build.VERSION.SDK_INT + "," + mMaxMemoryMb + "," +
+                quote(session.videoId) + "," + session.sourceType + "," +
+                session.formatInfoMs + "," + session.manifestMs + "," + session.firstChunkMs + "," + session.firstFrameMs + "," +
+                session.timeToFirstFrameMs + "," + session.rebufferCount + "," + session.rebufferMs + "," + session.playMs + "," +
+                session.getRebufferRatio() + "," + session.droppedFrames + "," + session.bitrateSwitches + "," +
+                session.startBitrate + "," + session.endBitrate + "," + session.height + "," + session.errorCount;
+    }
+
+    private static String quote(String value) {
+        return value != null ? "\"" + value.replace("\"", "\"\"") + "\"" : "";
+    }
+}
@@ -0,0 +1,232 @@
+package com.liskovsoft.smartyoutubetv2.common.exoplayer.other;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.database.ExoDatabaseProvider;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.FileDataSourceFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSinkFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSink;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheKeyFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheUtil;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Disk cache of the media segments. Survives player (engine) restarts so re-watching or seeking back
+ * doesn't download the same data again.<br/>
+ * NOTE: SABR requests (POST) bypass the cache. Their response depends on the request body (buffered ranges, playback cookie).
+ */
+public class SegmentCacheManager {
+    private static final String TAG = SegmentCacheManager.class.getSimpleName();
+    private static final String CACHE_DIR_NAME = "segment_cache";
+    private static final long MIN_CACHE_SIZE_BYTES = 32L * 1024 * 1024;
+    private static final long MAX_CACHE_SIZE_BYTES = 512L * 1024 * 1024;
+    private static final int FREE_SPACE_PERCENTS = 10;
+    @SuppressLint("StaticFieldLeak")
+    private static SegmentCacheManager sInstance;
+    private final Context mContext;
+    private final AtomicLong mHitBytes = new AtomicLong();
+    private final AtomicLong mMissBytes = new AtomicLong();
+    private final TransferListener mStatsListener = new TransferListener() {
+        @Override
+        public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            // NOP
+        }
+
+        @Override
+        public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            // NOP
+        }
+
+        @Override
+        public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+            (isNetwork ? mMissBytes : mHitBytes).addAndGet(bytesTransferred);
+        }
+
+        @Override
+        public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            // NOP
+        }
+    };
+    private Cache mCache;
+    private boolean mInitFailed;
+
+    private SegmentCacheManager(Context context) {
+        mContext = context;
+    }
+
+    public static SegmentCacheManager instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SegmentCacheManager(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Adds the disk cache layer on top of the upstream.<br/>
+     * Returns the upstream as is if the cache can't be created.
+     */
+    public DataSource.Factory wrap(DataSource.Factory upstreamFactory) {
+        Cache cache = getCache();
+
+        if (cache == null) {
+            return upstreamFactory;
+        }
+
+        CacheDataSourceFactory cacheFactory = new CacheDataSourceFactory(
+                cache,
+                upstreamFactory,
+                new FileDataSourceFactory(),
+                new CacheDataSinkFactory(cache, CacheDataSink.DEFAULT_FRAGMENT_SIZE),
+                CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR | CacheDataSource.FLAG_IGNORE_CACHE_FOR_UNSET_LENGTH_REQUESTS,
+                null,
+                new SegmentCacheKeyFactory());
+
+        return () -> {
+            DataSource cacheDataSource = cacheFactory.createDataSource();
+            cacheDataSource.addTransferListener(mStatsListener);
+            return new PostBypassDataSource(cacheDataSource, upstreamFactory.createDataSource());
+        };
+    }
+
+    public boolean isCreated() {
+        return mCache != null;
+    }
+
+    public long getHitBytes() {
+        return mHitBytes.get();
+    }
+
+    public long getMissBytes() {
+        return mMissBytes.get();
+    }
+
+    public long getCacheSpaceBytes() {
+        return mCache != null ? mCache.getCacheSpace() : 0;
+    }
+
+    private synchronized Cache getCache() {
+        if (mCache == null && !mInitFailed) {
+            try {
+                File cacheDir = new File(mContext.getFilesDir(), CACHE_DIR_NAME);
+                long maxBytes = getMaxCacheSize(mContext.getFilesDir());
+                Log.d(TAG, "Creating segment cache. Max size: %s MB", maxBytes / 1024 / 1024);
+                mCache = new SimpleCache(cacheDir, new LeastRecentlyUsedCacheEvictor(maxBytes), new ExoDatabaseProvider(mContext));
+            } catch (Exception e) { // IllegalStateException (folder locked), database errors
+                Log.e(TAG, "Can't create segment cache: %s", e.getMessage());
+                mInitFailed = true;
+            }
+        }
+
+        return mCache;
+    }
+
+    /**
+     * A fraction of the free storage within the sane bounds.
+     */
+    private static long getMaxCacheSize(File dir) {
+        long freeBytes = dir.getUsableSpace();
+        return Math.max(MIN_CACHE_SIZE_BYTES, Math.min(MAX_CACHE_SIZE_BYTES, freeBytes / 100 * FREE_SPACE_PERCENTS));
+    }
+
+    /**
+     * The urls of the googlevideo are signed and expire. The keys don't depend on the signature.
+     */
+    private static class SegmentCacheKeyFactory implements CacheKeyFactory {
+        @Override
+        public String buildCacheKey(DataSpec dataSpec) {
+            if (dataSpec.key != null) {
+                // videoId + itag from the manifest
+                return dataSpec.key;
+            }
+
+            Uri uri = dataSpec.uri;
+            String id = uri.getQueryParameter("id");
+            String itag = uri.getQueryParameter("itag");
+
+            if (id == null || itag == null) {
+                return CacheUtil.generateKey(dataSpec);
+            }
+
+            // Live segments (sq) or ranges that are encoded in the url
+            String sq = uri.getQueryParameter("sq");
+            String range = uri.getQueryParameter("range");
+
+            return String.format("%s.%s.%s.%s", id, itag, sq, range);
+        }
+
+        @Override
+        public int maxDownloadParallelSegments() {
+            return CacheUtil.DEFAULT_CACHE_KEY_FACTORY.maxDownloadParallelSegments();
+        }
+    }
+
+    /**
+     * {@link CacheDataSource} drops the body and the headers of the request. Send POST directly to the upstream.
+     */
+    private static class PostBypassDataSource implements DataSource {
+        private final DataSource mCacheDataSource;
+        private final DataSource mUpstreamDataSource;
+        private DataSource mCurrentDataSource;
+
+        public PostBypassDataSource(DataSource cacheDataSource, DataSource upstreamDataSource) {
+            mCacheDataSource = cacheDataSource;
+            mUpstreamDataSource = upstreamDataSource;
+        }
+
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+            mCacheDataSource.addTransferListener(transferListener);
+            mUpstreamDataSource.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            mCurrentDataSource = dataSpec.httpMethod == DataSpec.HTTP_METHOD_GET ? mCacheDataSource : mUpstreamDataSource;
+            return mCurrentDataSource.open(dataSpec);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int readLength) throws IOException {
+            return mCurrentDataSource.read(buffer, offset, readLength);
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return mCurrentDataSource != null ? mCurrentDataSource.getUri() : null;
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return mCurrentDataSource != null ? mCurrentDataSource.getResponseHeaders() : DataSource.super.getResponseHeaders();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mCurrentDataSource != null) {
+                try {
+                    mCurrentDataSource.close();
+                } finally {
+                    mCurrentDataSource = null;
+                }
+            }
+        }
+    }
+}
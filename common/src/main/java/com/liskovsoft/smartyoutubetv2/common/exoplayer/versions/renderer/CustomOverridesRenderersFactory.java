@@ -8,6 +8,7 @@ import com.google.android.exoplayer2.audio.AudioCapabilities;
 import com.google.android.exoplayer2.audio.AudioProcessor;
 import com.google.android.exoplayer2.audio.AudioRendererEventListener;
 import com.google.android.exoplayer2.audio.DefaultAudioSink;
+import com.google.android.exoplayer2.audio.LoudnessAudioProcessor;
 import com.google.android.exoplayer2.drm.DrmSessionManager;
 import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
 import com.google.android.exoplayer2.mediacodec.MediaCodecSelector;
@@ -31,6 +32,7 @@ public class CustomOverridesRenderersFactory extends CustomRenderersFactoryBase
     };
     private final PlayerData mPlayerData;
     private final PlayerTweaksData mPlayerTweaksData;
+    private final LoudnessAudioProcessor mLoudnessProcessor = new LoudnessAudioProcessor();
     // 2.12, 2.13
     //private int mOperationMode = MediaCodecRenderer.OPERATION_MODE_SYNCHRONOUS;
 
@@ -117,6 +119,18 @@ public class CustomOverridesRenderersFactory extends CustomRenderersFactoryBase
     //    replaceVideoRenderer(out, videoRenderer);
     //}
 
+    /**
+     * Volume boost and auto volume. Unlike the platform LoudnessEnhancer, works with 5.1 audio and on any device.
+     */
+    @Override
+    protected AudioProcessor[] buildAudioProcessors() {
+        return new AudioProcessor[] {mLoudnessProcessor};
+    }
+
+    public LoudnessAudioProcessor getLoudnessProcessor() {
+        return mLoudnessProcessor;
+    }
+
     // 2.10, 2.11
     @Override
     protected void buildAudioRenderers(Context context, @ExtensionRendererMode int extensionRendererMode, MediaCodecSelector mediaCodecSelector,
@@ -16,6 +16,7 @@ import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.R;
 import com.liskovsoft.smartyoutubetv2.common.prefs.GeneralData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.HiddenPrefs;
+import com.liskovsoft.smartyoutubetv2.common.prefs.common.PrefsStore;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
 import java.io.File;
@@ -182,6 +183,9 @@ public class BackupAndRestoreManager implements MotherActivity.OnPermissions {
     }
 
     public void backupToDir(File target) {
+        // Pending changes of the prefs store
+        PrefsStore.instance(mContext).flushBlocking();
+
         if (target.isDirectory()) { // plain sdcard storage
             // remove old backup <app_id>/Backup
             FileHelpers.delete(target);
@@ -219,6 +223,10 @@ public class BackupAndRestoreManager implements MotherActivity.OnPermissions {
             FileHelpers.delete(mSharedPrefsDir);
         }
 
+        // Old backups don't have the store. The data is migrated from the restored prefs then.
+        PrefsStore.instance(mContext).close();
+        FileHelpers.delete(new File(mFilesDir, PrefsStore.DIR_NAME));
+
         FileHelpers.copy(sharedPrefsBackupDir, mSharedPrefsDir);
         FileHelpers.copy(filesBackupDir, mFilesDir);
         fixFileNames(mSharedPrefsDir);
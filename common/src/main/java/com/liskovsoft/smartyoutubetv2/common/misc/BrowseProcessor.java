@@ -3,9 +3,14 @@ package com.liskovsoft.smartyoutubetv2.common.misc;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
 
+import java.util.List;
+
 public interface BrowseProcessor {
-    interface OnItemReady {
-        void onItemReady(Video video);
+    /**
+     * One call per batch, so the view is updated once.
+     */
+    interface OnItemsReady {
+        void onItemsReady(List<Video> videos);
     }
     void process(VideoGroup videoGroup);
     void dispose();
@@ -0,0 +1,306 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import androidx.annotation.Nullable;
+
+import com.liskovsoft.mediaserviceinterfaces.data.MediaGroup;
+import com.liskovsoft.mediaserviceinterfaces.oauth.Account;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.BrowseSection;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Last content of the browse sections (Home, Subscriptions, Channels) per account.<br/>
+ * Shown immediately on the section load, while the fresh content is fetched (stale-while-revalidate).<br/>
+ * Binary format, only the fields needed to draw the cards (titles, badges, thumbnail urls).
+ */
+public class BrowseSnapshotCache {
+    private static final String TAG = BrowseSnapshotCache.class.getSimpleName();
+    private static final String DIR_NAME = "browse_snapshots";
+    private static final int VERSION = 1;
+    private static final int MAX_GROUPS = 30;
+    private static final int MAX_VIDEOS_PER_GROUP = 40;
+    private static final int MAX_SNAPSHOT_BYTES = 256 * 1024;
+    private static final int MAX_FILES = 24;
+    private static final long HOME_MAX_AGE_MS = 24L * 60 * 60 * 1_000;
+    private static final long MAX_AGE_MS = 3 * HOME_MAX_AGE_MS;
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    @SuppressLint("StaticFieldLeak")
+    private static BrowseSnapshotCache sInstance;
+    private final File mDir;
+
+    private BrowseSnapshotCache(Context context) {
+        mDir = new File(context.getFilesDir(), DIR_NAME);
+    }
+
+    public static BrowseSnapshotCache instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new BrowseSnapshotCache(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    public static boolean isSupported(BrowseSection section) {
+        return section != null && (section.getId() == MediaGroup.TYPE_HOME || section.getId() == MediaGroup.TYPE_SUBSCRIPTIONS ||
+                section.getId() == MediaGroup.TYPE_CHANNEL_UPLOADS);
+    }
+
+    /**
+     * Reads the snapshot in the background (after the pending writes). Emits an empty list if there's no snapshot.
+     */
+    public Observable<List<VideoGroup>> getObserve(BrowseSection section, int column) {
+        return Observable.fromCallable(() -> {
+                    List<VideoGroup> result = get(section, column);
+                    return result != null ? result : new ArrayList<VideoGroup>();
+                })
+                .subscribeOn(Schedulers.from(sExecutor))
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
+    /**
+     * Groups of the last successful load or null if there's no snapshot or it's too old.
+     */
+    @Nullable
+    public List<VideoGroup> get(BrowseSection section, int column) {
+        if (!isSupported(section)) {
+            return null;
+        }
+
+        File file = getFile(section);
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+
+            long savedTimeMs = in.readLong();
+
+            if (System.currentTimeMillis() - savedTimeMs > getMaxAgeMs(section)) {
+                file.delete();
+                return null;
+            }
+
+            int groupCount = in.readInt();
+            List<VideoGroup> result = new ArrayList<>(groupCount);
+
+            for (int i = 0; i < groupCount; i++) {
+                VideoGroup group = VideoGroup.from(section, column);
+                group.setTitle(readString(in));
+
+                int videoCount = in.readInt();
+
+                for (int j = 0; j < videoCount; j++) {
+                    group.add(readVideo(in));
+                }
+
+                if (!group.isEmpty()) {
+                    result.add(group);
+                }
+            }
+
+            return result.isEmpty() ? null : result;
+        } catch (IOException e) {
+            Log.e(TAG, "Can't read snapshot %s: %s", file.getName(), e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Serialized on the caller thread (the groups are changed by the continuation), written in the background.
+     */
+    public void put(BrowseSection section, List<VideoGroup> groups) {
+        if (!isSupported(section) || groups == null || groups.isEmpty()) {
+            return;
+        }
+
+        byte[] data;
+
+        try {
+            data = serialize(groups);
+        } catch (IOException e) {
+            Log.e(TAG, "Can't serialize snapshot: %s", e.getMessage());
+            return;
+        }
+
+        File file = getFile(section);
+
+        sExecutor.execute(() -> write(file, data));
+    }
+
+    private static byte[] serialize(List<VideoGroup> groups) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int groupCount = Math.min(groups.size(), MAX_GROUPS);
+
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(groupCount);
+
+        for (int i = 0; i < groupCount; i++) {
+            VideoGroup group = groups.get(i);
+            List<Video> videos = group.isEmpty() ? new ArrayList<>() : group.getVideos();
+            int videoCount = Math.min(videos.size(), MAX_VIDEOS_PER_GROUP);
+
+            writeString(out, group.getTitle());
+            out.writeInt(videoCount);
+
+            for (int j = 0; j < videoCount; j++) {
+                writeVideo(out, videos.get(j));
+            }
+
+            if (out.size() > MAX_SNAPSHOT_BYTES) {
+                // The rest of the rows is below the screen anyway
+                return truncate(groups, i);
+            }
+        }
+
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    private static byte[] truncate(List<VideoGroup> groups, int groupCount) throws IOException {
+        if (groupCount == 0) {
+            throw new IOException("The first group is too big");
+        }
+
+        return serialize(groups.subList(0, groupCount));
+    }
+
+    private void write(File file, byte[] data) {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            Log.e(TAG, "Can't create snapshot dir");
+            return;
+        }
+
+        File tempFile = new File(mDir, file.getName() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(data);
+        } catch (IOException e) {
+            Log.e(TAG, "Can't write snapshot %s: %s", file.getName(), e.getMessage());
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+        }
+
+        trim();
+    }
+
+    /**
+     * Remove the least recently saved snapshots (e.g. of the removed accounts).
+     */
+    private void trim() {
+        File[] files = mDir.listFiles();
+
+        if (files == null || files.length <= MAX_FILES) {
+            return;
+        }
+
+        Arrays.sort(files, (file1, file2) -> Long.compare(file1.lastModified(), file2.lastModified()));
+
+        for (int i = 0; i < files.length - MAX_FILES; i++) {
+            files[i].delete();
+        }
+    }
+
+    private static void writeVideo(DataOutputStream out, Video video) throws IOException {
+        writeString(out, video.videoId);
+        writeString(out, video.playlistId);
+        writeString(out, video.channelId);
+        writeString(out, video.title);
+        writeString(out, video.secondTitle != null ? video.secondTitle.toString() : null);
+        writeString(out, video.cardImageUrl);
+        writeString(out, video.bgImageUrl);
+        writeString(out, video.badge);
+        writeString(out, video.author);
+        writeString(out, video.playlistParams);
+        writeString(out, video.previewUrl);
+        writeString(out, video.reloadPageKey);
+        out.writeInt(video.itemType);
+        out.writeInt(video.playlistIndex);
+        out.writeFloat(video.percentWatched);
+        out.writeByte((video.isLive ? 1 : 0) | (video.isUpcoming ? 2 : 0) | (video.isShorts ? 4 : 0) | (video.isMovie ? 8 : 0) |
+                (video.hasNewContent ? 16 : 0));
+    }
+
+    private static Video readVideo(DataInputStream in) throws IOException {
+        Video video = new Video();
+        video.videoId = readString(in);
+        video.playlistId = readString(in);
+        video.channelId = readString(in);
+        video.title = readString(in);
+        video.secondTitle = readString(in);
+        video.cardImageUrl = readString(in);
+        video.bgImageUrl = readString(in);
+        video.badge = readString(in);
+        video.author = readString(in);
+        video.playlistParams = readString(in);
+        video.previewUrl = readString(in);
+        video.reloadPageKey = readString(in);
+        video.itemType = in.readInt();
+        video.playlistIndex = in.readInt();
+        video.percentWatched = in.readFloat();
+        int flags = in.readByte();
+        video.isLive = (flags & 1) != 0;
+        video.isUpcoming = (flags & 2) != 0;
+        video.isShorts = (flags & 4) != 0;
+        video.isMovie = (flags & 8) != 0;
+        video.hasNewContent = (flags & 16) != 0;
+        return video;
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private File getFile(BrowseSection section) {
+        Account account = MediaServiceManager.instance().getSelectedAccount();
+        // Don't store the account names
+        String profile = account != null && account.getName() != null ? Integer.toHexString(account.getName().hashCode()) : "anonymous";
+        return new File(mDir, profile + "_" + section.getId());
+    }
+
+    private static long getMaxAgeMs(BrowseSection section) {
+        // Recommendations are changed often
+        return section.getId() == MediaGroup.TYPE_HOME ? HOME_MAX_AGE_MS : MAX_AGE_MS;
+    }
+}
@@ -1,9 +1,11 @@
 package com.liskovsoft.smartyoutubetv2.common.misc;
 
 import android.content.Context;
+import android.util.Pair;
 
 import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
+import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
@@ -13,26 +15,66 @@ import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataChangeBase.OnDataC
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 
 public class DeArrowProcessor implements OnDataChange, BrowseProcessor {
     private static final String TAG = DeArrowProcessor.class.getSimpleName();
-    private final OnItemReady mOnItemReady;
+    private static final String CACHE_NAME = "dearrow";
+    private static final int CACHE_MAX_SIZE = 10_000;
+    private static final long CACHE_TTL_MS = 24 * 60 * 60 * 1_000L;
+    private static PersistentCache sCache;
+    // Shared by all processors (Home, Subscriptions, Channel...). Accessed on the main thread only.
+    // videoId -> running request and the rows waiting for it
+    private static final Map<String, InFlight> sInFlight = new HashMap<>();
+    private final OnItemsReady mOnItemsReady;
     private final MediaItemService mItemService;
     private final DeArrowData mDeArrowData;
     private boolean mIsReplaceTitlesEnabled;
     private boolean mIsReplaceThumbnailsEnabled;
-    private Disposable mResult;
+    private final List<Disposable> mActions = new ArrayList<>();
 
-    public DeArrowProcessor(Context context, OnItemReady onItemReady) {
-        mOnItemReady = onItemReady;
+    private static class Waiter {
+        public final DeArrowProcessor processor;
+        public final VideoGroup videoGroup;
+
+        public Waiter(DeArrowProcessor processor, VideoGroup videoGroup) {
+            this.processor = processor;
+            this.videoGroup = videoGroup;
+        }
+    }
+
+    /**
+     * Only the owner runs the request. The entry is alive while it has the waiters.
+     */
+    private static class InFlight {
+        public DeArrowProcessor owner;
+        public final List<Waiter> waiters = new ArrayList<>();
+
+        public InFlight(DeArrowProcessor owner) {
+            this.owner = owner;
+        }
+
+        public void removeWaiters(DeArrowProcessor processor) {
+            Helpers.removeIf(waiters, waiter -> waiter.processor == processor);
+        }
+    }
+
+    public DeArrowProcessor(Context context, OnItemsReady onItemsReady) {
+        mOnItemsReady = onItemsReady;
         ServiceManager service = YouTubeServiceManager.instance();
         mItemService = service.getMediaItemService();
         mDeArrowData = DeArrowData.instance(context);
         mDeArrowData.setOnChange(this);
         initData();
+
+        if (sCache == null) {
+            sCache = new PersistentCache(context.getApplicationContext(), CACHE_NAME, CACHE_MAX_SIZE, CACHE_TTL_MS);
+        }
     }
 
     @Override
@@ -51,39 +93,171 @@ public class DeArrowProcessor implements OnDataChange, BrowseProcessor {
             return;
         }
 
-        List<String> videoIds = getVideoIds(videoGroup);
-        mResult = mItemService.getDeArrowDataObserve(videoIds)
-                .subscribe(deArrowData -> {
-                    Video video = videoGroup.findVideoById(deArrowData.getVideoId());
-                    if (mIsReplaceTitlesEnabled) {
-                        video.deArrowTitle = deArrowData.getTitle();
-                    }
-                    if (mIsReplaceThumbnailsEnabled) {
-                        video.altCardImageUrl = deArrowData.getThumbnailUrl();
-                    }
-                    mOnItemReady.onItemReady(video);
-                },
-                error -> {
-                    Log.d(TAG, "DeArrow cannot process the video");
-                });
+        List<String> videoIds = new ArrayList<>();
+
+        for (Video video : videoGroup.getVideos()) {
+            if (video.deArrowProcessed || video.videoId == null) {
+                continue;
+            }
+            video.deArrowProcessed = true;
+
+            if (sCache.contains(video.videoId)) {
+                apply(video, sCache.get(video.videoId));
+                continue;
+            }
+
+            InFlight inFlight = sInFlight.get(video.videoId);
+
+            if (inFlight == null) {
+                inFlight = new InFlight(this);
+                sInFlight.put(video.videoId, inFlight);
+                videoIds.add(video.videoId);
+            }
+
+            // The request of the other row will bring the data for this row too
+            inFlight.waiters.add(new Waiter(this, videoGroup));
+        }
+
+        if (videoIds.isEmpty()) {
+            return;
+        }
+
+        request(videoIds);
     }
 
     @Override
     public void dispose() {
-        RxHelper.disposeActions(mResult);
+        // Other rows take over the requests of this processor
+        RxHelper.disposeActions(mActions);
+        mActions.clear();
+
+        // Don't update the rows of the disposed processor
+        for (InFlight inFlight : sInFlight.values()) {
+            inFlight.removeWaiters(this);
+        }
     }
 
-    private List<String> getVideoIds(VideoGroup videoGroup) {
-        List<String> result = new ArrayList<>();
+    private void request(List<String> videoIds) {
+        // Drop finished actions
+        Helpers.removeIf(mActions, Disposable::isDisposed);
 
-        for (Video video : videoGroup.getVideos()) {
-            if (video.deArrowProcessed) {
+        mActions.add(mItemService.getDeArrowDataObserve(videoIds)
+                .map(deArrowData -> new Pair<>(deArrowData.getVideoId(), Helpers.mergeObj(deArrowData.getTitle(), deArrowData.getThumbnailUrl())))
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnDispose(() -> onRequestDisposed(this, videoIds))
+                .subscribe(data -> onData(data.first, data.second),
+                error -> {
+                    Log.d(TAG, "DeArrow cannot process the video");
+                    onRequestFailed(this, videoIds);
+                },
+                () -> onRequestCompleted(this, videoIds)));
+    }
+
+    private static void onData(String videoId, String data) {
+        sCache.put(videoId, data);
+
+        InFlight inFlight = sInFlight.remove(videoId);
+
+        if (inFlight == null) {
+            return;
+        }
+
+        for (Waiter waiter : inFlight.waiters) {
+            Video video = waiter.videoGroup.findVideoById(videoId);
+
+            if (video != null) {
+                waiter.processor.apply(video, data);
+            }
+        }
+    }
+
+    /**
+     * The ids without response have no DeArrow data.
+     */
+    private static void onRequestCompleted(DeArrowProcessor owner, List<String> videoIds) {
+        for (String videoId : videoIds) {
+            InFlight inFlight = sInFlight.get(videoId);
+
+            if (inFlight != null && inFlight.owner == owner) {
+                sInFlight.remove(videoId);
+                sCache.put(videoId, null);
+            }
+        }
+    }
+
+    /**
+     * The videos will be requested again on the next processing of their rows.
+     */
+    private static void onRequestFailed(DeArrowProcessor owner, List<String> videoIds) {
+        for (String videoId : videoIds) {
+            InFlight inFlight = sInFlight.get(videoId);
+
+            if (inFlight == null || inFlight.owner != owner) {
                 continue;
             }
-            video.deArrowProcessed = true;
-            result.add(video.videoId);
+
+            sInFlight.remove(videoId);
+
+            for (Waiter waiter : inFlight.waiters) {
+                Video video = waiter.videoGroup.findVideoById(videoId);
+
+                if (video != null) {
+                    video.deArrowProcessed = false;
+                }
+            }
         }
+    }
+
+    /**
+     * The rows of the owner are gone. The first of the other waiting rows repeats the request.
+     */
+    private static void onRequestDisposed(DeArrowProcessor owner, List<String> videoIds) {
+        Map<DeArrowProcessor, List<String>> orphans = new HashMap<>();
 
-        return result;
+        for (String videoId : videoIds) {
+            InFlight inFlight = sInFlight.get(videoId);
+
+            if (inFlight == null || inFlight.owner != owner) {
+                continue;
+            }
+
+            inFlight.removeWaiters(owner);
+
+            if (inFlight.waiters.isEmpty()) {
+                sInFlight.remove(videoId);
+                continue;
+            }
+
+            inFlight.owner = inFlight.waiters.get(0).processor;
+
+            List<String> ids = orphans.get(inFlight.owner);
+
+            if (ids == null) {
+                ids = new ArrayList<>();
+                orphans.put(inFlight.owner, ids);
+            }
+
+            ids.add(videoId);
+        }
+
+        for (Map.Entry<DeArrowProcessor, List<String>> entry : orphans.entrySet()) {
+            entry.getKey().request(entry.getValue());
+        }
+    }
+
+    private void apply(Video video, String data) {
+        if (data == null) {
+            return;
+        }
+
+        String[] split = Helpers.splitObj(data);
+
+        if (mIsReplaceTitlesEnabled) {
+            video.deArrowTitle = Helpers.parseStr(split, 0);
+        }
+        if (mIsReplaceThumbnailsEnabled) {
+            video.altCardImageUrl = Helpers.parseStr(split, 1);
+        }
+        mOnItemsReady.onItemsReady(Collections.singletonList(video));
     }
 }
@@ -18,6 +18,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.playback.ui.UiOptionItem
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.AppDialogPresenter;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.GoogleSignInPresenter;
 import com.liskovsoft.smartyoutubetv2.common.prefs.GeneralData;
+import com.liskovsoft.smartyoutubetv2.common.prefs.common.PrefsStore;
 import com.liskovsoft.smartyoutubetv2.common.utils.AppDialogUtil;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
@@ -170,6 +171,9 @@ public class GDriveBackupManager {
                     if (names == null)
                         return;
 
+                    // No more writes to the removed files
+                    PrefsStore.instance(mContext).close();
+
                     // remove old data
                     for (String dataDir : mDataDirs) {
                         FileHelpers.delete(dataDir);
@@ -206,6 +210,9 @@ public class GDriveBackupManager {
 
                     File sharedPrefs = new File(mSharedPrefs);
 
+                    // No more writes to the removed files
+                    PrefsStore.instance(mContext).close();
+
                     // remove old data
                     for (String dataDir : mDataDirs) {
                         FileHelpers.delete(dataDir);
@@ -0,0 +1,209 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.content.Context;
+import androidx.annotation.Nullable;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process wide LRU cache of the strings with the time to live. Persisted to the disk.<br/>
+ * Null value means "no data" (negative caching).<br/>
+ * The file is loaded in the background. Lookups are misses until it's loaded.
+ */
+public class PersistentCache {
+    private static final String TAG = PersistentCache.class.getSimpleName();
+    private static final String DIR_NAME = "persistent_cache";
+    private static final long PERSIST_DELAY_MS = 10_000;
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private final File mFile;
+    private final long mTtlMs;
+    private final Map<String, Entry> mEntries;
+    private final Runnable mPersist = this::persistInt;
+    private boolean mIsLoaded;
+    private int mHitCount;
+    private int mMissCount;
+
+    private static class Entry {
+        public final String value;
+        public final long timestampMs;
+
+        public Entry(String value, long timestampMs) {
+            this.value = value;
+            this.timestampMs = timestampMs;
+        }
+    }
+
+    public PersistentCache(Context context, String name, int maxSize, long ttlMs) {
+        // The cache dir is cleared on the app exit
+        mFile = new File(new File(context.getFilesDir(), DIR_NAME), name);
+        mTtlMs = ttlMs;
+        mEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        sExecutor.execute(this::load);
+    }
+
+    /**
+     * Check {@link #contains} first. Null is a valid (negative) value.
+     */
+    @Nullable
+    public synchronized String get(String key) {
+        Entry entry = getEntry(key);
+        return entry != null ? entry.value : null;
+    }
+
+    public synchronized boolean contains(String key) {
+        boolean result = getEntry(key) != null;
+
+        if (result) {
+            mHitCount++;
+        } else {
+            mMissCount++;
+        }
+
+        return result;
+    }
+
+    public synchronized void put(String key, @Nullable String value) {
+        mEntries.put(key, new Entry(value, System.currentTimeMillis()));
+        Utils.postDelayed(mPersist, PERSIST_DELAY_MS);
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    public synchronized boolean isLoaded() {
+        return mIsLoaded;
+    }
+
+    /**
+     * Percents of the lookups that were found in the cache.
+     */
+    public synchronized int getHitRate() {
+        int total = mHitCount + mMissCount;
+        return total > 0 ? mHitCount * 100 / total : 0;
+    }
+
+    private Entry getEntry(String key) {
+        if (!mIsLoaded) {
+            return null;
+        }
+
+        Entry entry = mEntries.get(key);
+
+        if (entry != null && System.currentTimeMillis() - entry.timestampMs > mTtlMs) {
+            mEntries.remove(key);
+            entry = null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Runs on the cache thread.
+     */
+    private void load() {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+
+        if (mFile.exists()) {
+            read(entries);
+        }
+
+        synchronized (this) {
+            // The values that are put while loading are newer
+            entries.putAll(mEntries);
+            mEntries.clear();
+            mEntries.putAll(entries);
+            mIsLoaded = true;
+        }
+    }
+
+    private void read(Map<String, Entry> entries) {
+        long nowMs = System.currentTimeMillis();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+            while (true) {
+                String key;
+
+                try {
+                    key = in.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                String value = in.readBoolean() ? in.readUTF() : null;
+                long timestampMs = in.readLong();
+
+                if (nowMs - timestampMs <= mTtlMs) {
+                    entries.put(key, new Entry(value, timestampMs));
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't read %s: %s", mFile.getName(), e.getMessage());
+        }
+    }
+
+    private synchronized void persistInt() {
+        if (!mIsLoaded) {
+            // Don't overwrite the file with the partial data
+            Utils.postDelayed(mPersist, PERSIST_DELAY_MS);
+            return;
+        }
+
+        List<String> keys = new ArrayList<>(mEntries.keySet());
+        List<Entry> entries = new ArrayList<>(mEntries.values());
+
+        sExecutor.execute(() -> write(keys, entries));
+    }
+
+    private void write(List<String> keys, List<Entry> entries) {
+        File tempFile = new File(mFile.getPath() + ".tmp");
+        File dir = mFile.getParentFile();
+
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            for (int i = 0; i < keys.size(); i++) {
+                Entry entry = entries.get(i);
+                out.writeUTF(keys.get(i));
+                out.writeBoolean(entry.value != null);
+                if (entry.value != null) {
+                    out.writeUTF(entry.value);
+                }
+                out.writeLong(entry.timestampMs);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Can't write %s: %s", mFile.getName(), e.getMessage());
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(mFile)) {
+            tempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.liskovsoft.mediaserviceinterfaces.data.SponsorSegment;
+import com.liskovsoft.sharedutils.helpers.Helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SponsorBlock segments of the video sorted by the start.<br/>
+ * Lookups are binary searches: the prefix maximum of the ends bounds the segments that may contain a position.<br/>
+ * Serialized to a string for the persistent cache.
+ */
+public class SponsorSegmentIndex {
+    private static final String SEGMENT_DELIM = ";";
+    private static final String FIELD_DELIM = ",";
+    private final Segment[] mSegments;
+    private final long[] mMaxEndMs;
+    private final boolean[] mIsSkipped;
+
+    public static class Segment {
+        public final long startMs;
+        public final long endMs;
+        public final String category;
+
+        public Segment(long startMs, long endMs, String category) {
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.category = category;
+        }
+
+        /**
+         * The segment is triggered only near the start. Otherwise a user couldn't seek inside of it.
+         */
+        public long getTriggerEndMs(long windowMs) {
+            return Math.min(startMs + windowMs, endMs);
+        }
+    }
+
+    private SponsorSegmentIndex(List<Segment> segments) {
+        mSegments = segments.toArray(new Segment[0]);
+        Arrays.sort(mSegments, (segment1, segment2) -> Long.compare(segment1.startMs, segment2.startMs));
+        mMaxEndMs = new long[mSegments.length];
+        mIsSkipped = new boolean[mSegments.length];
+
+        long maxEndMs = Long.MIN_VALUE;
+
+        for (int i = 0; i < mSegments.length; i++) {
+            maxEndMs = Math.max(maxEndMs, mSegments[i].endMs);
+            mMaxEndMs[i] = maxEndMs;
+        }
+    }
+
+    public static SponsorSegmentIndex from(@Nullable List<SponsorSegment> segments) {
+        List<Segment> result = new ArrayList<>();
+
+        if (segments != null) {
+            for (SponsorSegment segment : segments) {
+                result.add(new Segment(segment.getStartMs(), segment.getEndMs(), segment.getCategory()));
+            }
+        }
+
+        return new SponsorSegmentIndex(result);
+    }
+
+    /**
+     * Empty string is an empty index (the video has no segments).
+     */
+    public static SponsorSegmentIndex fromString(@Nullable String spec) {
+        List<Segment> result = new ArrayList<>();
+
+        if (spec != null && !spec.isEmpty()) {
+            for (String segmentSpec : spec.split(SEGMENT_DELIM)) {
+                String[] split = segmentSpec.split(FIELD_DELIM);
+
+                if (split.length == 3) {
+                    result.add(new Segment(Helpers.parseLong(split, 0), Helpers.parseLong(split, 1), split[2]));
+                }
+            }
+        }
+
+        return new SponsorSegmentIndex(result);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        for (Segment segment : mSegments) {
+            if (result.length() > 0) {
+                result.append(SEGMENT_DELIM);
+            }
+
+            result.append(segment.startMs).append(FIELD_DELIM).append(segment.endMs).append(FIELD_DELIM).append(segment.category);
+        }
+
+        return result.toString();
+    }
+
+    public boolean isEmpty() {
+        return mSegments.length == 0;
+    }
+
+    public int size() {
+        return mSegments.length;
+    }
+
+    public Segment get(int index) {
+        return mSegments[index];
+    }
+
+    public List<Segment> getSegments() {
+        return Arrays.asList(mSegments);
+    }
+
+    public boolean isSkipped(int index) {
+        return mIsSkipped[index];
+    }
+
+    public void setSkipped(int index) {
+        mIsSkipped[index] = true;
+    }
+
+    /**
+     * The first segment that contains the position or -1.
+     */
+    public int findContaining(long positionMs) {
+        // Segments before this one end before the position
+        int first = lowerBound(mMaxEndMs, positionMs);
+
+        for (int i = first; i < mSegments.length && mSegments[i].startMs <= positionMs; i++) {
+            if (positionMs <= mSegments[i].endMs) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * The first not skipped segment whose trigger window contains the position or -1.
+     */
+    public int findTriggered(long positionMs, long windowMs) {
+        // The trigger window isn't longer than the windowMs
+        int first = lowerBoundStart(positionMs - windowMs);
+
+        for (int i = first; i < mSegments.length && mSegments[i].startMs <= positionMs; i++) {
+            if (!mIsSkipped[i] && positionMs <= mSegments[i].getTriggerEndMs(windowMs)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * The start of the next not skipped segment after the position or -1.
+     */
+    public long findNextStartMs(long positionMs) {
+        for (int i = lowerBoundStart(positionMs + 1); i < mSegments.length; i++) {
+            if (!mIsSkipped[i]) {
+                return mSegments[i].startMs;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * The first segment with the start >= the position.
+     */
+    private int lowerBoundStart(long positionMs) {
+        int low = 0;
+        int high = mSegments.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (mSegments[middle].startMs < positionMs) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * The first value >= the position. The values are sorted.
+     */
+    private static int lowerBound(long[] values, long positionMs) {
+        int low = 0;
+        int high = values.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (values[middle] < positionMs) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
@@ -0,0 +1,262 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.os.Looper;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * App init tasks with their prerequisites and thread.<br/>
+ * A task starts as soon as its prerequisites are done. Independent background tasks run in parallel.<br/>
+ * A milestone is a task without body that is completed from outside (e.g. the first content on the screen).<br/>
+ * Every task writes its span to the {@link StartupTrace}.
+ */
+public class StartupInitializer {
+    private static final String TAG = StartupInitializer.class.getSimpleName();
+    public static final int THREAD_MAIN = 0;
+    public static final int THREAD_BACKGROUND = 1;
+    private static final int POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long KEEP_ALIVE_MS = 10_000;
+    private static final StartupInitializer sInstance = new StartupInitializer();
+    private final Map<String, Task> mTasks = new LinkedHashMap<>();
+    private final StartupTrace mTrace = StartupTrace.instance();
+    private final ThreadPoolExecutor mExecutor;
+    private volatile boolean mIsStarted;
+
+    private static class Task {
+        final String name;
+        final int thread;
+        final Runnable runnable;
+        final List<Task> dependencies = new ArrayList<>();
+        final List<Task> dependents = new ArrayList<>();
+        final AtomicInteger pendingCount = new AtomicInteger();
+        final AtomicBoolean isStarted = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Task(String name, int thread, Runnable runnable) {
+            this.name = name;
+            this.thread = thread;
+            this.runnable = runnable;
+        }
+
+        boolean isMilestone() {
+            return runnable == null;
+        }
+
+        boolean isDone() {
+            return done.getCount() == 0;
+        }
+    }
+
+    private StartupInitializer() {
+        AtomicInteger threadCount = new AtomicInteger();
+        mExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "startup-" + threadCount.incrementAndGet()));
+        // No idle threads after the startup
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public static StartupInitializer instance() {
+        return sInstance;
+    }
+
+    /**
+     * The prerequisites should be added before.
+     */
+    public synchronized StartupInitializer add(String name, int thread, Runnable task, String... dependsOn) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task " + name + " is empty. Use addMilestone instead.");
+        }
+
+        return addInt(new Task(name, thread, task), dependsOn);
+    }
+
+    /**
+     * Completed with {@link #complete(String)}.
+     */
+    public synchronized StartupInitializer addMilestone(String name) {
+        return addInt(new Task(name, THREAD_MAIN, null));
+    }
+
+    private StartupInitializer addInt(Task task, String... dependsOn) {
+        if (mIsStarted) {
+            throw new IllegalStateException("Can't add task " + task.name + " after the start");
+        }
+
+        if (mTasks.containsKey(task.name)) {
+            throw new IllegalStateException("Task " + task.name + " already added");
+        }
+
+        for (String name : dependsOn) {
+            Task dependency = mTasks.get(name);
+
+            if (dependency == null) {
+                throw new IllegalStateException("Task " + task.name + " depends on unknown task " + name);
+            }
+
+            task.dependencies.add(dependency);
+            dependency.dependents.add(task);
+        }
+
+        task.pendingCount.set(task.dependencies.size());
+        mTasks.put(task.name, task);
+
+        return this;
+    }
+
+    public boolean isStarted() {
+        return mIsStarted;
+    }
+
+    public void start() {
+        List<Task> readyTasks = new ArrayList<>();
+
+        synchronized (this) {
+            if (mIsStarted) {
+                return;
+            }
+
+            mIsStarted = true;
+
+            for (Task task : mTasks.values()) {
+                if (!task.isMilestone() && task.pendingCount.get() == 0) {
+                    readyTasks.add(task);
+                }
+            }
+        }
+
+        for (Task task : readyTasks) {
+            dispatch(task);
+        }
+    }
+
+    /**
+     * Completes the milestone. Does nothing if it's already completed or isn't added.
+     */
+    public void complete(String milestone) {
+        Task task = getTask(milestone);
+
+        if (task == null || !task.isMilestone()) {
+            return;
+        }
+
+        if (task.isStarted.compareAndSet(false, true)) {
+            mTrace.mark(milestone);
+            finish(task);
+        }
+    }
+
+    /**
+     * Blocks until the tasks and their prerequisites are done.<br/>
+     * Pending main thread tasks are run right away when called on the main thread.<br/>
+     * Tasks that depend on an incomplete milestone aren't awaited.
+     */
+    public void await(String... names) {
+        if (!mIsStarted) {
+            return;
+        }
+
+        for (String name : names) {
+            Task task = getTask(name);
+
+            if (task != null) {
+                await(task);
+            }
+        }
+    }
+
+    private boolean await(Task task) {
+        if (task.isDone()) {
+            return true;
+        }
+
+        if (task.isMilestone()) {
+            Log.e(TAG, "Can't wait for the incomplete milestone %s", task.name);
+            return false;
+        }
+
+        for (Task dependency : task.dependencies) {
+            if (!await(dependency)) {
+                return false;
+            }
+        }
+
+        boolean isMainThread = Looper.myLooper() == Looper.getMainLooper();
+
+        if (task.thread == THREAD_MAIN && isMainThread) {
+            run(task);
+
+            if (!task.isDone()) {
+                Log.e(TAG, "Task %s waits for itself", task.name);
+                return false;
+            }
+
+            return true;
+        }
+
+        long startMs = mTrace.now();
+
+        try {
+            task.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        if (isMainThread) {
+            // The main thread was blocked
+            mTrace.add("await " + task.name, startMs);
+        }
+
+        return true;
+    }
+
+    private synchronized Task getTask(String name) {
+        return mTasks.get(name);
+    }
+
+    private void dispatch(Task task) {
+        if (task.thread == THREAD_MAIN) {
+            // Don't run inside of the caller (e.g. a view callback)
+            Utils.post(() -> run(task));
+        } else {
+            mExecutor.execute(() -> run(task));
+        }
+    }
+
+    private void run(Task task) {
+        if (!task.isStarted.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            mTrace.trace(task.name, task.runnable);
+        } catch (Throwable e) {
+            // The dependent tasks still run
+            Log.e(TAG, "Task %s failed: %s", task.name, e.getMessage());
+        }
+
+        finish(task);
+    }
+
+    private void finish(Task task) {
+        task.done.countDown();
+
+        for (Task dependent : task.dependents) {
+            if (dependent.pendingCount.decrementAndGet() == 0 && !dependent.isMilestone() && mIsStarted) {
+                dispatch(dependent);
+            }
+        }
+    }
+}
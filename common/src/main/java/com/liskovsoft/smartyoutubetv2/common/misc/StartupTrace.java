@@ -0,0 +1,131 @@
+package com.liskovsoft.smartyoutubetv2.common.misc;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timing spans of the app startup, in ms from the process start.<br/>
+ * Dumped once per process to the log and to the file (one line per span), to compare the launches between the versions.
+ */
+public class StartupTrace {
+    private static final String TAG = StartupTrace.class.getSimpleName();
+    private static final String FILE_NAME = "startup_trace.txt";
+    private static final int MAX_SPANS = 100;
+    private static final StartupTrace sInstance = new StartupTrace();
+    private final long mOriginMs;
+    private final List<Span> mSpans = new ArrayList<>();
+    private boolean mIsDumped;
+
+    private static class Span {
+        final String name;
+        final String threadName;
+        final long startMs;
+        final long durationMs;
+
+        Span(String name, String threadName, long startMs, long durationMs) {
+            this.name = name;
+            this.threadName = threadName;
+            this.startMs = startMs;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private StartupTrace() {
+        // The time before the Application class is loaded is counted too
+        mOriginMs = Build.VERSION.SDK_INT >= 24 ? Process.getStartElapsedRealtime() : SystemClock.elapsedRealtime();
+    }
+
+    public static StartupTrace instance() {
+        return sInstance;
+    }
+
+    /**
+     * Ms from the process start.
+     */
+    public long now() {
+        return SystemClock.elapsedRealtime() - mOriginMs;
+    }
+
+    public void trace(String name, Runnable task) {
+        long startMs = now();
+
+        try {
+            task.run();
+        } finally {
+            add(name, startMs);
+        }
+    }
+
+    /**
+     * Span from the start to now.
+     */
+    public synchronized void add(String name, long startMs) {
+        if (mIsDumped || mSpans.size() >= MAX_SPANS) {
+            return;
+        }
+
+        mSpans.add(new Span(name, Thread.currentThread().getName(), startMs, now() - startMs));
+    }
+
+    /**
+     * Zero length span, e.g. the first content on the screen.
+     */
+    public void mark(String name) {
+        add(name, now());
+    }
+
+    /**
+     * Tab separated: name, start ms, duration ms, thread. Ordered by the start.
+     */
+    public synchronized String dump() {
+        List<Span> spans = new ArrayList<>(mSpans);
+        Collections.sort(spans, (span1, span2) -> Long.compare(span1.startMs, span2.startMs));
+        StringBuilder result = new StringBuilder();
+
+        for (Span span : spans) {
+            result.append(span.name).append('\t')
+                    .append(span.startMs).append('\t')
+                    .append(span.durationMs).append('\t')
+                    .append(span.threadName).append('\n');
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Once per process. The file keeps the last launch only. Don't call on the main thread.
+     */
+    public void dump(Context context) {
+        String trace;
+
+        synchronized (this) {
+            if (mIsDumped) {
+                return;
+            }
+
+            trace = dump();
+            mIsDumped = true;
+        }
+
+        Log.d(TAG, "Startup trace:\n%s", trace);
+
+        File file = new File(context.getFilesDir(), FILE_NAME);
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(trace.getBytes("UTF-8"));
+        } catch (IOException e) {
+            Log.e(TAG, "Can't write startup trace: %s", e.getMessage());
+        }
+    }
+}
@@ -6,35 +6,63 @@ import android.util.Pair;
 import com.liskovsoft.mediaserviceinterfaces.MediaItemService;
 import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.sharedutils.locale.LocaleUtility;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
 import com.liskovsoft.smartyoutubetv2.common.prefs.MainUIData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataChangeBase.OnDataChange;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 
 public class UnlocalizedTitleProcessor implements OnDataChange, BrowseProcessor {
     private static final String TAG = UnlocalizedTitleProcessor.class.getSimpleName();
-    private final OnItemReady mOnItemReady;
+    private static final String CACHE_NAME = "unlocalized_titles";
+    private static final int CACHE_MAX_SIZE = 10_000;
+    private static final long CACHE_TTL_MS = 7 * 24 * 60 * 60 * 1_000L;
+    /** Collect the ids of the rows that are loaded one by one */
+    private static final long COALESCE_WINDOW_MS = 300;
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+    private static final int BATCH_SIZE = 10;
+    private static final long BATCH_TIMESPAN_MS = 500;
+    private static final AtomicInteger sInFlightCount = new AtomicInteger();
+    private static PersistentCache sCache;
+    private final OnItemsReady mOnItemsReady;
     private final MediaItemService mItemService;
     private final MainUIData mMainUIData;
+    private final Context mContext;
     private boolean mIsUnlocalizedTitlesEnabled;
-    private Disposable mResult;
+    private String mLanguage;
+    // videoId -> groups that contain the video (queued or in-flight)
+    private final Map<String, List<VideoGroup>> mWaiting = new HashMap<>();
+    private final List<String> mQueued = new ArrayList<>();
+    private final List<Disposable> mActions = new ArrayList<>();
+    private final Runnable mFlush = this::flush;
 
-    public UnlocalizedTitleProcessor(Context context, OnItemReady onItemReady) {
-        mOnItemReady = onItemReady;
+    public UnlocalizedTitleProcessor(Context context, OnItemsReady onItemsReady) {
+        mContext = context.getApplicationContext();
+        mOnItemsReady = onItemsReady;
         ServiceManager service = YouTubeServiceManager.instance();
         mItemService = service.getMediaItemService();
         mMainUIData = MainUIData.instance(context);
         mMainUIData.setOnChange(this);
         initData();
+
+        if (sCache == null) {
+            sCache = new PersistentCache(mContext, CACHE_NAME, CACHE_MAX_SIZE, CACHE_TTL_MS);
+        }
     }
 
     @Override
@@ -44,6 +72,7 @@ public class UnlocalizedTitleProcessor implements OnDataChange, BrowseProcessor
 
     private void initData() {
         mIsUnlocalizedTitlesEnabled = mMainUIData.isUnlocalizedTitlesEnabled();
+        mLanguage = LocaleUtility.getCurrentLocale(mContext).getLanguage();
     }
 
     @Override
@@ -52,41 +81,141 @@ public class UnlocalizedTitleProcessor implements OnDataChange, BrowseProcessor
             return;
         }
 
-        List<String> videoIds = getVideoIds(videoGroup);
-        mResult = Observable.fromIterable(videoIds)
-                .flatMap(videoId -> mItemService.getUnlocalizedTitleObserve(videoId)
-                        .map(newTitle -> new Pair<>(videoId, newTitle)))
-                .subscribe(title -> {
-                    Video video = videoGroup.findVideoById(title.first);
-                    if (video == null) {
-                        return;
-                    }
-                    video.deArrowTitle = title.second; // sometimes player titles localized while cards not
-                    if (!Helpers.equals(video.title, video.deArrowTitle)) {
-                        mOnItemReady.onItemReady(video);
-                    }
-                },
-                error -> {
-                    Log.d(TAG, "Unlocalized title: Cannot process the video");
-                });
+        List<Video> ready = new ArrayList<>();
+
+        for (Video video : videoGroup.getVideos()) {
+            if (video.deArrowProcessed || video.videoId == null) {
+                continue;
+            }
+            video.deArrowProcessed = true;
+
+            String key = getCacheKey(video.videoId);
+
+            if (sCache.contains(key)) {
+                applyTitle(video, sCache.get(key), ready);
+                continue;
+            }
+
+            List<VideoGroup> groups = mWaiting.get(video.videoId);
+
+            if (groups == null) {
+                groups = new ArrayList<>();
+                mWaiting.put(video.videoId, groups);
+                mQueued.add(video.videoId);
+            }
+
+            if (!groups.contains(videoGroup)) {
+                groups.add(videoGroup);
+            }
+        }
+
+        notifyItemsReady(ready);
+
+        if (!mQueued.isEmpty()) {
+            Utils.postDelayed(mFlush, COALESCE_WINDOW_MS);
+        }
     }
 
     @Override
     public void dispose() {
-        RxHelper.disposeActions(mResult);
+        Utils.removeCallbacks(mFlush);
+        RxHelper.disposeActions(mActions);
+        mActions.clear();
+        mWaiting.clear();
+        mQueued.clear();
     }
 
-    private List<String> getVideoIds(VideoGroup videoGroup) {
-        List<String> result = new ArrayList<>();
+    /**
+     * Titles currently cached (memory + disk)
+     */
+    public static int getCacheSize() {
+        return sCache != null ? sCache.size() : 0;
+    }
 
-        for (Video video : videoGroup.getVideos()) {
-            if (video.deArrowProcessed) {
+    public static int getCacheHitRate() {
+        return sCache != null ? sCache.getHitRate() : 0;
+    }
+
+    public static int getInFlightCount() {
+        return sInFlightCount.get();
+    }
+
+    private void flush() {
+        if (mQueued.isEmpty()) {
+            return;
+        }
+
+        List<String> videoIds = new ArrayList<>(mQueued);
+        mQueued.clear();
+
+        // Drop finished actions
+        Helpers.removeIf(mActions, Disposable::isDisposed);
+
+        Disposable action = Observable.fromIterable(videoIds)
+                .flatMap(videoId -> {
+                    sInFlightCount.incrementAndGet();
+                    return mItemService.getUnlocalizedTitleObserve(videoId)
+                            .map(newTitle -> new Pair<>(videoId, newTitle))
+                            .defaultIfEmpty(new Pair<>(videoId, null)) // negative result
+                            .onErrorResumeNext(Observable.empty()) // network error, don't cache
+                            .doFinally(sInFlightCount::decrementAndGet);
+                }, MAX_CONCURRENT_REQUESTS)
+                .buffer(BATCH_TIMESPAN_MS, TimeUnit.MILLISECONDS, BATCH_SIZE)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        this::onTitles,
+                        error -> Log.d(TAG, "Unlocalized title: Cannot process the videos"),
+                        () -> {
+                            // Failed requests
+                            for (String videoId : videoIds) {
+                                mWaiting.remove(videoId);
+                            }
+                        }
+                );
+        mActions.add(action);
+    }
+
+    private void onTitles(List<Pair<String, String>> titles) {
+        List<Video> ready = new ArrayList<>();
+
+        for (Pair<String, String> title : titles) {
+            sCache.put(getCacheKey(title.first), title.second);
+
+            List<VideoGroup> groups = mWaiting.remove(title.first);
+
+            if (groups == null) {
                 continue;
             }
-            video.deArrowProcessed = true;
-            result.add(video.videoId);
+
+            for (VideoGroup group : groups) {
+                Video video = group.findVideoById(title.first);
+                if (video != null) {
+                    applyTitle(video, title.second, ready);
+                }
+            }
+        }
+
+        notifyItemsReady(ready);
+    }
+
+    private void applyTitle(Video video, String title, List<Video> ready) {
+        if (title == null) {
+            return;
         }
 
-        return result;
+        video.deArrowTitle = title; // sometimes player titles localized while cards not
+        if (!Helpers.equals(video.title, video.deArrowTitle)) {
+            ready.add(video);
+        }
+    }
+
+    private void notifyItemsReady(List<Video> videos) {
+        if (!videos.isEmpty()) {
+            mOnItemsReady.onItemsReady(videos);
+        }
+    }
+
+    private String getCacheKey(String videoId) {
+        return videoId + "." + mLanguage;
     }
 }
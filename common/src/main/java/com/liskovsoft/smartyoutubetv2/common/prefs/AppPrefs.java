@@ -10,6 +10,10 @@ import com.liskovsoft.sharedutils.prefs.SharedPreferencesBase;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.service.SidebarService;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager;
 import com.liskovsoft.smartyoutubetv2.common.misc.MediaServiceManager.AccountChangeListener;
+import com.liskovsoft.smartyoutubetv2.common.prefs.common.PrefsStore;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class AppPrefs extends SharedPreferencesBase implements AccountChangeListener {
     private static final String TAG = AppPrefs.class.getSimpleName();
@@ -25,6 +29,8 @@ public class AppPrefs extends SharedPreferencesBase implements AccountChangeList
     private static final String WEB_PROXY_URI = "web_proxy_uri";
     private static final String WEB_PROXY_ENABLED = "web_proxy_enabled";
     private static final String LAST_PROFILE_NAME = "last_profile_name";
+    private static final String MIGRATED_SUFFIX = "_migrated";
+    private final PrefsStore mStore;
     private String mBootResolution;
     private final WeakHashSet<ProfileChangeListener> mListeners = new WeakHashSet<>();
 
@@ -36,6 +42,7 @@ public class AppPrefs extends SharedPreferencesBase implements AccountChangeList
         //super(context, R.xml.app_prefs); // IndexOutOfBoundsException on Google Streamer
         super(context);
 
+        mStore = PrefsStore.instance(context);
         initProfiles();
     }
 
@@ -89,6 +96,13 @@ public class AppPrefs extends SharedPreferencesBase implements AccountChangeList
         setData(getProfileKey(STATE_UPDATER_DATA, true), data);
     }
 
+    /**
+     * Name of the history storage of the current profile
+     */
+    public String getStateUpdaterName() {
+        return getProfileKey(STATE_UPDATER_DATA, true);
+    }
+
     public String getChannelGroupData() {
         // Always use multiple profiles
         return getData(getProfileKey(CHANNEL_GROUP_DATA,  true));
@@ -115,11 +129,25 @@ public class AppPrefs extends SharedPreferencesBase implements AccountChangeList
         // Fallback to non-profile settings
         //return data != null ? data : getData(key);
 
-        return getData(getProfileKey(key, isMultiProfilesEnabled()));
+        boolean isMultiProfilesEnabled = isMultiProfilesEnabled();
+        PrefsStore.Namespace namespace = getProfileNamespace(isMultiProfilesEnabled);
+
+        if (!namespace.getBoolean(key + MIGRATED_SUFFIX, false)) {
+            // NOTE: the old data is kept in case of the downgrade
+            namespace.putString(key, getData(getProfileKey(key, isMultiProfilesEnabled)));
+            namespace.putBoolean(key + MIGRATED_SUFFIX, true);
+        }
+
+        return namespace.getString(key, null);
     }
 
+    /**
+     * Only the changed data is written. Writes are batched in the background.
+     */
     public void setProfileData(String key, String data) {
-        setData(getProfileKey(key, isMultiProfilesEnabled()), data);
+        PrefsStore.Namespace namespace = getProfileNamespace(isMultiProfilesEnabled());
+        namespace.putString(key, data);
+        namespace.putBoolean(key + MIGRATED_SUFFIX, true);
     }
 
     //public String getData(String key) {
@@ -164,23 +192,36 @@ public class AppPrefs extends SharedPreferencesBase implements AccountChangeList
     }
 
     private void onProfileChanged() {
-        mListeners.forEach(ProfileChangeListener::onProfileChanged);
+        // Listeners are registered from the startup threads too. Don't hold the lock while calling them.
+        List<ProfileChangeListener> listeners = new ArrayList<>();
+
+        synchronized (mListeners) {
+            mListeners.forEach(listeners::add);
+        }
+
+        for (ProfileChangeListener listener : listeners) {
+            listener.onProfileChanged();
+        }
     }
 
     public void addListener(ProfileChangeListener listener) {
-        if (!mListeners.contains(listener)) {
-            if (listener instanceof GeneralData) {
-                mListeners.add(0, listener); // data classes should be called before regular listeners
-            } else if (listener instanceof SidebarService) {
-                mListeners.add(mListeners.isEmpty() ? 0 : 1, listener); // data classes should be called before regular listeners
-            } else {
-                mListeners.add(listener);
+        synchronized (mListeners) {
+            if (!mListeners.contains(listener)) {
+                if (listener instanceof GeneralData) {
+                    mListeners.add(0, listener); // data classes should be called before regular listeners
+                } else if (listener instanceof SidebarService) {
+                    mListeners.add(mListeners.isEmpty() ? 0 : 1, listener); // data classes should be called before regular listeners
+                } else {
+                    mListeners.add(listener);
+                }
             }
         }
     }
 
     public void removeListener(ProfileChangeListener listener) {
-        mListeners.remove(listener);
+        synchronized (mListeners) {
+            mListeners.remove(listener);
+        }
     }
 
     //private String getProfileKey(String key) {
@@ -192,6 +233,17 @@ public class AppPrefs extends SharedPreferencesBase implements AccountChangeList
     //    return key;
     //}
 
+    /**
+     * The typed values of the current profile. Changes with the profile.
+     */
+    public PrefsStore.Namespace getProfileNamespace() {
+        return getProfileNamespace(isMultiProfilesEnabled());
+    }
+
+    private PrefsStore.Namespace getProfileNamespace(boolean isMultiProfilesEnabled) {
+        return mStore.namespace(isMultiProfilesEnabled ? getProfileName() : null);
+    }
+
     private String getProfileKey(String key, boolean isMultiProfilesEnabled) {
         String profileName = getProfileName();
         if (!TextUtils.isEmpty(profileName) && isMultiProfilesEnabled) {
@@ -12,9 +12,13 @@ import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs.ProfileChangeListene
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 public class BlockedChannelData implements ProfileChangeListener {
     private static final String BLOCKED_CHANNEL_DATA = "blocked_channel_data";
@@ -22,6 +26,8 @@ public class BlockedChannelData implements ProfileChangeListener {
     private static BlockedChannelData sInstance;
     private final AppPrefs mPrefs;
     private List<Channel> mChannels;
+    // Immutable. Replaced on every change. Read from any thread without locks.
+    private volatile ChannelIndex mIndex = ChannelIndex.EMPTY;
     private final Runnable mPersistStateInt = this::persistStateInt;
     private final List<BlockedChannelListener> mListeners = new ArrayList<>();
 
@@ -59,7 +65,7 @@ public class BlockedChannelData implements ProfileChangeListener {
                 }
 
                 if (channelId != null && channel.channelId != null) {
-                    return Helpers.equals(channel, channel.channelId);
+                    return Helpers.equals(channelId, channel.channelId);
                 }
             }
 
@@ -73,6 +79,59 @@ public class BlockedChannelData implements ProfileChangeListener {
         }
     }
 
+    /**
+     * Hash lookup by the channel id and by the normalized channel name.
+     */
+    private static class ChannelIndex {
+        public static final ChannelIndex EMPTY = new ChannelIndex(Collections.emptyList());
+        private final Set<String> mChannelIds;
+        private final Set<String> mChannelNames;
+
+        public ChannelIndex(List<Channel> channels) {
+            Set<String> channelIds = new HashSet<>();
+            Set<String> channelNames = new HashSet<>();
+
+            for (Channel channel : channels) {
+                if (channel.channelId != null) {
+                    channelIds.add(channel.channelId);
+                }
+
+                String channelName = normalize(channel.channelName);
+
+                if (channelName != null) {
+                    channelNames.add(channelName);
+                }
+            }
+
+            mChannelIds = channelIds;
+            mChannelNames = channelNames;
+        }
+
+        public boolean contains(String channelId, String channelName) {
+            if (channelId != null && mChannelIds.contains(channelId)) {
+                return true;
+            }
+
+            String name = normalize(channelName);
+
+            return name != null && mChannelNames.contains(name);
+        }
+
+        public boolean isEmpty() {
+            return mChannelIds.isEmpty() && mChannelNames.isEmpty();
+        }
+
+        private static String normalize(String channelName) {
+            if (channelName == null) {
+                return null;
+            }
+
+            String result = channelName.trim().toLowerCase(Locale.ROOT);
+
+            return result.isEmpty() ? null : result;
+        }
+    }
+
     public interface BlockedChannelListener {
         void onChanged();
     }
@@ -102,6 +161,7 @@ public class BlockedChannelData implements ProfileChangeListener {
         Channel channel = new Channel(channelId, channelName);
         mChannels.remove(channel);
         mChannels.add(0, channel);
+        updateIndex();
 
         persistState();
         notifyListeners();
@@ -115,7 +175,10 @@ public class BlockedChannelData implements ProfileChangeListener {
             return;
         }
 
-        mChannels.remove(new Channel(channelId, channelName));
+        // Same rules as in containsChannel
+        ChannelIndex index = new ChannelIndex(Collections.singletonList(new Channel(channelId, channelName)));
+        Helpers.removeIf(mChannels, channel -> index.contains(channel.channelId, channel.channelName));
+        updateIndex();
 
         persistState();
         notifyListeners();
@@ -125,11 +188,13 @@ public class BlockedChannelData implements ProfileChangeListener {
      * Check if a channel is blocked
      */
     public boolean containsChannel(String channelId, String channelName) {
-        if (Helpers.allNulls(channelId, channelName) || mChannels.isEmpty()) {
+        ChannelIndex index = mIndex;
+
+        if (Helpers.allNulls(channelId, channelName) || index.isEmpty()) {
             return false;
         }
 
-        return mChannels.contains(new Channel(channelId, channelName));
+        return index.contains(channelId, channelName);
     }
 
     /**
@@ -165,6 +230,7 @@ public class BlockedChannelData implements ProfileChangeListener {
      */
     public void clear() {
         mChannels.clear();
+        updateIndex();
         persistState();
     }
 
@@ -177,6 +243,12 @@ public class BlockedChannelData implements ProfileChangeListener {
         // null
 
         restoreOldData(split);
+
+        updateIndex();
+    }
+
+    private void updateIndex() {
+        mIndex = mChannels.isEmpty() ? ChannelIndex.EMPTY : new ChannelIndex(mChannels);
     }
 
     private void restoreOldData(String[] split) {
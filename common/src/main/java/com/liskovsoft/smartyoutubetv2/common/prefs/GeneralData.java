@@ -6,13 +6,13 @@ import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.prefs.GlobalPreferences;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs.ProfileChangeListener;
-import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataSaverBase;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
-public class GeneralData implements ProfileChangeListener {
+public class GeneralData extends DataSaverBase implements ProfileChangeListener {
     public static final int SCREENSAVER_TIMEOUT_NEVER = 0;
     private static final String GENERAL_DATA = "general_data";
     public static final int EXIT_NONE = 0;
@@ -86,9 +86,9 @@ public class GeneralData implements ProfileChangeListener {
     private int mLocalDriveBackupFreqDays;
     private List<Video> mOldPinnedItems;
     private boolean mIsRemapSToSpeedToggleEnabled;
-    private final Runnable mPersistStateInt = this::persistStateInt;
 
     private GeneralData(Context context) {
+        super(context, GENERAL_DATA);
         mPrefs = AppPrefs.instance(context);
         mPrefs.addListener(this);
         restoreState();
@@ -108,7 +108,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setBackupZipName(String backupZipName) {
         mBackupZipName = backupZipName;
-        persistState();
+        setString(0, mBackupZipName);
     }
 
     public int getAppExitShortcut() {
@@ -117,7 +117,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setAppExitShortcut(int type) {
         mAppExitShortcut = type;
-        persistState();
+        setInt(3, mAppExitShortcut);
     }
 
     public int getPlayerExitShortcut() {
@@ -126,7 +126,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setPlayerExitShortcut(int type) {
         mPlayerExitShortcut = type;
-        persistState();
+        setInt(58, mPlayerExitShortcut);
     }
 
     public int getSearchExitShortcut() {
@@ -135,7 +135,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setSearchExitShortcut(int type) {
         mSearchExitShortcut = type;
-        persistState();
+        setInt(68, mSearchExitShortcut);
     }
 
     public boolean isReturnToLauncherEnabled() {
@@ -144,7 +144,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setReturnToLauncherEnabled(boolean enable) {
         mIsReturnToLauncherEnabled = enable;
-        persistState();
+        setBoolean(4, mIsReturnToLauncherEnabled);
     }
 
     public int getBackgroundPlaybackShortcut() {
@@ -153,7 +153,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setBackgroundPlaybackShortcut(int type) {
         mBackgroundShortcut = type;
-        persistState();
+        setInt(5, mBackgroundShortcut);
     }
 
     public List<Video> getOldPinnedItems() {
@@ -166,7 +166,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setRememberSubscriptionsPositionEnabled(boolean enable) {
         mIsRememberSubscriptionsPositionEnabled = enable;
-        persistState();
+        setBoolean(48, mIsRememberSubscriptionsPositionEnabled);
     }
 
     public boolean isRememberPinnedPositionEnabled() {
@@ -175,7 +175,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setRememberPinnedPositionEnabled(boolean enable) {
         mIsRememberPinnedPositionEnabled = enable;
-        persistState();
+        setBoolean(62, mIsRememberPinnedPositionEnabled);
     }
 
     public boolean isHideWatchedFromNotificationsEnabled() {
@@ -184,7 +184,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setHideWatchedFromNotificationsEnabled(boolean enable) {
         mIsHideWatchedFromNotificationsEnabled = enable;
-        persistState();
+        setBoolean(56, mIsHideWatchedFromNotificationsEnabled);
     }
 
     public boolean isScreensaverDisabled() {
@@ -193,7 +193,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setScreensaverDisabled(boolean disable) {
         mIsScreensaverDisabled = disable;
-        persistState();
+        setBoolean(26, mIsScreensaverDisabled);
     }
 
     public boolean isRemapNumbersToSpeedEnabled() {
@@ -202,7 +202,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setRemapNumbersToSpeedEnabled(boolean enable) {
         mIsRemapNumbersToSpeedEnabled = enable;
-        persistState();
+        setBoolean(50, mIsRemapNumbersToSpeedEnabled);
     }
 
     public boolean isRemapDpadLeftToVolumeEnabled() {
@@ -212,12 +212,12 @@ public class GeneralData implements ProfileChangeListener {
     public void setRemapDpadLeftToVolumeEnabled(boolean enable) {
         resetDpadLeftRightSettings();
         mIsRemapDpadLeftToVolumeEnabled = enable;
-        persistState();
+        setBoolean(54, mIsRemapDpadLeftToVolumeEnabled);
     }
 
     public void resetDpadLeftRightSettings() {
         mIsRemapDpadLeftToVolumeEnabled = false;
-        persistState();
+        setBoolean(54, mIsRemapDpadLeftToVolumeEnabled);
     }
 
     public boolean isRemapPlayToOKEnabled() {
@@ -226,7 +226,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setRemapPlayToOKEnabled(boolean enable) {
         mIsRemapPlayToOKEnabled = enable;
-        persistState();
+        setBoolean(46, mIsRemapPlayToOKEnabled);
     }
 
     public int getScreensaverTimeoutMs() {
@@ -235,7 +235,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setScreensaverTimeoutMs(int timeoutMs) {
         mScreensaverTimeoutMs = timeoutMs;
-        persistState();
+        setInt(36, mScreensaverTimeoutMs);
     }
 
     public int getScreensaverDimmingPercents() {
@@ -244,7 +244,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setScreensaverDimmingPercents(int percents) {
         mScreensaverDimmingPercents = percents;
-        persistState();
+        setInt(44, mScreensaverDimmingPercents);
     }
 
     public boolean is24HourLocaleEnabled() {
@@ -261,7 +261,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setProxyEnabled(boolean enable) {
         mIsProxyEnabled = enable;
-        persistState();
+        setBoolean(10, mIsProxyEnabled);
     }
 
     public boolean isVPNEnabled() {
@@ -270,7 +270,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setVPNEnabled(boolean enable) {
         mIsVPNEnabled = enable;
-        persistState();
+        setBoolean(27, mIsVPNEnabled);
     }
 
     public boolean isBridgeCheckEnabled() {
@@ -279,7 +279,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setBridgeCheckEnabled(boolean enable) {
         mIsBridgeCheckEnabled = enable;
-        persistState();
+        setBoolean(11, mIsBridgeCheckEnabled);
     }
 
     public boolean isOkButtonLongPressDisabled() {
@@ -288,7 +288,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setOkButtonLongPressDisabled(boolean enable) {
         mIsOkButtonLongPressDisabled = enable;
-        persistState();
+        setBoolean(12, mIsOkButtonLongPressDisabled);
     }
 
     public String getLastPlaylistId() {
@@ -297,7 +297,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setLastPlaylistId(String playlistId) {
         mLastPlaylistId = playlistId;
-        persistState();
+        setString(13, mLastPlaylistId);
     }
 
     public String getLastPlaylistTitle() {
@@ -306,7 +306,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setLastPlaylistTitle(String playlistTitle) {
         mLastPlaylistTitle = playlistTitle;
-        persistState();
+        setString(28, mLastPlaylistTitle);
     }
 
     public int getPlaylistOrder(String playlistId) {
@@ -320,7 +320,7 @@ public class GeneralData implements ProfileChangeListener {
         } else {
             mPlaylistOrder.put(playlistId, playlistOrder);
         }
-        persistState();
+        setData(29, mPlaylistOrder);
     }
 
     public List<Video> getPendingStreams() {
@@ -341,7 +341,7 @@ public class GeneralData implements ProfileChangeListener {
         }
 
         mPendingStreams.add(video);
-        persistState();
+        setData(30, mPendingStreams);
     }
 
     public void removePendingStream(Video video) {
@@ -350,7 +350,7 @@ public class GeneralData implements ProfileChangeListener {
         }
 
         Helpers.removeIf(mPendingStreams, item -> video.videoId.equals(item.videoId));
-        persistState();
+        setData(30, mPendingStreams);
     }
 
     public boolean isGlobalClockEnabled() {
@@ -359,7 +359,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setGlobalClockEnabled(boolean enable) {
         mIsGlobalClockEnabled = enable;
-        persistState();
+        setBoolean(31, mIsGlobalClockEnabled);
     }
 
     public String getSettingsPassword() {
@@ -369,7 +369,7 @@ public class GeneralData implements ProfileChangeListener {
     public void setSettingsPassword(String password) {
         mSettingsPassword = password;
 
-        persistState();
+        setString(33, mSettingsPassword);
     }
 
     public String getMasterPassword() {
@@ -379,7 +379,7 @@ public class GeneralData implements ProfileChangeListener {
     public void setMasterPassword(String password) {
         mMasterPassword = password;
 
-        persistState();
+        setString(41, mMasterPassword);
     }
 
     public boolean isChildModeEnabled() {
@@ -389,7 +389,7 @@ public class GeneralData implements ProfileChangeListener {
     public void setChildModeEnabled(boolean enable) {
         mIsChildModeEnabled = enable;
 
-        persistState();
+        setBoolean(34, mIsChildModeEnabled);
     }
 
     public boolean isHistoryEnabled() {
@@ -407,7 +407,7 @@ public class GeneralData implements ProfileChangeListener {
     public void setHistoryState(int historyState) {
         mHistoryState = historyState;
 
-        persistState();
+        setInt(47, mHistoryState);
     }
 
     public boolean isAltAppIconEnabled() {
@@ -417,7 +417,7 @@ public class GeneralData implements ProfileChangeListener {
     public void setAltAppIconEnabled(boolean enable) {
         mIsAltAppIconEnabled = enable;
 
-        persistState();
+        setBoolean(38, mIsAltAppIconEnabled);
     }
 
     public int getVersionCode() {
@@ -427,7 +427,7 @@ public class GeneralData implements ProfileChangeListener {
     public void setVersionCode(int code) {
         mVersionCode = code;
 
-        persistState();
+        setInt(39, mVersionCode);
     }
 
     public boolean isSelectChannelSectionEnabled() {
@@ -437,7 +437,7 @@ public class GeneralData implements ProfileChangeListener {
     public void setSelectChannelSectionEnabled(boolean enabled) {
         mIsSelectChannelSectionEnabled = enabled;
 
-        persistState();
+        setBoolean(40, mIsSelectChannelSectionEnabled);
     }
 
     public boolean isOldUpdateNotificationsEnabled() {
@@ -446,7 +446,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setOldUpdateNotificationsEnabled(boolean enable) {
         mIsOldUpdateNotificationsEnabled = enable;
-        persistState();
+        setBoolean(43, mIsOldUpdateNotificationsEnabled);
     }
 
     public boolean isFullscreenModeEnabled() {
@@ -455,7 +455,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setFullscreenModeEnabled(boolean enable) {
         mIsFullscreenModeEnabled = enable;
-        persistState();
+        setBoolean(60, mIsFullscreenModeEnabled);
     }
 
     public Video getSelectedItem(int sectionId) {
@@ -469,11 +469,12 @@ public class GeneralData implements ProfileChangeListener {
 
         mSelectedItems.put(sectionId, item);
 
-        persistState();
+        setData(63, mSelectedItems);
     }
 
     public void removeSelectedItem(int sectionId) {
         mSelectedItems.remove(sectionId);
+        putData(63, mSelectedItems);
     }
 
     public List<String> getChangelog() {
@@ -482,7 +483,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setChangelog(List<String> changelog) {
         mChangelog = changelog;
-        persistState();
+        setData(57, mChangelog);
     }
 
     public boolean isFirstUseTooltipEnabled() {
@@ -491,7 +492,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setFirstUseTooltipEnabled(boolean enable) {
         mIsFirstUseTooltipEnabled = enable;
-        persistState();
+        setBoolean(64, mIsFirstUseTooltipEnabled);
     }
 
     public boolean isDeviceSpecificBackupEnabled() {
@@ -500,7 +501,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setDeviceSpecificBackupEnabled(boolean enable) {
         mIsDeviceSpecificBackupEnabled = enable;
-        persistState();
+        setBoolean(65, mIsDeviceSpecificBackupEnabled);
     }
 
     public int getGDriveBackupFreqDays() {
@@ -509,7 +510,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setGDriveBackupFreqDays(int freqDays) {
         mGDriveBackupFreqDays = freqDays;
-        persistState();
+        setInt(69, mGDriveBackupFreqDays);
     }
 
     public int getLocalDriveBackupFreqDays() {
@@ -518,7 +519,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setLocalDriveBackupFreqDays(int freqDays) {
         mLocalDriveBackupFreqDays = freqDays;
-        persistState();
+        setInt(70, mLocalDriveBackupFreqDays);
     }
 
     public boolean isRemapSToSpeedToggleEnabled() {
@@ -527,7 +528,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setRemapSToSpeedToggleEnabled(boolean enable) {
         mIsRemapSToSpeedToggleEnabled = enable;
-        persistState();
+        setBoolean(72, mIsRemapSToSpeedToggleEnabled);
     }
 
     public int getDpadUpDownAction() {
@@ -536,7 +537,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setDpadUpDownAction(int action) {
         mDpadUpDownAction = action;
-        persistState();
+        setInt(51, mDpadUpDownAction);
     }
 
     public int getNextPreviousAction() {
@@ -545,7 +546,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setNextPreviousAction(int action) {
         mNextPreviousAction = action;
-        persistState();
+        setInt(45, mNextPreviousAction);
     }
 
     public int getFastForwardRewindAction() {
@@ -554,7 +555,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setFastForwardRewindAction(int action) {
         mFastForwardRewindAction = action;
-        persistState();
+        setInt(8, mFastForwardRewindAction);
     }
 
     public int getPageUpDownAction() {
@@ -563,7 +564,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setPageUpDownAction(int action) {
         mPageUpDownAction = action;
-        persistState();
+        setInt(16, mPageUpDownAction);
     }
 
     public int getChannelUpDownAction() {
@@ -572,7 +573,7 @@ public class GeneralData implements ProfileChangeListener {
 
     public void setChannelUpDownAction(int action) {
         mChannelUpDownAction = action;
-        persistState();
+        setInt(18, mChannelUpDownAction);
     }
 
     /**
@@ -580,117 +581,86 @@ public class GeneralData implements ProfileChangeListener {
      * Happened inside cleanupPinnedItems()
      */
     private synchronized void restoreState() {
-        String data = mPrefs.getProfileData(GENERAL_DATA);
-
-        String[] split = Helpers.splitData(data);
-
-        mBackupZipName = Helpers.parseStr(split, 0);
+        mBackupZipName = getString(0);
         //mBootSectionId = Helpers.parseInt(split, 1, MediaGroup.TYPE_HOME);
         //mIsSettingsSectionEnabled = Helpers.parseBoolean(split, 2, true);
-        mAppExitShortcut = Helpers.parseInt(split, 3, EXIT_DOUBLE_BACK);
-        mIsReturnToLauncherEnabled = Helpers.parseBoolean(split, 4, false);
-        mBackgroundShortcut = Helpers.parseInt(split, 5, BACKGROUND_PLAYBACK_SHORTCUT_HOME_BACK);
-        mOldPinnedItems = Helpers.parseList(split, 6, Video::fromString);
-        mIsHideShortsFromSubscriptionsEnabled = Helpers.parseBoolean(split, 7, false);
-        mFastForwardRewindAction = Helpers.parseInt(split, 8, ACTION_UNDEFINED);
+        mAppExitShortcut = getInt(3, EXIT_DOUBLE_BACK);
+        mIsReturnToLauncherEnabled = getBoolean(4, false);
+        mBackgroundShortcut = getInt(5, BACKGROUND_PLAYBACK_SHORTCUT_HOME_BACK);
+        mOldPinnedItems = Helpers.parseList(getData(6), 0, Video::fromString);
+        mIsHideShortsFromSubscriptionsEnabled = getBoolean(7, false);
+        mFastForwardRewindAction = getInt(8, ACTION_UNDEFINED);
         //mScreenDimmingTimeoutMs = Helpers.parseInt(split, 9, 1);
-        mIsProxyEnabled = Helpers.parseBoolean(split, 10, false);
-        mIsBridgeCheckEnabled = Helpers.parseBoolean(split, 11, true);
-        mIsOkButtonLongPressDisabled = Helpers.parseBoolean(split, 12, false);
-        mLastPlaylistId = Helpers.parseStr(split, 13);
+        mIsProxyEnabled = getBoolean(10, false);
+        mIsBridgeCheckEnabled = getBoolean(11, true);
+        mIsOkButtonLongPressDisabled = getBoolean(12, false);
+        mLastPlaylistId = getString(13);
         //String selectedSections = Helpers.parseStr(split, 14);
-        mIsHideUpcomingEnabled = Helpers.parseBoolean(split, 15, false);
-        mPageUpDownAction = Helpers.parseInt(split, 16, ACTION_UNDEFINED);
+        mIsHideUpcomingEnabled = getBoolean(15, false);
+        mPageUpDownAction = getInt(16, ACTION_UNDEFINED);
         //mIsRemapPageUpToLikeEnabled = Helpers.parseBoolean(split, 17, false);
-        mChannelUpDownAction = Helpers.parseInt(split, 18, ACTION_UNDEFINED);
+        mChannelUpDownAction = getInt(18, ACTION_UNDEFINED);
         //mIsRemapChannelUpToLikeEnabled = Helpers.parseBoolean(split, 19, false);
         //mIsRemapPageUpToSpeedEnabled = Helpers.parseBoolean(split, 20, false);
         //mIsRemapChannelUpToSpeedEnabled = Helpers.parseBoolean(split, 21, false);
         //mIsRemapFastForwardToSpeedEnabled = Helpers.parseBoolean(split, 22, false);
         //mIsRemapChannelUpToSearchEnabled = Helpers.parseBoolean(split, 23, false);
-        mIsHideShortsFromHomeEnabled = Helpers.parseBoolean(split, 24, false);
-        mIsHideShortsFromHistoryEnabled = Helpers.parseBoolean(split, 25, false);
-        mIsScreensaverDisabled = Helpers.parseBoolean(split, 26, true);
-        mIsVPNEnabled = Helpers.parseBoolean(split, 27, false);
-        mLastPlaylistTitle = Helpers.parseStr(split, 28);
-        mPlaylistOrder = Helpers.parseMap(split, 29, Helpers::parseStr, Helpers::parseInt);
+        mIsHideShortsFromHomeEnabled = getBoolean(24, false);
+        mIsHideShortsFromHistoryEnabled = getBoolean(25, false);
+        mIsScreensaverDisabled = getBoolean(26, true);
+        mIsVPNEnabled = getBoolean(27, false);
+        mLastPlaylistTitle = getString(28);
+        mPlaylistOrder = Helpers.parseMap(getData(29), 0, Helpers::parseStr, Helpers::parseInt);
         //String pendingStreams = Helpers.parseStr(split, 30);
-        mPendingStreams = Helpers.parseList(split, 30, Video::fromString);
-        mIsGlobalClockEnabled = Helpers.parseBoolean(split, 31, true);
+        mPendingStreams = Helpers.parseList(getData(30), 0, Video::fromString);
+        mIsGlobalClockEnabled = getBoolean(31, true);
         //mTimeFormat = Helpers.parseInt(split, 32, -1);
-        mSettingsPassword = Helpers.parseStr(split, 33);
-        mIsChildModeEnabled = Helpers.parseBoolean(split, 34, false);
-        mIsHistoryEnabled = Helpers.parseBoolean(split, 35, true);
-        mScreensaverTimeoutMs = Helpers.parseInt(split, 36, 60 * 1_000);
+        mSettingsPassword = getString(33);
+        mIsChildModeEnabled = getBoolean(34, false);
+        mIsHistoryEnabled = getBoolean(35, true);
+        mScreensaverTimeoutMs = getInt(36, 60 * 1_000);
         // ScreensaverMode was here
-        mIsAltAppIconEnabled = Helpers.parseBoolean(split, 38, false);
-        mVersionCode = Helpers.parseInt(split, 39, -1);
-        mIsSelectChannelSectionEnabled = Helpers.parseBoolean(split, 40, true);
-        mMasterPassword = Helpers.parseStr(split, 41);
+        mIsAltAppIconEnabled = getBoolean(38, false);
+        mVersionCode = getInt(39, -1);
+        mIsSelectChannelSectionEnabled = getBoolean(40, true);
+        mMasterPassword = getString(41);
         // StackOverflow on old devices?
         //mIsOldHomeLookEnabled = Helpers.parseBoolean(split, 42, Build.VERSION.SDK_INT <= 19);
-        mIsOldUpdateNotificationsEnabled = Helpers.parseBoolean(split, 43, false);
-        mScreensaverDimmingPercents = Helpers.parseInt(split, 44, 80);
-        mNextPreviousAction = Helpers.parseInt(split, 45, ACTION_UNDEFINED);
-        mIsRemapPlayToOKEnabled = Helpers.parseBoolean(split, 46, false);
-        mHistoryState = Helpers.parseInt(split, 47, HISTORY_AUTO);
-        mIsRememberSubscriptionsPositionEnabled = Helpers.parseBoolean(split, 48, false);
+        mIsOldUpdateNotificationsEnabled = getBoolean(43, false);
+        mScreensaverDimmingPercents = getInt(44, 80);
+        mNextPreviousAction = getInt(45, ACTION_UNDEFINED);
+        mIsRemapPlayToOKEnabled = getBoolean(46, false);
+        mHistoryState = getInt(47, HISTORY_AUTO);
+        mIsRememberSubscriptionsPositionEnabled = getBoolean(48, false);
         // mSelectedSubscriptionsItem was here
-        mIsRemapNumbersToSpeedEnabled = Helpers.parseBoolean(split, 50, false);
-        mDpadUpDownAction = Helpers.parseInt(split, 51, ACTION_UNDEFINED);
+        mIsRemapNumbersToSpeedEnabled = getBoolean(50, false);
+        mDpadUpDownAction = getInt(51, ACTION_UNDEFINED);
         //mIsRemapChannelUpToVolumeEnabled = Helpers.parseBoolean(split, 52, false);
         //mIsRemapDpadUpToVolumeEnabled = Helpers.parseBoolean(split, 53, false);
-        mIsRemapDpadLeftToVolumeEnabled = Helpers.parseBoolean(split, 54, false);
+        mIsRemapDpadLeftToVolumeEnabled = getBoolean(54, false);
         //mIsRemapNextToFastForwardEnabled = Helpers.parseBoolean(split, 55, false);
-        mIsHideWatchedFromNotificationsEnabled = Helpers.parseBoolean(split, 56, false);
-        mChangelog = Helpers.parseStrList(split, 57);
-        mPlayerExitShortcut = Helpers.parseInt(split, 58, EXIT_SINGLE_BACK);
+        mIsHideWatchedFromNotificationsEnabled = getBoolean(56, false);
+        mChangelog = Helpers.parseStrList(getData(57), 0);
+        mPlayerExitShortcut = getInt(58, EXIT_SINGLE_BACK);
         // StackOverflow on old devices?
         //mIsOldChannelLookEnabled = Helpers.parseBoolean(split, 59, Build.VERSION.SDK_INT <= 19);
-        mIsFullscreenModeEnabled = Helpers.parseBoolean(split, 60, true);
+        mIsFullscreenModeEnabled = getBoolean(60, true);
         //mIsHideWatchedFromWatchLaterEnabled = Helpers.parseBoolean(split, 61, false);
-        mIsRememberPinnedPositionEnabled = Helpers.parseBoolean(split, 62, false);
-        mSelectedItems = Helpers.parseMap(split, 63, Helpers::parseInt, Video::fromString);
-        mIsFirstUseTooltipEnabled = Helpers.parseBoolean(split, 64, true);
-        mIsDeviceSpecificBackupEnabled = Helpers.parseBoolean(split, 65, false);
+        mIsRememberPinnedPositionEnabled = getBoolean(62, false);
+        mSelectedItems = Helpers.parseMap(getData(63), 0, Helpers::parseInt, Video::fromString);
+        mIsFirstUseTooltipEnabled = getBoolean(64, true);
+        mIsDeviceSpecificBackupEnabled = getBoolean(65, false);
         //mIsAutoBackupEnabled = Helpers.parseBoolean(split, 66, false);
         //mIsRemapPageDownToSpeedEnabled = Helpers.parseBoolean(split, 67, false);
-        mSearchExitShortcut = Helpers.parseInt(split, 68, EXIT_SINGLE_BACK);
-        mGDriveBackupFreqDays = Helpers.parseInt(split, 69, -1);
-        mLocalDriveBackupFreqDays = Helpers.parseInt(split, 70, 1);
+        mSearchExitShortcut = getInt(68, EXIT_SINGLE_BACK);
+        mGDriveBackupFreqDays = getInt(69, -1);
+        mLocalDriveBackupFreqDays = getInt(70, 1);
         //mIsRemapFastForwardToSpeedToggleEnabled = Helpers.parseBoolean(split, 71, false);
-        mIsRemapSToSpeedToggleEnabled = Helpers.parseBoolean(split, 72, true);
-    }
-
-    public void persistNow() {
-        Utils.post(mPersistStateInt);
-    }
-
-    private void persistState() {
-        Utils.postDelayed(mPersistStateInt, 10_000);
-    }
-
-    private void persistStateInt() {
-        // Zero index is skipped. Selected sections were there.
-        mPrefs.setProfileData(GENERAL_DATA, Helpers.mergeData(mBackupZipName, null, null, mAppExitShortcut, mIsReturnToLauncherEnabled,
-                mBackgroundShortcut, mOldPinnedItems, mIsHideShortsFromSubscriptionsEnabled,
-                mFastForwardRewindAction, null, mIsProxyEnabled, mIsBridgeCheckEnabled, mIsOkButtonLongPressDisabled, mLastPlaylistId,
-                null, mIsHideUpcomingEnabled, mPageUpDownAction, null, mChannelUpDownAction, null, null, null, null, null,
-                mIsHideShortsFromHomeEnabled, mIsHideShortsFromHistoryEnabled, mIsScreensaverDisabled, mIsVPNEnabled, mLastPlaylistTitle,
-                mPlaylistOrder, mPendingStreams, mIsGlobalClockEnabled, null, mSettingsPassword, mIsChildModeEnabled, mIsHistoryEnabled,
-                mScreensaverTimeoutMs, null, mIsAltAppIconEnabled, mVersionCode, mIsSelectChannelSectionEnabled, mMasterPassword,
-                null, mIsOldUpdateNotificationsEnabled, mScreensaverDimmingPercents, mNextPreviousAction, mIsRemapPlayToOKEnabled,
-                mHistoryState, mIsRememberSubscriptionsPositionEnabled, null, mIsRemapNumbersToSpeedEnabled, mDpadUpDownAction,
-                null, null, mIsRemapDpadLeftToVolumeEnabled, null,
-                mIsHideWatchedFromNotificationsEnabled, mChangelog, mPlayerExitShortcut, null, mIsFullscreenModeEnabled, null,
-                mIsRememberPinnedPositionEnabled, mSelectedItems, mIsFirstUseTooltipEnabled, mIsDeviceSpecificBackupEnabled, null,
-                null, mSearchExitShortcut, mGDriveBackupFreqDays, mLocalDriveBackupFreqDays, null,
-                mIsRemapSToSpeedToggleEnabled));
+        mIsRemapSToSpeedToggleEnabled = getBoolean(72, true);
     }
 
     @Override
     public void onProfileChanged() {
-        Utils.removeCallbacks(mPersistStateInt);
         restoreState();
     }
 }
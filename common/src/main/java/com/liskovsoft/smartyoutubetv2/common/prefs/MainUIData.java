@@ -9,15 +9,14 @@ import com.liskovsoft.smartyoutubetv2.common.R;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.menu.providers.ContextMenuManager;
 import com.liskovsoft.smartyoutubetv2.common.app.presenters.dialogs.menu.providers.ContextMenuProvider;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs.ProfileChangeListener;
-import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataChangeBase;
+import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataSaverBase;
 import com.liskovsoft.smartyoutubetv2.common.utils.ClickbaitRemover;
-import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public class MainUIData extends DataChangeBase implements ProfileChangeListener {
+public class MainUIData extends DataSaverBase implements ProfileChangeListener {
     private static final String MAIN_UI_DATA = "main_ui_data2";
     public static final int CARD_PREVIEW_DISABLED = 0;
     public static final int CARD_PREVIEW_MUTED = 1;
@@ -115,11 +114,11 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
     private boolean mIsChannelSearchBarEnabled;
     private boolean mIsPinnedChannelRowsEnabled;
     private int mCardPreviewType;
-    private final Runnable mPersistStateInt = this::persistStateInt;
     private boolean mIsUnlocalizedTitlesEnabled;
     private long mUiTweaks;
 
     private MainUIData(Context context) {
+        super(context, MAIN_UI_DATA);
         mContext = context;
         mPrefs = AppPrefs.instance(context);
         mPrefs.addListener(this);
@@ -141,7 +140,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setCardMultilineTitleEnabled(boolean enable) {
         mIsCardMultilineTitleEnabled = enable;
-        persistState();
+        setBoolean(4, mIsCardMultilineTitleEnabled);
     }
 
     public boolean isCardMultilineSubtitleEnabled() {
@@ -150,7 +149,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setCardMultilineSubtitleEnabled(boolean enable) {
         mIsCardMultilineSubtitleEnabled = enable;
-        persistState();
+        setBoolean(16, mIsCardMultilineSubtitleEnabled);
     }
 
     public boolean isCardTextAutoScrollEnabled() {
@@ -159,7 +158,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setCardTextAutoScrollEnabled(boolean enable) {
         mIsCardTextAutoScrollEnabled = enable;
-        persistState();
+        setBoolean(8, mIsCardTextAutoScrollEnabled);
     }
 
     public int getCardTitleLinesNum() {
@@ -168,7 +167,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setCartTitleLinesNum(int lines) {
         mCardTitleLinesNum = lines;
-        persistState();
+        setInt(7, mCardTitleLinesNum);
     }
 
     public int getThumbQuality() {
@@ -177,7 +176,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setThumbQuality(int quality) {
         mThumbQuality = quality;
-        persistState();
+        setInt(15, mThumbQuality);
     }
 
     public float getVideoGridScale() {
@@ -188,7 +187,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
     public void setVideoGridScale(float scale) {
         mVideoGridScale = scale;
 
-        persistState();
+        setFloat(1, mVideoGridScale);
     }
 
     public float getUIScale() {
@@ -198,7 +197,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
     public void setUIScale(float scale) {
         mUIScale = scale;
 
-        persistState();
+        setFloat(2, mUIScale);
     }
 
     public List<ColorScheme> getColorSchemes() {
@@ -211,7 +210,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setColorScheme(ColorScheme scheme) {
         mColorSchemeIndex = mColorSchemes.indexOf(scheme);
-        persistState();
+        setInt(3, mColorSchemeIndex);
     }
 
     public int getChannelCategorySorting() {
@@ -220,7 +219,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setChannelCategorySorting(int type) {
         mChannelCategorySorting = type;
-        persistState();
+        setInt(5, mChannelCategorySorting);
     }
 
     public int getPlaylistsStyle() {
@@ -229,7 +228,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setPlaylistsStyle(int type) {
         mPlaylistsStyle = type;
-        persistState();
+        setInt(6, mPlaylistsStyle);
     }
 
     public boolean isUploadsOldLookEnabled() {
@@ -238,7 +237,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setUploadsOldLookEnabled(boolean enable) {
         mIsUploadsOldLookEnabled = enable;
-        persistState();
+        setBoolean(9, mIsUploadsOldLookEnabled);
     }
 
     public boolean isChannelsFilterEnabled() {
@@ -247,7 +246,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setChannelsFilterEnabled(boolean enable) {
         mIsChannelsFilterEnabled = enable;
-        persistState();
+        setBoolean(18, mIsChannelsFilterEnabled);
     }
 
     public boolean isPinnedChannelRowsEnabled() {
@@ -256,7 +255,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setPinnedChannelRowsEnabled(boolean enable) {
         mIsPinnedChannelRowsEnabled = enable;
-        persistState();
+        setBoolean(20, mIsPinnedChannelRowsEnabled);
     }
 
     public boolean isChannelSearchBarEnabled() {
@@ -265,7 +264,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setChannelSearchBarEnabled(boolean enable) {
         mIsChannelSearchBarEnabled = enable;
-        persistState();
+        setBoolean(19, mIsChannelSearchBarEnabled);
     }
 
     public boolean isUploadsAutoLoadEnabled() {
@@ -274,7 +273,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setUploadsAutoLoadEnabled(boolean enable) {
         mIsUploadsAutoLoadEnabled = enable;
-        persistState();
+        setBoolean(10, mIsUploadsAutoLoadEnabled);
     }
 
     public float getCardTextScrollSpeed() {
@@ -286,7 +285,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
         setCardTextAutoScrollEnabled(true);
 
-        persistState();
+        setFloat(11, mCardTextScrollSpeed);
     }
 
     public boolean isMenuItemEnabled(long menuItems) {
@@ -295,12 +294,12 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setMenuItemEnabled(long menuItems) {
         mMenuItems |= menuItems;
-        persistState();
+        setLong(12, mMenuItems);
     }
 
     public void setMenuItemDisabled(long menuItems) {
         mMenuItems &= ~menuItems;
-        persistState();
+        setLong(12, mMenuItems);
     }
 
     public List<Long> getMenuItemsOrdered() {
@@ -323,7 +322,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
             mMenuItemsOrdered.add(menuItem);
         }
 
-        persistState();
+        setData(17, Helpers.mergeList(mMenuItemsOrdered));
     }
 
     public boolean isTopButtonEnabled(int button) {
@@ -332,12 +331,12 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setTopButtonEnabled(int button) {
         mTopButtons |= button;
-        persistState();
+        setInt(13, mTopButtons);
     }
 
     public void setTopButtonDisabled(int button) {
         mTopButtons &= ~button;
-        persistState();
+        setInt(13, mTopButtons);
     }
 
     public int getCardPreviewType() {
@@ -346,7 +345,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setCardPreviewType(int type) {
         mCardPreviewType = type;
-        persistState();
+        setInt(21, mCardPreviewType);
     }
 
     public boolean isUnlocalizedTitlesEnabled() {
@@ -355,7 +354,7 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setUnlocalizedTitlesEnabled(boolean enabled) {
         mIsUnlocalizedTitlesEnabled = enabled;
-        persistState();
+        setBoolean(22, mIsUnlocalizedTitlesEnabled);
     }
 
     public boolean isUiTweakEnabled(long uiTweaks) {
@@ -364,12 +363,12 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
 
     public void setUiTweakEnabled(long uiTweaks) {
         mUiTweaks |= uiTweaks;
-        persistState();
+        setLong(23, mUiTweaks);
     }
 
     public void setUiTweakDisabled(long uiTweaks) {
         mUiTweaks &= ~uiTweaks;
-        persistState();
+        setLong(23, mUiTweaks);
     }
 
     private void initColorSchemes() {
@@ -424,34 +423,30 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
     }
 
     private void restoreState() {
-        String data = mPrefs.getProfileData(MAIN_UI_DATA);
-
-        String[] split = Helpers.splitData(data);
-
         //mIsCardAnimatedPreviewsEnabled = Helpers.parseBoolean(split, 0, true);
-        mVideoGridScale = Helpers.parseFloat(split, 1, 1.0f); // 4 cards in a row
-        mUIScale = Helpers.parseFloat(split, 2, 1.0f);
-        mColorSchemeIndex = Helpers.parseInt(split, 3, 1);
-        mIsCardMultilineTitleEnabled = Helpers.parseBoolean(split, 4, true);
-        mChannelCategorySorting = Helpers.parseInt(split, 5, CHANNEL_SORTING_LAST_VIEWED);
-        mPlaylistsStyle = Helpers.parseInt(split, 6, PLAYLISTS_STYLE_GRID);
-        mCardTitleLinesNum = Helpers.parseInt(split, 7, 1);
-        mIsCardTextAutoScrollEnabled = Helpers.parseBoolean(split, 8, true);
-        mIsUploadsOldLookEnabled = Helpers.parseBoolean(split, 9, false);
-        mIsUploadsAutoLoadEnabled = Helpers.parseBoolean(split, 10, true);
-        mCardTextScrollSpeed = Helpers.parseFloat(split, 11, 2);
-        mMenuItems = Helpers.parseLong(split, 12, MENU_ITEM_DEFAULT);
-        mTopButtons = Helpers.parseInt(split, 13, TOP_BUTTON_DEFAULT);
+        mVideoGridScale = getFloat(1, 1.0f); // 4 cards in a row
+        mUIScale = getFloat(2, 1.0f);
+        mColorSchemeIndex = getInt(3, 1);
+        mIsCardMultilineTitleEnabled = getBoolean(4, true);
+        mChannelCategorySorting = getInt(5, CHANNEL_SORTING_LAST_VIEWED);
+        mPlaylistsStyle = getInt(6, PLAYLISTS_STYLE_GRID);
+        mCardTitleLinesNum = getInt(7, 1);
+        mIsCardTextAutoScrollEnabled = getBoolean(8, true);
+        mIsUploadsOldLookEnabled = getBoolean(9, false);
+        mIsUploadsAutoLoadEnabled = getBoolean(10, true);
+        mCardTextScrollSpeed = getFloat(11, 2);
+        mMenuItems = getLong(12, MENU_ITEM_DEFAULT);
+        mTopButtons = getInt(13, TOP_BUTTON_DEFAULT);
         // 14
-        mThumbQuality = Helpers.parseInt(split, 15, ClickbaitRemover.THUMB_QUALITY_DEFAULT);
-        mIsCardMultilineSubtitleEnabled = Helpers.parseBoolean(split, 16, true);
-        mMenuItemsOrdered = Helpers.parseLongList(split, 17);
-        mIsChannelsFilterEnabled = Helpers.parseBoolean(split, 18, true);
-        mIsChannelSearchBarEnabled = Helpers.parseBoolean(split, 19, true);
-        mIsPinnedChannelRowsEnabled = Helpers.parseBoolean(split, 20, true);
-        mCardPreviewType = Helpers.parseInt(split, 21, CARD_PREVIEW_DISABLED);
-        mIsUnlocalizedTitlesEnabled = Helpers.parseBoolean(split, 22, false);
-        mUiTweaks = Helpers.parseLong(split, 23, UI_TWEAK_DEFAULT);
+        mThumbQuality = getInt(15, ClickbaitRemover.THUMB_QUALITY_DEFAULT);
+        mIsCardMultilineSubtitleEnabled = getBoolean(16, true);
+        mMenuItemsOrdered = Helpers.parseLongList(getData(17), 0);
+        mIsChannelsFilterEnabled = getBoolean(18, true);
+        mIsChannelSearchBarEnabled = getBoolean(19, true);
+        mIsPinnedChannelRowsEnabled = getBoolean(20, true);
+        mCardPreviewType = getInt(21, CARD_PREVIEW_DISABLED);
+        mIsUnlocalizedTitlesEnabled = getBoolean(22, false);
+        mUiTweaks = getLong(23, UI_TWEAK_DEFAULT);
 
         int idx = -1;
         for (Long menuItem : MENU_ITEM_DEFAULT_ORDER) {
@@ -483,25 +478,6 @@ public class MainUIData extends DataChangeBase implements ProfileChangeListener
         updateDefaultValues();
     }
 
-    public void persistNow() {
-        Utils.post(mPersistStateInt);
-    }
-
-    private void persistState() {
-        onDataChange();
-        Utils.postDelayed(mPersistStateInt, 10_000);
-    }
-
-    private void persistStateInt() {
-        mPrefs.setProfileData(MAIN_UI_DATA, Helpers.mergeData(null,
-                mVideoGridScale, mUIScale, mColorSchemeIndex, mIsCardMultilineTitleEnabled,
-                mChannelCategorySorting, mPlaylistsStyle, mCardTitleLinesNum, mIsCardTextAutoScrollEnabled,
-                mIsUploadsOldLookEnabled, mIsUploadsAutoLoadEnabled, mCardTextScrollSpeed, mMenuItems, mTopButtons,
-                null, mThumbQuality, mIsCardMultilineSubtitleEnabled, Helpers.mergeList(mMenuItemsOrdered),
-                mIsChannelsFilterEnabled, mIsChannelSearchBarEnabled, mIsPinnedChannelRowsEnabled, mCardPreviewType,
-                mIsUnlocalizedTitlesEnabled, mUiTweaks));
-    }
-
     public static class ColorScheme {
         public final int nameResId;
         public final int playerThemeResId;
@@ -19,15 +19,14 @@ import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.ExoFormatItem;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.FormatItem;
 import com.liskovsoft.smartyoutubetv2.common.exoplayer.selector.track.MediaTrack;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs.ProfileChangeListener;
-import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataChangeBase;
-import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataSaverBase;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class PlayerData extends DataChangeBase implements PlayerConstants, ProfileChangeListener {
+public class PlayerData extends DataSaverBase implements PlayerConstants, ProfileChangeListener {
     private static final String VIDEO_PLAYER_DATA = "video_player_data";
     public static final int OK_ONLY_UI = 0;
     public static final int OK_UI_AND_PAUSE = 1;
@@ -98,7 +97,6 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
     private float mPitch;
     private long mAfrSwitchTimeMs;
     private List<String> mLastAudioLanguages;
-    private final Runnable mPersistStateInt = this::persistStateInt;
     private boolean mIsLegacyCodecsForced;
     private boolean mIsAudioDelayEnabled;
 
@@ -129,6 +127,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
     }
 
     private PlayerData(Context context) {
+        super(context, VIDEO_PLAYER_DATA);
         mPrefs = AppPrefs.instance(context);
         mPrefs.addListener(this);
         initSubtitleStyles();
@@ -150,7 +149,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setOKButtonBehavior(int option) {
         mOKButtonBehavior = option;
-        persistState();
+        setInt(0, mOKButtonBehavior);
     }
 
     public int getUiHideTimeoutSec() {
@@ -159,7 +158,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setUiHideTimeoutSec(int timeoutSec) {
         mUiHideTimeoutSec = timeoutSec;
-        persistState();
+        setInt(1, mUiHideTimeoutSec);
     }
 
     public int getSeekPreviewMode() {
@@ -168,7 +167,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSeekPreviewMode(int mode) {
         mSeekPreviewMode = mode;
-        persistState();
+        setInt(3, mSeekPreviewMode);
     }
 
     public boolean isSeekConfirmPauseEnabled() {
@@ -177,7 +176,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSeekConfirmPauseEnabled(boolean enable) {
         mIsSeekConfirmPauseEnabled = enable;
-        persistState();
+        setBoolean(4, mIsSeekConfirmPauseEnabled);
     }
 
     public boolean isSeekConfirmPlayEnabled() {
@@ -186,7 +185,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSeekConfirmPlayEnabled(boolean enable) {
         mIsSeekConfirmPlayEnabled = enable;
-        persistState();
+        setBoolean(36, mIsSeekConfirmPlayEnabled);
     }
 
     public boolean isClockEnabled() {
@@ -195,7 +194,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setClockEnabled(boolean enable) {
         mIsClockEnabled = enable;
-        persistState();
+        setBoolean(5, mIsClockEnabled);
     }
 
     public boolean isGlobalClockEnabled() {
@@ -204,7 +203,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setGlobalClockEnabled(boolean enable) {
         mIsGlobalClockEnabled = enable;
-        persistState();
+        setBoolean(31, mIsGlobalClockEnabled);
     }
 
     public boolean isGlobalEndingTimeEnabled() {
@@ -213,7 +212,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setGlobalEndingTimeEnabled(boolean enable) {
         mIsGlobalEndingTimeEnabled = enable;
-        persistState();
+        setBoolean(33, mIsGlobalEndingTimeEnabled);
     }
 
     public boolean isRemainingTimeEnabled() {
@@ -222,7 +221,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setRemainingTimeEnabled(boolean enable) {
         mIsRemainingTimeEnabled = enable;
-        persistState();
+        setBoolean(6, mIsRemainingTimeEnabled);
     }
 
     public boolean isEndingTimeEnabled() {
@@ -231,7 +230,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setEndingTimeEnabled(boolean enable) {
         mIsEndingTimeEnabled = enable;
-        persistState();
+        setBoolean(34, mIsEndingTimeEnabled);
     }
 
     public boolean isQualityInfoEnabled() {
@@ -240,12 +239,12 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setQualityInfoEnabled(boolean enable) {
         mIsQualityInfoEnabled = enable;
-        persistState();
+        setBoolean(28, mIsQualityInfoEnabled);
     }
 
     public void setBackgroundMode(int type) {
         mBackgroundMode = type;
-        persistState();
+        setInt(7, mBackgroundMode);
     }
 
     public int getBackgroundMode() {
@@ -254,7 +253,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setPlaybackMode(int mode) {
         mPlaybackMode = mode;
-        persistState();
+        setInt(51, mPlaybackMode);
     }
 
     public int getPlaybackMode() {
@@ -269,6 +268,9 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
         mIsAllSpeedEnabled = enable;
         mIsSpeedPerVideoEnabled = false;
         mIsSpeedPerChannelEnabled = false;
+        putBoolean(21, mIsAllSpeedEnabled);
+        putBoolean(29, mIsSpeedPerVideoEnabled);
+        putBoolean(56, mIsSpeedPerChannelEnabled);
         persistState();
     }
 
@@ -280,6 +282,9 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
         mIsSpeedPerVideoEnabled = enable;
         mIsAllSpeedEnabled = false;
         mIsSpeedPerChannelEnabled = false;
+        putBoolean(29, mIsSpeedPerVideoEnabled);
+        putBoolean(21, mIsAllSpeedEnabled);
+        putBoolean(56, mIsSpeedPerChannelEnabled);
         persistState();
     }
 
@@ -289,7 +294,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setLegacyCodecsForced(boolean forced) {
         mIsLegacyCodecsForced = forced;
-        persistState();
+        setBoolean(24, mIsLegacyCodecsForced);
     }
 
     public boolean isAfrEnabled() {
@@ -298,7 +303,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setAfrEnabled(boolean enabled) {
         mIsAfrEnabled = enabled;
-        persistState();
+        setBoolean(16, mIsAfrEnabled);
     }
 
     public boolean isAfrFpsCorrectionEnabled() {
@@ -307,7 +312,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setAfrFpsCorrectionEnabled(boolean enabled) {
         mIsAfrFpsCorrectionEnabled = enabled;
-        persistState();
+        setBoolean(17, mIsAfrFpsCorrectionEnabled);
     }
 
     public boolean isAfrResSwitchEnabled() {
@@ -316,7 +321,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setAfrResSwitchEnabled(boolean enabled) {
         mIsAfrResSwitchEnabled = enabled;
-        persistState();
+        setBoolean(18, mIsAfrResSwitchEnabled);
     }
 
     public int getAfrPauseMs() {
@@ -325,7 +330,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setAfrPauseMs(int pauseSec) {
         mAfrPauseMs = pauseSec;
-        persistState();
+        setInt(45, mAfrPauseMs);
     }
 
     public boolean isDoubleRefreshRateEnabled() {
@@ -334,7 +339,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setDoubleRefreshRateEnabled(boolean enabled) {
         mIsDoubleRefreshRateEnabled = enabled;
-        persistState();
+        setBoolean(35, mIsDoubleRefreshRateEnabled);
     }
 
     public boolean isTooltipsEnabled() {
@@ -343,7 +348,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setTooltipsEnabled(boolean enable) {
         mIsTooltipsEnabled = enable;
-        persistState();
+        setBoolean(41, mIsTooltipsEnabled);
     }
 
     public boolean isNumberKeySeekEnabled() {
@@ -352,7 +357,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setNumberKeySeekEnabled(boolean enable) {
         mIsNumberKeySeekEnabled = enable;
-        persistState();
+        setBoolean(43, mIsNumberKeySeekEnabled);
     }
 
     public FormatItem getFormat(int type) {
@@ -387,13 +392,16 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
         switch (format.getType()) {
             case FormatItem.TYPE_VIDEO:
                 mVideoFormat = format;
+                putData(9, mVideoFormat);
                 break;
             case FormatItem.TYPE_AUDIO:
                 mAudioFormat = format;
+                putData(10, mAudioFormat);
                 break;
             case FormatItem.TYPE_SUBTITLE:
                 setLastSubtitleFormat(format);
                 mSubtitleFormat = format;
+                putData(11, mSubtitleFormat);
                 break;
         }
         
@@ -424,16 +432,18 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
             mLastSubtitleFormats.remove(mSubtitleFormat);
             mLastSubtitleFormats.add(0, mSubtitleFormat);
         }
+
+        putData(47, mLastSubtitleFormats);
     }
 
     public void enableSubtitlesPerChannel(String channelId) {
         mEnabledSubtitlesPerChannel.add(channelId);
-        persistState();
+        setData(54, mEnabledSubtitlesPerChannel);
     }
 
     public void disableSubtitlesPerChannel(String channelId) {
         mEnabledSubtitlesPerChannel.remove(channelId);
-        persistState();
+        setData(54, mEnabledSubtitlesPerChannel);
     }
 
     public boolean isSubtitlesPerChannelEnabled(String channelId) {
@@ -450,12 +460,12 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSubtitlesPerChannelEnabled(boolean enable) {
         mIsSubtitlesPerChannelEnabled = enable;
-        persistState();
+        setBoolean(55, mIsSubtitlesPerChannelEnabled);
     }
 
     public void setVideoBufferType(int type) {
         mVideoBufferType = type;
-        persistState();
+        setInt(12, mVideoBufferType);
     }
 
     public int getVideoBufferType() {
@@ -472,7 +482,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSubtitleStyle(SubtitleStyle subtitleStyle) {
         mSubtitleStyleIndex = mSubtitleStyles.indexOf(subtitleStyle);
-        persistState();
+        setInt(13, mSubtitleStyleIndex);
     }
 
     public float getSubtitleScale() {
@@ -481,7 +491,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSubtitleScale(float scale) {
         mSubtitleScale = scale;
-        persistState();
+        setFloat(39, mSubtitleScale);
     }
 
     public float getSubtitlePosition() {
@@ -490,7 +500,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSubtitlePosition(float position) {
         mSubtitlePosition = position;
-        persistState();
+        setFloat(42, mSubtitlePosition);
     }
 
     public float getPlayerVolume() {
@@ -499,7 +509,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setPlayerVolume(float scale) {
         mPlayerVolume = scale;
-        persistState();
+        setFloat(40, mPlayerVolume);
     }
 
     public int getResizeMode() {
@@ -508,7 +518,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setResizeMode(int mode) {
         mResizeMode = mode;
-        persistState();
+        setInt(14, mResizeMode);
     }
 
     public int getZoomPercents() {
@@ -517,7 +527,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setZoomPercents(int percents) {
         mZoomPercents = percents;
-        persistState();
+        setInt(50, mZoomPercents);
     }
 
     public float getAspectRatio() {
@@ -526,7 +536,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setAspectRatio(float ratio) {
         mAspectRatio = ratio;
-        persistState();
+        setFloat(30, mAspectRatio);
     }
 
     public int getRotationAngle() {
@@ -535,7 +545,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setRotationAngle(int angle) {
         mRotationAngle = angle;
-        persistState();
+        setInt(49, mRotationAngle);
     }
 
     public boolean isVideoFlipEnabled() {
@@ -544,7 +554,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setVideoFlipEnabled(boolean enabled) {
         mIsVideoFlipEnabled = enabled;
-        persistState();
+        setBoolean(61, mIsVideoFlipEnabled);
     }
 
     public float getSpeed() {
@@ -581,9 +591,11 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
             } else {
                 mSpeeds.put(channelId, new SpeedItem(channelId, speed));
             }
+            putData(57, Helpers.mergeArray(mSpeeds.values().toArray()));
         }
         setLastSpeed(speed);
         mSpeed = speed;
+        putFloat(15, mSpeed);
         persistState();
     }
 
@@ -597,6 +609,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
         } else if (mSpeed > 0 && !Helpers.floatEquals(mSpeed, 1.0f)) {
             mLastSpeed = mSpeed;
         }
+        putFloat(48, mLastSpeed);
     }
 
     public boolean isSpeedPerChannelEnabled() {
@@ -607,6 +620,9 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
         mIsSpeedPerChannelEnabled = enable;
         mIsSpeedPerVideoEnabled = false;
         mIsAllSpeedEnabled = false;
+        putBoolean(56, mIsSpeedPerChannelEnabled);
+        putBoolean(29, mIsSpeedPerVideoEnabled);
+        putBoolean(21, mIsAllSpeedEnabled);
         persistState();
     }
 
@@ -616,7 +632,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setAudioDelayEnabled(boolean enabled) {
         mIsAudioDelayEnabled = enabled;
-        persistState();
+        setBoolean(62, mIsAudioDelayEnabled);
     }
 
     public int getAudioDelayMs() {
@@ -625,7 +641,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setAudioDelayMs(int delayMs) {
         mAudioDelayMs = delayMs;
-        persistState();
+        setInt(20, mAudioDelayMs);
     }
 
     public float getPitch() {
@@ -634,7 +650,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setPitch(float pitch) {
         mPitch = pitch;
-        persistState();
+        setFloat(58, mPitch);
     }
 
     public String getAudioLanguage() {
@@ -644,7 +660,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
     public void setAudioLanguage(String language) {
         mAudioLanguage = language;
         setLastAudioLanguage(language);
-        persistState();
+        setString(52, mAudioLanguage);
     }
 
     public List<String> getLastAudioLanguages() {
@@ -654,6 +670,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
     private void setLastAudioLanguage(String language) {
         mLastAudioLanguages.remove(language);
         mLastAudioLanguages.add(0, language);
+        putData(60, mLastAudioLanguages);
     }
 
     public String getSubtitleLanguage() {
@@ -662,7 +679,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSubtitleLanguage(String language) {
         mSubtitleLanguage = language;
-        persistState();
+        setString(53, mSubtitleLanguage);
     }
 
     public float getSleepTimerHours() {
@@ -671,7 +688,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSleepTimerHours(float hours) {
         mSleepTimerHours = hours;
-        persistState();
+        setFloat(25, mSleepTimerHours);
     }
 
     public boolean isTimeCorrectionEnabled() {
@@ -680,7 +697,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setTimeCorrectionEnabled(boolean enable) {
         mIsTimeCorrectionEnabled = enable;
-        persistState();
+        setBoolean(32, mIsTimeCorrectionEnabled);
     }
 
     public boolean isSkip24RateEnabled() {
@@ -689,7 +706,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSkip24RateEnabled(boolean enable) {
         mIsSkip24RateEnabled = enable;
-        persistState();
+        setBoolean(44, mIsSkip24RateEnabled);
     }
 
     public boolean isSkipShortsEnabled() {
@@ -698,7 +715,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSkipShortsEnabled(boolean enable) {
         mIsSkipShortsEnabled = enable;
-        persistState();
+        setBoolean(59, mIsSkipShortsEnabled);
     }
 
     public boolean isLiveChatEnabled() {
@@ -707,7 +724,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setLiveChatEnabled(boolean enable) {
         mIsLiveChatEnabled = enable;
-        persistState();
+        setBoolean(46, mIsLiveChatEnabled);
     }
 
     public FormatItem getDefaultAudioFormat() {
@@ -745,7 +762,7 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
 
     public void setSeekIncrementMs(int seekIncrementMs) {
         mSeekIncrementMs = seekIncrementMs;
-        persistState();
+        setInt(37, mSeekIncrementMs);
     }
 
     public void setAfrSwitchTimeMs(long timeMillis) {
@@ -780,73 +797,69 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
     }
 
     private void restoreState() {
-        String data = mPrefs.getProfileData(VIDEO_PLAYER_DATA);
-
-        String[] split = Helpers.splitData(data);
-
         int yellowOnSemiBgSubIdx = 4;
-        mOKButtonBehavior = Helpers.parseInt(split, 0, OK_ONLY_UI);
-        mUiHideTimeoutSec = Helpers.parseInt(split, 1, 3);
+        mOKButtonBehavior = getInt(0, OK_ONLY_UI);
+        mUiHideTimeoutSec = getInt(1, 3);
         // mIsAbsoluteDateEnabled
-        mSeekPreviewMode = Helpers.parseInt(split, 3, SEEK_PREVIEW_SINGLE);
-        mIsSeekConfirmPauseEnabled = Helpers.parseBoolean(split, 4, false);
-        mIsClockEnabled = Helpers.parseBoolean(split, 5, true);
-        mIsRemainingTimeEnabled = Helpers.parseBoolean(split, 6, true);
-        mBackgroundMode = Helpers.parseInt(split, 7, PlayerEngine.BACKGROUND_MODE_DEFAULT);
+        mSeekPreviewMode = getInt(3, SEEK_PREVIEW_SINGLE);
+        mIsSeekConfirmPauseEnabled = getBoolean(4, false);
+        mIsClockEnabled = getBoolean(5, true);
+        mIsRemainingTimeEnabled = getBoolean(6, true);
+        mBackgroundMode = getInt(7, PlayerEngine.BACKGROUND_MODE_DEFAULT);
         // afrData was there
-        mVideoFormat = Helpers.firstNonNull(ExoFormatItem.from(Helpers.parseStr(split, 9)), getDefaultVideoFormat());
-        mAudioFormat = Helpers.firstNonNull(ExoFormatItem.from(Helpers.parseStr(split, 10)), getDefaultAudioFormat());
-        mSubtitleFormat = Helpers.firstNonNull(ExoFormatItem.from(Helpers.parseStr(split, 11)), getDefaultSubtitleFormat());
-        mVideoBufferType = Helpers.parseInt(split, 12, PlayerEngine.BUFFER_MEDIUM);
-        mSubtitleStyleIndex = Helpers.parseInt(split, 13, yellowOnSemiBgSubIdx);
-        mResizeMode = Helpers.parseInt(split, 14, PlayerEngine.RESIZE_MODE_DEFAULT);
-        mSpeed = Helpers.parseFloat(split, 15, 1.0f);
-        mIsAfrEnabled = Helpers.parseBoolean(split, 16, false);
-        mIsAfrFpsCorrectionEnabled = Helpers.parseBoolean(split, 17, true);
-        mIsAfrResSwitchEnabled = Helpers.parseBoolean(split, 18, false);
+        mVideoFormat = Helpers.firstNonNull(ExoFormatItem.from(getString(9)), getDefaultVideoFormat());
+        mAudioFormat = Helpers.firstNonNull(ExoFormatItem.from(getString(10)), getDefaultAudioFormat());
+        mSubtitleFormat = Helpers.firstNonNull(ExoFormatItem.from(getString(11)), getDefaultSubtitleFormat());
+        mVideoBufferType = getInt(12, PlayerEngine.BUFFER_MEDIUM);
+        mSubtitleStyleIndex = getInt(13, yellowOnSemiBgSubIdx);
+        mResizeMode = getInt(14, PlayerEngine.RESIZE_MODE_DEFAULT);
+        mSpeed = getFloat(15, 1.0f);
+        mIsAfrEnabled = getBoolean(16, false);
+        mIsAfrFpsCorrectionEnabled = getBoolean(17, true);
+        mIsAfrResSwitchEnabled = getBoolean(18, false);
         // old afr delay sec was there
-        mAudioDelayMs = Helpers.parseInt(split, 20, 0);
-        mIsAllSpeedEnabled = Helpers.parseBoolean(split, 21, false);
+        mAudioDelayMs = getInt(20, 0);
+        mIsAllSpeedEnabled = getBoolean(21, false);
         // repeat mode was here
         // didn't remember what was there
-        mIsLegacyCodecsForced = Helpers.parseBoolean(split, 24, false);
-        mSleepTimerHours = Helpers.parseFloat(split, 25, 0);
+        mIsLegacyCodecsForced = getBoolean(24, false);
+        mSleepTimerHours = getFloat(25, 0);
         // old player tweaks
-        mIsQualityInfoEnabled = Helpers.parseBoolean(split, 28, true);
-        mIsSpeedPerVideoEnabled = Helpers.parseBoolean(split, 29, false);
-        mAspectRatio = Helpers.parseFloat(split, 30, PlayerEngine.ASPECT_RATIO_DEFAULT);
-        mIsGlobalClockEnabled = Helpers.parseBoolean(split, 31, false);
-        mIsTimeCorrectionEnabled = Helpers.parseBoolean(split, 32, true);
-        mIsGlobalEndingTimeEnabled = Helpers.parseBoolean(split, 33, false);
-        mIsEndingTimeEnabled = Helpers.parseBoolean(split, 34, false);
-        mIsDoubleRefreshRateEnabled = Helpers.parseBoolean(split, 35, true);
-        mIsSeekConfirmPlayEnabled = Helpers.parseBoolean(split, 36, false);
-        mSeekIncrementMs = Helpers.parseInt(split, 37, 10_000);
+        mIsQualityInfoEnabled = getBoolean(28, true);
+        mIsSpeedPerVideoEnabled = getBoolean(29, false);
+        mAspectRatio = getFloat(30, PlayerEngine.ASPECT_RATIO_DEFAULT);
+        mIsGlobalClockEnabled = getBoolean(31, false);
+        mIsTimeCorrectionEnabled = getBoolean(32, true);
+        mIsGlobalEndingTimeEnabled = getBoolean(33, false);
+        mIsEndingTimeEnabled = getBoolean(34, false);
+        mIsDoubleRefreshRateEnabled = getBoolean(35, true);
+        mIsSeekConfirmPlayEnabled = getBoolean(36, false);
+        mSeekIncrementMs = getInt(37, 10_000);
         // old subs size px
-        mSubtitleScale = Helpers.parseFloat(split, 39, 1.0f);
-        mPlayerVolume = Helpers.parseFloat(split, 40, 1.0f);
-        mIsTooltipsEnabled = Helpers.parseBoolean(split, 41, true);
-        mSubtitlePosition = Helpers.parseFloat(split, 42, 0.1f);
-        mIsNumberKeySeekEnabled = Helpers.parseBoolean(split, 43, true);
-        mIsSkip24RateEnabled = Helpers.parseBoolean(split, 44, false);
-        mAfrPauseMs = Helpers.parseInt(split, 45, 0);
-        mIsLiveChatEnabled = Helpers.parseBoolean(split, 46, false);
-        mLastSubtitleFormats = Helpers.parseList(split, 47, ExoFormatItem::from);
-        mLastSpeed = Helpers.parseFloat(split, 48, 1.0f);
-        mRotationAngle = Helpers.parseInt(split, 49, 0);
-        mZoomPercents = Helpers.parseInt(split, 50, -1);
-        mPlaybackMode = Helpers.parseInt(split, 51, PlayerConstants.PLAYBACK_MODE_ALL);
-        mAudioLanguage = Helpers.parseStr(split, 52, LocaleUtility.getCurrentLanguage(mPrefs.getContext()));
-        mSubtitleLanguage = Helpers.parseStr(split, 53, LocaleUtility.getCurrentLanguage(mPrefs.getContext()));
-        mEnabledSubtitlesPerChannel = Helpers.parseStrList(split, 54);
-        mIsSubtitlesPerChannelEnabled = Helpers.parseBoolean(split, 55, true);
-        mIsSpeedPerChannelEnabled = Helpers.parseBoolean(split, 56, true);
-        String[] speeds = Helpers.parseArray(split, 57);
-        mPitch = Helpers.parseFloat(split, 58, 1.0f);
-        mIsSkipShortsEnabled = Helpers.parseBoolean(split, 59, false);
-        mLastAudioLanguages = Helpers.parseStrList(split, 60);
-        mIsVideoFlipEnabled = Helpers.parseBoolean(split, 61, false);
-        mIsAudioDelayEnabled = Helpers.parseBoolean(split, 62, false);
+        mSubtitleScale = getFloat(39, 1.0f);
+        mPlayerVolume = getFloat(40, 1.0f);
+        mIsTooltipsEnabled = getBoolean(41, true);
+        mSubtitlePosition = getFloat(42, 0.1f);
+        mIsNumberKeySeekEnabled = getBoolean(43, true);
+        mIsSkip24RateEnabled = getBoolean(44, false);
+        mAfrPauseMs = getInt(45, 0);
+        mIsLiveChatEnabled = getBoolean(46, false);
+        mLastSubtitleFormats = Helpers.parseList(getData(47), 0, ExoFormatItem::from);
+        mLastSpeed = getFloat(48, 1.0f);
+        mRotationAngle = getInt(49, 0);
+        mZoomPercents = getInt(50, -1);
+        mPlaybackMode = getInt(51, PlayerConstants.PLAYBACK_MODE_ALL);
+        mAudioLanguage = getString(52, LocaleUtility.getCurrentLanguage(mPrefs.getContext()));
+        mSubtitleLanguage = getString(53, LocaleUtility.getCurrentLanguage(mPrefs.getContext()));
+        mEnabledSubtitlesPerChannel = Helpers.parseStrList(getData(54), 0);
+        mIsSubtitlesPerChannelEnabled = getBoolean(55, true);
+        mIsSpeedPerChannelEnabled = getBoolean(56, true);
+        String[] speeds = Helpers.parseArray(getData(57), 0);
+        mPitch = getFloat(58, 1.0f);
+        mIsSkipShortsEnabled = getBoolean(59, false);
+        mLastAudioLanguages = Helpers.parseStrList(getData(60), 0);
+        mIsVideoFlipEnabled = getBoolean(61, false);
+        mIsAudioDelayEnabled = getBoolean(62, false);
 
         if (speeds != null) {
             for (String speedSpec : speeds) {
@@ -864,34 +877,8 @@ public class PlayerData extends DataChangeBase implements PlayerConstants, Profi
         }
     }
 
-    public void persistNow() {
-        Utils.post(mPersistStateInt);
-    }
-
-    private void persistState() {
-        onDataChange();
-        Utils.postDelayed(mPersistStateInt, 10_000);
-    }
-
-    private void persistStateInt() {
-        mPrefs.setProfileData(VIDEO_PLAYER_DATA, Helpers.mergeData(mOKButtonBehavior, mUiHideTimeoutSec, null,
-                mSeekPreviewMode, mIsSeekConfirmPauseEnabled, mIsClockEnabled, mIsRemainingTimeEnabled, mBackgroundMode, null,
-                mVideoFormat, mAudioFormat, mSubtitleFormat, mVideoBufferType, mSubtitleStyleIndex, mResizeMode, mSpeed,
-                mIsAfrEnabled, mIsAfrFpsCorrectionEnabled, mIsAfrResSwitchEnabled, null, mAudioDelayMs, mIsAllSpeedEnabled, null, null,
-                mIsLegacyCodecsForced, mSleepTimerHours, null, null, mIsQualityInfoEnabled, mIsSpeedPerVideoEnabled, mAspectRatio,
-                mIsGlobalClockEnabled, mIsTimeCorrectionEnabled, mIsGlobalEndingTimeEnabled, mIsEndingTimeEnabled, mIsDoubleRefreshRateEnabled,
-                mIsSeekConfirmPlayEnabled, mSeekIncrementMs, null, mSubtitleScale, mPlayerVolume, mIsTooltipsEnabled, mSubtitlePosition,
-                mIsNumberKeySeekEnabled, mIsSkip24RateEnabled, mAfrPauseMs, mIsLiveChatEnabled, mLastSubtitleFormats, mLastSpeed, mRotationAngle,
-                mZoomPercents, mPlaybackMode, mAudioLanguage, mSubtitleLanguage, mEnabledSubtitlesPerChannel, mIsSubtitlesPerChannelEnabled,
-                mIsSpeedPerChannelEnabled, Helpers.mergeArray(mSpeeds.values().toArray()), mPitch, mIsSkipShortsEnabled, mLastAudioLanguages,
-                mIsVideoFlipEnabled, mIsAudioDelayEnabled
-        ));
-    }
-
     @Override
     public void onProfileChanged() {
-        Utils.removeCallbacks(mPersistStateInt);
-
         // reset on profile change
         mSpeeds.clear();
 
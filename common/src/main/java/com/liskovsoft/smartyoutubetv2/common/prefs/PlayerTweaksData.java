@@ -7,10 +7,11 @@ import android.os.Build.VERSION;
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.sharedutils.prefs.GlobalPreferences;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs.ProfileChangeListener;
+import com.liskovsoft.smartyoutubetv2.common.prefs.common.DataSaverBase;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.youtubeapi.service.internal.MediaServiceData;
 
-public class PlayerTweaksData implements ProfileChangeListener {
+public class PlayerTweaksData extends DataSaverBase implements ProfileChangeListener {
     private static final String VIDEO_PLAYER_TWEAKS_DATA = "video_player_tweaks_data";
     public static final int PLAYER_DATA_SOURCE_DEFAULT = 0;
     public static final int PLAYER_DATA_SOURCE_OKHTTP = 1;
@@ -110,9 +111,10 @@ public class PlayerTweaksData implements ProfileChangeListener {
     private boolean mIsDontResizeVideoToFitDialogEnabled;
     private boolean mIsSuggestionsHorizontallyScrolled;
     private boolean mIsQueueRespectsPlaybackMode;
-    private final Runnable mPersistDataInt = this::persistDataInt;
+    private boolean mIsSegmentCacheEnabled;
 
     private PlayerTweaksData(Context context) {
+        super(context, VIDEO_PLAYER_TWEAKS_DATA);
         mPrefs = AppPrefs.instance(context);
         mPrefs.addListener(this);
         restoreData();
@@ -132,7 +134,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setAmlogicFixEnabled(boolean enable) {
         mIsAmlogicFixEnabled = enable;
-        persistData();
+        setBoolean(0, mIsAmlogicFixEnabled);
     }
 
     public boolean isAmazonFrameDropFixEnabled() {
@@ -141,7 +143,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setAmazonFrameDropFixEnabled(boolean enable) {
         mIsAmazonFrameDropFixEnabled = enable;
-        persistData();
+        setBoolean(1, mIsAmazonFrameDropFixEnabled);
     }
 
     public boolean isSonyFrameDropFixEnabled() {
@@ -150,7 +152,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setSonyFrameDropFixEnabled(boolean enable) {
         mIsSonyFrameDropFixEnabled = enable;
-        persistData();
+        setBoolean(29, mIsSonyFrameDropFixEnabled);
     }
 
     public boolean isSnappingToVsyncDisabled() {
@@ -159,7 +161,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setSnappingToVsyncDisabled(boolean disable) {
         mIsSnapToVsyncDisabled = disable;
-        persistData();
+        setBoolean(2, mIsSnapToVsyncDisabled);
     }
 
     public boolean isProfileLevelCheckSkipped() {
@@ -168,7 +170,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setProfileLevelCheckSkipped(boolean enable) {
         mIsProfileLevelCheckSkipped = enable;
-        persistData();
+        setBoolean(3, mIsProfileLevelCheckSkipped);
     }
 
     public boolean isSWDecoderForced() {
@@ -177,7 +179,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setSWDecoderForced(boolean force) {
         mIsSWDecoderForced = force;
-        persistData();
+        setBoolean(4, mIsSWDecoderForced);
     }
 
     public boolean isTextureViewEnabled() {
@@ -186,7 +188,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setTextureViewEnabled(boolean enable) {
         mIsTextureViewEnabled = enable;
-        persistData();
+        setBoolean(5, mIsTextureViewEnabled);
     }
 
     public boolean isSetOutputSurfaceWorkaroundEnabled() {
@@ -199,7 +201,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
      */
     public void setSetOutputSurfaceWorkaroundEnabled(boolean enable) {
         mIsSetOutputSurfaceWorkaroundEnabled = enable;
-        persistData();
+        setBoolean(7, mIsSetOutputSurfaceWorkaroundEnabled);
     }
 
     public boolean isAudioSyncFixEnabled() {
@@ -208,7 +210,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setAudioSyncFixEnabled(boolean enable) {
         mIsAudioSyncFixEnabled = enable;
-        persistData();
+        setBoolean(8, mIsAudioSyncFixEnabled);
     }
 
     /**
@@ -223,7 +225,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
      */
     public void setKeepFinishedActivityEnabled(boolean enable) {
         mIsKeepFinishedActivityEnabled = enable;
-        persistData();
+        setBoolean(9, mIsKeepFinishedActivityEnabled);
     }
 
     public boolean isHlsStreamsForced() {
@@ -233,7 +235,9 @@ public class PlayerTweaksData implements ProfileChangeListener {
     public void setHlsStreamsForced(boolean enable) {
         mIsHlsStreamsForced = enable;
         mIsDashUrlStreamsForced = false;
-        persistData();
+        putBoolean(10, mIsHlsStreamsForced);
+        putBoolean(28, mIsDashUrlStreamsForced);
+        persistState();
     }
 
     public boolean isDashUrlStreamsForced() {
@@ -243,7 +247,9 @@ public class PlayerTweaksData implements ProfileChangeListener {
     public void setDashUrlStreamsForced(boolean enable) {
         mIsDashUrlStreamsForced = enable;
         mIsHlsStreamsForced = false;
-        persistData();
+        putBoolean(28, mIsDashUrlStreamsForced);
+        putBoolean(10, mIsHlsStreamsForced);
+        persistState();
     }
 
     public boolean isPlaybackNotificationsDisabled() {
@@ -252,7 +258,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setPlaybackNotificationsDisabled(boolean disable) {
         mIsPlaybackNotificationsDisabled = disable;
-        persistData();
+        setBoolean(11, mIsPlaybackNotificationsDisabled);
     }
 
     public boolean isTunneledPlaybackEnabled() {
@@ -261,7 +267,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setTunneledPlaybackEnabled(boolean enable) {
         mIsTunneledPlaybackEnabled = enable;
-        persistData();
+        setBoolean(12, mIsTunneledPlaybackEnabled);
     }
 
     public boolean isUnsafeAudioFormatsEnabled() {
@@ -270,7 +276,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setUnsafeAudioFormatsEnabled(boolean enable) {
         mIsUnsafeAudioFormatsEnabled = enable;
-        persistData();
+        setBoolean(42, mIsUnsafeAudioFormatsEnabled);
     }
 
     public boolean isPlayerButtonEnabled(int menuItems) {
@@ -279,12 +285,12 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setPlayerButtonEnabled(int playerButtons) {
         mPlayerButtons |= playerButtons;
-        persistData();
+        setInt(13, mPlayerButtons);
     }
 
     public void setPlayerButtonDisabled(int playerButtons) {
         mPlayerButtons &= ~playerButtons;
-        persistData();
+        setInt(13, mPlayerButtons);
     }
 
     public int getPlayerDataSource() {
@@ -293,7 +299,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setPlayerDataSource(int dataSource) {
         mPlayerDataSource = dataSource;
-        persistData();
+        setInt(26, mPlayerDataSource);
     }
 
     public boolean isAltPresetsEnabled() {
@@ -302,7 +308,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setAltPresetsEnabled(boolean enable) {
         mIsAltPresetsEnabled = enable;
-        persistData();
+        setBoolean(15, mIsAltPresetsEnabled);
     }
 
     public boolean isAvcOverVp9Preferred() {
@@ -311,7 +317,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setAvcOverVp9Preferred(boolean prefer) {
         mIsAvcOverVp9Preferred = prefer;
-        persistData();
+        setBoolean(18, mIsAvcOverVp9Preferred);
     }
 
     public boolean isRememberPositionOfShortVideosEnabled() {
@@ -320,7 +326,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setRememberPositionOfShortVideosEnabled(boolean enable) {
         mIsRememberPositionOfShortVideosEnabled = enable;
-        persistData();
+        setBoolean(16, mIsRememberPositionOfShortVideosEnabled);
     }
 
     public boolean isRememberPositionOfLiveVideosEnabled() {
@@ -329,7 +335,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setRememberPositionOfLiveVideosEnabled(boolean enable) {
         mIsRememberPositionOfLiveVideosEnabled = enable;
-        persistData();
+        setBoolean(46, mIsRememberPositionOfLiveVideosEnabled);
     }
 
     public boolean isSuggestionsDisabled() {
@@ -338,7 +344,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setSuggestionsDisabled(boolean disable) {
         mIsSuggestionsDisabled = disable;
-        persistData();
+        setBoolean(17, mIsSuggestionsDisabled);
     }
 
     public boolean isChatPlacedLeft() {
@@ -347,7 +353,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setChatPlacedLeft(boolean left) {
         mIsChatPlacedLeft = left;
-        persistData();
+        setBoolean(19, mIsChatPlacedLeft);
     }
 
     public boolean isCommentsPlacedLeft() {
@@ -356,7 +362,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setCommentsPlacedLeft(boolean left) {
         mIsCommentsPlacedLeft = left;
-        persistData();
+        setBoolean(52, mIsCommentsPlacedLeft);
     }
 
     public boolean isRealChannelIconEnabled() {
@@ -365,7 +371,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setRealChannelIconEnabled(boolean enable) {
         mIsRealChannelIconEnabled = enable;
-        persistData();
+        setBoolean(20, mIsRealChannelIconEnabled);
     }
 
     public float getPixelRatio() {
@@ -374,7 +380,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setPixelRatio(float pixelRatio) {
         mPixelRatio = pixelRatio;
-        persistData();
+        setFloat(21, mPixelRatio);
     }
 
     public boolean isQualityInfoBitrateEnabled() {
@@ -383,7 +389,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setQualityInfoBitrateEnabled(boolean enable) {
         mIsQualityInfoBitrateEnabled = enable;
-        persistData();
+        setBoolean(22, mIsQualityInfoBitrateEnabled);
     }
 
     public boolean isAudioTimeStretchingEnabled() {
@@ -392,7 +398,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setAudioTimeStretchingEnabled(boolean enable) {
         mIsAudioTimeStretchingEnabled = enable;
-        persistData();
+        setBoolean(59, mIsAudioTimeStretchingEnabled);
     }
 
     public boolean isSpeedButtonOldBehaviorEnabled() {
@@ -401,7 +407,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setSpeedButtonOldBehaviorEnabled(boolean enable) {
         mIsSpeedButtonOldBehaviorEnabled = enable;
-        persistData();
+        setBoolean(23, mIsSpeedButtonOldBehaviorEnabled);
     }
 
     public boolean isOculusQuestFixEnabled() {
@@ -410,7 +416,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setOculusQuestFixEnabled(boolean enable) {
         mIsOculusQuestFixEnabled = enable;
-        persistData();
+        setBoolean(47, mIsOculusQuestFixEnabled);
     }
 
     public boolean isButtonLongClickEnabled() {
@@ -419,7 +425,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setButtonLongClickEnabled(boolean enable) {
         mIsButtonLongClickEnabled = enable;
-        persistData();
+        setBoolean(24, mIsButtonLongClickEnabled);
     }
 
     public boolean isLongSpeedListEnabled() {
@@ -429,7 +435,9 @@ public class PlayerTweaksData implements ProfileChangeListener {
     public void setLongSpeedListEnabled(boolean enable) {
         mIsExtraLongSpeedListEnabled = false;
         mIsLongSpeedListEnabled = enable;
-        persistData();
+        putBoolean(49, mIsExtraLongSpeedListEnabled);
+        putBoolean(25, mIsLongSpeedListEnabled);
+        persistState();
     }
 
     public boolean isExtraLongSpeedListEnabled() {
@@ -439,7 +447,9 @@ public class PlayerTweaksData implements ProfileChangeListener {
     public void setExtraLongSpeedListEnabled(boolean enable) {
         mIsLongSpeedListEnabled = false;
         mIsExtraLongSpeedListEnabled = enable;
-        persistData();
+        putBoolean(25, mIsLongSpeedListEnabled);
+        putBoolean(49, mIsExtraLongSpeedListEnabled);
+        persistState();
     }
 
     public boolean isAllFormatsUnlocked() {
@@ -448,7 +458,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setAllFormatsUnlocked(boolean unlock) {
         mUnlockAllFormats = unlock;
-        persistData();
+        setBoolean(27, mUnlockAllFormats);
     }
 
     public boolean isBufferOnStreamsDisabled() {
@@ -457,7 +467,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setBufferOnStreamsDisabled(boolean disable) {
         mIsBufferOnStreamsDisabled = disable;
-        persistData();
+        setBoolean(30, mIsBufferOnStreamsDisabled);
     }
 
     public boolean isSectionPlaylistEnabled() {
@@ -466,7 +476,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setSectionPlaylistEnabled(boolean enable) {
         mIsSectionPlaylistEnabled = enable;
-        persistData();
+        setBoolean(31, mIsSectionPlaylistEnabled);
     }
 
     public boolean isScreenOffTimeoutEnabled() {
@@ -475,7 +485,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setScreenOffTimeoutEnabled(boolean enable) {
         mIsScreenOffTimeoutEnabled = enable;
-        persistData();
+        setBoolean(32, mIsScreenOffTimeoutEnabled);
     }
 
     public int getScreenOffTimeoutSec() {
@@ -485,7 +495,9 @@ public class PlayerTweaksData implements ProfileChangeListener {
     public void setScreenOffTimeoutSec(int timeoutSec) {
         mScreenOffTimeoutSec = timeoutSec;
         mIsScreenOffTimeoutEnabled = mIsScreenOffTimeoutEnabled && timeoutSec > 0;
-        persistData();
+        putInt(33, mScreenOffTimeoutSec);
+        putBoolean(32, mIsScreenOffTimeoutEnabled);
+        persistState();
     }
 
     public int getScreenOffDimmingPercents() {
@@ -494,7 +506,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setScreenOffDimmingPercents(int percents) {
         mScreenOffDimmingPercents = percents;
-        persistData();
+        setInt(37, mScreenOffDimmingPercents);
     }
 
     public boolean isBootScreenOffEnabled() {
@@ -503,7 +515,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setBootScreenOffEnabled(boolean enable) {
         mIsBootScreenOffEnabled = enable;
-        persistData();
+        setBoolean(38, mIsBootScreenOffEnabled);
     }
 
     public boolean isUIAnimationsEnabled() {
@@ -512,7 +524,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setUIAnimationsEnabled(boolean enable) {
         mIsUIAnimationsEnabled = enable;
-        persistData();
+        setBoolean(34, mIsUIAnimationsEnabled);
     }
 
     public boolean isLikesCounterEnabled() {
@@ -521,7 +533,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setLikesCounterEnabled(boolean enable) {
         mIsLikesCounterEnabled = enable;
-        persistData();
+        setBoolean(35, mIsLikesCounterEnabled);
     }
 
     public boolean isChapterNotificationEnabled() {
@@ -530,7 +542,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setChapterNotificationEnabled(boolean enable) {
         mIsChapterNotificationEnabled = enable;
-        persistData();
+        setBoolean(36, mIsChapterNotificationEnabled);
     }
 
     public boolean isPlayerUiOnNextEnabled() {
@@ -539,7 +551,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setPlayerUiOnNextEnabled(boolean enable) {
         mIsPlayerUiOnNextEnabled = enable;
-        persistData();
+        setBoolean(39, mIsPlayerUiOnNextEnabled);
     }
 
     public boolean isPlayerAutoVolumeEnabled() {
@@ -548,7 +560,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setPlayerAutoVolumeEnabled(boolean enable) {
         mIsPlayerAutoVolumeEnabled = enable;
-        persistData();
+        setBoolean(40, mIsPlayerAutoVolumeEnabled);
     }
 
     public boolean isAudioFocusEnabled() {
@@ -557,7 +569,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setAudioFocusEnabled(boolean enable) {
         mIsAudioFocusEnabled = enable;
-        persistData();
+        setBoolean(54, mIsAudioFocusEnabled);
     }
 
     public boolean isSyncRowButtonIndexEnabled() {
@@ -566,7 +578,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setSyncRowButtonIndexEnabled(boolean enable) {
         mIsSyncRowButtonIndexEnabled = enable;
-        persistData();
+        setBoolean(41, mIsSyncRowButtonIndexEnabled);
     }
 
     public boolean isLoopShortsEnabled() {
@@ -575,7 +587,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setLoopShortsEnabled(boolean enable) {
         mIsLoopShortsEnabled = enable;
-        persistData();
+        setBoolean(44, mIsLoopShortsEnabled);
     }
 
     public boolean isQuickSkipShortsEnabled() {
@@ -585,7 +597,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
     public void setQuickSkipShortsEnabled(boolean enable) {
         resetSkipShortsSettings();
         mIsQuickSkipShortsEnabled = enable;
-        persistData();
+        setBoolean(45, mIsQuickSkipShortsEnabled);
     }
 
     public boolean isQuickSkipShortsAltEnabled() {
@@ -595,12 +607,14 @@ public class PlayerTweaksData implements ProfileChangeListener {
     public void setQuickSkipShortsAltEnabled(boolean enable) {
         resetSkipShortsSettings();
         mIsQuickSkipShortsAltEnabled = enable;
-        persistData();
+        setBoolean(57, mIsQuickSkipShortsAltEnabled);
     }
 
     private void resetSkipShortsSettings() {
         mIsQuickSkipShortsEnabled = false;
         mIsQuickSkipShortsAltEnabled = false;
+        putBoolean(45, mIsQuickSkipShortsEnabled);
+        putBoolean(57, mIsQuickSkipShortsAltEnabled);
     }
 
     public boolean isQuickSkipVideosEnabled() {
@@ -610,7 +624,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
     public void setQuickSkipVideosEnabled(boolean enable) {
         resetQuickSkipVideosSettings();
         mIsQuickSkipVideosEnabled = enable;
-        persistData();
+        setBoolean(50, mIsQuickSkipVideosEnabled);
     }
 
     public boolean isQuickSkipVideosAltEnabled() {
@@ -620,24 +634,30 @@ public class PlayerTweaksData implements ProfileChangeListener {
     public void setQuickSkipVideosAltEnabled(boolean enable) {
         resetQuickSkipVideosSettings();
         mIsQuickSkipVideosAltEnabled = enable;
-        persistData();
+        setBoolean(58, mIsQuickSkipVideosAltEnabled);
     }
 
     private void resetQuickSkipVideosSettings() {
         mIsQuickSkipVideosEnabled = false;
         mIsQuickSkipVideosAltEnabled = false;
+        putBoolean(50, mIsQuickSkipVideosEnabled);
+        putBoolean(58, mIsQuickSkipVideosAltEnabled);
     }
 
     public void resetDpadLeftRightSettings() {
         mIsQuickSkipShortsEnabled = false;
         mIsQuickSkipVideosEnabled = false;
-        persistData();
+        putBoolean(45, mIsQuickSkipShortsEnabled);
+        putBoolean(50, mIsQuickSkipVideosEnabled);
+        persistState();
     }
 
     public void resetDpadUpDownSettings() {
         mIsQuickSkipShortsAltEnabled = false;
         mIsQuickSkipVideosAltEnabled = false;
-        persistData();
+        putBoolean(57, mIsQuickSkipShortsAltEnabled);
+        putBoolean(58, mIsQuickSkipVideosAltEnabled);
+        persistState();
     }
 
     public boolean isHighBitrateFormatsEnabled() {
@@ -662,7 +682,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setNetworkErrorFixingDisabled(boolean disabled) {
         mIsNetworkErrorFixingDisabled = disabled;
-        persistData();
+        setBoolean(51, mIsNetworkErrorFixingDisabled);
     }
 
     public boolean isDontResizeVideoToFitDialogEnabled() {
@@ -671,7 +691,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setDontResizeVideoToFitDialogEnabled(boolean enable) {
         mIsDontResizeVideoToFitDialogEnabled = enable;
-        persistData();
+        setBoolean(55, mIsDontResizeVideoToFitDialogEnabled);
     }
 
     public boolean isSuggestionsHorizontallyScrolled() {
@@ -680,7 +700,7 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setSuggestionsHorizontallyScrolled(boolean enable) {
         mIsSuggestionsHorizontallyScrolled = enable;
-        persistData();
+        setBoolean(56, mIsSuggestionsHorizontallyScrolled);
     }
 
     public boolean isQueueRespectsPlaybackMode() {
@@ -689,112 +709,91 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     public void setQueueRespectsPlaybackMode(boolean enable) {
         mIsQueueRespectsPlaybackMode = enable;
-        persistData();
+        setBoolean(60, mIsQueueRespectsPlaybackMode);
     }
 
-    private void restoreData() {
-        String data = mPrefs.getProfileData(VIDEO_PLAYER_TWEAKS_DATA);
+    public boolean isSegmentCacheEnabled() {
+        return mIsSegmentCacheEnabled;
+    }
 
-        String[] split = Helpers.splitData(data);
+    public void setSegmentCacheEnabled(boolean enable) {
+        mIsSegmentCacheEnabled = enable;
+        setBoolean(61, mIsSegmentCacheEnabled);
+    }
 
-        mIsAmlogicFixEnabled = Helpers.parseBoolean(split, 0, false);
-        mIsAmazonFrameDropFixEnabled = Helpers.parseBoolean(split, 1, false);
-        mIsSnapToVsyncDisabled = Helpers.parseBoolean(split, 2, false);
-        mIsProfileLevelCheckSkipped = Helpers.parseBoolean(split, 3, false);
-        mIsSWDecoderForced = Helpers.parseBoolean(split, 4, false);
+    private void restoreData() {
+        mIsAmlogicFixEnabled = getBoolean(0, false);
+        mIsAmazonFrameDropFixEnabled = getBoolean(1, false);
+        mIsSnapToVsyncDisabled = getBoolean(2, false);
+        mIsProfileLevelCheckSkipped = getBoolean(3, false);
+        mIsSWDecoderForced = getBoolean(4, false);
         // TextureView could fix ExoPlayer crashes on older Android
-        mIsTextureViewEnabled = Helpers.parseBoolean(split, 5, VERSION.SDK_INT <= 19);
+        mIsTextureViewEnabled = getBoolean(5, VERSION.SDK_INT <= 19);
         // Need to be enabled (?) on older version of ExoPlayer (e.g. 2.10.6).
         // It's because there's no tweaks for modern devices.
-        mIsSetOutputSurfaceWorkaroundEnabled = Helpers.parseBoolean(split, 7, true);
-        mIsAudioSyncFixEnabled = Helpers.parseBoolean(split, 8, false);
-        mIsKeepFinishedActivityEnabled = Helpers.parseBoolean(split, 9, false);
-        mIsHlsStreamsForced = Helpers.parseBoolean(split, 10, false);
-        mIsPlaybackNotificationsDisabled = Helpers.parseBoolean(split, 11, false);
-        mIsTunneledPlaybackEnabled = Helpers.parseBoolean(split, 12, false);
-        mPlayerButtons = Helpers.parseInt(split, 13, PLAYER_BUTTON_DEFAULT);
+        mIsSetOutputSurfaceWorkaroundEnabled = getBoolean(7, true);
+        mIsAudioSyncFixEnabled = getBoolean(8, false);
+        mIsKeepFinishedActivityEnabled = getBoolean(9, false);
+        mIsHlsStreamsForced = getBoolean(10, false);
+        mIsPlaybackNotificationsDisabled = getBoolean(11, false);
+        mIsTunneledPlaybackEnabled = getBoolean(12, false);
+        mPlayerButtons = getInt(13, PLAYER_BUTTON_DEFAULT);
         // Buffering fix was there.
-        mIsAltPresetsEnabled = Helpers.parseBoolean(split, 15, false);
-        mIsRememberPositionOfShortVideosEnabled = Helpers.parseBoolean(split, 16, false);
-        mIsSuggestionsDisabled = Helpers.parseBoolean(split, 17, false);
-        mIsAvcOverVp9Preferred = Helpers.parseBoolean(split, 18, false);
-        mIsChatPlacedLeft = Helpers.parseBoolean(split, 19, false);
-        mIsRealChannelIconEnabled = Helpers.parseBoolean(split, 20, true);
-        mPixelRatio = Helpers.parseFloat(split, 21, 1.0f);
-        mIsQualityInfoBitrateEnabled = Helpers.parseBoolean(split, 22, false);
-        mIsSpeedButtonOldBehaviorEnabled = Helpers.parseBoolean(split, 23, false);
-        mIsButtonLongClickEnabled = Helpers.parseBoolean(split, 24, true);
-        mIsLongSpeedListEnabled = Helpers.parseBoolean(split, 25, true);
-        mPlayerDataSource = Helpers.parseInt(split, 26, Utils.skipCronet() ? PLAYER_DATA_SOURCE_DEFAULT : PLAYER_DATA_SOURCE_CRONET);
+        mIsAltPresetsEnabled = getBoolean(15, false);
+        mIsRememberPositionOfShortVideosEnabled = getBoolean(16, false);
+        mIsSuggestionsDisabled = getBoolean(17, false);
+        mIsAvcOverVp9Preferred = getBoolean(18, false);
+        mIsChatPlacedLeft = getBoolean(19, false);
+        mIsRealChannelIconEnabled = getBoolean(20, true);
+        mPixelRatio = getFloat(21, 1.0f);
+        mIsQualityInfoBitrateEnabled = getBoolean(22, false);
+        mIsSpeedButtonOldBehaviorEnabled = getBoolean(23, false);
+        mIsButtonLongClickEnabled = getBoolean(24, true);
+        mIsLongSpeedListEnabled = getBoolean(25, true);
+        mPlayerDataSource = getInt(26, Utils.skipCronet() ? PLAYER_DATA_SOURCE_DEFAULT : PLAYER_DATA_SOURCE_CRONET);
         //mPlayerDataSource = Helpers.parseInt(split, 26, PLAYER_DATA_SOURCE_DEFAULT);
-        mUnlockAllFormats = Helpers.parseBoolean(split, 27, false);
-        mIsDashUrlStreamsForced = Helpers.parseBoolean(split, 28, false);
-        mIsSonyFrameDropFixEnabled = Helpers.parseBoolean(split, 29, false);
-        mIsBufferOnStreamsDisabled = Helpers.parseBoolean(split, 30, false);
+        mUnlockAllFormats = getBoolean(27, false);
+        mIsDashUrlStreamsForced = getBoolean(28, false);
+        mIsSonyFrameDropFixEnabled = getBoolean(29, false);
+        mIsBufferOnStreamsDisabled = getBoolean(30, false);
         // Cause severe garbage collector stuttering
-        mIsSectionPlaylistEnabled = Helpers.parseBoolean(split, 31, Utils.isEnoughRam());
-        mIsScreenOffTimeoutEnabled = Helpers.parseBoolean(split, 32, false);
-        mScreenOffTimeoutSec = Helpers.parseInt(split, 33, 0);
-        mIsUIAnimationsEnabled = Helpers.parseBoolean(split, 34, false);
-        mIsLikesCounterEnabled = Helpers.parseBoolean(split, 35, true);
-        mIsChapterNotificationEnabled = Helpers.parseBoolean(split, 36, false);
-        mScreenOffDimmingPercents = Helpers.parseInt(split, 37, 100);
-        mIsBootScreenOffEnabled = Helpers.parseBoolean(split, 38, false);
-        mIsPlayerUiOnNextEnabled = Helpers.parseBoolean(split, 39, false);
-        mIsPlayerAutoVolumeEnabled = Helpers.parseBoolean(split, 40, true);
-        mIsSyncRowButtonIndexEnabled = Helpers.parseBoolean(split, 41, true);
-        mIsUnsafeAudioFormatsEnabled = Helpers.parseBoolean(split, 42, true);
+        mIsSectionPlaylistEnabled = getBoolean(31, Utils.isEnoughRam());
+        mIsScreenOffTimeoutEnabled = getBoolean(32, false);
+        mScreenOffTimeoutSec = getInt(33, 0);
+        mIsUIAnimationsEnabled = getBoolean(34, false);
+        mIsLikesCounterEnabled = getBoolean(35, true);
+        mIsChapterNotificationEnabled = getBoolean(36, false);
+        mScreenOffDimmingPercents = getInt(37, 100);
+        mIsBootScreenOffEnabled = getBoolean(38, false);
+        mIsPlayerUiOnNextEnabled = getBoolean(39, false);
+        mIsPlayerAutoVolumeEnabled = getBoolean(40, true);
+        mIsSyncRowButtonIndexEnabled = getBoolean(41, true);
+        mIsUnsafeAudioFormatsEnabled = getBoolean(42, true);
         //mIsHighBitrateFormatsEnabled = Helpers.parseBoolean(split, 43, false);
-        mIsLoopShortsEnabled = Helpers.parseBoolean(split, 44, true);
-        mIsQuickSkipShortsEnabled = Helpers.parseBoolean(split, 45, true);
-        mIsRememberPositionOfLiveVideosEnabled = Helpers.parseBoolean(split, 46, true);
-        mIsOculusQuestFixEnabled = Helpers.parseBoolean(split, 47, Utils.isOculusQuest());
+        mIsLoopShortsEnabled = getBoolean(44, true);
+        mIsQuickSkipShortsEnabled = getBoolean(45, true);
+        mIsRememberPositionOfLiveVideosEnabled = getBoolean(46, true);
+        mIsOculusQuestFixEnabled = getBoolean(47, Utils.isOculusQuest());
         // mPlayerDataSource was here
         // Cronet is buffering too, unfortunately, so leave the default as a safest method (e.g. for "strtarmenia")
         // mPlayerDataSource = Helpers.parseInt(split, 48, PLAYER_DATA_SOURCE_DEFAULT);
-        mIsExtraLongSpeedListEnabled = Helpers.parseBoolean(split, 49, false);
-        mIsQuickSkipVideosEnabled = Helpers.parseBoolean(split, 50, false);
-        mIsNetworkErrorFixingDisabled = Helpers.parseBoolean(split, 51, false);
-        mIsCommentsPlacedLeft = Helpers.parseBoolean(split, 52, false);
+        mIsExtraLongSpeedListEnabled = getBoolean(49, false);
+        mIsQuickSkipVideosEnabled = getBoolean(50, false);
+        mIsNetworkErrorFixingDisabled = getBoolean(51, false);
+        mIsCommentsPlacedLeft = getBoolean(52, false);
         //mIsPersistentAntiBotFixEnabled = Helpers.parseBoolean(split, 53, false);
-        mIsAudioFocusEnabled = Helpers.parseBoolean(split, 54, true);
-        mIsDontResizeVideoToFitDialogEnabled = Helpers.parseBoolean(split, 55, false);
-        mIsSuggestionsHorizontallyScrolled = Helpers.parseBoolean(split, 56, false);
-        mIsQuickSkipShortsAltEnabled = Helpers.parseBoolean(split, 57, false);
-        mIsQuickSkipVideosAltEnabled = Helpers.parseBoolean(split, 58, false);
-        mIsAudioTimeStretchingEnabled = Helpers.parseBoolean(split, 59, true);
-        mIsQueueRespectsPlaybackMode = Helpers.parseBoolean(split, 60, false);
+        mIsAudioFocusEnabled = getBoolean(54, true);
+        mIsDontResizeVideoToFitDialogEnabled = getBoolean(55, false);
+        mIsSuggestionsHorizontallyScrolled = getBoolean(56, false);
+        mIsQuickSkipShortsAltEnabled = getBoolean(57, false);
+        mIsQuickSkipVideosAltEnabled = getBoolean(58, false);
+        mIsAudioTimeStretchingEnabled = getBoolean(59, true);
+        mIsQueueRespectsPlaybackMode = getBoolean(60, false);
+        mIsSegmentCacheEnabled = getBoolean(61, false);
 
         updateDefaultValues();
     }
 
-    public void persistNow() {
-        Utils.post(mPersistDataInt);
-    }
-
-    private void persistData() {
-        Utils.postDelayed(mPersistDataInt, 10_000);
-    }
-
-    private void persistDataInt() {
-        mPrefs.setProfileData(VIDEO_PLAYER_TWEAKS_DATA, Helpers.mergeData(
-                mIsAmlogicFixEnabled, mIsAmazonFrameDropFixEnabled, mIsSnapToVsyncDisabled,
-                mIsProfileLevelCheckSkipped, mIsSWDecoderForced, mIsTextureViewEnabled,
-                null, mIsSetOutputSurfaceWorkaroundEnabled, mIsAudioSyncFixEnabled, mIsKeepFinishedActivityEnabled, mIsHlsStreamsForced,
-                mIsPlaybackNotificationsDisabled, mIsTunneledPlaybackEnabled, mPlayerButtons,
-                null, mIsAltPresetsEnabled, mIsRememberPositionOfShortVideosEnabled, mIsSuggestionsDisabled,
-                mIsAvcOverVp9Preferred, mIsChatPlacedLeft, mIsRealChannelIconEnabled, mPixelRatio, mIsQualityInfoBitrateEnabled,
-                mIsSpeedButtonOldBehaviorEnabled, mIsButtonLongClickEnabled, mIsLongSpeedListEnabled, mPlayerDataSource, mUnlockAllFormats,
-                mIsDashUrlStreamsForced, mIsSonyFrameDropFixEnabled, mIsBufferOnStreamsDisabled, mIsSectionPlaylistEnabled,
-                mIsScreenOffTimeoutEnabled, mScreenOffTimeoutSec, mIsUIAnimationsEnabled, mIsLikesCounterEnabled, mIsChapterNotificationEnabled,
-                mScreenOffDimmingPercents, mIsBootScreenOffEnabled, mIsPlayerUiOnNextEnabled, mIsPlayerAutoVolumeEnabled, mIsSyncRowButtonIndexEnabled,
-                mIsUnsafeAudioFormatsEnabled, null, mIsLoopShortsEnabled, mIsQuickSkipShortsEnabled, mIsRememberPositionOfLiveVideosEnabled,
-                mIsOculusQuestFixEnabled, null, mIsExtraLongSpeedListEnabled, mIsQuickSkipVideosEnabled, mIsNetworkErrorFixingDisabled, mIsCommentsPlacedLeft,
-                null, mIsAudioFocusEnabled, mIsDontResizeVideoToFitDialogEnabled, mIsSuggestionsHorizontallyScrolled,
-                mIsQuickSkipShortsAltEnabled, mIsQuickSkipVideosAltEnabled, mIsAudioTimeStretchingEnabled, mIsQueueRespectsPlaybackMode
-                ));
-    }
-
     private void updateDefaultValues() {
         // Enable only certain buttons (not all, like it was)
         if (mPlayerButtons >>> 30 == 0b1) { // check leftmost bit (old format)
@@ -805,7 +804,6 @@ public class PlayerTweaksData implements ProfileChangeListener {
 
     @Override
     public void onProfileChanged() {
-        Utils.removeCallbacks(mPersistDataInt);
         restoreData();
     }
 }
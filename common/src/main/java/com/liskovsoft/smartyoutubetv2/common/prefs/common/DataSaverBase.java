@@ -4,18 +4,22 @@ import android.content.Context;
 
 import com.liskovsoft.sharedutils.helpers.Helpers;
 import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
-import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
+/**
+ * Every value is a separate typed key of the {@link PrefsStore}: "ClassName_index" or "profileDataKey_index".<br/>
+ * The old string blob from the {@link AppPrefs} is split into the keys once. Values are converted to the type on the first read.<br/>
+ * The profile data lives in the namespace of the current profile and is split again for every new profile.
+ */
 public abstract class DataSaverBase extends DataChangeBase {
+    private static final String MIGRATED_SUFFIX = "_migrated";
+    // The profile blob is copied to the store by the AppPrefs under its own marker
+    private static final String SPLIT_SUFFIX = "_split";
     private final AppPrefs mAppPrefs;
+    private final PrefsStore mStore;
     private final boolean mPersistImmediately;
     private final String mDataKey;
-    private final List<Object> mValues;
-    private final Runnable mPersistStateInt = this::persistStateInt;
+    private final boolean mIsProfileData;
+    private PrefsStore.Namespace mNamespace;
 
     private interface Converter {
         Object convert(String input);
@@ -27,10 +31,23 @@ public abstract class DataSaverBase extends DataChangeBase {
 
     public DataSaverBase(Context context, boolean persistImmediately) {
         mAppPrefs = AppPrefs.instance(context);
+        mStore = PrefsStore.instance(context);
         mPersistImmediately = persistImmediately;
         mDataKey = this.getClass().getSimpleName();
-        mValues = new ArrayList<>();
-        restoreState();
+        mIsProfileData = false;
+        getNamespace();
+    }
+
+    /**
+     * The data of the current profile (see {@link AppPrefs#getProfileData}).
+     */
+    public DataSaverBase(Context context, String profileDataKey) {
+        mAppPrefs = AppPrefs.instance(context);
+        mStore = PrefsStore.instance(context);
+        mPersistImmediately = false;
+        mDataKey = profileDataKey;
+        mIsProfileData = true;
+        getNamespace();
     }
 
     protected boolean getBoolean(int index) {
@@ -42,7 +59,12 @@ public abstract class DataSaverBase extends DataChangeBase {
     }
 
     protected void setBoolean(int index, boolean value) {
-        setValue(index, value);
+        putBoolean(index, value);
+        persistState();
+    }
+
+    protected void putBoolean(int index, boolean value) {
+        getNamespace().put(getKey(index), value);
     }
 
     protected int getInt(int index) {
@@ -54,67 +76,153 @@ public abstract class DataSaverBase extends DataChangeBase {
     }
 
     protected void setInt(int index, int value) {
-        setValue(index, value);
+        putInt(index, value);
+        persistState();
+    }
+
+    protected void putInt(int index, int value) {
+        getNamespace().put(getKey(index), value);
+    }
+
+    protected long getLong(int index, long defaultValue) {
+        return getValue(index, defaultValue, Helpers::parseLong);
+    }
+
+    protected void setLong(int index, long value) {
+        putLong(index, value);
+        persistState();
+    }
+
+    protected void putLong(int index, long value) {
+        getNamespace().put(getKey(index), value);
+    }
+
+    protected float getFloat(int index, float defaultValue) {
+        return getValue(index, defaultValue, Helpers::parseFloat);
+    }
+
+    protected void setFloat(int index, float value) {
+        putFloat(index, value);
+        persistState();
+    }
+
+    protected void putFloat(int index, float value) {
+        getNamespace().put(getKey(index), value);
+    }
+
+    protected String getString(int index) {
+        return Helpers.parseStr(getData(index), 0);
+    }
+
+    protected String getString(int index, String defaultValue) {
+        return Helpers.parseStr(getData(index), 0, defaultValue);
+    }
+
+    protected void setString(int index, String value) {
+        setData(index, value);
+    }
+
+    protected void putString(int index, String value) {
+        putData(index, value);
+    }
+
+    /**
+     * Strings, lists, maps and other objects are kept in the format of the old blob.<br/>
+     * Parse the result with the array based Helpers methods at the zero index, e.g. {@code Helpers.parseList(getData(6), 0, Video::fromString)}.
+     */
+    protected String[] getData(int index) {
+        Object rawValue = getNamespace().get(getKey(index));
+        return rawValue instanceof String ? new String[] {(String) rawValue} : null;
+    }
+
+    protected void setData(int index, Object value) {
+        putData(index, value);
+        persistState();
+    }
+
+    protected void putData(int index, Object value) {
+        String[] split = value != null ? Helpers.splitData(Helpers.mergeData(value)) : null;
+        getNamespace().put(getKey(index), split != null && split.length > 0 ? split[0] : null);
     }
 
     @SuppressWarnings("unchecked")
     private <T> T getValue(int index, T defaultValue, Converter converter) {
-        if (index >= mValues.size() || mValues.get(index) == null) {
+        PrefsStore.Namespace namespace = getNamespace();
+        String key = getKey(index);
+        Object rawValue = namespace.get(key);
+
+        if (rawValue == null) {
             return defaultValue;
         }
 
-        Object rawValue = mValues.get(index);
         if (rawValue instanceof String) {
+            // Migrated value
             Object value = converter.convert((String) rawValue);
-            mValues.set(index, value);
-            return (T) value;
+            namespace.put(key, value);
+            return value != null ? (T) value : defaultValue;
         } else {
             return (T) rawValue;
         }
     }
 
-    private <T> void setValue(int index, T value) {
-        checkCapacity(index);
-        mValues.set(index, value);
-        persistState();
+    private String getKey(int index) {
+        return mDataKey + "_" + index;
     }
 
-    private void checkCapacity(int index) {
-        int size = mValues.size();
-        if (size <= index) { // fill with nulls
-            for (int i = size; i <= index; i++) {
-                mValues.add(null);
-            }
+    /**
+     * Switches to the namespace of the current profile and splits its blob if needed.
+     */
+    private synchronized PrefsStore.Namespace getNamespace() {
+        // The rest of the data is shared between profiles
+        PrefsStore.Namespace namespace = mIsProfileData ? mAppPrefs.getProfileNamespace() : mStore.namespace(null);
+
+        if (namespace != mNamespace) {
+            migrate(namespace);
+            mNamespace = namespace;
         }
+
+        return namespace;
     }
 
-    private void restoreState() {
-        String data = mAppPrefs.getData(mDataKey);
+    private void migrate(PrefsStore.Namespace namespace) {
+        String migratedKey = mDataKey + (mIsProfileData ? SPLIT_SUFFIX : MIGRATED_SUFFIX);
+
+        if (namespace.getBoolean(migratedKey, false)) {
+            return;
+        }
+
+        // NOTE: the old data is kept in case of the downgrade
+        String data = mIsProfileData ? mAppPrefs.getProfileData(mDataKey) : mAppPrefs.getData(mDataKey);
 
         String[] split = Helpers.splitData(data);
 
         if (split != null) {
-            mValues.addAll(Arrays.asList(split));
+            for (int i = 0; i < split.length; i++) {
+                namespace.putString(getKey(i), split[i]);
+            }
         }
+
+        if (mIsProfileData) {
+            // The copy of the blob isn't needed anymore. The original is still in the AppPrefs.
+            namespace.remove(mDataKey);
+        }
+
+        namespace.putBoolean(migratedKey, true);
     }
 
     public void persistNow() {
-        Utils.post(mPersistStateInt);
+        mStore.flush();
     }
 
-    private void persistState() {
+    /**
+     * Call after the put methods.
+     */
+    protected void persistState() {
         onDataChange();
 
+        // The store batches the changes itself
         if (mPersistImmediately) {
-            Utils.post(mPersistStateInt);
-        } else {
-            Utils.postDelayed(mPersistStateInt, 10_000);
+            mStore.flush();
         }
     }
-
-    private void persistStateInt() {
-        mAppPrefs.setData(mDataKey, Helpers.mergeData(
-                mValues.toArray()
-        ));
-    }
 }
@@ -0,0 +1,538 @@
+package com.liskovsoft.smartyoutubetv2.common.prefs.common;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.text.TextUtils;
+
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.smartyoutubetv2.common.misc.StartupTrace;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Typed key-value storage. Every namespace (e.g. the profile) is a separate binary log file.<br/>
+ * Only the changed keys are appended. Changes are batched and written in the background.<br/>
+ * Every batch is framed with the length and the CRC. A torn or broken batch is dropped as a whole at the load,
+ * so the related keys (e.g. the value and its migration marker) are never applied partially.<br/>
+ * The log is compacted when it contains much more records than keys. Compaction writes a temp file and renames it,
+ * so the crash leaves the old or the new file.
+ */
+public class PrefsStore {
+    private static final String TAG = PrefsStore.class.getSimpleName();
+    public static final String DIR_NAME = "prefs_store";
+    // Can't be produced by a profile name
+    private static final String SHARED_FILE_NAME = "shared";
+    private static final String PROFILE_FILE_PREFIX = "profile.";
+    private static final String FILE_EXTENSION = ".bin";
+    private static final int MAGIC = 0x50525332; // PRS2
+    private static final byte TYPE_REMOVED = 0;
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_FLOAT = 4;
+    private static final byte TYPE_STRING = 5;
+    private static final long BATCH_DELAY_MS = 1_000;
+    private static final int COMPACT_MIN_RECORDS = 256;
+    private static final int COMPACT_RATIO = 2;
+    private static final int MAX_STRING_BYTES = 16 * 1024 * 1024;
+    @SuppressLint("StaticFieldLeak")
+    private static PrefsStore sInstance;
+    private final File mDir;
+    private final Map<String, Namespace> mNamespaces = new HashMap<>();
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final Runnable mFlushTask = this::flushInt;
+    private ScheduledFuture<?> mPendingFlush;
+    private volatile boolean mIsClosed;
+
+    private PrefsStore(Context context) {
+        mDir = new File(context.getFilesDir(), DIR_NAME);
+    }
+
+    public static synchronized PrefsStore instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PrefsStore(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Loaded synchronously on the first access.
+     * @param name profile name or null for the values shared between profiles
+     */
+    public synchronized Namespace namespace(String name) {
+        String fileName = getFileName(name);
+        Namespace namespace = mNamespaces.get(fileName);
+
+        if (namespace == null) {
+            namespace = new Namespace(new File(mDir, fileName + FILE_EXTENSION));
+            namespace.load();
+            mNamespaces.put(fileName, namespace);
+        }
+
+        return namespace;
+    }
+
+    /**
+     * Different profile names always give different files.<br/>
+     * Only the letters, digits and '-' are kept, the rest is escaped as '_' and the hex char code.
+     */
+    /* package */ static String getFileName(String name) {
+        if (TextUtils.isEmpty(name)) {
+            return SHARED_FILE_NAME;
+        }
+
+        StringBuilder result = new StringBuilder(PROFILE_FILE_PREFIX);
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-') {
+                result.append(c);
+            } else {
+                result.append(String.format("_%04x", (int) c));
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Writes the pending changes without delay.
+     */
+    public synchronized void flush() {
+        if (mIsClosed) {
+            return;
+        }
+
+        if (mPendingFlush != null) {
+            mPendingFlush.cancel(false);
+        }
+
+        mPendingFlush = mExecutor.schedule(mFlushTask, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Waits for the pending changes to be written. E.g. before the backup.
+     */
+    public void flushBlocking() {
+        if (mIsClosed) {
+            return;
+        }
+
+        try {
+            mExecutor.submit(mFlushTask).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Can't flush: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * No more writes. E.g. the files are about to be replaced by the restored ones.
+     */
+    public synchronized void close() {
+        mIsClosed = true;
+
+        if (mPendingFlush != null) {
+            mPendingFlush.cancel(false);
+            mPendingFlush = null;
+        }
+    }
+
+    private synchronized void scheduleFlush() {
+        if (mIsClosed || (mPendingFlush != null && !mPendingFlush.isDone())) {
+            return;
+        }
+
+        mPendingFlush = mExecutor.schedule(mFlushTask, BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushInt() {
+        List<Namespace> namespaces;
+
+        synchronized (this) {
+            namespaces = new ArrayList<>(mNamespaces.values());
+        }
+
+        for (Namespace namespace : namespaces) {
+            if (mIsClosed) {
+                return;
+            }
+
+            namespace.write();
+        }
+    }
+
+    public class Namespace {
+        private final File mFile;
+        private final Map<String, Object> mValues = new LinkedHashMap<>();
+        // Keep the order of the changes inside of the batch
+        private final Set<String> mDirtyKeys = new LinkedHashSet<>();
+        private int mRecordCount;
+        private boolean mIsCompactionNeeded;
+
+        private Namespace(File file) {
+            mFile = file;
+        }
+
+        public synchronized boolean contains(String key) {
+            return mValues.containsKey(key);
+        }
+
+        /**
+         * Boolean, Integer, Long, Float, String or null.
+         */
+        public synchronized Object get(String key) {
+            return mValues.get(key);
+        }
+
+        public boolean getBoolean(String key, boolean defaultValue) {
+            Object value = get(key);
+            return value instanceof Boolean ? (Boolean) value : defaultValue;
+        }
+
+        public int getInt(String key, int defaultValue) {
+            Object value = get(key);
+            return value instanceof Integer ? (Integer) value : defaultValue;
+        }
+
+        public long getLong(String key, long defaultValue) {
+            Object value = get(key);
+            return value instanceof Long ? (Long) value : defaultValue;
+        }
+
+        public float getFloat(String key, float defaultValue) {
+            Object value = get(key);
+            return value instanceof Float ? (Float) value : defaultValue;
+        }
+
+        public String getString(String key, String defaultValue) {
+            Object value = get(key);
+            return value instanceof String ? (String) value : defaultValue;
+        }
+
+        public void putBoolean(String key, boolean value) {
+            put(key, value);
+        }
+
+        public void putInt(String key, int value) {
+            put(key, value);
+        }
+
+        public void putLong(String key, long value) {
+            put(key, value);
+        }
+
+        public void putFloat(String key, float value) {
+            put(key, value);
+        }
+
+        public void putString(String key, String value) {
+            put(key, value);
+        }
+
+        public void remove(String key) {
+            put(key, null);
+        }
+
+        /**
+         * Null removes the key. Unchanged values aren't written.
+         */
+        public void put(String key, Object value) {
+            if (value != null && getType(value) == TYPE_REMOVED) {
+                throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getSimpleName());
+            }
+
+            synchronized (this) {
+                if (value != null ? value.equals(mValues.get(key)) : !mValues.containsKey(key)) {
+                    return;
+                }
+
+                if (value != null) {
+                    mValues.put(key, value);
+                } else {
+                    mValues.remove(key);
+                }
+
+                mDirtyKeys.add(key);
+            }
+
+            scheduleFlush();
+        }
+
+        /**
+         * Replays the log. Stops at the first broken batch (e.g. an interrupted append).
+         */
+        private synchronized void load() {
+            if (!mFile.exists()) {
+                return;
+            }
+
+            long startMs = StartupTrace.instance().now();
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+                if (in.readInt() != MAGIC) {
+                    Log.e(TAG, "Unknown log format: %s", mFile.getName());
+                    mIsCompactionNeeded = true;
+                    return;
+                }
+
+                long remaining = mFile.length() - 4;
+
+                while (true) {
+                    int length;
+
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break; // normal end of the log
+                    }
+
+                    remaining -= 8;
+
+                    if (length < 0 || length > remaining) {
+                        throw new IOException("Wrong batch length: " + length);
+                    }
+
+                    int crc = in.readInt();
+                    byte[] batch = new byte[length];
+                    in.readFully(batch);
+                    remaining -= length;
+
+                    if (crc != getCrc(batch)) {
+                        throw new IOException("Wrong batch crc");
+                    }
+
+                    readBatch(batch);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Log %s is broken after %s records: %s", mFile.getName(), mRecordCount, e.getMessage());
+                mIsCompactionNeeded = true;
+            }
+
+            StartupTrace.instance().add("prefs " + mFile.getName(), startMs);
+            Log.d(TAG, "Log %s loaded: %s keys, %s records, %s bytes in %s ms",
+                    mFile.getName(), mValues.size(), mRecordCount, mFile.length(), StartupTrace.instance().now() - startMs);
+        }
+
+        private void readBatch(byte[] batch) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(batch));
+            Map<String, Object> changes = new LinkedHashMap<>();
+
+            while (in.available() > 0) {
+                byte type = in.readByte();
+                String key = in.readUTF();
+                changes.put(key, readValue(in, type));
+            }
+
+            // The batch is valid. Apply it as a whole.
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                if (entry.getValue() != null) {
+                    mValues.put(entry.getKey(), entry.getValue());
+                } else {
+                    mValues.remove(entry.getKey());
+                }
+            }
+
+            mRecordCount += changes.size();
+        }
+
+        /**
+         * Runs on the store thread.
+         */
+        private void write() {
+            byte[] data;
+            boolean isCompaction;
+            int keyCount;
+
+            synchronized (this) {
+                if (mDirtyKeys.isEmpty() && !mIsCompactionNeeded) {
+                    return;
+                }
+
+                isCompaction = mIsCompactionNeeded || !mFile.exists() ||
+                        mRecordCount + mDirtyKeys.size() > Math.max(COMPACT_MIN_RECORDS, mValues.size() * COMPACT_RATIO);
+                Set<String> keys = isCompaction ? mValues.keySet() : mDirtyKeys;
+                keyCount = keys.size();
+
+                ByteArrayOutputStream batchBytes = new ByteArrayOutputStream();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+
+                try {
+                    DataOutputStream batchOut = new DataOutputStream(batchBytes);
+
+                    for (String key : keys) {
+                        writeRecord(batchOut, key, mValues.get(key));
+                    }
+
+                    byte[] batch = batchBytes.toByteArray();
+
+                    if (isCompaction) {
+                        out.writeInt(MAGIC);
+                    }
+
+                    out.writeInt(batch.length);
+                    out.writeInt(getCrc(batch));
+                    out.write(batch);
+                } catch (IOException e) {
+                    // ByteArrayOutputStream never throws
+                    throw new IllegalStateException(e);
+                }
+
+                data = bytes.toByteArray();
+                mRecordCount = isCompaction ? keyCount : mRecordCount + keyCount;
+                mIsCompactionNeeded = false;
+                mDirtyKeys.clear();
+            }
+
+            boolean success = isCompaction ? writeAll(mFile, data) : append(mFile, data);
+
+            if (success) {
+                Log.d(TAG, "Log %s: %s keys, %s bytes %s", mFile.getName(), keyCount, data.length, isCompaction ? "rewritten" : "appended");
+            } else {
+                synchronized (this) {
+                    // The file may end with the broken record. Don't append after it.
+                    mIsCompactionNeeded = true;
+                }
+                scheduleFlush();
+            }
+        }
+    }
+
+    private static boolean append(File file, byte[] data) {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(data);
+            out.getFD().sync();
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Can't append to the log: %s", e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean writeAll(File file, byte[] data) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        File dir = file.getParentFile();
+
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(data);
+            // The data should be on the disk before the rename
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Can't write the log: %s", e.getMessage());
+            tempFile.delete();
+            return false;
+        }
+
+        if (!tempFile.renameTo(file)) {
+            Log.e(TAG, "Can't replace the log: %s", file.getName());
+            tempFile.delete();
+            return false;
+        }
+
+        return true;
+    }
+
+    private static int getCrc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    private static byte getType(Object value) {
+        if (value instanceof Boolean) {
+            return TYPE_BOOLEAN;
+        } else if (value instanceof Integer) {
+            return TYPE_INT;
+        } else if (value instanceof Long) {
+            return TYPE_LONG;
+        } else if (value instanceof Float) {
+            return TYPE_FLOAT;
+        } else if (value instanceof String) {
+            return TYPE_STRING;
+        }
+
+        return TYPE_REMOVED;
+    }
+
+    private static void writeRecord(DataOutputStream out, String key, Object value) throws IOException {
+        byte type = getType(value);
+        out.writeByte(type);
+        out.writeUTF(key);
+
+        switch (type) {
+            case TYPE_BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            case TYPE_INT:
+                out.writeInt((Integer) value);
+                break;
+            case TYPE_LONG:
+                out.writeLong((Long) value);
+                break;
+            case TYPE_FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case TYPE_STRING:
+                // writeUTF is limited to 64K
+                byte[] bytes = ((String) value).getBytes("UTF-8");
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                break;
+        }
+    }
+
+    private static Object readValue(DataInputStream in, byte type) throws IOException {
+        switch (type) {
+            case TYPE_REMOVED:
+                return null;
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_INT:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_FLOAT:
+                return in.readFloat();
+            case TYPE_STRING:
+                int length = in.readInt();
+                if (length < 0 || length > MAX_STRING_BYTES) {
+                    throw new IOException("Wrong string length: " + length);
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                return new String(bytes, "UTF-8");
+            default:
+                throw new IOException("Unknown record type: " + type);
+        }
+    }
+}
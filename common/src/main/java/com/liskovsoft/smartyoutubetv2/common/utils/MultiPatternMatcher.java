@@ -0,0 +1,135 @@
+package com.liskovsoft.smartyoutubetv2.common.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Case insensitive search of many substrings at once (Aho-Corasick automaton).<br/>
+ * The text is scanned once regardless of the patterns count. Immutable and thread safe after creation.
+ */
+public final class MultiPatternMatcher {
+    private static final int ROOT = 0;
+    private final List<Node> mNodes = new ArrayList<>();
+
+    private static class Node {
+        char[] chars = new char[0];
+        int[] next = new int[0];
+        int failure = ROOT;
+        boolean isMatch;
+
+        int get(char c) {
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) {
+                    return next[i];
+                }
+            }
+
+            return -1;
+        }
+
+        void put(char c, int node) {
+            chars = Arrays.copyOf(chars, chars.length + 1);
+            next = Arrays.copyOf(next, next.length + 1);
+            chars[chars.length - 1] = c;
+            next[next.length - 1] = node;
+        }
+    }
+
+    public MultiPatternMatcher(String... patterns) {
+        mNodes.add(new Node());
+
+        for (String pattern : patterns) {
+            if (pattern != null && !pattern.isEmpty()) {
+                addPattern(pattern);
+            }
+        }
+
+        buildFailureLinks();
+    }
+
+    /**
+     * Whether the text contains any of the patterns.
+     */
+    public boolean matches(CharSequence text) {
+        if (text == null) {
+            return false;
+        }
+
+        int state = ROOT;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = toLowerCase(text.charAt(i));
+            int next;
+
+            while ((next = mNodes.get(state).get(c)) == -1 && state != ROOT) {
+                state = mNodes.get(state).failure;
+            }
+
+            state = next != -1 ? next : ROOT;
+
+            if (mNodes.get(state).isMatch) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void addPattern(String pattern) {
+        int state = ROOT;
+
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = toLowerCase(pattern.charAt(i));
+            int next = mNodes.get(state).get(c);
+
+            if (next == -1) {
+                next = mNodes.size();
+                mNodes.add(new Node());
+                mNodes.get(state).put(c, next);
+            }
+
+            state = next;
+        }
+
+        mNodes.get(state).isMatch = true;
+    }
+
+    /**
+     * Breadth first. The failure node of the parent is always ready.
+     */
+    private void buildFailureLinks() {
+        Queue<Integer> queue = new ArrayDeque<>();
+
+        for (int child : mNodes.get(ROOT).next) {
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            Node node = mNodes.get(queue.poll());
+
+            for (int i = 0; i < node.chars.length; i++) {
+                char c = node.chars[i];
+                Node child = mNodes.get(node.next[i]);
+                int failure = node.failure;
+                int next;
+
+                while ((next = mNodes.get(failure).get(c)) == -1 && failure != ROOT) {
+                    failure = mNodes.get(failure).failure;
+                }
+
+                child.failure = next != -1 ? next : ROOT;
+                // The suffix of the current match is a match too
+                child.isMatch |= mNodes.get(child.failure).isMatch;
+
+                queue.add(node.next[i]);
+            }
+        }
+    }
+
+    private static char toLowerCase(char c) {
+        return Character.toLowerCase(c);
+    }
+}
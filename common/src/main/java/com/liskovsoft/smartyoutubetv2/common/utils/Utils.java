@@ -92,6 +92,7 @@ import com.liskovsoft.smartyoutubetv2.common.prefs.MainUIData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerTweaksData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.RemoteControlData;
+import com.liskovsoft.smartyoutubetv2.common.prefs.common.PrefsStore;
 import com.liskovsoft.youtubeapi.service.internal.MediaServiceData;
 
 import java.io.IOException;
@@ -125,7 +126,9 @@ public class Utils {
     public static final String[] BACKUP_DIRS = {
             "app_prefs",
             "yt_service_prefs",
-            "global_prefs"
+            "global_prefs",
+            "video_states",
+            "prefs_store"
     };
     private static final String SUPER_PASSWD = "smarttube";
     private static final int RANDOM_FAIL_REPEAT_TIMES = 10;
@@ -1348,5 +1351,7 @@ public class Utils {
         MediaServiceData mediaServiceData = MediaServiceData.instance();
         mediaServiceData.persistNow();
         BlockedChannelData.instance(context).persistNow();
+        // After the data above is posted to the store
+        post(PrefsStore.instance(context)::flush);
     }
 }
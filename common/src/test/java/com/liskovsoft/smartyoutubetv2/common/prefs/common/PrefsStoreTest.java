@@ -0,0 +1,385 @@
+package com.liskovsoft.smartyoutubetv2.common.prefs.common;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.liskovsoft.sharedutils.helpers.Helpers;
+import com.liskovsoft.smartyoutubetv2.common.prefs.AppPrefs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class PrefsStoreTest {
+    private static final String TAG = PrefsStoreTest.class.getSimpleName();
+    private static final String TEST_DATA = "test_data";
+    private static final int SETTINGS_COUNT = 63;
+    private static final int CHANGE_COUNT = 100;
+    private Context mContext;
+    private PrefsStore mStore;
+
+    private static class TestData extends DataSaverBase {
+        TestData(Context context) {
+            super(context, TEST_DATA);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ShadowLog.stream = System.out;
+        mContext = RuntimeEnvironment.application;
+        delete(new File(mContext.getFilesDir(), PrefsStore.DIR_NAME));
+        resetInstance(AppPrefs.class);
+        mStore = reloadStore();
+    }
+
+    @After
+    public void tearDown() {
+        mStore.close();
+    }
+
+    @Test
+    public void typedValuesSurviveReload() throws Exception {
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 70_000; i++) {
+            longString.append('x');
+        }
+
+        PrefsStore.Namespace namespace = mStore.namespace(null);
+        namespace.putBoolean("boolean", true);
+        namespace.putInt("int", 42);
+        namespace.putLong("long", Long.MAX_VALUE);
+        namespace.putFloat("float", 1.5f);
+        namespace.putString("string", "héllo");
+        // More than the writeUTF limit
+        namespace.putString("long_string", longString.toString());
+        namespace.putInt("removed", 1);
+        namespace.remove("removed");
+        mStore.namespace("profile").putInt("int", 7);
+        mStore.flushBlocking();
+
+        File file = getFile(null);
+        long length = file.length();
+        // Unchanged values aren't written
+        namespace.putInt("int", 42);
+        mStore.flushBlocking();
+        assertEquals(length, file.length());
+
+        mStore = reloadStore();
+        namespace = mStore.namespace(null);
+        assertTrue(namespace.getBoolean("boolean", false));
+        assertEquals(42, namespace.getInt("int", 0));
+        assertEquals(Long.MAX_VALUE, namespace.getLong("long", 0));
+        assertEquals(1.5f, namespace.getFloat("float", 0), 0);
+        assertEquals("héllo", namespace.getString("string", null));
+        assertEquals(longString.toString(), namespace.getString("long_string", null));
+        assertFalse(namespace.contains("removed"));
+        // Wrong type gives the default
+        assertEquals(-1, namespace.getInt("string", -1));
+        assertEquals(7, mStore.namespace("profile").getInt("int", 0));
+    }
+
+    @Test
+    public void tornTailIsDropped() throws Exception {
+        PrefsStore.Namespace namespace = mStore.namespace(null);
+        namespace.putInt("first", 1);
+        mStore.flushBlocking();
+        namespace.putInt("second", 2);
+        mStore.flushBlocking();
+
+        // Interrupted append
+        File file = getFile(null);
+        truncate(file, file.length() - 1);
+
+        mStore = reloadStore();
+        namespace = mStore.namespace(null);
+        assertEquals(1, namespace.getInt("first", 0));
+        assertFalse(namespace.contains("second"));
+
+        // The next write compacts the broken log instead of appending after it
+        namespace.putInt("third", 3);
+        mStore.flushBlocking();
+
+        mStore = reloadStore();
+        namespace = mStore.namespace(null);
+        assertEquals(1, namespace.getInt("first", 0));
+        assertEquals(3, namespace.getInt("third", 0));
+        assertFalse(namespace.contains("second"));
+    }
+
+    @Test
+    public void brokenCrcIsRejected() throws Exception {
+        PrefsStore.Namespace namespace = mStore.namespace(null);
+        namespace.putInt("first", 1);
+        mStore.flushBlocking();
+        namespace.putInt("second", 2);
+        mStore.flushBlocking();
+
+        // Flip the last byte of the second value
+        File file = getFile(null);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(file.length() - 1);
+            int last = out.read();
+            out.seek(file.length() - 1);
+            out.write(last ^ 0xFF);
+        }
+
+        mStore = reloadStore();
+        namespace = mStore.namespace(null);
+        assertEquals(1, namespace.getInt("first", 0));
+        assertFalse(namespace.contains("second"));
+    }
+
+    @Test
+    public void logIsCompactedViaRename() throws Exception {
+        PrefsStore.Namespace namespace = mStore.namespace(null);
+        namespace.putString("constant", "value");
+
+        File file = getFile(null);
+        File tempFile = new File(file.getPath() + ".tmp");
+        boolean isCompacted = false;
+        long length = 0;
+
+        for (int i = 0; i < 300; i++) {
+            namespace.putInt("counter", i);
+            mStore.flushBlocking();
+            // The old records are dropped
+            isCompacted |= file.length() < length;
+            length = file.length();
+        }
+
+        assertTrue(isCompacted);
+        assertFalse(tempFile.exists());
+
+        // Crash during the compaction: the temp file isn't renamed yet
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(new byte[] {1, 2, 3});
+        }
+
+        mStore = reloadStore();
+        namespace = mStore.namespace(null);
+        assertEquals(299, namespace.getInt("counter", 0));
+        assertEquals("value", namespace.getString("constant", null));
+
+        for (int i = 0; i < 300; i++) {
+            namespace.putInt("counter", i + 1_000);
+            mStore.flushBlocking();
+        }
+
+        // Replaced by the next compaction
+        assertFalse(tempFile.exists());
+        mStore = reloadStore();
+        assertEquals(1_299, mStore.namespace(null).getInt("counter", 0));
+    }
+
+    @Test
+    public void markerIsNeverAppliedWithoutValue() throws Exception {
+        PrefsStore.Namespace namespace = mStore.namespace(null);
+        namespace.putString("data", "blob");
+        namespace.putBoolean("data_migrated", true);
+        mStore.flushBlocking();
+
+        File file = getFile(null);
+        truncate(file, file.length() - 1);
+
+        // The value and the marker are in the same batch
+        mStore = reloadStore();
+        namespace = mStore.namespace(null);
+        assertNull(namespace.getString("data", null));
+        assertFalse(namespace.getBoolean("data_migrated", false));
+    }
+
+    @Test
+    public void profileBlobIsMigratedToTypedKeys() throws Exception {
+        AppPrefs.instance(mContext).setData(TEST_DATA, Helpers.mergeData(true, 5, 1.5f, "str", null, 10L));
+
+        TestData data = new TestData(mContext);
+        assertTrue(data.getBoolean(0));
+        assertEquals(5, data.getInt(1));
+        assertEquals(1.5f, data.getFloat(2, 0), 0);
+        assertEquals("str", data.getString(3));
+        assertNull(data.getString(4));
+        assertEquals(10L, data.getLong(5, 0));
+
+        data.setInt(1, 6);
+        mStore.flushBlocking();
+
+        // The blob is kept for the downgrade, but isn't read again
+        AppPrefs.instance(mContext).setData(TEST_DATA, Helpers.mergeData(false, 1));
+        mStore = reloadStore();
+        resetInstance(AppPrefs.class);
+
+        data = new TestData(mContext);
+        assertTrue(data.getBoolean(0));
+        assertEquals(6, data.getInt(1));
+        assertEquals("str", data.getString(3));
+        assertTrue(AppPrefs.instance(mContext).getProfileNamespace().getBoolean(TEST_DATA + "_split", false));
+        // The intermediate copy of the blob is removed
+        assertFalse(AppPrefs.instance(mContext).getProfileNamespace().contains(TEST_DATA));
+    }
+
+    @Test
+    public void tornMigrationIsRepeated() throws Exception {
+        AppPrefs.instance(mContext).setData(TEST_DATA, Helpers.mergeData(true, 5));
+
+        TestData data = new TestData(mContext);
+        mStore.flushBlocking();
+
+        // Crash while the migration is written
+        File file = getFile(null);
+        truncate(file, file.length() - 1);
+        mStore = reloadStore();
+        resetInstance(AppPrefs.class);
+        assertFalse(mStore.namespace(null).getBoolean(TEST_DATA + "_split", false));
+
+        data = new TestData(mContext);
+        assertTrue(data.getBoolean(0));
+        assertEquals(5, data.getInt(1));
+    }
+
+    @Test
+    public void writeAmplificationAndColdLoad() throws Exception {
+        Object[] settings = createSettings();
+        AppPrefs appPrefs = AppPrefs.instance(mContext);
+        String key = "benchmark_data";
+
+        // Before: every setter rewrites the whole blob
+        long blobBytes = 0;
+        long startNs = System.nanoTime();
+        for (int i = 0; i < CHANGE_COUNT; i++) {
+            settings[1] = i;
+            String blob = Helpers.mergeData(settings);
+            appPrefs.setData(key, blob);
+            blobBytes += blob.getBytes("UTF-8").length;
+        }
+        long blobWriteUs = (System.nanoTime() - startNs) / 1_000;
+
+        // After: only the changed key is appended
+        PrefsStore.Namespace namespace = mStore.namespace(null);
+        for (int i = 0; i < settings.length; i++) {
+            namespace.put(key + "_" + i, settings[i]);
+        }
+        mStore.flushBlocking();
+
+        File file = getFile(null);
+        long initialLength = file.length();
+        startNs = System.nanoTime();
+        for (int i = 0; i < CHANGE_COUNT; i++) {
+            namespace.putInt(key + "_1", i + CHANGE_COUNT);
+            mStore.flushBlocking();
+        }
+        long storeWriteUs = (System.nanoTime() - startNs) / 1_000;
+        long storeBytes = file.length() - initialLength;
+
+        Log.d(TAG, String.format("%s changes: blob %s bytes in %s us, store %s bytes in %s us",
+                CHANGE_COUNT, blobBytes, blobWriteUs, storeBytes, storeWriteUs));
+        assertTrue(storeBytes * 5 < blobBytes);
+
+        // Cold load: the SharedPreferences blob is split and parsed, the log is replayed
+        startNs = System.nanoTime();
+        String[] split = Helpers.splitData(appPrefs.getData(key));
+        int parsed = 0;
+        for (int i = 0; i < SETTINGS_COUNT; i++) {
+            if (Helpers.parseStr(split, i) != null) {
+                parsed++;
+            }
+        }
+        long blobLoadUs = (System.nanoTime() - startNs) / 1_000;
+
+        startNs = System.nanoTime();
+        mStore = reloadStore();
+        namespace = mStore.namespace(null);
+        int loaded = 0;
+        for (int i = 0; i < SETTINGS_COUNT; i++) {
+            if (namespace.get(key + "_" + i) != null) {
+                loaded++;
+            }
+        }
+        long storeLoadUs = (System.nanoTime() - startNs) / 1_000;
+
+        Log.d(TAG, String.format("Cold load of %s values: blob %s us, store %s us (%s bytes)",
+                SETTINGS_COUNT, blobLoadUs, storeLoadUs, file.length()));
+        assertEquals(SETTINGS_COUNT, parsed);
+        assertEquals(SETTINGS_COUNT, loaded);
+        assertEquals(CHANGE_COUNT * 2 - 1, namespace.getInt(key + "_1", 0));
+    }
+
+    /**
+     * Mix of the types like in the PlayerData.
+     */
+    private static Object[] createSettings() {
+        Object[] settings = new Object[SETTINGS_COUNT];
+
+        for (int i = 0; i < SETTINGS_COUNT; i++) {
+            switch (i % 4) {
+                case 0:
+                    settings[i] = i % 8 == 0;
+                    break;
+                case 1:
+                    settings[i] = i * 1_000;
+                    break;
+                case 2:
+                    settings[i] = i / 10f;
+                    break;
+                default:
+                    settings[i] = "value" + i;
+                    break;
+            }
+        }
+
+        return settings;
+    }
+
+    private PrefsStore reloadStore() throws Exception {
+        if (mStore != null) {
+            mStore.close();
+        }
+
+        resetInstance(PrefsStore.class);
+        return PrefsStore.instance(mContext);
+    }
+
+    private File getFile(String name) {
+        return new File(mContext.getFilesDir(), PrefsStore.DIR_NAME + "/" + PrefsStore.getFileName(name) + ".bin");
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(length);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+    private static void resetInstance(Class<?> clazz) throws Exception {
+        Field field = clazz.getDeclaredField("sInstance");
+        field.setAccessible(true);
+        field.set(null, null);
+    }
+}
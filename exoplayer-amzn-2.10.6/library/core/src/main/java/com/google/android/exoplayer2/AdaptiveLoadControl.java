@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2;
+
+import android.content.ComponentCallbacks2;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.util.Assertions;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.Util;
+
+/**
+ * A {@link LoadControl} that sizes the buffer in bytes from the bitrates of the selected tracks and
+ * the available memory.
+ *
+ * <p>The buffer durations depend on the playback mode: live streams keep a short buffer close to
+ * the live edge, audio only playbacks (e.g. background audio) buffer far ahead because the audio is
+ * cheap. The byte budget is recalculated on every loading decision, so the buffer grows and shrinks
+ * with the adaptive track switches, {@link #setLive(boolean)} and {@link #onTrimMemory(int)}
+ * without recreating the player.
+ */
+public final class AdaptiveLoadControl implements LoadControl {
+
+  /** The maximum duration of media buffered for the live streams, in milliseconds. */
+  public static final int LIVE_MAX_BUFFER_MS = 30_000;
+
+  /** The minimum duration of media buffered for the audio only playbacks, in milliseconds. */
+  public static final int AUDIO_ONLY_MIN_BUFFER_MS = 60_000;
+
+  /** The maximum duration of media buffered for the audio only playbacks, in milliseconds. */
+  public static final int AUDIO_ONLY_MAX_BUFFER_MS = 300_000;
+
+  /** The buffer is never limited below this size, in bytes. */
+  public static final int MIN_TARGET_BUFFER_BYTES = 32 * C.DEFAULT_BUFFER_SEGMENT_SIZE;
+
+  /** Margin for the variable bitrate peaks above the declared bitrate, in percents. */
+  private static final int BITRATE_HEADROOM_PERCENT = 150;
+
+  /** The time without memory warnings after which the memory limit is relaxed twice. */
+  private static final long MEMORY_PRESSURE_RELAX_MS = 60_000;
+
+  private static final int MAX_MEMORY_PRESSURE = 4;
+
+  private final DefaultAllocator allocator;
+  private final Clock clock;
+  private final long minBufferUs;
+  private final long maxBufferUs;
+  private final long bufferForPlaybackUs;
+  private final long bufferForPlaybackAfterRebufferUs;
+  private final long backBufferDurationUs;
+
+  private volatile int maxBufferBytes;
+  private volatile boolean isLive;
+  private volatile int memoryPressure;
+  private volatile long memoryPressureTimeMs;
+
+  @Nullable private Renderer[] renderers;
+  @Nullable private TrackSelectionArray trackSelections;
+  private int targetBufferSize;
+  private boolean isBuffering;
+  private boolean hasVideo;
+
+  /**
+   * @param allocator The {@link DefaultAllocator} used by the loader.
+   * @param minBufferMs The minimum duration of buffered media of the regular playbacks.
+   * @param maxBufferMs The maximum duration of buffered media of the regular playbacks.
+   * @param bufferForPlaybackMs The buffered duration to start the playback after a user action.
+   * @param bufferForPlaybackAfterRebufferMs The buffered duration to resume after a rebuffer.
+   * @param backBufferDurationMs The back buffer duration.
+   * @param maxBufferBytes The memory limit of the buffer in bytes.
+   */
+  public AdaptiveLoadControl(
+      DefaultAllocator allocator,
+      int minBufferMs,
+      int maxBufferMs,
+      int bufferForPlaybackMs,
+      int bufferForPlaybackAfterRebufferMs,
+      int backBufferDurationMs,
+      int maxBufferBytes) {
+    this(
+        allocator,
+        minBufferMs,
+        maxBufferMs,
+        bufferForPlaybackMs,
+        bufferForPlaybackAfterRebufferMs,
+        backBufferDurationMs,
+        maxBufferBytes,
+        Clock.DEFAULT);
+  }
+
+  /* package */ AdaptiveLoadControl(
+      DefaultAllocator allocator,
+      int minBufferMs,
+      int maxBufferMs,
+      int bufferForPlaybackMs,
+      int bufferForPlaybackAfterRebufferMs,
+      int backBufferDurationMs,
+      int maxBufferBytes,
+      Clock clock) {
+    Assertions.checkArgument(bufferForPlaybackMs >= 0);
+    Assertions.checkArgument(bufferForPlaybackAfterRebufferMs >= bufferForPlaybackMs);
+    Assertions.checkArgument(minBufferMs >= bufferForPlaybackAfterRebufferMs);
+    Assertions.checkArgument(maxBufferMs >= minBufferMs);
+    Assertions.checkArgument(backBufferDurationMs >= 0);
+
+    this.allocator = allocator;
+    this.clock = clock;
+    this.minBufferUs = C.msToUs(minBufferMs);
+    this.maxBufferUs = C.msToUs(maxBufferMs);
+    this.bufferForPlaybackUs = C.msToUs(bufferForPlaybackMs);
+    this.bufferForPlaybackAfterRebufferUs = C.msToUs(bufferForPlaybackAfterRebufferMs);
+    this.backBufferDurationUs = C.msToUs(backBufferDurationMs);
+    this.maxBufferBytes = maxBufferBytes;
+    this.memoryPressure = 1;
+  }
+
+  /** Switches to the short buffer of the live streams. Takes effect on the next load. */
+  public void setLive(boolean isLive) {
+    this.isLive = isLive;
+  }
+
+  /** Changes the memory limit of the buffer. Takes effect on the next load. */
+  public void setMaxBufferBytes(int maxBufferBytes) {
+    this.maxBufferBytes = maxBufferBytes;
+  }
+
+  /**
+   * Shrinks the buffer when the system is running low on memory. The limit is restored gradually
+   * when the warnings stop.
+   *
+   * @param level The level passed to {@link ComponentCallbacks2#onTrimMemory(int)}.
+   */
+  public void onTrimMemory(int level) {
+    int pressure;
+    if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+        || level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+      pressure = MAX_MEMORY_PRESSURE;
+    } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+        || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+      pressure = 2;
+    } else {
+      // Moderate or the app UI is hidden. The playback memory is still fine.
+      return;
+    }
+    memoryPressure = Math.max(memoryPressure, pressure);
+    memoryPressureTimeMs = clock.elapsedRealtime();
+  }
+
+  /** Returns the current target buffer size in bytes. */
+  public int getTargetBufferSize() {
+    return targetBufferSize;
+  }
+
+  @Override
+  public void onPrepared() {
+    reset(false);
+  }
+
+  @Override
+  public void onTracksSelected(
+      Renderer[] renderers, TrackGroupArray trackGroups, TrackSelectionArray trackSelections) {
+    this.renderers = renderers;
+    this.trackSelections = trackSelections;
+    hasVideo = hasVideo(renderers, trackSelections);
+    updateTargetBufferSize();
+  }
+
+  @Override
+  public void onStopped() {
+    reset(true);
+  }
+
+  @Override
+  public void onReleased() {
+    reset(true);
+  }
+
+  @Override
+  public Allocator getAllocator() {
+    return allocator;
+  }
+
+  @Override
+  public long getBackBufferDurationUs() {
+    return backBufferDurationUs;
+  }
+
+  @Override
+  public boolean retainBackBufferFromKeyframe() {
+    return true;
+  }
+
+  @Override
+  public boolean shouldContinueLoading(long bufferedDurationUs, float playbackSpeed) {
+    updateTargetBufferSize();
+    boolean targetBufferSizeReached = allocator.getTotalBytesAllocated() >= targetBufferSize;
+    long maxBufferUs = getMaxBufferUs();
+    long minBufferUs = getMinBufferUs();
+    long rebufferThresholdUs = bufferForPlaybackAfterRebufferUs;
+    if (playbackSpeed > 1) {
+      // The playback speed is faster than real time, so scale up the minimum required media
+      // duration to keep enough media buffered for a playout duration of minBufferUs.
+      minBufferUs =
+          Math.min(Util.getMediaDurationForPlayoutDuration(minBufferUs, playbackSpeed), maxBufferUs);
+      rebufferThresholdUs =
+          Util.getMediaDurationForPlayoutDuration(rebufferThresholdUs, playbackSpeed);
+    }
+    if (bufferedDurationUs < rebufferThresholdUs) {
+      // Never starve the playback because of the size limit.
+      isBuffering = true;
+    } else if (bufferedDurationUs < minBufferUs) {
+      isBuffering = !targetBufferSizeReached;
+    } else if (bufferedDurationUs >= maxBufferUs || targetBufferSizeReached) {
+      isBuffering = false;
+    } // Else don't change the buffering state
+    return isBuffering;
+  }
+
+  @Override
+  public boolean shouldStartPlayback(
+      long bufferedDurationUs, float playbackSpeed, boolean rebuffering) {
+    bufferedDurationUs = Util.getPlayoutDurationForMediaDuration(bufferedDurationUs, playbackSpeed);
+    long minBufferDurationUs = rebuffering ? bufferForPlaybackAfterRebufferUs : bufferForPlaybackUs;
+    return minBufferDurationUs <= 0 || bufferedDurationUs >= minBufferDurationUs;
+  }
+
+  private long getMinBufferUs() {
+    if (isLive) {
+      return Math.min(minBufferUs, C.msToUs(LIVE_MAX_BUFFER_MS));
+    }
+    return hasVideo ? minBufferUs : Math.max(minBufferUs, C.msToUs(AUDIO_ONLY_MIN_BUFFER_MS));
+  }
+
+  private long getMaxBufferUs() {
+    if (isLive) {
+      return Math.min(maxBufferUs, C.msToUs(LIVE_MAX_BUFFER_MS));
+    }
+    return hasVideo ? maxBufferUs : Math.max(maxBufferUs, C.msToUs(AUDIO_ONLY_MAX_BUFFER_MS));
+  }
+
+  private void updateTargetBufferSize() {
+    if (renderers == null || trackSelections == null) {
+      return;
+    }
+
+    if (memoryPressure > 1
+        && clock.elapsedRealtime() - memoryPressureTimeMs >= MEMORY_PRESSURE_RELAX_MS) {
+      memoryPressure /= 2;
+      memoryPressureTimeMs = clock.elapsedRealtime();
+    }
+
+    long requiredBytes = calculateRequiredBytes(renderers, trackSelections, getMaxBufferUs());
+    long memoryLimit = maxBufferBytes / memoryPressure;
+    int newTargetBufferSize =
+        (int) Math.max(MIN_TARGET_BUFFER_BYTES, Math.min(requiredBytes, memoryLimit));
+
+    if (newTargetBufferSize != targetBufferSize) {
+      targetBufferSize = newTargetBufferSize;
+      allocator.setTargetBufferSize(targetBufferSize);
+    }
+  }
+
+  /**
+   * The size of the max buffer duration at the current bitrates. The default sizes of the {@link
+   * DefaultLoadControl} are used for the tracks of unknown bitrate.
+   */
+  private static long calculateRequiredBytes(
+      Renderer[] renderers, TrackSelectionArray trackSelectionArray, long bufferDurationUs) {
+    long result = 0;
+    for (int i = 0; i < renderers.length; i++) {
+      TrackSelection trackSelection = trackSelectionArray.get(i);
+      if (trackSelection == null) {
+        continue;
+      }
+      int bitrate = getBitrate(trackSelection);
+      if (bitrate > 0) {
+        result +=
+            (long) bitrate / 8 * bufferDurationUs / C.MICROS_PER_SECOND
+                * BITRATE_HEADROOM_PERCENT / 100;
+      } else {
+        result += getDefaultBufferSize(renderers[i].getTrackType());
+      }
+    }
+    return result;
+  }
+
+  /** The bitrate of the selected format or the max bitrate of the group if unknown. */
+  private static int getBitrate(TrackSelection trackSelection) {
+    int bitrate = trackSelection.getSelectedFormat().bitrate;
+    if (bitrate != Format.NO_VALUE) {
+      return bitrate;
+    }
+    TrackGroup trackGroup = trackSelection.getTrackGroup();
+    for (int i = 0; i < trackGroup.length; i++) {
+      bitrate = Math.max(bitrate, trackGroup.getFormat(i).bitrate);
+    }
+    return bitrate;
+  }
+
+  private void reset(boolean resetAllocator) {
+    targetBufferSize = 0;
+    isBuffering = false;
+    if (resetAllocator) {
+      renderers = null;
+      trackSelections = null;
+      allocator.reset();
+    }
+  }
+
+  private static int getDefaultBufferSize(int trackType) {
+    switch (trackType) {
+      case C.TRACK_TYPE_DEFAULT:
+        return DefaultLoadControl.DEFAULT_MUXED_BUFFER_SIZE;
+      case C.TRACK_TYPE_AUDIO:
+        return DefaultLoadControl.DEFAULT_AUDIO_BUFFER_SIZE;
+      case C.TRACK_TYPE_VIDEO:
+        return DefaultLoadControl.DEFAULT_VIDEO_BUFFER_SIZE;
+      case C.TRACK_TYPE_TEXT:
+        return DefaultLoadControl.DEFAULT_TEXT_BUFFER_SIZE;
+      case C.TRACK_TYPE_METADATA:
+        return DefaultLoadControl.DEFAULT_METADATA_BUFFER_SIZE;
+      case C.TRACK_TYPE_CAMERA_MOTION:
+        return DefaultLoadControl.DEFAULT_CAMERA_MOTION_BUFFER_SIZE;
+      default:
+        return 0;
+    }
+  }
+
+  private static boolean hasVideo(Renderer[] renderers, TrackSelectionArray trackSelectionArray) {
+    for (int i = 0; i < renderers.length; i++) {
+      if (renderers[i].getTrackType() == C.TRACK_TYPE_VIDEO && trackSelectionArray.get(i) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.audio;
+
+import com.google.android.exoplayer2.C;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link AudioProcessor} that amplifies the input and optionally normalizes its loudness. Peaks
+ * that would clip are caught by a look-ahead limiter. Input and output are 16-bit or float PCM with
+ * any channel count.
+ *
+ * <p>The loudness is the mean square of the input over a sliding window, measured in short blocks.
+ * Silent blocks are not counted, so pauses don't raise the gain. The gain changes smoothly, and the
+ * limiter delays the output by {@link #LOOKAHEAD_US} to turn the gain down before a peak arrives.
+ * All buffers are allocated on {@link #flush()}, so processing allocates nothing.
+ */
+public final class LoudnessAudioProcessor extends BaseAudioProcessor {
+
+  /** The duration of a loudness measurement block, in microseconds. */
+  private static final long BLOCK_DURATION_US = 50_000;
+  /** The number of blocks in the loudness measurement window (3 seconds). */
+  private static final int WINDOW_BLOCK_COUNT = 60;
+  /** The mean square below which a block is classified as silent (-60 dBFS). */
+  private static final float SILENCE_MEAN_SQUARE = 1e-6f;
+  /** The RMS level that the loudness normalization aims at (-20 dBFS). */
+  private static final float TARGET_RMS = 0.1f;
+  /** The maximum gain applied by the loudness normalization (+12 dB). */
+  private static final float MAX_NORMALIZATION_GAIN = 4f;
+  /** The time constant of the normalization gain changes, in microseconds. */
+  private static final long GAIN_SMOOTHING_US = 500_000;
+  /** The output delay used to lower the gain before a peak, in microseconds. */
+  private static final long LOOKAHEAD_US = 5_000;
+  /** The time constant of the limiter gain recovery, in microseconds. */
+  private static final long LIMITER_RELEASE_US = 100_000;
+  /** The maximum output level (-0.2 dBFS). */
+  private static final float LIMITER_CEILING = 0.977f;
+
+  private static final float SHORT_SCALE = 1f / 32768f;
+
+  private boolean enabled;
+  private volatile float gain;
+  private volatile boolean normalizationEnabled;
+
+  private int bytesPerSample;
+  private int lookaheadFrames;
+  private int blockFrames;
+  private float gainSmoothingCoefficient;
+  private float limiterReleaseCoefficient;
+
+  /** Delayed samples, already multiplied by the makeup gain. */
+  private float[] delayBuffer;
+  private int delayPosition;
+  private int delayedFrames;
+  private boolean inputEnded;
+
+  private float[] blockMeanSquares;
+  private int blockIndex;
+  private int blockCount;
+  private int blockFramesProcessed;
+  private double blockSumSquares;
+  private double windowSumMeanSquares;
+
+  private float normalizationGain;
+  private float smoothedNormalizationGain;
+  private float envelope;
+  private int envelopeHoldFrames;
+  private float limiterGain;
+  private float limiterAttackStep;
+
+  /** Creates a new loudness audio processor. */
+  public LoudnessAudioProcessor() {
+    gain = 1f;
+    delayBuffer = new float[0];
+    blockMeanSquares = new float[WINDOW_BLOCK_COUNT];
+    resetLoudness();
+  }
+
+  /**
+   * Sets whether to process the input. Calling this method will discard any data buffered within
+   * the processor, and may update the value returned by {@link #isActive()}.
+   *
+   * @param enabled Whether to process the input.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    flush();
+  }
+
+  /**
+   * Sets the makeup gain. May be called during playback, the change is smoothed by the limiter.
+   *
+   * @param gain The linear gain. Values above 1 boost the volume.
+   */
+  public void setGain(float gain) {
+    this.gain = Math.max(gain, 0f);
+  }
+
+  /** Returns the makeup gain. */
+  public float getGain() {
+    return gain;
+  }
+
+  /**
+   * Sets whether quiet input is amplified towards a common loudness, on top of the makeup gain. May
+   * be called during playback.
+   */
+  public void setNormalizationEnabled(boolean normalizationEnabled) {
+    this.normalizationEnabled = normalizationEnabled;
+  }
+
+  /** Returns the current gain of the loudness normalization, or 1 if it's disabled. */
+  public float getNormalizationGain() {
+    return normalizationEnabled ? smoothedNormalizationGain : 1f;
+  }
+
+  // AudioProcessor implementation.
+
+  @Override
+  public boolean configure(int sampleRateHz, int channelCount, @C.PcmEncoding int encoding)
+      throws UnhandledFormatException {
+    if (encoding != C.ENCODING_PCM_16BIT && encoding != C.ENCODING_PCM_FLOAT) {
+      throw new UnhandledFormatException(sampleRateHz, channelCount, encoding);
+    }
+    bytesPerSample = encoding == C.ENCODING_PCM_FLOAT ? 4 : 2;
+    return setInputFormat(sampleRateHz, channelCount, encoding);
+  }
+
+  @Override
+  public boolean isActive() {
+    return super.isActive() && enabled;
+  }
+
+  @Override
+  public void queueInput(ByteBuffer inputBuffer) {
+    int position = inputBuffer.position();
+    int limit = inputBuffer.limit();
+    int frameCount = (limit - position) / (bytesPerSample * channelCount);
+    if (frameCount == 0) {
+      return;
+    }
+    ByteBuffer outputBuffer = replaceOutputBuffer(frameCount * bytesPerSample * channelCount);
+    int outputPosition = processFrames(inputBuffer, position, outputBuffer, frameCount);
+    inputBuffer.position(position + frameCount * bytesPerSample * channelCount);
+    outputBuffer.position(outputPosition);
+    outputBuffer.flip();
+  }
+
+  @Override
+  protected void onQueueEndOfStream() {
+    inputEnded = true;
+  }
+
+  @Override
+  public ByteBuffer getOutput() {
+    if (inputEnded && delayedFrames > 0 && !hasPendingOutput()) {
+      // Output the delayed tail, so that no frames are lost.
+      drainDelayBuffer();
+    }
+    return super.getOutput();
+  }
+
+  @Override
+  public boolean isEnded() {
+    return super.isEnded() && delayedFrames == 0;
+  }
+
+  @Override
+  protected void onFlush() {
+    if (isActive()) {
+      lookaheadFrames = Math.max(1, durationUsToFrames(LOOKAHEAD_US));
+      blockFrames = Math.max(1, durationUsToFrames(BLOCK_DURATION_US));
+      gainSmoothingCoefficient = 1f / Math.max(1, durationUsToFrames(GAIN_SMOOTHING_US));
+      limiterReleaseCoefficient = 1f / Math.max(1, durationUsToFrames(LIMITER_RELEASE_US));
+      int delayBufferSize = lookaheadFrames * channelCount;
+      if (delayBuffer.length != delayBufferSize) {
+        delayBuffer = new float[delayBufferSize];
+      }
+    }
+    for (int i = 0; i < delayBuffer.length; i++) {
+      delayBuffer[i] = 0f;
+    }
+    delayPosition = 0;
+    delayedFrames = 0;
+    inputEnded = false;
+    envelope = 0f;
+    envelopeHoldFrames = 0;
+    limiterGain = 1f;
+    limiterAttackStep = 0f;
+    // The loudness history survives seeking, so the gain doesn't jump after it.
+  }
+
+  @Override
+  protected void onReset() {
+    // The gain settings are kept: the renderers may be reset between the media items.
+    delayBuffer = new float[0];
+    resetLoudness();
+  }
+
+  // Internal methods.
+
+  /** Processes the input frames, returning the position after the last output sample. */
+  private int processFrames(
+      ByteBuffer inputBuffer, int inputPosition, ByteBuffer outputBuffer, int frameCount) {
+    boolean isFloat = encoding == C.ENCODING_PCM_FLOAT;
+    boolean normalizationEnabled = this.normalizationEnabled;
+    float gain = this.gain;
+    int channelCount = this.channelCount;
+    float[] delayBuffer = this.delayBuffer;
+    int outputPosition = 0;
+
+    for (int frame = 0; frame < frameCount; frame++) {
+      if (normalizationEnabled) {
+        smoothedNormalizationGain +=
+            (normalizationGain - smoothedNormalizationGain) * gainSmoothingCoefficient;
+      }
+      float frameGain = normalizationEnabled ? gain * smoothedNormalizationGain : gain;
+
+      // Read the next frame before the delayed one is overwritten.
+      float peak = 0f;
+      double sumSquares = 0;
+      int delayOffset = delayPosition * channelCount;
+      for (int channel = 0; channel < channelCount; channel++) {
+        float sample;
+        if (isFloat) {
+          sample = inputBuffer.getFloat(inputPosition);
+          inputPosition += 4;
+        } else {
+          sample = inputBuffer.getShort(inputPosition) * SHORT_SCALE;
+          inputPosition += 2;
+        }
+        sumSquares += sample * sample;
+        float amplified = sample * frameGain;
+        float level = amplified < 0 ? -amplified : amplified;
+        if (level > peak) {
+          peak = level;
+        }
+        if (delayedFrames == lookaheadFrames) {
+          // Output the oldest sample and put the new one in its place.
+          float delayed = delayBuffer[delayOffset + channel] * limiterGain;
+          outputPosition = writeSample(outputBuffer, outputPosition, delayed, isFloat);
+        }
+        delayBuffer[delayOffset + channel] = amplified;
+      }
+
+      if (delayedFrames < lookaheadFrames) {
+        // The delay line is filling up after a flush. The frames are output when the stream ends.
+        delayedFrames++;
+      }
+      delayPosition = delayPosition + 1 == lookaheadFrames ? 0 : delayPosition + 1;
+
+      updateLimiterGain(peak);
+      updateLoudness(sumSquares / channelCount);
+    }
+    return outputPosition;
+  }
+
+  /**
+   * Updates the limiter gain for the frame that is about to be output. The envelope holds the
+   * highest peak of the delay line. When it rises, the gain is ramped down within the look-ahead
+   * time, so it reaches the safe level when the peak is output.
+   */
+  private void updateLimiterGain(float peak) {
+    if (peak >= envelope) {
+      envelope = peak;
+      envelopeHoldFrames = lookaheadFrames;
+    } else if (envelopeHoldFrames > 0) {
+      envelopeHoldFrames--;
+    } else {
+      envelope += (peak - envelope) * limiterReleaseCoefficient;
+    }
+
+    float targetGain = envelope > LIMITER_CEILING ? LIMITER_CEILING / envelope : 1f;
+    if (targetGain < limiterGain) {
+      float attackStep = (limiterGain - targetGain) / lookaheadFrames;
+      if (attackStep > limiterAttackStep) {
+        limiterAttackStep = attackStep;
+      }
+      limiterGain = Math.max(targetGain, limiterGain - limiterAttackStep);
+    } else {
+      limiterAttackStep = 0f;
+      limiterGain += (targetGain - limiterGain) * limiterReleaseCoefficient;
+    }
+  }
+
+  /** Outputs the frames remaining in the delay line, oldest first. */
+  private void drainDelayBuffer() {
+    boolean isFloat = encoding == C.ENCODING_PCM_FLOAT;
+    ByteBuffer outputBuffer = replaceOutputBuffer(delayedFrames * bytesPerSample * channelCount);
+    int outputPosition = 0;
+    int position = delayPosition + lookaheadFrames - delayedFrames;
+    while (delayedFrames > 0) {
+      if (position >= lookaheadFrames) {
+        position -= lookaheadFrames;
+      }
+      updateLimiterGain(0f);
+      int delayOffset = position * channelCount;
+      for (int channel = 0; channel < channelCount; channel++) {
+        float delayed = delayBuffer[delayOffset + channel] * limiterGain;
+        outputPosition = writeSample(outputBuffer, outputPosition, delayed, isFloat);
+      }
+      position++;
+      delayedFrames--;
+    }
+    outputBuffer.position(outputPosition);
+    outputBuffer.flip();
+  }
+
+  /** Accumulates the mean square of a frame and updates the normalization gain per block. */
+  private void updateLoudness(double frameMeanSquare) {
+    blockSumSquares += frameMeanSquare;
+    if (++blockFramesProcessed < blockFrames) {
+      return;
+    }
+    float blockMeanSquare = (float) (blockSumSquares / blockFramesProcessed);
+    blockSumSquares = 0;
+    blockFramesProcessed = 0;
+    if (blockMeanSquare < SILENCE_MEAN_SQUARE) {
+      return;
+    }
+
+    if (blockCount == WINDOW_BLOCK_COUNT) {
+      windowSumMeanSquares -= blockMeanSquares[blockIndex];
+    } else {
+      blockCount++;
+    }
+    blockMeanSquares[blockIndex] = blockMeanSquare;
+    windowSumMeanSquares += blockMeanSquare;
+    blockIndex = blockIndex + 1 == WINDOW_BLOCK_COUNT ? 0 : blockIndex + 1;
+
+    double windowMeanSquare = Math.max(windowSumMeanSquares / blockCount, SILENCE_MEAN_SQUARE);
+    float targetGain = (float) (TARGET_RMS / Math.sqrt(windowMeanSquare));
+    normalizationGain = Math.max(1f, Math.min(targetGain, MAX_NORMALIZATION_GAIN));
+  }
+
+  private void resetLoudness() {
+    for (int i = 0; i < blockMeanSquares.length; i++) {
+      blockMeanSquares[i] = 0f;
+    }
+    blockIndex = 0;
+    blockCount = 0;
+    blockFramesProcessed = 0;
+    blockSumSquares = 0;
+    windowSumMeanSquares = 0;
+    normalizationGain = 1f;
+    smoothedNormalizationGain = 1f;
+  }
+
+  private static int writeSample(
+      ByteBuffer outputBuffer, int outputPosition, float sample, boolean isFloat) {
+    // The limiter keeps the output below the ceiling, clip only the rounding errors.
+    if (sample > 1f) {
+      sample = 1f;
+    } else if (sample < -1f) {
+      sample = -1f;
+    }
+    if (isFloat) {
+      outputBuffer.putFloat(outputPosition, sample);
+      return outputPosition + 4;
+    }
+    outputBuffer.putShort(outputPosition, (short) (sample * Short.MAX_VALUE));
+    return outputPosition + 2;
+  }
+
+  private int durationUsToFrames(long durationUs) {
+    return (int) ((durationUs * sampleRateHz) / C.MICROS_PER_SECOND);
+  }
+}
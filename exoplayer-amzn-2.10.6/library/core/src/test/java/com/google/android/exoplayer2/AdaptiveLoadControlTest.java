@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentCallbacks2;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.testutil.FakeClock;
+import com.google.android.exoplayer2.testutil.FakeRenderer;
+import com.google.android.exoplayer2.trackselection.FixedTrackSelection;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.upstream.Allocation;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.MimeTypes;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLog;
+
+/** Unit tests for {@link AdaptiveLoadControl}. */
+@RunWith(AndroidJUnit4.class)
+public class AdaptiveLoadControlTest {
+
+  private static final String TAG = "AdaptiveLoadControlTest";
+  private static final float SPEED = 1f;
+  private static final int MIN_BUFFER_MS = 30_000;
+  private static final int MAX_BUFFER_MS = 60_000;
+  private static final int BUFFER_FOR_PLAYBACK_MS = 2_500;
+  private static final int BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS = 5_000;
+  private static final int MAX_BUFFER_BYTES = 64 * 1024 * 1024;
+  /** 1 GB device, the budget of the former fixed preset (ram / 18). */
+  private static final int LOW_RAM_BUFFER_BYTES = 1024 * 1024 * 1024 / 18;
+
+  private static final Format VIDEO_4K =
+      createVideoFormat(/* bitrate= */ 25_000_000, /* height= */ 2160);
+  private static final Format VIDEO_1080P =
+      createVideoFormat(/* bitrate= */ 5_000_000, /* height= */ 1080);
+  private static final Format AUDIO =
+      Format.createAudioSampleFormat(
+          /* id= */ null,
+          MimeTypes.AUDIO_AAC,
+          /* codecs= */ null,
+          /* bitrate= */ 128_000,
+          /* maxInputSize= */ Format.NO_VALUE,
+          /* channelCount= */ 2,
+          /* sampleRate= */ 44_100,
+          /* initializationData= */ null,
+          /* drmInitData= */ null,
+          /* selectionFlags= */ 0,
+          /* language= */ null);
+
+  private FakeClock clock;
+  private DefaultAllocator allocator;
+  private AdaptiveLoadControl loadControl;
+
+  @Before
+  public void setUp() {
+    ShadowLog.stream = System.out;
+    clock = new FakeClock(/* initialTimeMs= */ 0);
+    allocator = new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+    loadControl = createAdaptiveLoadControl(allocator, MAX_BUFFER_BYTES);
+  }
+
+  @Test
+  public void testTargetBufferSize_followsSelectedBitrate() {
+    selectTracks(loadControl, VIDEO_1080P, AUDIO);
+    int target1080p = loadControl.getTargetBufferSize();
+    selectTracks(loadControl, VIDEO_4K, AUDIO);
+    int target4k = loadControl.getTargetBufferSize();
+
+    assertThat(target1080p).isLessThan(target4k);
+    assertThat(target4k).isEqualTo(MAX_BUFFER_BYTES);
+  }
+
+  @Test
+  public void testShouldContinueLoading_untilTargetBufferSizeReached() {
+    selectTracks(loadControl, VIDEO_4K, AUDIO);
+    fillAllocator(loadControl.getTargetBufferSize());
+
+    long rebufferUs = C.msToUs(BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS);
+    assertThat(loadControl.shouldContinueLoading(C.msToUs(MIN_BUFFER_MS) - 1, SPEED)).isFalse();
+    // Never starve the playback
+    assertThat(loadControl.shouldContinueLoading(rebufferUs - 1, SPEED)).isTrue();
+  }
+
+  @Test
+  public void testLiveBuffer_isShort() {
+    selectTracks(loadControl, VIDEO_1080P, AUDIO);
+    long liveMaxBufferUs = C.msToUs(AdaptiveLoadControl.LIVE_MAX_BUFFER_MS);
+    assertThat(loadControl.shouldContinueLoading(/* bufferedDurationUs= */ 0, SPEED)).isTrue();
+
+    assertThat(loadControl.shouldContinueLoading(liveMaxBufferUs, SPEED)).isTrue();
+    loadControl.setLive(true);
+    assertThat(loadControl.shouldContinueLoading(liveMaxBufferUs, SPEED)).isFalse();
+  }
+
+  @Test
+  public void testAudioOnlyBuffer_isLong() {
+    selectTracks(loadControl, AUDIO);
+    long bufferedUs = C.msToUs(MAX_BUFFER_MS);
+    assertThat(loadControl.shouldContinueLoading(/* bufferedDurationUs= */ 0, SPEED)).isTrue();
+
+    assertThat(loadControl.shouldContinueLoading(bufferedUs, SPEED)).isTrue();
+    assertThat(
+            loadControl.shouldContinueLoading(
+                C.msToUs(AdaptiveLoadControl.AUDIO_ONLY_MAX_BUFFER_MS), SPEED))
+        .isFalse();
+    assertThat(loadControl.getTargetBufferSize()).isLessThan(MAX_BUFFER_BYTES / 4);
+  }
+
+  @Test
+  public void testTrimMemory_shrinksBufferAndRelaxes() {
+    selectTracks(loadControl, VIDEO_4K, AUDIO);
+
+    loadControl.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+    loadControl.shouldContinueLoading(/* bufferedDurationUs= */ 0, SPEED);
+    assertThat(loadControl.getTargetBufferSize()).isEqualTo(MAX_BUFFER_BYTES / 4);
+
+    clock.advanceTime(60_000);
+    loadControl.shouldContinueLoading(/* bufferedDurationUs= */ 0, SPEED);
+    assertThat(loadControl.getTargetBufferSize()).isEqualTo(MAX_BUFFER_BYTES / 2);
+
+    clock.advanceTime(60_000);
+    loadControl.shouldContinueLoading(/* bufferedDurationUs= */ 0, SPEED);
+    assertThat(loadControl.getTargetBufferSize()).isEqualTo(MAX_BUFFER_BYTES);
+  }
+
+  @Test
+  public void testTrimMemory_ignoresUiHidden() {
+    selectTracks(loadControl, VIDEO_4K, AUDIO);
+
+    loadControl.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+    loadControl.shouldContinueLoading(/* bufferedDurationUs= */ 0, SPEED);
+    assertThat(loadControl.getTargetBufferSize()).isEqualTo(MAX_BUFFER_BYTES);
+  }
+
+  /**
+   * Replays the throughput traces against the former fixed preset (50-100 s, ram / 18 bytes) and
+   * the adaptive control with the same memory limit. Reports the rebuffer count and the peak
+   * buffer memory.
+   */
+  @Test
+  public void simulateBitrateTraces() {
+    int[][] traces = {
+      // Stable link, enough for 4K
+      repeat(40_000_000, 600),
+      // Periodic outages of 20 seconds
+      outages(40_000_000, 600, /* periodSec= */ 120, /* outageSec= */ 20),
+      // Barely enough link with a long outage
+      concat(repeat(30_000_000, 300), repeat(0, 45), repeat(30_000_000, 255)),
+    };
+    Format[][] tracks = {{VIDEO_4K, AUDIO}, {VIDEO_1080P, AUDIO}, {AUDIO}};
+
+    for (int[] trace : traces) {
+      for (Format[] formats : tracks) {
+        DefaultAllocator fixedAllocator = new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+        LoadControl fixed =
+            new DefaultLoadControl.Builder()
+                .setAllocator(fixedAllocator)
+                .setBufferDurationsMs(
+                    50_000, 100_000, BUFFER_FOR_PLAYBACK_MS, BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS)
+                .setTargetBufferBytes(LOW_RAM_BUFFER_BYTES)
+                .createDefaultLoadControl();
+        DefaultAllocator adaptiveAllocator =
+            new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+        AdaptiveLoadControl adaptive =
+            new AdaptiveLoadControl(
+                adaptiveAllocator,
+                /* minBufferMs= */ 50_000,
+                /* maxBufferMs= */ 100_000,
+                BUFFER_FOR_PLAYBACK_MS,
+                BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS,
+                /* backBufferDurationMs= */ 0,
+                LOW_RAM_BUFFER_BYTES,
+                clock);
+
+        SimulationResult fixedResult = simulate(fixed, fixedAllocator, trace, formats);
+        SimulationResult adaptiveResult = simulate(adaptive, adaptiveAllocator, trace, formats);
+
+        Log.d(
+            TAG,
+            String.format(
+                "%s kbps: fixed %s rebuffers, %s KB peak; adaptive %s rebuffers, %s KB peak",
+                getBitrate(formats) / 1000,
+                fixedResult.rebufferCount,
+                fixedResult.peakBytes / 1024,
+                adaptiveResult.rebufferCount,
+                adaptiveResult.peakBytes / 1024));
+
+        // The loads of a single step may overshoot the target
+        assertThat(adaptiveResult.peakBytes).isAtMost(LOW_RAM_BUFFER_BYTES + 1024 * 1024);
+        if (formats.length == 1) {
+          // Audio only buffers far ahead and survives the outages
+          assertThat(adaptiveResult.rebufferCount).isEqualTo(0);
+        }
+      }
+    }
+  }
+
+  private AdaptiveLoadControl createAdaptiveLoadControl(
+      DefaultAllocator allocator, int maxBufferBytes) {
+    return new AdaptiveLoadControl(
+        allocator,
+        MIN_BUFFER_MS,
+        MAX_BUFFER_MS,
+        BUFFER_FOR_PLAYBACK_MS,
+        BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS,
+        /* backBufferDurationMs= */ 0,
+        maxBufferBytes,
+        clock);
+  }
+
+  private void fillAllocator(int bytes) {
+    for (int i = 0; i < bytes / C.DEFAULT_BUFFER_SEGMENT_SIZE; i++) {
+      allocator.allocate();
+    }
+  }
+
+  /**
+   * Plays the media of the given formats in 100 ms steps. Every second of the trace is the link
+   * throughput in bits per second.
+   */
+  private static SimulationResult simulate(
+      LoadControl loadControl, DefaultAllocator allocator, int[] trace, Format... formats) {
+    selectTracks(loadControl, formats);
+    int stepMs = 100;
+    long bitrate = getBitrate(formats);
+    int allocationLength = allocator.getIndividualAllocationLength();
+    ArrayDeque<Allocation> allocations = new ArrayDeque<>();
+    SimulationResult result = new SimulationResult();
+    long bufferedBytes = 0;
+    boolean isPlaying = false;
+    boolean hasStarted = false;
+
+    for (int timeMs = 0; timeMs < trace.length * 1000; timeMs += stepMs) {
+      long bufferedUs = bufferedBytes * 8 * C.MICROS_PER_SECOND / bitrate;
+
+      if (loadControl.shouldContinueLoading(bufferedUs, SPEED)) {
+        long loadedBytes = (long) trace[timeMs / 1000] / 8 * stepMs / 1000;
+        bufferedBytes += loadedBytes;
+        while (allocations.size() * (long) allocationLength < bufferedBytes) {
+          allocations.add(allocator.allocate());
+        }
+      }
+
+      bufferedUs = bufferedBytes * 8 * C.MICROS_PER_SECOND / bitrate;
+
+      if (!isPlaying && loadControl.shouldStartPlayback(bufferedUs, SPEED, hasStarted)) {
+        isPlaying = true;
+        hasStarted = true;
+      }
+
+      if (isPlaying) {
+        long playedBytes = Math.min(bufferedBytes, bitrate / 8 * stepMs / 1000);
+        bufferedBytes -= playedBytes;
+        while (!allocations.isEmpty()
+            && (allocations.size() - 1) * (long) allocationLength >= bufferedBytes) {
+          allocator.release(allocations.poll());
+        }
+        if (bufferedBytes == 0) {
+          isPlaying = false;
+          result.rebufferCount++;
+        }
+      }
+
+      result.peakBytes = Math.max(result.peakBytes, allocator.getTotalBytesAllocated());
+    }
+
+    loadControl.onReleased();
+    return result;
+  }
+
+  private static void selectTracks(LoadControl loadControl, Format... formats) {
+    Renderer[] renderers = new Renderer[formats.length];
+    TrackSelection[] trackSelections = new TrackSelection[formats.length];
+    for (int i = 0; i < formats.length; i++) {
+      renderers[i] = new FakeRenderer(formats[i]);
+      trackSelections[i] = new FixedTrackSelection(new TrackGroup(formats[i]), /* track= */ 0);
+    }
+    loadControl.onTracksSelected(
+        renderers, TrackGroupArray.EMPTY, new TrackSelectionArray(trackSelections));
+  }
+
+  private static long getBitrate(Format... formats) {
+    long result = 0;
+    for (Format format : formats) {
+      result += format.bitrate;
+    }
+    return result;
+  }
+
+  private static int[] repeat(int throughput, int seconds) {
+    int[] result = new int[seconds];
+    Arrays.fill(result, throughput);
+    return result;
+  }
+
+  private static int[] outages(int throughput, int seconds, int periodSec, int outageSec) {
+    int[] result = repeat(throughput, seconds);
+    for (int i = periodSec; i < seconds; i += periodSec) {
+      Arrays.fill(result, i, Math.min(seconds, i + outageSec), 0);
+    }
+    return result;
+  }
+
+  private static int[] concat(int[]... traces) {
+    int length = 0;
+    for (int[] trace : traces) {
+      length += trace.length;
+    }
+    int[] result = new int[length];
+    int position = 0;
+    for (int[] trace : traces) {
+      System.arraycopy(trace, 0, result, position, trace.length);
+      position += trace.length;
+    }
+    return result;
+  }
+
+  private static Format createVideoFormat(int bitrate, int height) {
+    return Format.createVideoSampleFormat(
+        /* id= */ null,
+        MimeTypes.VIDEO_H264,
+        /* codecs= */ null,
+        bitrate,
+        /* maxInputSize= */ Format.NO_VALUE,
+        /* width= */ height * 16 / 9,
+        height,
+        /* frameRate= */ Format.NO_VALUE,
+        /* initializationData= */ null,
+        /* drmInitData= */ null);
+  }
+
+  private static final class SimulationResult {
+    public int rebufferCount;
+    public long peakBytes;
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.audio;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.util.Log;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLog;
+
+/** Unit tests for {@link LoudnessAudioProcessor}. */
+@RunWith(AndroidJUnit4.class)
+public final class LoudnessAudioProcessorTest {
+
+  private static final String TAG = "LoudnessAudioProcessorTest";
+  private static final int SAMPLE_RATE_HZ = 48_000;
+  private static final int FRAMES_PER_BUFFER = 1024;
+  private static final float SINE_FREQUENCY_HZ = 440f;
+
+  private LoudnessAudioProcessor loudnessAudioProcessor;
+
+  @Before
+  public void setUp() {
+    ShadowLog.stream = System.out;
+    loudnessAudioProcessor = new LoudnessAudioProcessor();
+  }
+
+  @Test
+  public void testDefaultProcessor_isNotActive() throws Exception {
+    loudnessAudioProcessor.configure(SAMPLE_RATE_HZ, 2, C.ENCODING_PCM_16BIT);
+
+    assertThat(loudnessAudioProcessor.isActive()).isFalse();
+  }
+
+  @Test
+  public void testEnabledProcessor_acceptsSurroundAndFloat() throws Exception {
+    loudnessAudioProcessor.setEnabled(true);
+
+    boolean reconfigured =
+        loudnessAudioProcessor.configure(SAMPLE_RATE_HZ, 6, C.ENCODING_PCM_FLOAT);
+    loudnessAudioProcessor.flush();
+
+    assertThat(reconfigured).isTrue();
+    assertThat(loudnessAudioProcessor.isActive()).isTrue();
+  }
+
+  @Test
+  public void testUnityGain_keepsSignalAndFrameCount() throws Exception {
+    float[] input = buildSine(2, SAMPLE_RATE_HZ, 0.5f);
+
+    float[] output = process(loudnessAudioProcessor, input, 2, C.ENCODING_PCM_16BIT);
+
+    assertThat(output).hasLength(input.length);
+    assertThat(maxAbs(output)).isWithin(0.001f).of(maxAbs(input));
+    assertThat(output[output.length - 1]).isWithin(0.001f).of(input[input.length - 1]);
+  }
+
+  @Test
+  public void testGain_boostsSurroundAudio() throws Exception {
+    loudnessAudioProcessor.setGain(2f);
+    float[] input = buildSine(6, SAMPLE_RATE_HZ, 0.2f);
+
+    float[] output = process(loudnessAudioProcessor, input, 6, C.ENCODING_PCM_FLOAT);
+
+    assertThat(output).hasLength(input.length);
+    assertThat(maxAbs(output)).isWithin(0.001f).of(0.4f);
+  }
+
+  @Test
+  public void testLimiter_preventsClipping() throws Exception {
+    loudnessAudioProcessor.setGain(4f);
+    float[] input = buildSine(2, SAMPLE_RATE_HZ, 0.8f);
+    // A sudden peak after a quiet part.
+    for (int i = 0; i < input.length / 2; i++) {
+      input[i] *= 0.05f;
+    }
+
+    for (int encoding : new int[] {C.ENCODING_PCM_16BIT, C.ENCODING_PCM_FLOAT}) {
+      float[] output = process(loudnessAudioProcessor, input, 2, encoding);
+
+      assertThat(maxAbs(output)).isAtMost(0.98f);
+      // The quiet part is boosted without limiting.
+      int quietPeakIndex = (SAMPLE_RATE_HZ / 4 + 27) * 2;
+      assertThat(output[quietPeakIndex]).isWithin(0.01f).of(4 * input[quietPeakIndex]);
+    }
+  }
+
+  @Test
+  public void testNormalization_raisesQuietAudio() throws Exception {
+    loudnessAudioProcessor.setNormalizationEnabled(true);
+    float[] input = buildSine(2, SAMPLE_RATE_HZ * 5, 0.05f);
+
+    process(loudnessAudioProcessor, input, 2, C.ENCODING_PCM_16BIT);
+
+    // Sine RMS is 0.035, the target is 0.1.
+    assertThat(loudnessAudioProcessor.getNormalizationGain()).isWithin(0.1f).of(2.83f);
+  }
+
+  @Test
+  public void testNormalization_ignoresSilence() throws Exception {
+    loudnessAudioProcessor.setNormalizationEnabled(true);
+    float[] input = buildSine(2, SAMPLE_RATE_HZ * 5, 0.2f);
+    for (int i = input.length / 5; i < input.length; i++) {
+      input[i] = 0f;
+    }
+
+    process(loudnessAudioProcessor, input, 2, C.ENCODING_PCM_16BIT);
+
+    // Loud audio followed by four seconds of silence: the gain isn't raised.
+    assertThat(loudnessAudioProcessor.getNormalizationGain()).isWithin(0.01f).of(1f);
+  }
+
+  /**
+   * Processing cost per second of audio. Devices run the same loop, slower by the CPU speed ratio.
+   */
+  @Test
+  public void benchmarkProcessingCost() throws Exception {
+    int seconds = 30;
+    for (int channelCount : new int[] {2, 6}) {
+      for (int encoding : new int[] {C.ENCODING_PCM_16BIT, C.ENCODING_PCM_FLOAT}) {
+        float[] input = buildSine(channelCount, SAMPLE_RATE_HZ * seconds, 0.5f);
+        ByteBuffer[] buffers = toBuffers(input, channelCount, encoding);
+        LoudnessAudioProcessor processor = new LoudnessAudioProcessor();
+        processor.setGain(2f);
+        processor.setNormalizationEnabled(true);
+        processor.setEnabled(true);
+        processor.configure(SAMPLE_RATE_HZ, channelCount, encoding);
+        processor.flush();
+
+        // Warm up, then measure.
+        processBuffers(processor, buffers);
+        long startTimeNs = System.nanoTime();
+        long outputBytes = processBuffers(processor, buffers);
+        double costMs = (System.nanoTime() - startTimeNs) / 1_000_000d / seconds;
+
+        Log.d(
+            TAG,
+            String.format(
+                "%s channels, %s: %.3f ms per second of audio",
+                channelCount, encoding == C.ENCODING_PCM_FLOAT ? "float" : "16-bit", costMs));
+
+        assertThat(outputBytes).isGreaterThan(0L);
+      }
+    }
+  }
+
+  private static float[] process(
+      LoudnessAudioProcessor processor, float[] input, int channelCount, int encoding)
+      throws AudioProcessor.UnhandledFormatException {
+    processor.setEnabled(true);
+    processor.configure(SAMPLE_RATE_HZ, channelCount, encoding);
+    processor.flush();
+
+    int bytesPerSample = encoding == C.ENCODING_PCM_FLOAT ? 4 : 2;
+    ByteBuffer output =
+        ByteBuffer.allocate(input.length * bytesPerSample).order(ByteOrder.nativeOrder());
+    for (ByteBuffer buffer : toBuffers(input, channelCount, encoding)) {
+      processor.queueInput(buffer);
+      output.put(processor.getOutput());
+    }
+    processor.queueEndOfStream();
+    processor.queueInput(AudioProcessor.EMPTY_BUFFER);
+    output.put(processor.getOutput());
+    assertThat(processor.isEnded()).isTrue();
+
+    output.flip();
+    float[] result = new float[output.remaining() / bytesPerSample];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = encoding == C.ENCODING_PCM_FLOAT ? output.getFloat() : output.getShort() / 32768f;
+    }
+    return result;
+  }
+
+  private static long processBuffers(LoudnessAudioProcessor processor, ByteBuffer[] buffers) {
+    long outputBytes = 0;
+    for (ByteBuffer buffer : buffers) {
+      buffer.rewind();
+      processor.queueInput(buffer);
+      outputBytes += processor.getOutput().remaining();
+    }
+    return outputBytes;
+  }
+
+  private static ByteBuffer[] toBuffers(float[] samples, int channelCount, int encoding) {
+    int samplesPerBuffer = FRAMES_PER_BUFFER * channelCount;
+    int bytesPerSample = encoding == C.ENCODING_PCM_FLOAT ? 4 : 2;
+    int bufferCount = (samples.length + samplesPerBuffer - 1) / samplesPerBuffer;
+    ByteBuffer[] buffers = new ByteBuffer[bufferCount];
+    for (int i = 0; i < buffers.length; i++) {
+      int start = i * samplesPerBuffer;
+      int end = Math.min(start + samplesPerBuffer, samples.length);
+      ByteBuffer buffer =
+          ByteBuffer.allocateDirect((end - start) * bytesPerSample).order(ByteOrder.nativeOrder());
+      for (int j = start; j < end; j++) {
+        if (encoding == C.ENCODING_PCM_FLOAT) {
+          buffer.putFloat(samples[j]);
+        } else {
+          buffer.putShort((short) (samples[j] * Short.MAX_VALUE));
+        }
+      }
+      buffer.flip();
+      buffers[i] = buffer;
+    }
+    return buffers;
+  }
+
+  private static float[] buildSine(int channelCount, int frameCount, float amplitude) {
+    float[] samples = new float[frameCount * channelCount];
+    for (int frame = 0; frame < frameCount; frame++) {
+      float value =
+          amplitude * (float) Math.sin(2 * Math.PI * SINE_FREQUENCY_HZ * frame / SAMPLE_RATE_HZ);
+      for (int channel = 0; channel < channelCount; channel++) {
+        samples[frame * channelCount + channel] = value;
+      }
+    }
+    return samples;
+  }
+
+  private static float maxAbs(float[] samples) {
+    float result = 0f;
+    for (float sample : samples) {
+      result = Math.max(result, Math.abs(sample));
+    }
+    return result;
+  }
+}
@@ -1000,7 +1000,9 @@ public class DashManifestParser extends DefaultHandler
 
   protected List<SegmentTimelineElement> parseSegmentTimeline(XmlPullParser xpp)
       throws XmlPullParserException, IOException {
-    List<SegmentTimelineElement> segmentTimeline = new ArrayList<>();
+    // Repeated segments aren't expanded. Live streams have thousands of them. The elements are
+    // created on access through buildSegmentTimelineElement.
+    SegmentTimelineList segmentTimeline = new SegmentTimelineList(this::buildSegmentTimelineElement);
     long elapsedTime = 0;
     do {
       xpp.next();
@@ -1008,10 +1010,8 @@ public class DashManifestParser extends DefaultHandler
         elapsedTime = parseLong(xpp, "t", elapsedTime);
         long duration = parseLong(xpp, "d", C.TIME_UNSET);
         int count = 1 + parseInt(xpp, "r", 0);
-        for (int i = 0; i < count; i++) {
-          segmentTimeline.add(buildSegmentTimelineElement(elapsedTime, duration));
-          elapsedTime += duration;
-        }
+        segmentTimeline.append(elapsedTime, duration, count);
+        elapsedTime += duration * count;
       } else {
         maybeSkipTag(xpp);
       }
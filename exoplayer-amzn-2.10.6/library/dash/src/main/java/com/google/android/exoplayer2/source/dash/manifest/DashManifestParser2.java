@@ -1,5 +1,6 @@
 package com.google.android.exoplayer2.source.dash.manifest;
 
+import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Pair;
 
@@ -45,6 +46,7 @@ public class DashManifestParser2 {
     private List<MediaSubtitle> mSubs;
 
     public DashManifest parse(@NonNull MediaItemFormatInfo formatInfo) {
+        long startTimeMs = System.currentTimeMillis();
         mFormatInfo = formatInfo;
         MediaFormatComparator comp = new MediaFormatComparator();
         mMP4Videos = new TreeSet<>(comp);
@@ -52,7 +54,9 @@ public class DashManifestParser2 {
         mMP4Audios = new HashMap<>();
         mWEBMAudios = new HashMap<>();
         mSubs = new ArrayList<>();
-        return parseDashManifest(formatInfo);
+        DashManifest manifest = parseDashManifest(formatInfo);
+        Log.d(TAG, "Manifest built in %s ms", System.currentTimeMillis() - startTimeMs);
+        return manifest;
     }
 
     private DashManifest parseDashManifest(MediaItemFormatInfo formatInfo) {
@@ -277,7 +281,7 @@ public class DashManifestParser2 {
     }
 
     private List<SegmentTimelineElement> parseSegmentTimeline(MediaFormat format) {
-        List<SegmentTimelineElement> timeline = new ArrayList<>();
+        SegmentTimelineList timeline = new SegmentTimelineList();
 
         if (format.getGlobalSegmentList() == null) {
             return timeline;
@@ -289,25 +293,22 @@ public class DashManifestParser2 {
         // SegmentURL tag
         for (String segment : format.getGlobalSegmentList()) {
             long duration = Helpers.parseLong(segment, C.TIME_UNSET);
-            int count = 1;
-            for (int i = 0; i < count; i++) {
-                timeline.add(new SegmentTimelineElement(elapsedTime, duration));
-                elapsedTime += duration;
-            }
+            // Equal durations are merged into one run
+            timeline.append(elapsedTime, duration, 1);
+            elapsedTime += duration;
         }
 
         return timeline;
     }
 
+    /**
+     * Uniform timeline. Constant size, the segment times are calculated.
+     */
     private List<SegmentTimelineElement> parseSegmentTimeline(long elapsedTime, long duration, int segmentCount) {
-        List<SegmentTimelineElement> timeline = new ArrayList<>();
+        SegmentTimelineList timeline = new SegmentTimelineList();
 
         // From writeLiveMediaSegmentList
-        int count = 1 + segmentCount;
-        for (int i = 0; i < count; i++) {
-            timeline.add(new SegmentTimelineElement(elapsedTime, duration));
-            elapsedTime += duration;
-        }
+        timeline.append(elapsedTime, duration, 1 + segmentCount);
 
         return timeline;
     }
@@ -471,7 +472,27 @@ public class DashManifestParser2 {
                 format,
                 representationInfo.baseUrl,
                 representationInfo.segmentBase,
-                new ArrayList<>());
+                new ArrayList<>(),
+                buildCacheKey(format, representationInfo.baseUrl));
+    }
+
+    /**
+     * Key that survives the url signature changes (used by the disk cache).<br/>
+     * Only for the single segment (non live) audio and video formats.
+     */
+    private String buildCacheKey(Format format, String baseUrl) {
+        int contentType = getContentType(format);
+
+        if (mFormatInfo == null || mFormatInfo.isLive() || mFormatInfo.getVideoId() == null || format.id == null
+                || (contentType != C.TRACK_TYPE_VIDEO && contentType != C.TRACK_TYPE_AUDIO)) {
+            return null;
+        }
+
+        // Last modified time. Changes when the video is re-encoded.
+        String lmt = baseUrl != null ? Uri.parse(baseUrl).getQueryParameter("lmt") : null;
+
+        // Multi-language videos have the same itag for each audio track
+        return String.format("%s.%s.%s.%s", mFormatInfo.getVideoId(), format.id, format.language, lmt);
     }
 
     protected Format buildFormat(
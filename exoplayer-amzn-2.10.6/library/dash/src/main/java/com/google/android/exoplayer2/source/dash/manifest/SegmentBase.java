@@ -167,7 +167,7 @@ public abstract class SegmentBase {
     /** @see DashSegmentIndex#getDurationUs(long, long) */
     public final long getSegmentDurationUs(long sequenceNumber, long periodDurationUs) {
       if (segmentTimeline != null) {
-        long duration = segmentTimeline.get((int) (sequenceNumber - startNumber)).duration;
+        long duration = getTimelineDuration((int) (sequenceNumber - startNumber));
         return (duration * C.MICROS_PER_SECOND) / timescale;
       } else {
         int segmentCount = getSegmentCount(periodDurationUs);
@@ -183,8 +183,7 @@ public abstract class SegmentBase {
       long unscaledSegmentTime;
       if (segmentTimeline != null) {
         unscaledSegmentTime =
-            segmentTimeline.get((int) (sequenceNumber - startNumber)).startTime
-                - presentationTimeOffset;
+            getTimelineStartTime((int) (sequenceNumber - startNumber)) - presentationTimeOffset;
       } else {
         unscaledSegmentTime = (sequenceNumber - startNumber) * duration;
       }
@@ -216,6 +215,18 @@ public abstract class SegmentBase {
       return segmentTimeline != null;
     }
 
+    /* package */ final long getTimelineStartTime(int index) {
+      return segmentTimeline instanceof SegmentTimelineList
+          ? ((SegmentTimelineList) segmentTimeline).getStartTime(index)
+          : segmentTimeline.get(index).startTime;
+    }
+
+    /* package */ final long getTimelineDuration(int index) {
+      return segmentTimeline instanceof SegmentTimelineList
+          ? ((SegmentTimelineList) segmentTimeline).getDuration(index)
+          : segmentTimeline.get(index).duration;
+    }
+
   }
 
   /**
@@ -338,7 +349,7 @@ public abstract class SegmentBase {
     public RangedUri getSegmentUrl(Representation representation, long sequenceNumber) {
       long time;
       if (segmentTimeline != null) {
-        time = segmentTimeline.get((int) (sequenceNumber - startNumber)).startTime;
+        time = getTimelineStartTime((int) (sequenceNumber - startNumber));
       } else {
         time = (sequenceNumber - startNumber) * duration;
       }
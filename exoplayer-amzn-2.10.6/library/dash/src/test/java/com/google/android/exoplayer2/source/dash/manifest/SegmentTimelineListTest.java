@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.dash.manifest;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentList;
+import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentTimelineElement;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.Util;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLog;
+
+/** Unit test for {@link SegmentTimelineList}. */
+@RunWith(AndroidJUnit4.class)
+public class SegmentTimelineListTest {
+
+  private static final String TAG = "SegmentTimelineListTest";
+  private static final long SEGMENT_DURATION_MS = 5_000;
+  private static final int HOUR_SEGMENTS = (int) (60 * 60 * 1_000 / SEGMENT_DURATION_MS);
+
+  @Before
+  public void setUp() {
+    ShadowLog.stream = System.out;
+  }
+
+  @Test
+  public void testAppendMergesContinuousRuns() {
+    SegmentTimelineList timeline = new SegmentTimelineList();
+    timeline.append(0, 5_000, 3);
+    timeline.append(15_000, 5_000, 2);
+    timeline.add(new SegmentTimelineElement(25_000, 5_000));
+
+    assertThat(timeline.size()).isEqualTo(6);
+    assertThat(timeline.getRunCount()).isEqualTo(1);
+    assertThat(timeline.getStartTime(5)).isEqualTo(25_000);
+  }
+
+  @Test
+  public void testAppendKeepsGapsAndDurationChanges() {
+    SegmentTimelineList timeline = new SegmentTimelineList();
+    timeline.append(0, 5_000, 2);
+    timeline.append(10_000, 2_000, 3); // duration change
+    timeline.append(20_000, 2_000, 1); // gap
+
+    assertThat(timeline.size()).isEqualTo(6);
+    assertThat(timeline.getRunCount()).isEqualTo(3);
+    assertThat(timeline.getStartTime(1)).isEqualTo(5_000);
+    assertThat(timeline.getStartTime(2)).isEqualTo(10_000);
+    assertThat(timeline.getStartTime(4)).isEqualTo(14_000);
+    assertThat(timeline.getDuration(4)).isEqualTo(2_000);
+    assertThat(timeline.getStartTime(5)).isEqualTo(20_000);
+    assertThat(timeline.get(1).duration).isEqualTo(5_000);
+  }
+
+  @Test
+  public void testTail() {
+    SegmentTimelineList timeline = new SegmentTimelineList();
+    timeline.append(0, 5_000, 4);
+    timeline.append(30_000, 2_000, 4);
+
+    SegmentTimelineList tail = timeline.tail(3);
+
+    assertThat(tail.size()).isEqualTo(5);
+    assertThat(tail.getRunCount()).isEqualTo(2);
+    assertThat(tail.getStartTime(0)).isEqualTo(15_000);
+    assertThat(tail.getStartTime(1)).isEqualTo(30_000);
+    assertThat(timeline.tail(8)).isEmpty();
+  }
+
+  @Test
+  public void testParseRepeatedSegments() throws IOException {
+    SegmentList segmentList = parseLiveSegmentList(HOUR_SEGMENTS);
+
+    assertThat(segmentList.segmentTimeline).isInstanceOf(SegmentTimelineList.class);
+    assertThat(segmentList.segmentTimeline).hasSize(HOUR_SEGMENTS);
+    assertThat(((SegmentTimelineList) segmentList.segmentTimeline).getRunCount()).isEqualTo(1);
+    assertThat(segmentList.getSegmentTimeUs(HOUR_SEGMENTS - 1))
+        .isEqualTo((HOUR_SEGMENTS - 1) * SEGMENT_DURATION_MS * 1_000);
+    assertThat(segmentList.getSegmentNum(SEGMENT_DURATION_MS * 1_000 * 10, 0)).isEqualTo(10);
+  }
+
+  @Test
+  public void testParseCreatesElementsThroughHook() throws IOException {
+    byte[] manifest = Util.getUtf8Bytes(buildLiveManifest(3));
+    List<SegmentList> result = new ArrayList<>();
+    DashManifestParser parser =
+        new DashManifestParser() {
+          @Override
+          protected SegmentTimelineElement buildSegmentTimelineElement(
+              long elapsedTime, long duration) {
+            return new CustomTimelineElement(elapsedTime, duration);
+          }
+
+          @Override
+          protected SegmentList buildSegmentList(
+              RangedUri initialization,
+              long timescale,
+              long presentationTimeOffset,
+              long startNumber,
+              long duration,
+              List<SegmentTimelineElement> timeline,
+              List<RangedUri> segments) {
+            SegmentList segmentList =
+                super.buildSegmentList(
+                    initialization,
+                    timescale,
+                    presentationTimeOffset,
+                    startNumber,
+                    duration,
+                    timeline,
+                    segments);
+            result.add(segmentList);
+            return segmentList;
+          }
+        };
+    parser.parse(Uri.parse("https://example.com/test.mpd"), new ByteArrayInputStream(manifest));
+
+    SegmentTimelineList timeline = (SegmentTimelineList) result.get(0).segmentTimeline;
+    assertThat(timeline.get(2)).isInstanceOf(CustomTimelineElement.class);
+    assertThat(timeline.get(2).startTime).isEqualTo(2 * SEGMENT_DURATION_MS);
+    assertThat(timeline.tail(1).get(0)).isInstanceOf(CustomTimelineElement.class);
+  }
+
+  /**
+   * Parse time and the timeline size of the live streams. The expanded timeline is an estimate of
+   * the list of {@link SegmentTimelineElement} (object header, two longs and the reference).
+   */
+  @Test
+  public void benchmarkLiveStreamParse() throws IOException {
+    for (int hours : new int[] {1, 6, 12}) {
+      int segmentCount = hours * HOUR_SEGMENTS;
+      byte[] manifest = Util.getUtf8Bytes(buildLiveManifest(segmentCount));
+
+      long startTimeNs = System.nanoTime();
+      SegmentList segmentList = parseSegmentList(manifest);
+      long parseTimeMs = (System.nanoTime() - startTimeNs) / 1_000_000;
+
+      SegmentTimelineList timeline = (SegmentTimelineList) segmentList.segmentTimeline;
+      long compactBytes = timeline.getRunCount() * (8 + 8 + 4);
+      long expandedBytes = (long) segmentCount * (16 + 8 + 8 + 4);
+
+      Log.d(
+          TAG,
+          String.format(
+              "%sh stream: %s segments, parse %s ms, timeline %s bytes (expanded ~%s bytes)",
+              hours, segmentCount, parseTimeMs, compactBytes, expandedBytes));
+
+      assertThat(timeline).hasSize(segmentCount);
+      assertThat(timeline.getRunCount()).isEqualTo(1);
+    }
+  }
+
+  private static final class CustomTimelineElement extends SegmentTimelineElement {
+
+    public CustomTimelineElement(long startTime, long duration) {
+      super(startTime, duration);
+    }
+  }
+
+  private static SegmentList parseLiveSegmentList(int segmentCount) throws IOException {
+    return parseSegmentList(Util.getUtf8Bytes(buildLiveManifest(segmentCount)));
+  }
+
+  private static SegmentList parseSegmentList(byte[] manifest) throws IOException {
+    List<SegmentList> result = new ArrayList<>();
+    DashManifestParser parser =
+        new DashManifestParser() {
+          @Override
+          protected SegmentList buildSegmentList(
+              RangedUri initialization,
+              long timescale,
+              long presentationTimeOffset,
+              long startNumber,
+              long duration,
+              List<SegmentTimelineElement> timeline,
+              List<RangedUri> segments) {
+            SegmentList segmentList =
+                super.buildSegmentList(
+                    initialization,
+                    timescale,
+                    presentationTimeOffset,
+                    startNumber,
+                    duration,
+                    timeline,
+                    segments);
+            result.add(segmentList);
+            return segmentList;
+          }
+        };
+    parser.parse(Uri.parse("https://example.com/test.mpd"), new ByteArrayInputStream(manifest));
+    return result.get(0);
+  }
+
+  private static String buildLiveManifest(int segmentCount) {
+    StringBuilder builder = new StringBuilder();
+    builder
+        .append("<MPD type=\"dynamic\" minimumUpdatePeriod=\"PT5S\">")
+        .append("<Period><AdaptationSet mimeType=\"video/mp4\">")
+        .append("<Representation id=\"1\" codecs=\"avc1.4d401f\" bandwidth=\"1000000\">")
+        .append("<BaseURL>https://example.com/</BaseURL>")
+        .append("<SegmentList timescale=\"1000\" startNumber=\"0\">")
+        .append("<SegmentTimeline><S t=\"0\" d=\"")
+        .append(SEGMENT_DURATION_MS)
+        .append("\" r=\"")
+        .append(segmentCount - 1)
+        .append("\"/></SegmentTimeline>");
+    for (int i = 0; i < segmentCount; i++) {
+      builder.append("<SegmentURL media=\"sq/").append(i).append("\"/>");
+    }
+    builder.append("</SegmentList></Representation></AdaptationSet></Period></MPD>");
+    return builder.toString();
+  }
+}
@@ -27,13 +27,16 @@ import com.google.android.exoplayer2.source.sabr.manifest.Representation;
 import com.google.android.exoplayer2.source.sabr.manifest.SabrManifest;
 import com.google.android.exoplayer2.source.sabr.parser.adapter.SabrFragmentedMp4Adapter;
 import com.google.android.exoplayer2.source.sabr.parser.adapter.SabrMatroskaAdapter;
+import com.google.android.exoplayer2.source.sabr.parser.SabrSession;
 import com.google.android.exoplayer2.source.sabr.parser.SabrStream;
 import com.google.android.exoplayer2.source.sabr.parser.models.AudioSelector;
 import com.google.android.exoplayer2.source.sabr.parser.models.CaptionSelector;
 import com.google.android.exoplayer2.source.sabr.parser.models.FormatSelector;
 import com.google.android.exoplayer2.source.sabr.parser.models.VideoSelector;
 import com.google.android.exoplayer2.source.sabr.protos.misc.FormatId;
+import com.google.android.exoplayer2.source.sabr.protos.videostreaming.MediaHeader;
 import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.upstream.ByteArrayDataSource;
 import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DataSpec;
 import com.google.android.exoplayer2.upstream.HttpDataSource.InvalidResponseCodeException;
@@ -75,11 +78,13 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
                 boolean enableEventMessageTrack,
                 List<Format> closedCaptionFormats,
                 @Nullable PlayerTrackEmsgHandler playerEmsgHandler,
-                @Nullable TransferListener transferListener) {
+                @Nullable TransferListener transferListener,
+                @Nullable SabrSession sabrSession) {
             DataSource dataSource = dataSourceFactory.createDataSource();
             if (transferListener != null) {
                 dataSource.addTransferListener(transferListener);
             }
+            dataSource.addTransferListener(manifest.getCdnTransferListener());
             return new DefaultSabrChunkSource(
                     manifestLoaderErrorThrower,
                     manifest,
@@ -92,12 +97,14 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
                     maxSegmentsPerLoad,
                     enableEventMessageTrack,
                     closedCaptionFormats,
-                    playerEmsgHandler);
+                    playerEmsgHandler,
+                    sabrSession);
         }
 
     }
 
     private static final String TAG = DefaultSabrChunkSource.class.getSimpleName();
+    private static final Uri SESSION_URI = Uri.parse("sabr://session");
     private final LoaderErrorThrower manifestLoaderErrorThrower;
     private final int[] adaptationSetIndices;
     private final int trackType;
@@ -117,6 +124,7 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
     private long liveEdgeTimeUs;
 
     private final SabrStream sabrStream;
+    @Nullable private final SabrSession sabrSession;
     private final Map<String, String> sabrHeaders;
     private int nexChunkIdx = -1;
 
@@ -138,6 +146,8 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
      * @param closedCaptionFormats The {@link Format Formats} of closed caption tracks to be output.
      * @param playerTrackEmsgHandler The {@link PlayerTrackEmsgHandler} instance to handle emsg
      *     messages targeting the player. Maybe null if this is not necessary.
+     * @param sabrSession The {@link SabrSession} shared with the other tracks of the period. Maybe
+     *     null if this source should issue all requests by itself.
      */
     public DefaultSabrChunkSource(
             LoaderErrorThrower manifestLoaderErrorThrower,
@@ -151,7 +161,8 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
             int maxSegmentsPerLoad,
             boolean enableEventMessageTrack,
             List<Format> closedCaptionFormats,
-            @Nullable PlayerTrackEmsgHandler playerTrackEmsgHandler) {
+            @Nullable PlayerTrackEmsgHandler playerTrackEmsgHandler,
+            @Nullable SabrSession sabrSession) {
         this.manifestLoaderErrorThrower = manifestLoaderErrorThrower;
         this.manifest = manifest;
         this.adaptationSetIndices = adaptationSetIndices;
@@ -173,6 +184,11 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
         //this.sabrStream.setCaptionSelection(createCaptionSelection(trackType, trackSelection));
         this.sabrStream.setFormatSelector(formatSelector);
 
+        this.sabrSession = sabrSession;
+        if (sabrSession != null) {
+            sabrSession.register(trackType, sabrStream);
+        }
+
         sabrHeaders = new HashMap<>();
         sabrHeaders.put("Content-Type", "application/x-protobuf");
         //sabrHeaders.put("Accept-Encoding", "identity");
@@ -391,6 +407,28 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
         //    }
         //}
 
+        if (sabrSession != null
+                && !queue.isEmpty()
+                && sabrSession.isMultiplexed()
+                && trackType != sabrSession.getOwnerTrackType()) {
+            // The media of this track comes along with the responses of the owner track
+            Chunk capturedChunk = newCapturedMediaChunk(
+                    representationHolder,
+                    trackSelection.getSelectedFormat(),
+                    trackSelection.getSelectionReason(),
+                    trackSelection.getSelectionData());
+
+            if (capturedChunk != null) {
+                out.chunk = capturedChunk;
+                return;
+            }
+
+            if (sabrSession.isOwnerLoading()) {
+                // Wait for the shared response instead of issuing a separate request
+                return;
+            }
+        }
+
         long seekTimeUs = queue.isEmpty() ? loadPositionUs : C.TIME_UNSET;
         out.chunk =
                 newMediaChunk(
@@ -408,6 +446,8 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
 
     @Override
     public void onChunkLoadCompleted(Chunk chunk) {
+        maybeFinishOwnerLoad(chunk);
+        manifest.onCdnLoadCompleted(chunk.dataSpec);
         if (chunk instanceof InitializationChunk) {
             InitializationChunk initializationChunk = (InitializationChunk) chunk;
             int trackIndex = trackSelection.indexOf(initializationChunk.trackFormat);
@@ -434,6 +474,8 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
     @Override
     public boolean onChunkLoadError(Chunk chunk, boolean cancelable, Exception e, long blacklistDurationMs) {
         Log.e(TAG, "Chunk load failed: " + e.getMessage());
+        maybeFinishOwnerLoad(chunk);
+        manifest.onCdnLoadError(chunk.dataSpec);
         if (!cancelable) {
             return false;
         }
@@ -470,6 +512,12 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
                 && trackSelection.blacklist(trackSelection.indexOf(chunk.trackFormat), blacklistDurationMs);
     }
 
+    private void maybeFinishOwnerLoad(Chunk chunk) {
+        if (sabrSession != null && chunk instanceof MediaChunk && trackType == sabrSession.getOwnerTrackType()) {
+            sabrSession.onOwnerLoadFinished();
+        }
+    }
+
     private static boolean isEndpointConnectionFailure(Chunk chunk, Exception error) {
         return chunk.bytesLoaded() == 0
                 && error instanceof IOException
@@ -580,8 +628,16 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
         if (isSeek) {
             sabrStream.reset(iTag);
             nexChunkIdx = -1; // or whatever "post-init" value newMediaChunk expects
+
+            if (sabrSession != null) {
+                sabrSession.reset(trackType);
+            }
         }
 
+        boolean multiplexed = sabrSession != null
+                && sabrSession.isMultiplexed()
+                && trackType == sabrSession.getOwnerTrackType();
+
         // Old code
         //if (nexChunkIdx == -1) {
         //    sabrStream.reset(iTag);
@@ -612,7 +668,7 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
                 //segmentUri.resolveUri(baseUrl),
                 DataSpec.HTTP_METHOD_POST,
                 //sabrStream.createVideoPlaybackAbrRequest(trackType, false).toByteArray(),
-                manifest.createVideoPlaybackAbrRequest(trackType, false, seekTimeUs).toByteArray(),
+                manifest.createVideoPlaybackAbrRequest(trackType, false, seekTimeUs, multiplexed).toByteArray(),
                 0, 0, C.LENGTH_UNSET,
                 //segmentUri.start,
                 //segmentUri.start,
@@ -622,7 +678,12 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
                 sabrHeaders);
         long sampleOffsetUs = -representation.presentationTimeOffsetUs;
         Log.e(TAG, "Load media chunk: track=" + trackType + ", rn=" + manifest.getSabrRequestNumber()
-                + ", startTimeMs=" + startTimeMs + ", backoffTimeMs=" + sabrStream.getBackoffTimeMs());
+                + ", startTimeMs=" + startTimeMs + ", backoffTimeMs=" + sabrStream.getBackoffTimeMs()
+                + ", multiplexed=" + multiplexed);
+
+        if (multiplexed) {
+            sabrSession.onOwnerLoadStarted();
+        }
         return new ContainerMediaChunk(
                 dataSource,
                 dataSpec,
@@ -696,6 +757,47 @@ public class DefaultSabrChunkSource implements SabrChunkSource {
         //}
     }
 
+    /**
+     * Creates a chunk that replays the media captured from the owner track response.
+     * @return The chunk or null if nothing was captured for this track yet.
+     */
+    protected @Nullable Chunk newCapturedMediaChunk(
+            RepresentationHolder representationHolder,
+            Format trackFormat,
+            int trackSelectionReason,
+            Object trackSelectionData) {
+        FormatId formatId = formatSelector.getSelectedFormatId();
+        MediaHeader lastHeader = formatId != null ? sabrStream.getInitializedFormat(formatId.getItag()) : null;
+        long lastSequenceNumber = lastHeader != null && lastHeader.hasSequenceNumber() ? lastHeader.getSequenceNumber() : 0;
+
+        SabrSession.Capture capture = sabrSession.pollCapture(trackType, lastSequenceNumber);
+
+        if (capture == null) {
+            return null;
+        }
+
+        Representation representation = representationHolder.representation;
+        long startTimeUs = capture.startTimeMs >= 0 ? capture.startTimeMs * 1_000L : C.TIME_UNSET;
+        long endTimeUs = capture.startTimeMs >= 0 ? capture.endTimeMs * 1_000L : C.TIME_UNSET;
+        DataSpec dataSpec = new DataSpec(SESSION_URI, 0, capture.data.length, representation.getCacheKey());
+        Log.e(TAG, "Load captured chunk: track=" + trackType + ", startTimeMs=" + capture.startTimeMs
+                + ", lastSequenceNumber=" + capture.lastSequenceNumber + ", size=" + capture.data.length);
+        return new ContainerMediaChunk(
+                new ByteArrayDataSource(capture.data),
+                dataSpec,
+                trackFormat,
+                trackSelectionReason,
+                trackSelectionData,
+                startTimeUs,
+                endTimeUs,
+                C.TIME_UNSET,
+                C.TIME_UNSET,
+                C.INDEX_UNSET,
+                C.INDEX_UNSET,
+                -representation.presentationTimeOffsetUs,
+                representationHolder.extractorWrapper);
+    }
+
     private static AudioSelector createAudioSelection(int trackType, TrackSelection trackSelection) {
         if (trackType != C.TRACK_TYPE_AUDIO) {
             return null;
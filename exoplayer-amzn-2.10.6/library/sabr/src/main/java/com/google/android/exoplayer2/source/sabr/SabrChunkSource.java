@@ -23,6 +23,7 @@ import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.source.chunk.ChunkSource;
 import com.google.android.exoplayer2.source.sabr.PlayerEmsgHandler.PlayerTrackEmsgHandler;
 import com.google.android.exoplayer2.source.sabr.manifest.SabrManifest;
+import com.google.android.exoplayer2.source.sabr.parser.SabrSession;
 import com.google.android.exoplayer2.trackselection.TrackSelection;
 import com.google.android.exoplayer2.upstream.LoaderErrorThrower;
 import com.google.android.exoplayer2.upstream.TransferListener;
@@ -50,6 +51,8 @@ public interface SabrChunkSource extends ChunkSource {
      * @param closedCaptionFormats The {@link Format Formats} of closed caption tracks to be output.
      * @param transferListener The transfer listener which should be informed of any data transfers.
      *     May be null if no listener is available.
+     * @param sabrSession The session shared by all chunk sources of the period. May be null if each
+     *     track should issue its own requests.
      * @return The created {@link SabrChunkSource}.
      */
     SabrChunkSource createSabrChunkSource(
@@ -63,7 +66,8 @@ public interface SabrChunkSource extends ChunkSource {
         boolean enableEventMessageTrack,
         List<Format> closedCaptionFormats,
         @Nullable PlayerTrackEmsgHandler playerEmsgHandler,
-        @Nullable TransferListener transferListener);
+        @Nullable TransferListener transferListener,
+        @Nullable SabrSession sabrSession);
   }
 
   /**
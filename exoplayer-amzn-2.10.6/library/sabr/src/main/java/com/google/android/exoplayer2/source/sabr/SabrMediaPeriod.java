@@ -27,6 +27,7 @@ import com.google.android.exoplayer2.source.sabr.manifest.EventStream;
 import com.google.android.exoplayer2.source.sabr.manifest.Period;
 import com.google.android.exoplayer2.source.sabr.manifest.Representation;
 import com.google.android.exoplayer2.source.sabr.manifest.SabrManifest;
+import com.google.android.exoplayer2.source.sabr.parser.SabrSession;
 import com.google.android.exoplayer2.trackselection.TrackSelection;
 import com.google.android.exoplayer2.upstream.Allocator;
 import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
@@ -62,6 +63,7 @@ final class SabrMediaPeriod
     private final Allocator allocator;
     private final CompositeSequenceableLoaderFactory compositeSequenceableLoaderFactory;
     private final PlayerEmsgHandler playerEmsgHandler;
+    private final SabrSession sabrSession;
     private final IdentityHashMap<ChunkSampleStream<SabrChunkSource>, PlayerTrackEmsgHandler>
             trackEmsgHandlerBySampleStream;
 
@@ -99,6 +101,7 @@ final class SabrMediaPeriod
         this.allocator = allocator;
         this.compositeSequenceableLoaderFactory = compositeSequenceableLoaderFactory;
         playerEmsgHandler = new PlayerEmsgHandler(manifest, playerEmsgCallback, allocator);
+        sabrSession = new SabrSession();
         sampleStreams = newSampleStreamArray(0);
         eventSampleStreams = new EventSampleStream[0];
         trackEmsgHandlerBySampleStream = new IdentityHashMap<>();
@@ -230,6 +233,7 @@ final class SabrMediaPeriod
         if (trackEmsgHandler != null) {
             trackEmsgHandler.release();
         }
+        sabrSession.unregister(stream.primaryTrackType);
     }
 
     /**
@@ -255,6 +259,7 @@ final class SabrMediaPeriod
         for (ChunkSampleStream<SabrChunkSource> sampleStream : sampleStreams) {
             sampleStream.release(this);
         }
+        sabrSession.release();
         callback = null;
         eventDispatcher.mediaPeriodReleased();
     }
@@ -586,7 +591,8 @@ final class SabrMediaPeriod
                         enableEventMessageTrack,
                         embeddedCea608TrackFormats,
                         trackPlayerEmsgHandler,
-                        transferListener);
+                        transferListener,
+                        sabrSession);
         ChunkSampleStream<SabrChunkSource> stream =
                 new ChunkSampleStream<>(
                         trackGroupInfo.trackType,
@@ -2,54 +2,449 @@ package com.google.android.exoplayer2.source.sabr.manifest;
 
 import androidx.annotation.Nullable;
 
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.HttpDataSource.InvalidResponseCodeException;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.Log;
+
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLDecoder;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-/** Selects equivalent Googlevideo media networks advertised by a signed SABR URL. */
+import java.util.Map;
+
+/**
+ * Selects equivalent Googlevideo media networks advertised by a signed SABR URL.<br/>
+ * Every host is scored by the time to first byte and the throughput of the completed loads (EWMA).
+ * The transfers are measured by the listener, but only the ones of the successfully loaded chunks are counted.
+ * The best healthy host is used for the new requests. Failed hosts are demoted with exponential backoff.
+ */
 final class SabrCdnSelector {
+    private static final String TAG = SabrCdnSelector.class.getSimpleName();
     private static final String GOOGLEVIDEO_SUFFIX = ".googlevideo.com";
+    private static final double EWMA_ALPHA = 0.3;
+    // Smaller loads show the latency rather than the throughput
+    private static final long MIN_THROUGHPUT_SAMPLE_BYTES = 64 * 1024;
+    // Typical SABR response used to compare the hosts
+    private static final long REFERENCE_LOAD_BYTES = 1024 * 1024;
+    // The new host should be noticeably better. Avoids the switching back and forth.
+    private static final double SWITCH_SCORE_RATIO = 0.7;
+    private static final long BASE_BACKOFF_MS = 10_000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1_000;
+    private static final int RACE_TIMEOUT_MS = 5_000;
+    // Transfers of the chunks that weren't reported yet (e.g. cancelled ones)
+    private static final int MAX_PENDING_TRANSFERS = 16;
     private final List<String> candidateUrls = new ArrayList<>();
+    private final List<HostStats> candidateStats = new ArrayList<>();
+    private final Clock clock;
+    private final TransferListener transferListener = new LoadTracker();
     private int selectedIndex;
+    private boolean raceStarted;
+
+    /** Health of one candidate host. */
+    public static final class HostStats {
+        public final String host;
+        /** EWMA of the throughput in bits per second or 0 if unknown. */
+        public double throughputBps;
+        /** EWMA of the time to first byte or -1 if unknown. */
+        public double ttfbMs = -1;
+        public int loadCount;
+        /** Failures in a row. */
+        public int failureCount;
+        public long backoffUntilMs;
+        /** The host was used for the requests. */
+        public boolean wasSelected;
+
+        HostStats(String host) {
+            this.host = host;
+        }
+
+        HostStats copy() {
+            HostStats copy = new HostStats(host);
+            copy.throughputBps = throughputBps;
+            copy.ttfbMs = ttfbMs;
+            copy.loadCount = loadCount;
+            copy.failureCount = failureCount;
+            copy.backoffUntilMs = backoffUntilMs;
+            copy.wasSelected = wasSelected;
+            return copy;
+        }
+
+        boolean isBackedOff(long nowMs) {
+            return backoffUntilMs > nowMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: throughput=%s kbps, ttfb=%s ms, loads=%s, failures=%s",
+                    host, (long) (throughputBps / 1_000), (long) ttfbMs, loadCount, failureCount);
+        }
+    }
 
     public SabrCdnSelector(@Nullable String initialUrl) {
+        this(initialUrl, Clock.DEFAULT);
+    }
+
+    /* package */ SabrCdnSelector(@Nullable String initialUrl, Clock clock) {
+        this.clock = clock;
+
         if (initialUrl == null) {
             return;
         }
 
-        candidateUrls.add(initialUrl);
+        addCandidate(initialUrl);
         addAlternateUrls(initialUrl);
+        candidateStats.get(selectedIndex).wasSelected = true;
     }
 
+    /* package */ SabrCdnSelector(List<String> candidateUrls, Clock clock) {
+        this.clock = clock;
+
+        for (String url : candidateUrls) {
+            addCandidate(url);
+        }
+
+        if (!candidateStats.isEmpty()) {
+            candidateStats.get(selectedIndex).wasSelected = true;
+        }
+    }
+
+    /**
+     * The url for the next request. Moves to a noticeably better host or away from the backed off one.
+     */
     public synchronized @Nullable String getCurrentUrl() {
-        return candidateUrls.isEmpty() ? null : candidateUrls.get(selectedIndex);
+        if (candidateUrls.isEmpty()) {
+            return null;
+        }
+
+        long nowMs = clock.elapsedRealtime();
+        HostStats selected = candidateStats.get(selectedIndex);
+        int bestIndex = selected.isBackedOff(nowMs) ? findBestCandidate(selectedIndex, nowMs) : findBetterCandidate(nowMs);
+
+        if (bestIndex >= 0 && bestIndex != selectedIndex) {
+            Log.d(TAG, "Switching to " + candidateStats.get(bestIndex) + " from " + selected);
+            select(bestIndex);
+        }
+
+        return candidateUrls.get(selectedIndex);
     }
 
     /**
      * Advances after a failure on the current network. If another track already
      * advanced, a stale failure from an earlier network remains retryable.
+     * A failure on a host that was never used is ignored.
      */
     public synchronized boolean maybeAdvance(@Nullable String failedUrl) {
         int failedIndex = findCandidateIndex(failedUrl);
 
-        if (failedIndex < 0 || failedIndex > selectedIndex) {
+        if (failedIndex < 0) {
+            return false;
+        }
+
+        if (failedIndex != selectedIndex) {
+            // The failure was already handled by another track. Don't extend the backoff.
+            return candidateStats.get(failedIndex).wasSelected;
+        }
+
+        onLoadFailed(failedIndex);
+
+        int nextIndex = findBestCandidate(failedIndex, clock.elapsedRealtime());
+
+        if (nextIndex < 0) {
             return false;
         }
 
-        if (failedIndex < selectedIndex) {
-            return true;
+        select(nextIndex);
+        return true;
+    }
+
+    /**
+     * Feeds the stats from the completed loads.
+     */
+    public TransferListener getTransferListener() {
+        return transferListener;
+    }
+
+    /**
+     * Snapshot of the per host stats in the candidate order.
+     */
+    public synchronized List<HostStats> getHostStats() {
+        List<HostStats> result = new ArrayList<>();
+
+        for (HostStats stats : candidateStats) {
+            result.add(stats.copy());
+        }
+
+        return result;
+    }
+
+    /**
+     * Counts the measured transfer of the successfully loaded chunk.
+     */
+    public void onChunkLoadCompleted(DataSpec dataSpec) {
+        long[] transfer = ((LoadTracker) transferListener).removeFinishedTransfer(dataSpec);
+
+        if (transfer != null) {
+            onLoadCompleted(dataSpec.uri.toString(), transfer[0], transfer[1], transfer[2]);
+        }
+    }
+
+    /**
+     * The transfer of the failed chunk may be truncated. Don't count it.
+     */
+    public void onChunkLoadError(DataSpec dataSpec) {
+        ((LoadTracker) transferListener).removeFinishedTransfer(dataSpec);
+    }
+
+    /**
+     * The backoff isn't cleared here. It expires by itself, the next failure starts from the base backoff.
+     */
+    /* package */ synchronized void onLoadCompleted(@Nullable String url, long ttfbMs, long bytes, long transferDurationMs) {
+        int index = findCandidateIndex(url);
+
+        if (index < 0) {
+            return;
+        }
+
+        HostStats stats = candidateStats.get(index);
+        stats.loadCount++;
+        stats.failureCount = 0;
+
+        if (ttfbMs >= 0) {
+            stats.ttfbMs = stats.ttfbMs < 0 ? ttfbMs : ewma(stats.ttfbMs, ttfbMs);
+        }
+
+        if (bytes >= MIN_THROUGHPUT_SAMPLE_BYTES && transferDurationMs > 0) {
+            double throughputBps = bytes * 8_000d / transferDurationMs;
+            stats.throughputBps = stats.throughputBps <= 0 ? throughputBps : ewma(stats.throughputBps, throughputBps);
+        }
+    }
+
+    /* package */ synchronized void onLoadFailed(@Nullable String url) {
+        int index = findCandidateIndex(url);
+
+        if (index >= 0) {
+            onLoadFailed(index);
+        }
+    }
+
+    /**
+     * Races the first request. The current host and the best alternate one are probed in parallel
+     * while the playback starts. The noticeably faster one is used for the next requests.
+     * Does nothing if there's no alternate host or the race was already run.
+     *
+     * @param dataSourceFactory The same network stack (proxy, headers) as the loads use.
+     *                          Shouldn't report to the bandwidth meter.
+     */
+    public void raceAsync(DataSource.Factory dataSourceFactory) {
+        if (!markRaceStarted()) {
+            return;
+        }
+
+        Thread thread = new Thread(() -> raceInt(dataSourceFactory), "SabrCdnRace");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Blocking version of {@link #raceAsync}.
+     */
+    /* package */ void race(DataSource.Factory dataSourceFactory) {
+        if (markRaceStarted()) {
+            raceInt(dataSourceFactory);
         }
+    }
 
-        if (selectedIndex + 1 >= candidateUrls.size()) {
+    private synchronized boolean markRaceStarted() {
+        if (raceStarted || candidateUrls.size() < 2) {
             return false;
         }
 
-        selectedIndex++;
+        raceStarted = true;
         return true;
     }
 
+    /**
+     * The probes of both hosts are the same, so only the race results are compared.
+     * The loads are measured differently and don't mix with the probes.
+     */
+    private void raceInt(DataSource.Factory dataSourceFactory) {
+        List<String> urls = new ArrayList<>();
+        int currentIndex;
+        int alternateIndex;
+
+        synchronized (this) {
+            currentIndex = selectedIndex;
+            alternateIndex = findBestCandidate(currentIndex, clock.elapsedRealtime());
+            if (alternateIndex < 0) {
+                return;
+            }
+            urls.add(candidateUrls.get(currentIndex));
+            urls.add(candidateUrls.get(alternateIndex));
+        }
+
+        long[] ttfbMs = new long[urls.size()];
+        List<Thread> probes = new ArrayList<>();
+
+        for (int i = 0; i < urls.size(); i++) {
+            int probeIndex = i;
+            Thread probe = new Thread(() -> ttfbMs[probeIndex] = probe(dataSourceFactory, urls.get(probeIndex)), "SabrCdnProbe");
+            probe.setDaemon(true);
+            probe.start();
+            probes.add(probe);
+        }
+
+        for (Thread probe : probes) {
+            try {
+                probe.join(RACE_TIMEOUT_MS * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        synchronized (this) {
+            boolean isAlternateFaster = ttfbMs[1] >= 0 && (ttfbMs[0] < 0 || ttfbMs[1] < ttfbMs[0] * SWITCH_SCORE_RATIO);
+
+            // Another track may have already moved away from the current host
+            if (isAlternateFaster && selectedIndex == currentIndex) {
+                Log.d(TAG, "Race is won by " + candidateStats.get(alternateIndex).host
+                        + ": " + ttfbMs[1] + " ms vs " + ttfbMs[0] + " ms");
+                select(alternateIndex);
+            }
+        }
+    }
+
+    /**
+     * Time to the response headers or -1 on failure. Any response except the server error means the host is alive.
+     */
+    private long probe(DataSource.Factory dataSourceFactory, String url) {
+        long startTimeNs = System.nanoTime();
+        DataSource dataSource = dataSourceFactory.createDataSource();
+        boolean isAlive = false;
+
+        try {
+            dataSource.open(new DataSpec(Uri.parse(url), DataSpec.HTTP_METHOD_HEAD, null, 0, 0, C.LENGTH_UNSET, null, 0));
+            isAlive = true;
+        } catch (InvalidResponseCodeException e) {
+            isAlive = e.responseCode < 500;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Probe failed: " + e.getMessage());
+        } finally {
+            try {
+                dataSource.close();
+            } catch (IOException e) {
+                // NOP
+            }
+        }
+
+        if (isAlive) {
+            return (System.nanoTime() - startTimeNs) / 1_000_000;
+        }
+
+        onLoadFailed(url);
+        return -1;
+    }
+
+    private void select(int index) {
+        selectedIndex = index;
+        candidateStats.get(index).wasSelected = true;
+    }
+
+    private void onLoadFailed(int index) {
+        HostStats stats = candidateStats.get(index);
+        long nowMs = clock.elapsedRealtime();
+
+        if (stats.isBackedOff(nowMs)) {
+            // The request was sent before the backoff started
+            return;
+        }
+
+        stats.failureCount++;
+        long backoffMs = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(stats.failureCount - 1, 16));
+        stats.backoffUntilMs = nowMs + backoffMs;
+    }
+
+    /**
+     * Measured host that beats the selected one or -1.
+     */
+    private int findBetterCandidate(long nowMs) {
+        HostStats selected = candidateStats.get(selectedIndex);
+        int bestIndex = -1;
+        double bestScore = Double.MAX_VALUE;
+
+        for (int i = 0; i < candidateStats.size(); i++) {
+            HostStats stats = candidateStats.get(i);
+
+            if (i == selectedIndex || stats.loadCount == 0 || stats.isBackedOff(nowMs)) {
+                continue;
+            }
+
+            double fallbackThroughputBps = Math.max(stats.throughputBps, selected.throughputBps);
+            double score = getScore(stats, fallbackThroughputBps);
+
+            if (score < getScore(selected, fallbackThroughputBps) * SWITCH_SCORE_RATIO && score < bestScore) {
+                bestIndex = i;
+                bestScore = score;
+            }
+        }
+
+        return bestIndex;
+    }
+
+    /**
+     * The best healthy host except the given one or -1. Measured hosts go first, then the advertised order.
+     */
+    private int findBestCandidate(int excludedIndex, long nowMs) {
+        int bestIndex = -1;
+        double bestScore = Double.MAX_VALUE;
+
+        for (int i = 0; i < candidateStats.size(); i++) {
+            HostStats stats = candidateStats.get(i);
+
+            if (i == excludedIndex || stats.isBackedOff(nowMs)) {
+                continue;
+            }
+
+            double score = stats.loadCount > 0 ? getScore(stats, stats.throughputBps) : Double.MAX_VALUE;
+
+            if (bestIndex < 0 || score < bestScore) {
+                bestIndex = i;
+                bestScore = score;
+            }
+        }
+
+        return bestIndex;
+    }
+
+    /**
+     * Estimated time of the reference load in ms. Lower is better.
+     */
+    private static double getScore(HostStats stats, double fallbackThroughputBps) {
+        double throughputBps = stats.throughputBps > 0 ? stats.throughputBps : fallbackThroughputBps;
+        double transferMs = throughputBps > 0 ? REFERENCE_LOAD_BYTES * 8_000d / throughputBps : 0;
+        return Math.max(stats.ttfbMs, 0) + transferMs;
+    }
+
+    private static double ewma(double oldValue, double newValue) {
+        return EWMA_ALPHA * newValue + (1 - EWMA_ALPHA) * oldValue;
+    }
+
+    private void addCandidate(String url) {
+        String host = getHost(url);
+        candidateUrls.add(url);
+        candidateStats.add(new HostStats(host != null ? host : url));
+    }
+
     private void addAlternateUrls(String initialUrl) {
         URI initialUri;
 
@@ -90,7 +485,7 @@ final class SabrCdnSelector {
             String alternateUrl = replaceAuthority(initialUrl, initialUri, host);
 
             if (alternateUrl != null) {
-                candidateUrls.add(alternateUrl);
+                addCandidate(alternateUrl);
             }
         }
     }
@@ -182,4 +577,72 @@ final class SabrCdnSelector {
         return url.substring(0, authorityStart) + newAuthority
                 + url.substring(authorityStart + oldAuthority.length());
     }
+
+    /**
+     * Measures the loads of all the tracks. One transfer at a time per data source.<br/>
+     * The finished transfers wait for the result of the chunk. The chunk passes the same data spec
+     * to the data source on the first load attempt. The resumed loads aren't measured.
+     */
+    private final class LoadTracker implements TransferListener {
+        private final Map<DataSource, long[]> transfers = new IdentityHashMap<>();
+        // DataSpec doesn't override equals, so the keys are compared by identity
+        private final Map<DataSpec, long[]> finishedTransfers = new LinkedHashMap<DataSpec, long[]>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DataSpec, long[]> eldest) {
+                return size() > MAX_PENDING_TRANSFERS;
+            }
+        };
+
+        @Override
+        public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            if (isNetwork) {
+                synchronized (transfers) {
+                    // init time, start time, bytes
+                    transfers.put(source, new long[] {clock.elapsedRealtime(), -1, 0});
+                }
+            }
+        }
+
+        @Override
+        public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            synchronized (transfers) {
+                long[] transfer = transfers.get(source);
+                if (transfer != null) {
+                    transfer[1] = clock.elapsedRealtime();
+                }
+            }
+        }
+
+        @Override
+        public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+            synchronized (transfers) {
+                long[] transfer = transfers.get(source);
+                if (transfer != null) {
+                    transfer[2] += bytesTransferred;
+                }
+            }
+        }
+
+        @Override
+        public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+            synchronized (transfers) {
+                long[] transfer = transfers.remove(source);
+
+                if (transfer == null || transfer[1] < 0) {
+                    return;
+                }
+
+                long nowMs = clock.elapsedRealtime();
+                // ttfb, bytes, transfer duration
+                finishedTransfers.put(dataSpec, new long[] {transfer[1] - transfer[0], transfer[2], nowMs - transfer[1]});
+            }
+        }
+
+        @Nullable
+        private long[] removeFinishedTransfer(DataSpec dataSpec) {
+            synchronized (transfers) {
+                return finishedTransfers.remove(dataSpec);
+            }
+        }
+    }
 }
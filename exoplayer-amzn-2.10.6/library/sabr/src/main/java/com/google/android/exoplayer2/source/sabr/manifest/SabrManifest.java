@@ -23,6 +23,10 @@ import com.google.android.exoplayer2.source.sabr.protos.videostreaming.StreamerC
 import com.google.android.exoplayer2.source.sabr.protos.videostreaming.StreamerContext.ClientInfo;
 import com.google.android.exoplayer2.source.sabr.protos.videostreaming.TimeRange;
 import com.google.android.exoplayer2.source.sabr.protos.videostreaming.VideoPlaybackAbrRequest;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
 import com.google.protobuf.ByteString;
 
 import java.util.ArrayList;
@@ -83,12 +87,15 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
 
     private final String videoId;
     private final SabrCdnSelector cdnSelector;
+    private String selectedCdnUrl;
     private final String videoPlaybackUstreamerConfig;
     private final String poToken;
     private final ClientInfo clientInfo;
     private final Map<Integer, SabrStream> sabrStreams;
     private int sabrRequestNumber = -1;
     private final FormatSelector emptySelector;
+    private @Nullable BandwidthMeter bandwidthMeter;
+    private @Nullable DataSource.Factory probeDataSourceFactory;
 
     public SabrManifest(
             long availabilityStartTimeMs,
@@ -116,6 +123,7 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
         this.periods = periods;
         this.videoId = videoId;
         this.cdnSelector = new SabrCdnSelector(serverAbrStreamingUrl);
+        this.selectedCdnUrl = serverAbrStreamingUrl;
         this.videoPlaybackUstreamerConfig = videoPlaybackUstreamerConfig;
         this.clientInfo = clientInfo;
         this.poToken = poToken;
@@ -172,6 +180,11 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
 
         sabrStreams.put(trackType, sabrStream);
 
+        // The first request goes to the advertised host. The alternate one is probed meanwhile.
+        if (probeDataSourceFactory != null) {
+            cdnSelector.raceAsync(probeDataSourceFactory);
+        }
+
         return sabrStream;
     }
 
@@ -185,13 +198,76 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
             return false;
         }
 
-        String nextUrl = cdnSelector.getCurrentUrl();
+        setCdnUrl(cdnSelector.getCurrentUrl());
 
-        for (SabrStream sabrStream : sabrStreams.values()) {
-            sabrStream.setServerAbrStreamingUrl(nextUrl);
+        return true;
+    }
+
+    /**
+     * Measured throughput is sent to the server as the bandwidth hint.
+     * Without the meter the bitrate of the selected format is used.
+     */
+    public void setBandwidthMeter(@Nullable BandwidthMeter bandwidthMeter) {
+        this.bandwidthMeter = bandwidthMeter;
+    }
+
+    /**
+     * Used to probe the alternate media network while the playback starts.
+     * Without the factory the race is skipped.
+     */
+    public void setProbeDataSourceFactory(@Nullable DataSource.Factory probeDataSourceFactory) {
+        this.probeDataSourceFactory = probeDataSourceFactory;
+    }
+
+    /**
+     * Measures the loads. Used to pick the best media network.
+     */
+    public TransferListener getCdnTransferListener() {
+        return cdnSelector.getTransferListener();
+    }
+
+    /**
+     * Only the measured loads of the completed chunks are counted.
+     */
+    public void onCdnLoadCompleted(DataSpec dataSpec) {
+        cdnSelector.onChunkLoadCompleted(dataSpec);
+    }
+
+    public void onCdnLoadError(DataSpec dataSpec) {
+        cdnSelector.onChunkLoadError(dataSpec);
+    }
+
+    /**
+     * Health of the media networks: throughput, time to first byte and failures.
+     */
+    public List<String> getCdnStats() {
+        List<String> result = new ArrayList<>();
+
+        for (SabrCdnSelector.HostStats stats : cdnSelector.getHostStats()) {
+            result.add(stats.toString());
         }
 
-        return true;
+        return result;
+    }
+
+    /**
+     * Moves the streams to the host picked by the selector.
+     * The server redirects are kept until the selector changes its mind.
+     */
+    private void maybeUpdateCdnUrl() {
+        String url = cdnSelector.getCurrentUrl();
+
+        if (url != null && !url.equals(selectedCdnUrl)) {
+            setCdnUrl(url);
+        }
+    }
+
+    private void setCdnUrl(String url) {
+        selectedCdnUrl = url;
+
+        for (SabrStream sabrStream : sabrStreams.values()) {
+            sabrStream.setServerAbrStreamingUrl(url);
+        }
     }
 
     public int getSabrRequestNumber() {
@@ -205,6 +281,8 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
             throw new IllegalStateException("Active SabrStream not found for track type " + trackType);
         }
 
+        maybeUpdateCdnUrl();
+
         return Utils.updateQuery(activeStream.getUrl(), "rn", ++sabrRequestNumber);
     }
 
@@ -213,6 +291,13 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
     }
 
     public VideoPlaybackAbrRequest createVideoPlaybackAbrRequest(int trackType, boolean isInit, long seekTimeUs) {
+        return createVideoPlaybackAbrRequest(trackType, isInit, seekTimeUs, false);
+    }
+
+    /**
+     * @param multiplexed Request the audio along with the video, so both tracks are served by one response.
+     */
+    public VideoPlaybackAbrRequest createVideoPlaybackAbrRequest(int trackType, boolean isInit, long seekTimeUs, boolean multiplexed) {
         SabrStream activeStream = sabrStreams.get(trackType);
 
         if (activeStream == null) {
@@ -223,8 +308,12 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
         Format selectedAudioFormat = getFormatSelector(C.TRACK_TYPE_AUDIO).getSelectedFormat();
         int height = trackType == C.TRACK_TYPE_VIDEO && selectedVideoFormat != null
                 ? selectedVideoFormat.height : -1;
-        int bandwidthEstimate = trackType == C.TRACK_TYPE_VIDEO && selectedVideoFormat != null
-                ? selectedVideoFormat.bitrate : selectedAudioFormat != null ? selectedAudioFormat.bitrate : -1;
+        long bandwidthEstimate = bandwidthMeter != null ? bandwidthMeter.getBitrateEstimate() : -1;
+
+        if (bandwidthEstimate <= 0) {
+            bandwidthEstimate = trackType == C.TRACK_TYPE_VIDEO && selectedVideoFormat != null
+                    ? selectedVideoFormat.bitrate : selectedAudioFormat != null ? selectedAudioFormat.bitrate : -1;
+        }
 
         FormatId formatId = getFormatSelector(trackType).getSelectedFormatId();
         long startTimeMs = isInit ? 0 : seekTimeUs != C.TIME_UNSET
@@ -237,7 +326,8 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
                 .setClientViewportIsFlexible(false)
                 .setBandwidthEstimate(bandwidthEstimate)
                 .setDrcEnabled(false)
-                .setEnabledTrackTypesBitfield(height != -1 ? EnabledTrackTypes.VIDEO_ONLY : EnabledTrackTypes.AUDIO_ONLY);
+                .setEnabledTrackTypesBitfield(multiplexed ? EnabledTrackTypes.VIDEO_AND_AUDIO
+                        : height != -1 ? EnabledTrackTypes.VIDEO_ONLY : EnabledTrackTypes.AUDIO_ONLY);
 
         if (height != -1) {
             clientAbrStateBuilder
@@ -262,10 +352,14 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
 
         ClientAbrState clientAbrState = clientAbrStateBuilder.build();
 
-        Pair<List<BufferedRange>, FormatId> bufferRanges = addBufferingInfoToAbrRequest(trackType);
+        Pair<List<BufferedRange>, FormatId> bufferRanges = addBufferingInfoToAbrRequest(trackType, multiplexed);
 
         List<FormatId> selectedFormats = createSelectedFormatIds(trackType);
 
+        if (multiplexed && trackType == C.TRACK_TYPE_VIDEO) {
+            selectedFormats.addAll(createSelectedFormatIds(C.TRACK_TYPE_AUDIO));
+        }
+
         if (isInit) {
             selectedFormats.clear();
         }
@@ -303,9 +397,10 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
      * not be able to buffer more than what the server thinks is enough. It would behave like YouTube's.
      * 2. We don't have to know what segment a buffered range starts/ends at. It is easy to do in Shaka, but not in other players.
      *
+     * @param multiplexed Whether all active formats are requested at once, so none of them should be discarded.
      * @return The format to discard (if any) - typically formats that are active but not currently requested.
      */
-    private Pair<List<BufferedRange>, FormatId> addBufferingInfoToAbrRequest(int trackType) {
+    private Pair<List<BufferedRange>, FormatId> addBufferingInfoToAbrRequest(int trackType, boolean multiplexed) {
         SabrStream activeStream = sabrStreams.get(trackType);
 
         if (activeStream == null) {
@@ -327,7 +422,7 @@ public class SabrManifest implements FilterableManifest<SabrManifest> {
             }
 
             int activeFormatKey = activeFormat.getItag();
-            boolean shouldDiscard = currentFormatKey != activeFormatKey;
+            boolean shouldDiscard = !multiplexed && currentFormatKey != activeFormatKey;
             MediaHeader initializedFormat = getInitializedFormat(activeFormatKey);
 
             BufferedRange bufferedRange = shouldDiscard ? createFullBufferRange(activeFormat) : createPartialBufferRange(initializedFormat);
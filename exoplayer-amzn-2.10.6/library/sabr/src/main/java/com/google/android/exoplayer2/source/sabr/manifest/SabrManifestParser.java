@@ -48,6 +48,7 @@ public class SabrManifestParser {
     private List<MediaSubtitle> mSubs;
 
     public SabrManifest parse(@NonNull MediaItemFormatInfo formatInfo) {
+        long startTimeMs = System.currentTimeMillis();
         mFormatInfo = formatInfo;
         MediaFormatComparator comp = new MediaFormatComparator();
         mMP4Videos = new TreeSet<>(comp);
@@ -55,7 +56,9 @@ public class SabrManifestParser {
         mMP4Audios = new HashMap<>();
         mWEBMAudios = new HashMap<>();
         mSubs = new ArrayList<>();
-        return parseSabrManifest(formatInfo);
+        SabrManifest manifest = parseSabrManifest(formatInfo);
+        Log.d(TAG, "Manifest built in %s ms", System.currentTimeMillis() - startTimeMs);
+        return manifest;
     }
 
     private SabrManifest parseSabrManifest(MediaItemFormatInfo formatInfo) {
@@ -282,7 +285,7 @@ public class SabrManifestParser {
     }
 
     private List<SegmentTimelineElement> parseSegmentTimeline(MediaFormat format) {
-        List<SegmentTimelineElement> timeline = new ArrayList<>();
+        SegmentTimelineList timeline = new SegmentTimelineList();
 
         if (format.getGlobalSegmentList() == null) {
             return timeline;
@@ -294,25 +297,22 @@ public class SabrManifestParser {
         // SegmentURL tag
         for (String segment : format.getGlobalSegmentList()) {
             long duration = Helpers.parseLong(segment, C.TIME_UNSET);
-            int count = 1;
-            for (int i = 0; i < count; i++) {
-                timeline.add(new SegmentTimelineElement(elapsedTime, duration));
-                elapsedTime += duration;
-            }
+            // Equal durations are merged into one run
+            timeline.append(elapsedTime, duration, 1);
+            elapsedTime += duration;
         }
 
         return timeline;
     }
 
+    /**
+     * Uniform timeline. Constant size, the segment times are calculated.
+     */
     private List<SegmentTimelineElement> parseSegmentTimeline(long elapsedTime, long duration, int segmentCount) {
-        List<SegmentTimelineElement> timeline = new ArrayList<>();
+        SegmentTimelineList timeline = new SegmentTimelineList();
 
         // From writeLiveMediaSegmentList
-        int count = 1 + segmentCount;
-        for (int i = 0; i < count; i++) {
-            timeline.add(new SegmentTimelineElement(elapsedTime, duration));
-            elapsedTime += duration;
-        }
+        timeline.append(elapsedTime, duration, 1 + segmentCount);
 
         return timeline;
     }
@@ -168,7 +168,7 @@ public abstract class SegmentBase {
     /** @see SabrSegmentIndex#getDurationUs(long, long) */
     public final long getSegmentDurationUs(long sequenceNumber, long periodDurationUs) {
       if (segmentTimeline != null) {
-        long duration = segmentTimeline.get((int) (sequenceNumber - startNumber)).duration;
+        long duration = getTimelineDuration((int) (sequenceNumber - startNumber));
         return (duration * C.MICROS_PER_SECOND) / timescale;
       } else {
         int segmentCount = getSegmentCount(periodDurationUs);
@@ -184,8 +184,7 @@ public abstract class SegmentBase {
       long unscaledSegmentTime;
       if (segmentTimeline != null) {
         unscaledSegmentTime =
-            segmentTimeline.get((int) (sequenceNumber - startNumber)).startTime
-                - presentationTimeOffset;
+            getTimelineStartTime((int) (sequenceNumber - startNumber)) - presentationTimeOffset;
       } else {
         unscaledSegmentTime = (sequenceNumber - startNumber) * duration;
       }
@@ -217,6 +216,18 @@ public abstract class SegmentBase {
       return segmentTimeline != null;
     }
 
+    /* package */ final long getTimelineStartTime(int index) {
+      return segmentTimeline instanceof SegmentTimelineList
+          ? ((SegmentTimelineList) segmentTimeline).getStartTime(index)
+          : segmentTimeline.get(index).startTime;
+    }
+
+    /* package */ final long getTimelineDuration(int index) {
+      return segmentTimeline instanceof SegmentTimelineList
+          ? ((SegmentTimelineList) segmentTimeline).getDuration(index)
+          : segmentTimeline.get(index).duration;
+    }
+
   }
 
   /**
@@ -339,7 +350,7 @@ public abstract class SegmentBase {
     public RangedUri getSegmentUrl(Representation representation, long sequenceNumber) {
       long time;
       if (segmentTimeline != null) {
-        time = segmentTimeline.get((int) (sequenceNumber - startNumber)).startTime;
+        time = getTimelineStartTime((int) (sequenceNumber - startNumber));
       } else {
         time = (sequenceNumber - startNumber) * duration;
       }
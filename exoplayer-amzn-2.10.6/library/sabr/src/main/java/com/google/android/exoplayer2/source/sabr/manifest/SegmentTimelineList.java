@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.sabr.manifest;
+
+import com.google.android.exoplayer2.source.sabr.manifest.SegmentBase.SegmentTimelineElement;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * A segment timeline stored as runs of equal duration segments, the same way as the {@code S}
+ * elements of the MPD ({@code t}, {@code d}, {@code r}).
+ *
+ * <p>Live streams contain tens of thousands of segments but only a few runs, so the memory usage
+ * and the append cost don't depend on the stream length. Only appending is supported.
+ */
+public final class SegmentTimelineList extends AbstractList<SegmentTimelineElement> {
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private long[] runStartTimes;
+  private long[] runDurations;
+  /** Index of the first segment of each run. */
+  private int[] runFirstIndices;
+  private int runCount;
+  private int size;
+
+  public SegmentTimelineList() {
+    runStartTimes = new long[INITIAL_CAPACITY];
+    runDurations = new long[INITIAL_CAPACITY];
+    runFirstIndices = new int[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Appends {@code count} segments of the same duration. Merged into the last run if they continue
+   * it.
+   *
+   * @param startTime The start time of the first segment.
+   * @param duration The duration of each segment.
+   * @param count The number of segments.
+   */
+  public void append(long startTime, long duration, int count) {
+    if (count <= 0) {
+      return;
+    }
+
+    if (runCount > 0) {
+      int last = runCount - 1;
+      long lastRunEndTime = runStartTimes[last] + runDurations[last] * (size - runFirstIndices[last]);
+      if (runDurations[last] == duration && lastRunEndTime == startTime) {
+        size += count;
+        modCount++;
+        return;
+      }
+    }
+
+    if (runCount == runStartTimes.length) {
+      int capacity = runCount * 2;
+      runStartTimes = Arrays.copyOf(runStartTimes, capacity);
+      runDurations = Arrays.copyOf(runDurations, capacity);
+      runFirstIndices = Arrays.copyOf(runFirstIndices, capacity);
+    }
+
+    runStartTimes[runCount] = startTime;
+    runDurations[runCount] = duration;
+    runFirstIndices[runCount] = size;
+    runCount++;
+    size += count;
+    modCount++;
+  }
+
+  /** Returns the start time of the segment without creating a {@link SegmentTimelineElement}. */
+  public long getStartTime(int index) {
+    int run = findRun(index);
+    return runStartTimes[run] + runDurations[run] * (index - runFirstIndices[run]);
+  }
+
+  /** Returns the duration of the segment without creating a {@link SegmentTimelineElement}. */
+  public long getDuration(int index) {
+    return runDurations[findRun(index)];
+  }
+
+  /** Returns the number of runs of equal duration segments. */
+  public int getRunCount() {
+    return runCount;
+  }
+
+  /** Returns a new list with the segments starting from {@code fromIndex}. */
+  public SegmentTimelineList tail(int fromIndex) {
+    SegmentTimelineList result = new SegmentTimelineList();
+    if (fromIndex >= size) {
+      return result;
+    }
+
+    int firstRun = findRun(Math.max(0, fromIndex));
+    for (int run = firstRun; run < runCount; run++) {
+      int first = Math.max(fromIndex, runFirstIndices[run]);
+      int end = run + 1 < runCount ? runFirstIndices[run + 1] : size;
+      result.append(
+          runStartTimes[run] + runDurations[run] * (first - runFirstIndices[run]),
+          runDurations[run],
+          end - first);
+    }
+    return result;
+  }
+
+  @Override
+  public SegmentTimelineElement get(int index) {
+    return new SegmentTimelineElement(getStartTime(index), getDuration(index));
+  }
+
+  @Override
+  public void add(int index, SegmentTimelineElement element) {
+    if (index != size) {
+      throw new UnsupportedOperationException("Only appending is supported");
+    }
+    append(element.startTime, element.duration, 1);
+  }
+
+  @Override
+  public void clear() {
+    runCount = 0;
+    size = 0;
+    modCount++;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private int findRun(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    // The last run is the most used one (live edge)
+    int low = 0;
+    int high = runCount - 1;
+    if (runFirstIndices[high] <= index) {
+      return high;
+    }
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (runFirstIndices[mid] <= index) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,320 @@
+package com.google.android.exoplayer2.source.sabr.parser;
+
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.sabr.parser.models.FormatSelector;
+import com.google.android.exoplayer2.source.sabr.parser.ump.UMPEncoder;
+import com.google.android.exoplayer2.source.sabr.parser.ump.UMPPartId;
+import com.google.android.exoplayer2.source.sabr.protos.misc.FormatId;
+import com.google.android.exoplayer2.source.sabr.protos.videostreaming.MediaHeader;
+import com.liskovsoft.sharedutils.mylogger.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Per-period SABR session shared by the audio and video chunk sources.<br/>
+ * The video source (the request owner) asks the server for both formats in a single request.
+ * Parts of the response that belong to the audio format are captured here by {@link SabrStream}
+ * and later replayed to the audio source from memory, so the audio track doesn't need its own POST.
+ */
+public final class SabrSession {
+    private static final String TAG = SabrSession.class.getSimpleName();
+    /** Upper bound of the captured data that wasn't picked up by the target track yet */
+    private static final int MAX_PENDING_BYTES = 8 * 1024 * 1024;
+    /** Safety net for the owner requests that were canceled without notifying the chunk source */
+    private static final long OWNER_LOAD_TIMEOUT_MS = 10_000;
+    private final UMPEncoder encoder;
+    private final SparseArray<SabrStream> streams;
+    private final SparseIntArray streamRefs;
+    private final SparseArray<byte[]> formatInitParts;
+    private final SparseArray<ArrayDeque<CapturedSegment>> readySegments;
+    private final Map<Long, CapturedSegment> partialSegments;
+    private int pendingBytes;
+    private long ownerLoadStartMs = C.TIME_UNSET;
+
+    /**
+     * Media that was received by another track and is ready to be fed to the target track extractor.
+     */
+    public static final class Capture {
+        /** UMP encoded parts (format init metadata + media segments) */
+        public final byte[] data;
+        public final long startTimeMs;
+        public final long endTimeMs;
+        public final long lastSequenceNumber;
+
+        private Capture(byte[] data, long startTimeMs, long endTimeMs, long lastSequenceNumber) {
+            this.data = data;
+            this.startTimeMs = startTimeMs;
+            this.endTimeMs = endTimeMs;
+            this.lastSequenceNumber = lastSequenceNumber;
+        }
+    }
+
+    private static final class CapturedSegment {
+        public final int trackType;
+        public final boolean isInitSegment;
+        public final long sequenceNumber;
+        public final long startTimeMs;
+        public final long durationMs;
+        public final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        private CapturedSegment(int trackType, MediaHeader mediaHeader) {
+            this.trackType = trackType;
+            this.isInitSegment = mediaHeader.getIsInitSeg();
+            this.sequenceNumber = mediaHeader.hasSequenceNumber() ? mediaHeader.getSequenceNumber() : -1;
+            this.startTimeMs = mediaHeader.hasStartMs() ? mediaHeader.getStartMs() : -1;
+            this.durationMs = mediaHeader.hasDurationMs() ? mediaHeader.getDurationMs() : 0;
+        }
+    }
+
+    public SabrSession() {
+        encoder = new UMPEncoder();
+        streams = new SparseArray<>();
+        streamRefs = new SparseIntArray();
+        formatInitParts = new SparseArray<>();
+        readySegments = new SparseArray<>();
+        partialSegments = new HashMap<>();
+    }
+
+    public synchronized void register(int trackType, SabrStream sabrStream) {
+        streams.put(trackType, sabrStream);
+        streamRefs.put(trackType, streamRefs.get(trackType) + 1);
+        sabrStream.setSabrSession(this);
+    }
+
+    public synchronized void unregister(int trackType) {
+        int refs = streamRefs.get(trackType) - 1;
+
+        if (refs > 0) {
+            streamRefs.put(trackType, refs);
+            return;
+        }
+
+        streamRefs.delete(trackType);
+        SabrStream sabrStream = streams.get(trackType);
+        streams.remove(trackType);
+        if (sabrStream != null) {
+            sabrStream.setSabrSession(null);
+        }
+        reset(trackType);
+    }
+
+    /**
+     * Both audio and video are active, so the video requests carry the audio as well.
+     */
+    public synchronized boolean isMultiplexed() {
+        return streams.get(C.TRACK_TYPE_VIDEO) != null && streams.get(C.TRACK_TYPE_AUDIO) != null;
+    }
+
+    /**
+     * The track that issues network requests on behalf of the others.
+     */
+    public synchronized int getOwnerTrackType() {
+        return streams.get(C.TRACK_TYPE_VIDEO) != null ? C.TRACK_TYPE_VIDEO : C.TRACK_TYPE_AUDIO;
+    }
+
+    public synchronized void onOwnerLoadStarted() {
+        ownerLoadStartMs = SystemClock.elapsedRealtime();
+    }
+
+    public synchronized void onOwnerLoadFinished() {
+        ownerLoadStartMs = C.TIME_UNSET;
+    }
+
+    /**
+     * Whether the owner has a request in flight that is expected to carry the media of the other tracks.
+     */
+    public synchronized boolean isOwnerLoading() {
+        return ownerLoadStartMs != C.TIME_UNSET
+                && SystemClock.elapsedRealtime() - ownerLoadStartMs < OWNER_LOAD_TIMEOUT_MS;
+    }
+
+    /**
+     * @return The track type the format should be routed to or {@link C#TRACK_TYPE_UNKNOWN}
+     * if the format belongs to the calling stream (or to nobody).
+     */
+    public synchronized int findTargetTrackType(SabrStream source, FormatId formatId, @Nullable String mimeType) {
+        if (formatId == null || !isMultiplexed()) {
+            return C.TRACK_TYPE_UNKNOWN;
+        }
+
+        FormatSelector sourceSelector = source.getFormatSelector();
+
+        if (sourceSelector != null && sourceSelector.match(formatId, mimeType)) {
+            return C.TRACK_TYPE_UNKNOWN;
+        }
+
+        int ownerTrackType = getOwnerTrackType();
+
+        for (int i = 0; i < streams.size(); i++) {
+            SabrStream sabrStream = streams.valueAt(i);
+
+            // The owner loads its media by itself
+            if (sabrStream == source || streams.keyAt(i) == ownerTrackType) {
+                continue;
+            }
+
+            FormatSelector formatSelector = sabrStream.getFormatSelector();
+
+            if (formatSelector != null && !formatSelector.isDiscardMedia() && formatSelector.match(formatId, mimeType)) {
+                return streams.keyAt(i);
+            }
+        }
+
+        return C.TRACK_TYPE_UNKNOWN;
+    }
+
+    public synchronized void onFormatInitializationMetadata(int trackType, byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 10);
+        encoder.encode(out, UMPPartId.FORMAT_INITIALIZATION_METADATA, data);
+        formatInitParts.put(trackType, out.toByteArray());
+    }
+
+    public synchronized void onMediaHeader(int trackType, long headerId, MediaHeader mediaHeader, byte[] data) {
+        CapturedSegment segment = new CapturedSegment(trackType, mediaHeader);
+        encoder.encode(segment.data, UMPPartId.MEDIA_HEADER, data);
+        partialSegments.put(headerId, segment);
+    }
+
+    public synchronized void onMedia(long headerId, byte[] data) {
+        CapturedSegment segment = partialSegments.get(headerId);
+
+        if (segment == null || segment.isInitSegment) {
+            // Init segments are loaded by the target track itself
+            return;
+        }
+
+        encoder.encode(segment.data, UMPPartId.MEDIA, headerId, data);
+    }
+
+    public synchronized void onMediaEnd(long headerId) {
+        CapturedSegment segment = partialSegments.remove(headerId);
+
+        if (segment == null || segment.isInitSegment) {
+            return;
+        }
+
+        encoder.encode(segment.data, UMPPartId.MEDIA_END, headerId, new byte[0]);
+
+        ArrayDeque<CapturedSegment> segments = readySegments.get(segment.trackType);
+
+        if (segments == null) {
+            segments = new ArrayDeque<>();
+            readySegments.put(segment.trackType, segments);
+        }
+
+        segments.add(segment);
+        pendingBytes += segment.data.size();
+
+        while (pendingBytes > MAX_PENDING_BYTES && !segments.isEmpty()) {
+            CapturedSegment dropped = segments.poll();
+            pendingBytes -= dropped.data.size();
+            Log.w(TAG, "Captured segment dropped: track=%s, sequence=%s", dropped.trackType, dropped.sequenceNumber);
+        }
+    }
+
+    public synchronized boolean hasCapture(int trackType) {
+        ArrayDeque<CapturedSegment> segments = readySegments.get(trackType);
+        return segments != null && !segments.isEmpty();
+    }
+
+    /**
+     * Takes all captured segments of the track that follow the given sequence number.
+     * @return The media as a replayable UMP stream or null if nothing is captured.
+     */
+    public synchronized @Nullable Capture pollCapture(int trackType, long afterSequenceNumber) {
+        ArrayDeque<CapturedSegment> segments = readySegments.get(trackType);
+
+        if (segments == null || segments.isEmpty()) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] formatInit = formatInitParts.get(trackType);
+        if (formatInit != null) {
+            out.write(formatInit, 0, formatInit.length);
+        }
+
+        long startTimeMs = C.TIME_UNSET;
+        long endTimeMs = C.TIME_UNSET;
+        long lastSequenceNumber = afterSequenceNumber;
+        boolean hasMedia = false;
+
+        Iterator<CapturedSegment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            CapturedSegment segment = iterator.next();
+            iterator.remove();
+            pendingBytes -= segment.data.size();
+
+            if (segment.sequenceNumber <= afterSequenceNumber) {
+                // Already loaded by the target track itself
+                continue;
+            }
+
+            if (startTimeMs == C.TIME_UNSET) {
+                startTimeMs = segment.startTimeMs;
+            }
+            endTimeMs = segment.startTimeMs + segment.durationMs;
+            lastSequenceNumber = segment.sequenceNumber;
+            hasMedia = true;
+
+            try {
+                segment.data.writeTo(out);
+            } catch (IOException e) {
+                // ByteArrayOutputStream never throws
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return hasMedia ? new Capture(out.toByteArray(), startTimeMs, endTimeMs, lastSequenceNumber) : null;
+    }
+
+    /**
+     * Drops captured media of the track. Called on seek.
+     */
+    public synchronized void reset(int trackType) {
+        ArrayDeque<CapturedSegment> segments = readySegments.get(trackType);
+
+        if (segments != null) {
+            for (CapturedSegment segment : segments) {
+                pendingBytes -= segment.data.size();
+            }
+            segments.clear();
+        }
+
+        Iterator<CapturedSegment> iterator = partialSegments.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().trackType == trackType) {
+                iterator.remove();
+            }
+        }
+
+        if (trackType == getOwnerTrackType()) {
+            onOwnerLoadFinished();
+        }
+    }
+
+    public synchronized void release() {
+        for (int i = 0; i < streams.size(); i++) {
+            streams.valueAt(i).setSabrSession(null);
+        }
+
+        streams.clear();
+        streamRefs.clear();
+        formatInitParts.clear();
+        readySegments.clear();
+        partialSegments.clear();
+        pendingBytes = 0;
+        ownerLoadStartMs = C.TIME_UNSET;
+    }
+}
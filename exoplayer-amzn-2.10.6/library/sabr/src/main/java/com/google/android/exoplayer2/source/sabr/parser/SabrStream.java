@@ -1,10 +1,13 @@
 package com.google.android.exoplayer2.source.sabr.parser;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.extractor.ExtractorInput;
 import com.google.android.exoplayer2.source.sabr.parser.exceptions.MediaSegmentMismatchError;
 import com.google.android.exoplayer2.source.sabr.parser.exceptions.SabrStreamError;
+import com.google.android.exoplayer2.source.sabr.parser.misc.Utils;
 import com.google.android.exoplayer2.source.sabr.parser.models.FormatSelector;
 import com.google.android.exoplayer2.source.sabr.parser.parts.FormatInitializedSabrPart;
 import com.google.android.exoplayer2.source.sabr.parser.parts.MediaSeekSabrPart;
@@ -41,8 +44,10 @@ import com.liskovsoft.sharedutils.querystringparser.UrlQueryString;
 import com.liskovsoft.sharedutils.querystringparser.UrlQueryStringFactory;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class SabrStream {
@@ -83,6 +88,8 @@ public class SabrStream {
     private boolean receivedNewSegments;
     private String url;
     private List<? extends  SabrPart> multiResult = null;
+    private final Map<Long, Integer> routedHeaders;
+    private volatile SabrSession sabrSession;
 
     private static class NoSegmentsTracker {
         public int consecutiveRequests = 0;
@@ -132,6 +139,7 @@ public class SabrStream {
         // Whether we got any new (not consumed) segments in the request
         noNewSegmentsTracker = new NoSegmentsTracker();
         unknownPartTypes = new HashSet<>();
+        routedHeaders = new HashMap<>();
 
         sqMismatchBacktrackCount = 0;
         sqMismatchForwardCount = 0;
@@ -174,6 +182,15 @@ public class SabrStream {
         processor.setFormatSelector(formatSelector);
     }
 
+    /**
+     * Parts of the formats selected by the other streams of the session are routed to the session
+     * instead of being discarded.
+     */
+    public void setSabrSession(@Nullable SabrSession sabrSession) {
+        this.sabrSession = sabrSession;
+        routedHeaders.clear();
+    }
+
     public long getSegmentStartTimeMs(int iTag) {
         return processor.getSegmentStartTimeMs(iTag);
     }
@@ -247,10 +264,23 @@ public class SabrStream {
 
     private MediaSegmentInitSabrPart processMediaHeader(UMPPart part) {
         MediaHeader mediaHeader;
+        SabrSession session = sabrSession;
 
         try {
-            mediaHeader = MediaHeader.parseFrom(part.toStream());
-        } catch (IOException e) {
+            if (session != null) {
+                byte[] data = Utils.readExactBytes(part.data, part.size);
+                mediaHeader = MediaHeader.parseFrom(data);
+                int targetTrackType = session.findTargetTrackType(this, mediaHeader.getFormatId(), null);
+
+                if (targetTrackType != C.TRACK_TYPE_UNKNOWN) {
+                    long headerId = Utils.toLong(mediaHeader.getHeaderId());
+                    routedHeaders.put(headerId, targetTrackType);
+                    session.onMediaHeader(targetTrackType, headerId, mediaHeader, data);
+                }
+            } else {
+                mediaHeader = MediaHeader.parseFrom(part.toStream());
+            }
+        } catch (IOException | InterruptedException e) {
             throw new IllegalStateException(e);
         }
 
@@ -288,6 +318,13 @@ public class SabrStream {
             long offset = part.data.getPosition() - position;
             int contentLength = part.size - (int) offset;
 
+            SabrSession session = sabrSession;
+            if (session != null && routedHeaders.containsKey(headerId)) {
+                // Belongs to another track. The local processor would discard it anyway.
+                session.onMedia(headerId, Utils.readExactBytes(part.data, contentLength));
+                return null;
+            }
+
             ProcessMediaResult result = processor.processMedia(headerId, contentLength, part.data);
 
             return result.sabrPart;
@@ -301,6 +338,11 @@ public class SabrStream {
             long headerId = decoder.readVarInt(part.data);
             Log.d(TAG, "Header ID: %s", headerId);
 
+            SabrSession session = sabrSession;
+            if (session != null && routedHeaders.remove(headerId) != null) {
+                session.onMediaEnd(headerId);
+            }
+
             ProcessMediaEndResult result = processor.processMediaEnd(headerId);
 
             if (result.isNewSegment) {
@@ -349,10 +391,22 @@ public class SabrStream {
 
     private FormatInitializedSabrPart processFormatInitializationMetadata(UMPPart part) {
         FormatInitializationMetadata fmtInitMetadata;
+        SabrSession session = sabrSession;
 
         try {
-            fmtInitMetadata = FormatInitializationMetadata.parseFrom(part.toStream());
-        } catch (IOException e) {
+            if (session != null) {
+                byte[] data = Utils.readExactBytes(part.data, part.size);
+                fmtInitMetadata = FormatInitializationMetadata.parseFrom(data);
+                int targetTrackType = session.findTargetTrackType(
+                        this, fmtInitMetadata.getFormatId(), fmtInitMetadata.hasMimeType() ? fmtInitMetadata.getMimeType() : null);
+
+                if (targetTrackType != C.TRACK_TYPE_UNKNOWN) {
+                    session.onFormatInitializationMetadata(targetTrackType, data);
+                }
+            } else {
+                fmtInitMetadata = FormatInitializationMetadata.parseFrom(part.toStream());
+            }
+        } catch (IOException | InterruptedException e) {
             throw new IllegalStateException(e);
         }
 
@@ -3,62 +3,45 @@ package com.google.android.exoplayer2.source.sabr.parser.ump;
 import androidx.annotation.NonNull;
 
 import com.google.android.exoplayer2.extractor.ExtractorInput;
-import com.liskovsoft.sharedutils.helpers.Helpers;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
+/**
+ * Reads UMP part headers and varints through a reusable scratch buffer.<br/>
+ * Not thread safe. Each {@link com.google.android.exoplayer2.source.sabr.parser.SabrStream} owns its own instance.
+ */
 public class UMPDecoder {
+    private static final int MAX_VARINT_SIZE = 5;
+    private final byte[] scratch = new byte[MAX_VARINT_SIZE * 2];
+
     public UMPPart decode(@NonNull ExtractorInput extractorInput) {
         try {
-            int partType = (int) readVarInt(extractorInput);
-            if (partType == -1) {
+            // Part header is two varints: type and size. Read it in at most three calls.
+            if (!extractorInput.readFully(scratch, 0, 1, true)) {
                 return null;
             }
 
-            int partSize = (int) readVarInt(extractorInput);
-            if (partSize == -1) {
+            int typeSize = varIntSize(scratch[0] & 0xFF);
+
+            // The rest of the type plus the first byte of the size
+            if (!extractorInput.readFully(scratch, 1, typeSize, true)) {
                 throw new IllegalStateException("Unexpected EOF while reading part size");
             }
 
-            return new UMPPart(partType, partSize, extractorInput);
-        } catch (IOException | InterruptedException e) {
-            throw new IllegalStateException(e);
-        }
-    }
+            int sizeSize = varIntSize(scratch[typeSize] & 0xFF);
 
-    private long readVarInt(StreamWrapper input) throws IOException, InterruptedException {
-        // https://web.archive.org/web/20250430054327/https://github.com/gsuberland/UMP_Format/blob/main/UMP_Format.md
-        // https://web.archive.org/web/20250429151021/https://github.com/davidzeng0/innertube/blob/main/googlevideo/ump.md
-        byte[] buffer = new byte[1];
-        boolean success = input.readFully(buffer, 0, 1, true);
-        if (!success) {
-            // Expected EOF
-            return -1;
-        }
-
-        long byteInt = buffer[0] & 0xFF; // convert to unsigned (0..255)
-        int size = varIntSize(byteInt);
-        long result = 0;
-        int shift = 0;
+            if (sizeSize > 1 && !extractorInput.readFully(scratch, typeSize + 1, sizeSize - 1, true)) {
+                throw new IllegalStateException("Unexpected EOF while reading part size");
+            }
 
-        if (size != 5) {
-            shift = 8 - size;
-            int mask = (1 << shift) - 1;
-            result |= byteInt & mask;
-        }
+            int partType = (int) parseVarInt(scratch, 0, typeSize);
+            int partSize = (int) parseVarInt(scratch, typeSize, sizeSize);
 
-        for (int i : Helpers.range(1, size - 1, 1)) {
-            success = input.readFully(buffer, 0, 1, true);
-            if (!success) {
-                return -1;
-            }
-            byteInt = buffer[0] & 0xFF; // convert to unsigned (0..255)
-            result |= byteInt << shift;
-            shift += 8;
+            return new UMPPart(partType, partSize, extractorInput);
+        } catch (IOException | InterruptedException e) {
+            throw new IllegalStateException(e);
         }
-
-        return result;
     }
 
     //private long readVarInt(StreamWrapper input) throws IOException, InterruptedException {
@@ -93,22 +76,58 @@ public class UMPDecoder {
     //}
 
     public long readVarInt(ExtractorInput input) throws IOException, InterruptedException {
-        return readVarInt(input::readFully);
+        // https://web.archive.org/web/20250430054327/https://github.com/gsuberland/UMP_Format/blob/main/UMP_Format.md
+        // https://web.archive.org/web/20250429151021/https://github.com/davidzeng0/innertube/blob/main/googlevideo/ump.md
+        if (!input.readFully(scratch, 0, 1, true)) {
+            // Expected EOF
+            return -1;
+        }
+
+        int size = varIntSize(scratch[0] & 0xFF);
+
+        if (size > 1 && !input.readFully(scratch, 1, size - 1, true)) {
+            return -1;
+        }
+
+        return parseVarInt(scratch, 0, size);
     }
 
-    public long readVarInt(ByteArrayInputStream inputStream) throws IOException, InterruptedException {
-        return readVarInt((target, offset, length, allowEndOfInput) -> {
-            int numRead = inputStream.read(target, offset, length);
-            return numRead != -1;
-        });
+    public long readVarInt(ByteArrayInputStream inputStream) {
+        int first = inputStream.read();
+        if (first == -1) {
+            return -1;
+        }
+
+        scratch[0] = (byte) first;
+        int size = varIntSize(first);
+
+        if (size > 1 && inputStream.read(scratch, 1, size - 1) != size - 1) {
+            return -1;
+        }
+
+        return parseVarInt(scratch, 0, size);
     }
 
-    private int varIntSize(long byteInt) {
-        return byteInt < 128 ? 1 : byteInt < 192 ? 2 : byteInt < 224 ? 3 : byteInt < 240 ? 4 : 5;
+    private static long parseVarInt(byte[] buffer, int offset, int size) {
+        long result = 0;
+        int shift = 0;
+
+        if (size != MAX_VARINT_SIZE) {
+            shift = 8 - size;
+            int mask = (1 << shift) - 1;
+            result |= buffer[offset] & mask;
+        }
+
+        for (int i = 1; i < size; i++) {
+            long byteInt = buffer[offset + i] & 0xFF; // convert to unsigned (0..255)
+            result |= byteInt << shift;
+            shift += 8;
+        }
+
+        return result;
     }
 
-    private interface StreamWrapper {
-        boolean readFully(byte[] target, int offset, int length, boolean allowEndOfInput)
-                throws IOException, InterruptedException;
+    private static int varIntSize(int byteInt) {
+        return byteInt < 128 ? 1 : byteInt < 192 ? 2 : byteInt < 224 ? 3 : byteInt < 240 ? 4 : 5;
     }
 }
@@ -1,7 +1,62 @@
 package com.google.android.exoplayer2.source.sabr.parser.ump;
 
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Writes UMP parts in the same wire format that {@link UMPDecoder} reads.<br/>
+ * Used to re-emit parts that were received in a multiplexed response but belong to another track.
+ */
 public class UMPEncoder {
-    public void encode(UMPPart part) {
-        
+    public void encode(ByteArrayOutputStream out, int partId, byte[] data) {
+        writeVarInt(out, partId);
+        writeVarInt(out, data.length);
+        out.write(data, 0, data.length);
+    }
+
+    /**
+     * MEDIA and MEDIA_END parts are prefixed with the header id of the segment they belong to.
+     */
+    public void encode(ByteArrayOutputStream out, int partId, long headerId, byte[] data) {
+        writeVarInt(out, partId);
+        writeVarInt(out, varIntSize(headerId) + data.length);
+        writeVarInt(out, headerId);
+        out.write(data, 0, data.length);
+    }
+
+    public void writeVarInt(ByteArrayOutputStream out, long value) {
+        // https://web.archive.org/web/20250430054327/https://github.com/gsuberland/UMP_Format/blob/main/UMP_Format.md
+        int size = varIntSize(value);
+
+        switch (size) {
+            case 1:
+                out.write((int) value);
+                break;
+            case 2:
+                out.write(0x80 | (int) (value & 0x3F));
+                out.write((int) (value >> 6) & 0xFF);
+                break;
+            case 3:
+                out.write(0xC0 | (int) (value & 0x1F));
+                out.write((int) (value >> 5) & 0xFF);
+                out.write((int) (value >> 13) & 0xFF);
+                break;
+            case 4:
+                out.write(0xE0 | (int) (value & 0x0F));
+                out.write((int) (value >> 4) & 0xFF);
+                out.write((int) (value >> 12) & 0xFF);
+                out.write((int) (value >> 20) & 0xFF);
+                break;
+            default:
+                out.write(0xF0);
+                out.write((int) value & 0xFF);
+                out.write((int) (value >> 8) & 0xFF);
+                out.write((int) (value >> 16) & 0xFF);
+                out.write((int) (value >> 24) & 0xFF);
+                break;
+        }
+    }
+
+    public int varIntSize(long value) {
+        return value < (1 << 7) ? 1 : value < (1 << 14) ? 2 : value < (1 << 21) ? 3 : value < (1 << 28) ? 4 : 5;
     }
 }
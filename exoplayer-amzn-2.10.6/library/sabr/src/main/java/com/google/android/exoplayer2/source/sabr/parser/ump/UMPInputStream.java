@@ -5,8 +5,12 @@ import com.google.android.exoplayer2.C;
 import java.io.IOException;
 import java.io.InputStream;
 
+/**
+ * Bounded view over the payload of a single part. Reads straight from the part's {@link com.google.android.exoplayer2.extractor.ExtractorInput}.
+ */
 public class UMPInputStream extends InputStream {
     private final UMPPart part;
+    private final byte[] singleByte = new byte[1];
     private int position = 0; // bytes read so far
 
     public UMPInputStream(UMPPart part) {
@@ -17,10 +21,9 @@ public class UMPInputStream extends InputStream {
     public int read() throws IOException {
         if (position >= part.size) return -1;
 
-        byte[] buffer = new byte[1];
         int read;
         try {
-            read = part.data.read(buffer, 0, 1);
+            read = part.data.read(singleByte, 0, 1);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // preserve interrupt status
             throw new IOException("Interrupted while reading from ExtractorInput", e);
@@ -28,7 +31,7 @@ public class UMPInputStream extends InputStream {
 
         if (read == C.RESULT_END_OF_INPUT) return -1;
         position += read;
-        return buffer[0] & 0xFF;
+        return singleByte[0] & 0xFF;
     }
 
     @Override
@@ -4,8 +4,29 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import android.net.Uri;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.testutil.FakeClock;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+@RunWith(AndroidJUnit4.class)
 public class SabrCdnSelectorTest {
     private static final String PRIMARY_URL =
             "https://rr1---sn-primary.googlevideo.com/videoplayback?"
@@ -13,6 +34,17 @@ public class SabrCdnSelectorTest {
     private static final String SECONDARY_URL =
             "https://rr2---sn-secondary.googlevideo.com/videoplayback?"
                     + "mn=sn-primary%2Csn-secondary&sig=signed";
+    private static final String HOST_A_URL = "https://a.example.com/videoplayback";
+    private static final String HOST_B_URL = "https://b.example.com/videoplayback";
+    private static final long MB = 1024 * 1024;
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+    }
 
     @Test
     public void startsWithOriginalUrlAndAdvancesOnce() {
@@ -77,4 +109,168 @@ public class SabrCdnSelectorTest {
         assertFalse(selector.maybeAdvance(url));
         assertEquals(url, selector.getCurrentUrl());
     }
+
+    @Test
+    public void failedHostIsBackedOffExponentially() {
+        FakeClock clock = new FakeClock(0);
+        SabrCdnSelector selector = new SabrCdnSelector(Arrays.asList(HOST_A_URL, HOST_B_URL), clock);
+
+        selector.onLoadFailed(HOST_A_URL);
+        assertEquals(10_000, selector.getHostStats().get(0).backoffUntilMs);
+        assertEquals(HOST_B_URL, selector.getCurrentUrl());
+
+        clock.advanceTime(10_000);
+        selector.onLoadFailed(HOST_A_URL);
+        assertEquals(30_000, selector.getHostStats().get(0).backoffUntilMs);
+        assertEquals(2, selector.getHostStats().get(0).failureCount);
+
+        selector.onLoadCompleted(HOST_A_URL, 100, MB, 1_000);
+        assertEquals(0, selector.getHostStats().get(0).failureCount);
+        assertEquals(30_000, selector.getHostStats().get(0).backoffUntilMs);
+    }
+
+    @Test
+    public void staleFailureDoesNotExtendBackoff() {
+        FakeClock clock = new FakeClock(0);
+        SabrCdnSelector selector = new SabrCdnSelector(Arrays.asList(HOST_A_URL, HOST_B_URL), clock);
+
+        assertTrue(selector.maybeAdvance(HOST_A_URL));
+        clock.advanceTime(1_000);
+        assertTrue(selector.maybeAdvance(HOST_A_URL));
+        selector.onLoadFailed(HOST_A_URL);
+
+        assertEquals(1, selector.getHostStats().get(0).failureCount);
+        assertEquals(10_000, selector.getHostStats().get(0).backoffUntilMs);
+        assertEquals(HOST_B_URL, selector.getCurrentUrl());
+    }
+
+    @Test
+    public void failureOfUnusedHostIsIgnored() {
+        SabrCdnSelector selector = new SabrCdnSelector(Arrays.asList(HOST_A_URL, HOST_B_URL), new FakeClock(0));
+
+        assertFalse(selector.maybeAdvance(HOST_B_URL));
+        assertEquals(0, selector.getHostStats().get(1).failureCount);
+        assertEquals(HOST_A_URL, selector.getCurrentUrl());
+    }
+
+    @Test
+    public void slowHostIsReplacedByMeasuredFasterHost() {
+        SabrCdnSelector selector = new SabrCdnSelector(Arrays.asList(HOST_A_URL, HOST_B_URL), new FakeClock(0));
+
+        selector.onLoadCompleted(HOST_A_URL, 800, MB, 4_000);
+        assertEquals(HOST_A_URL, selector.getCurrentUrl());
+
+        selector.onLoadCompleted(HOST_B_URL, 100, MB, 500);
+        assertEquals(HOST_B_URL, selector.getCurrentUrl());
+
+        SabrCdnSelector.HostStats stats = selector.getHostStats().get(1);
+        assertEquals(100, (long) stats.ttfbMs);
+        assertEquals(MB * 8_000 / 500, (long) stats.throughputBps);
+    }
+
+    @Test
+    public void comparableHostDoesNotTriggerSwitch() {
+        SabrCdnSelector selector = new SabrCdnSelector(Arrays.asList(HOST_A_URL, HOST_B_URL), new FakeClock(0));
+
+        selector.onLoadCompleted(HOST_A_URL, 100, MB, 1_000);
+        selector.onLoadCompleted(HOST_B_URL, 90, MB, 900);
+
+        assertEquals(HOST_A_URL, selector.getCurrentUrl());
+    }
+
+    @Test
+    public void smallLoadsDoNotAffectThroughput() {
+        SabrCdnSelector selector = new SabrCdnSelector(Arrays.asList(HOST_A_URL, HOST_B_URL), new FakeClock(0));
+
+        selector.onLoadCompleted(HOST_A_URL, 100, 1_000, 1);
+
+        assertEquals(0, (long) selector.getHostStats().get(0).throughputBps);
+        assertEquals(1, selector.getHostStats().get(0).loadCount);
+    }
+
+    @Test
+    public void onlyCompletedChunksAreMeasured() {
+        FakeClock clock = new FakeClock(0);
+        SabrCdnSelector selector = new SabrCdnSelector(Arrays.asList(HOST_A_URL, HOST_B_URL), clock);
+        DataSpec failedSpec = new DataSpec(Uri.parse(HOST_A_URL));
+        DataSpec completedSpec = new DataSpec(Uri.parse(HOST_A_URL));
+
+        transfer(selector.getTransferListener(), clock, failedSpec);
+        selector.onChunkLoadError(failedSpec);
+        assertEquals(0, selector.getHostStats().get(0).loadCount);
+
+        transfer(selector.getTransferListener(), clock, completedSpec);
+        selector.onChunkLoadCompleted(completedSpec);
+        assertEquals(1, selector.getHostStats().get(0).loadCount);
+        assertEquals(100, (long) selector.getHostStats().get(0).ttfbMs);
+
+        // Already counted
+        selector.onChunkLoadCompleted(completedSpec);
+        assertEquals(1, selector.getHostStats().get(0).loadCount);
+    }
+
+    @Test
+    public void raceSwitchesToFasterHost() throws IOException {
+        String slowUrl = startServer("localhost", 1_000, 200) + "/videoplayback";
+        String fastUrl = startServer("127.0.0.1", 0, 200) + "/videoplayback";
+        SabrCdnSelector selector = new SabrCdnSelector(Arrays.asList(slowUrl, fastUrl), new FakeClock(0));
+
+        selector.race(new DefaultHttpDataSourceFactory("test"));
+
+        assertEquals(fastUrl, selector.getCurrentUrl());
+    }
+
+    @Test
+    public void raceKeepsCurrentHostWhenAlternateIsSlower() throws IOException {
+        String fastUrl = startServer("localhost", 0, 200) + "/videoplayback";
+        String slowUrl = startServer("127.0.0.1", 1_000, 200) + "/videoplayback";
+        SabrCdnSelector selector = new SabrCdnSelector(Arrays.asList(fastUrl, slowUrl), new FakeClock(0));
+
+        selector.race(new DefaultHttpDataSourceFactory("test"));
+
+        assertEquals(fastUrl, selector.getCurrentUrl());
+    }
+
+    @Test
+    public void raceDemotesFailingHost() throws IOException {
+        String failingUrl = startServer("localhost", 0, 503) + "/videoplayback";
+        String workingUrl = startServer("127.0.0.1", 0, 403) + "/videoplayback"; // alive, just unauthorized
+        SabrCdnSelector selector = new SabrCdnSelector(Arrays.asList(failingUrl, workingUrl), new FakeClock(0));
+
+        selector.race(new DefaultHttpDataSourceFactory("test"));
+
+        assertEquals(workingUrl, selector.getCurrentUrl());
+        assertEquals(1, selector.getHostStats().get(0).failureCount);
+        assertEquals(0, selector.getHostStats().get(1).failureCount);
+    }
+
+    private static void transfer(TransferListener listener, FakeClock clock, DataSpec dataSpec) {
+        DataSource source = new DefaultHttpDataSource("test");
+        listener.onTransferInitializing(source, dataSpec, true);
+        clock.advanceTime(100);
+        listener.onTransferStart(source, dataSpec, true);
+        listener.onBytesTransferred(source, dataSpec, true, (int) MB);
+        clock.advanceTime(1_000);
+        listener.onTransferEnd(source, dataSpec, true);
+    }
+
+    /**
+     * @return base url of the stub server
+     */
+    private String startServer(String host, long delayMs, int responseCode) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(responseCode, -1);
+            exchange.close();
+        });
+        server.start();
+        servers.add(server);
+
+        return "http://" + host + ":" + server.getAddress().getPort();
+    }
 }
@@ -0,0 +1,220 @@
+package com.google.android.exoplayer2.source.sabr.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.extractor.ExtractorInput;
+import com.google.android.exoplayer2.source.sabr.parser.models.FormatSelector;
+import com.google.android.exoplayer2.source.sabr.parser.parts.MediaSegmentDataSabrPart;
+import com.google.android.exoplayer2.source.sabr.parser.parts.SabrPart;
+import com.google.android.exoplayer2.source.sabr.parser.ump.UMPDecoder;
+import com.google.android.exoplayer2.source.sabr.parser.ump.UMPEncoder;
+import com.google.android.exoplayer2.source.sabr.parser.ump.UMPPartId;
+import com.google.android.exoplayer2.source.sabr.protos.misc.FormatId;
+import com.google.android.exoplayer2.source.sabr.protos.videostreaming.FormatInitializationMetadata;
+import com.google.android.exoplayer2.source.sabr.protos.videostreaming.MediaHeader;
+import com.google.android.exoplayer2.source.sabr.protos.videostreaming.StreamerContext.ClientInfo;
+import com.google.android.exoplayer2.testutil.FakeExtractorInput;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class SabrSessionTest {
+    private static final FormatId VIDEO_FORMAT = FormatId.newBuilder().setItag(137).build();
+    private static final FormatId AUDIO_FORMAT = FormatId.newBuilder().setItag(140).build();
+    private static final byte[] VIDEO_DATA = {1, 2, 3, 4, 5, 6, 7, 8};
+    private static final byte[] AUDIO_DATA = {9, 10, 11, 12};
+
+    private static final class ParsedData {
+        public final int itag;
+        public final byte[] data;
+
+        private ParsedData(int itag, byte[] data) {
+            this.itag = itag;
+            this.data = data;
+        }
+    }
+
+    private final UMPEncoder encoder = new UMPEncoder();
+    private SabrSession session;
+    private SabrStream videoStream;
+    private SabrStream audioStream;
+
+    @Before
+    public void setUp() {
+        session = new SabrSession();
+        videoStream = createStream(new FormatSelector("video", false, VIDEO_FORMAT));
+        audioStream = createStream(new FormatSelector("audio", false, AUDIO_FORMAT));
+        session.register(C.TRACK_TYPE_VIDEO, videoStream);
+        session.register(C.TRACK_TYPE_AUDIO, audioStream);
+    }
+
+    @Test
+    public void varIntRoundTrip() throws Exception {
+        UMPDecoder decoder = new UMPDecoder();
+        long[] values = {0, 1, 127, 128, 16_383, 16_384, 2_097_151, 2_097_152, 268_435_455, 268_435_456, 0xFFFFFFFFL};
+
+        for (long value : values) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            encoder.writeVarInt(out, value);
+            assertEquals(encoder.varIntSize(value), out.size());
+            assertEquals(value, decoder.readVarInt(new ByteArrayInputStream(out.toByteArray())));
+        }
+    }
+
+    @Test
+    public void multiplexedResponseIsSplitBetweenTracks() {
+        List<ParsedData> videoParts = parseAll(videoStream, createMultiplexedCapture());
+
+        assertEquals(1, videoParts.size());
+        assertEquals(VIDEO_FORMAT.getItag(), videoParts.get(0).itag);
+        assertArrayEquals(VIDEO_DATA, videoParts.get(0).data);
+
+        assertTrue(session.hasCapture(C.TRACK_TYPE_AUDIO));
+        assertFalse(session.hasCapture(C.TRACK_TYPE_VIDEO));
+
+        SabrSession.Capture capture = session.pollCapture(C.TRACK_TYPE_AUDIO, -1);
+
+        assertNotNull(capture);
+        assertEquals(1, capture.lastSequenceNumber);
+        assertEquals(0, capture.startTimeMs);
+        assertEquals(5_000, capture.endTimeMs);
+        assertFalse(session.hasCapture(C.TRACK_TYPE_AUDIO));
+
+        // The audio source replays the capture through its own stream
+        session.unregister(C.TRACK_TYPE_AUDIO);
+        List<ParsedData> audioParts = parseAll(audioStream, capture.data);
+
+        assertEquals(1, audioParts.size());
+        assertEquals(AUDIO_FORMAT.getItag(), audioParts.get(0).itag);
+        assertArrayEquals(AUDIO_DATA, audioParts.get(0).data);
+    }
+
+    @Test
+    public void alreadyLoadedSegmentsAreSkipped() {
+        parseAll(videoStream, createMultiplexedCapture());
+
+        assertNull(session.pollCapture(C.TRACK_TYPE_AUDIO, 1));
+        assertFalse(session.hasCapture(C.TRACK_TYPE_AUDIO));
+    }
+
+    @Test
+    public void nothingIsCapturedWithoutAudioTrack() {
+        session.unregister(C.TRACK_TYPE_AUDIO);
+
+        assertFalse(session.isMultiplexed());
+
+        List<ParsedData> videoParts = parseAll(videoStream, createMultiplexedCapture());
+
+        assertEquals(1, videoParts.size());
+        assertFalse(session.hasCapture(C.TRACK_TYPE_AUDIO));
+    }
+
+    @Test
+    public void resetDropsCapturedMedia() {
+        parseAll(videoStream, createMultiplexedCapture());
+        session.reset(C.TRACK_TYPE_AUDIO);
+
+        assertFalse(session.hasCapture(C.TRACK_TYPE_AUDIO));
+        assertNull(session.pollCapture(C.TRACK_TYPE_AUDIO, -1));
+    }
+
+    private static SabrStream createStream(FormatSelector formatSelector) {
+        SabrStream sabrStream = new SabrStream(
+                "https://rr1---sn-test.googlevideo.com/videoplayback?sabr=1",
+                "",
+                ClientInfo.getDefaultInstance(),
+                5,
+                0,
+                0,
+                null,
+                false,
+                null,
+                -1
+        );
+        sabrStream.setFormatSelector(formatSelector);
+        return sabrStream;
+    }
+
+    /**
+     * Single response that carries both the video and the audio segment (interleaved).
+     */
+    private byte[] createMultiplexedCapture() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        encoder.encode(out, UMPPartId.FORMAT_INITIALIZATION_METADATA, createFormatInit(VIDEO_FORMAT, "video/mp4").toByteArray());
+        encoder.encode(out, UMPPartId.FORMAT_INITIALIZATION_METADATA, createFormatInit(AUDIO_FORMAT, "audio/mp4").toByteArray());
+        encoder.encode(out, UMPPartId.MEDIA_HEADER, createMediaHeader(1, VIDEO_FORMAT, VIDEO_DATA.length).toByteArray());
+        encoder.encode(out, UMPPartId.MEDIA_HEADER, createMediaHeader(2, AUDIO_FORMAT, AUDIO_DATA.length).toByteArray());
+        encoder.encode(out, UMPPartId.MEDIA, 1, VIDEO_DATA);
+        encoder.encode(out, UMPPartId.MEDIA, 2, AUDIO_DATA);
+        encoder.encode(out, UMPPartId.MEDIA_END, 1, new byte[0]);
+        encoder.encode(out, UMPPartId.MEDIA_END, 2, new byte[0]);
+
+        return out.toByteArray();
+    }
+
+    private static FormatInitializationMetadata createFormatInit(FormatId formatId, String mimeType) {
+        return FormatInitializationMetadata.newBuilder()
+                .setFormatId(formatId)
+                .setMimeType(mimeType)
+                .setEndSegmentNumber(10)
+                .setEndTimeMs(50_000)
+                .build();
+    }
+
+    private static MediaHeader createMediaHeader(int headerId, FormatId formatId, int contentLength) {
+        return MediaHeader.newBuilder()
+                .setHeaderId(headerId)
+                .setItag(formatId.getItag())
+                .setFormatId(formatId)
+                .setSequenceNumber(1)
+                .setStartMs(0)
+                .setDurationMs(5_000)
+                .setContentLength(contentLength)
+                .build();
+    }
+
+    /**
+     * Parses the response and returns the media payloads that were passed to the stream consumer.
+     */
+    private static List<ParsedData> parseAll(SabrStream sabrStream, byte[] data) {
+        ExtractorInput input = new FakeExtractorInput.Builder().setData(data).build();
+        List<ParsedData> result = new ArrayList<>();
+
+        SabrPart part;
+        while ((part = sabrStream.parse(input)) != null) {
+            if (part instanceof MediaSegmentDataSabrPart) {
+                MediaSegmentDataSabrPart dataPart = (MediaSegmentDataSabrPart) part;
+                // The payload must be consumed before the next part is parsed
+                result.add(new ParsedData(dataPart.formatId.getItag(), readBytes(dataPart.data, dataPart.contentLength)));
+            }
+        }
+
+        return result;
+    }
+
+    private static byte[] readBytes(ExtractorInput input, int length) {
+        byte[] result = new byte[length];
+        try {
+            input.readFully(result, 0, length);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+}
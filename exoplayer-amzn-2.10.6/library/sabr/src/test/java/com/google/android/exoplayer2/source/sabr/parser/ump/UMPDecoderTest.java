@@ -0,0 +1,117 @@
+package com.google.android.exoplayer2.source.sabr.parser.ump;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.google.android.exoplayer2.extractor.ExtractorInput;
+import com.google.android.exoplayer2.testutil.FakeExtractorInput;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+public class UMPDecoderTest {
+    private static final long[] VAR_INTS = {
+            0, 1, 127, 128, 16_383, 16_384, 2_097_151, 2_097_152, 268_435_455, 268_435_456, 0xFFFFFFFFL
+    };
+
+    private final UMPEncoder encoder = new UMPEncoder();
+    private final UMPDecoder decoder = new UMPDecoder();
+
+    @Test
+    public void readsVarIntsOfAllSizes() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (long value : VAR_INTS) {
+            encoder.writeVarInt(out, value);
+        }
+
+        ExtractorInput input = createInput(out.toByteArray());
+
+        for (long value : VAR_INTS) {
+            assertEquals(value, decoder.readVarInt(input));
+        }
+
+        assertEquals(-1, decoder.readVarInt(input));
+    }
+
+    @Test
+    public void decodesPartsWithMultiByteHeaders() throws Exception {
+        byte[] small = {1, 2, 3};
+        byte[] large = new byte[20_000];
+        Arrays.fill(large, (byte) 7);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.encode(out, UMPPartId.MEDIA_HEADER, small);
+        encoder.encode(out, 300, large); // two byte type and three byte size
+        encoder.encode(out, UMPPartId.MEDIA_END, new byte[0]);
+
+        ExtractorInput input = createInput(out.toByteArray());
+
+        UMPPart part = decoder.decode(input);
+        assertNotNull(part);
+        assertEquals(UMPPartId.MEDIA_HEADER, part.partId);
+        assertArrayEquals(small, readPart(part));
+
+        part = decoder.decode(input);
+        assertNotNull(part);
+        assertEquals(300, part.partId);
+        assertArrayEquals(large, readPart(part));
+
+        part = decoder.decode(input);
+        assertNotNull(part);
+        assertEquals(UMPPartId.MEDIA_END, part.partId);
+        assertEquals(0, part.size);
+
+        assertNull(decoder.decode(input));
+    }
+
+    @Test
+    public void partStreamIsBoundedByPartSize() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.encode(out, UMPPartId.MEDIA, new byte[] {10, 20});
+        encoder.encode(out, UMPPartId.MEDIA, new byte[] {30});
+
+        ExtractorInput input = createInput(out.toByteArray());
+
+        UMPInputStream stream = decoder.decode(input).toStream();
+        assertEquals(10, stream.read());
+        assertEquals(20, stream.read());
+        assertEquals(-1, stream.read());
+
+        UMPPart next = decoder.decode(input);
+        assertNotNull(next);
+        assertArrayEquals(new byte[] {30}, readPart(next));
+    }
+
+    @Test
+    public void truncatedHeaderThrows() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.writeVarInt(out, UMPPartId.MEDIA);
+        out.write(0xC0); // first byte of a three byte size
+
+        try {
+            decoder.decode(createInput(out.toByteArray()));
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    private static ExtractorInput createInput(byte[] data) {
+        // Small reads exercise the partial read paths of the decoder
+        return new FakeExtractorInput.Builder()
+                .setData(data)
+                .setSimulatePartialReads(true)
+                .build();
+    }
+
+    private static byte[] readPart(UMPPart part) throws Exception {
+        byte[] result = new byte[part.size];
+        part.data.readFully(result, 0, part.size);
+        return result;
+    }
+}
@@ -2,14 +2,18 @@ package com.liskovsoft.leanbackassistant.channels;
 
 import android.annotation.TargetApi;
 import android.content.ComponentName;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.media.tv.TvContract;
 import android.net.Uri;
+import android.os.RemoteException;
 import android.provider.BaseColumns;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.WorkerThread;
@@ -31,7 +35,9 @@ import com.liskovsoft.sharedutils.mylogger.Log;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -55,6 +61,21 @@ public class ChannelsProvider {
     private static final Uri PREVIEW_PROGRAMS_CONTENT_URI =
             Uri.parse("content://android.media.tv/preview_program");
 
+    /**
+     * Index into "PROGRAM_DIFF_PROJECTION" and if that changes, this should change too.
+     */
+    private static final int COLUMN_PROGRAM_ID_INDEX = 0;
+    private static final int COLUMN_PROGRAM_INTERNAL_PROVIDER_ID_INDEX = 1;
+    private static final int COLUMN_PROGRAM_CONTENT_HASH_INDEX = 2;
+
+    /**
+     * The content hash is stored in the unused provider flag. So the unchanged programs (and channels) aren't rewritten.
+     */
+    private static final String COLUMN_CONTENT_HASH = TvContractCompat.PreviewPrograms.COLUMN_INTERNAL_PROVIDER_FLAG1;
+
+    private static final String[] PROGRAM_DIFF_PROJECTION =
+            {BaseColumns._ID, TvContractCompat.PreviewPrograms.COLUMN_INTERNAL_PROVIDER_ID, COLUMN_CONTENT_HASH};
+
     @TargetApi(21)
     private static final String[] CHANNEL_COLUMNS = {
             TvContractCompat.Channels._ID,
@@ -299,18 +320,143 @@ public class ChannelsProvider {
             return;
         }
 
-        cleanupChannel(context, channelId);
+        List<Clip> publishedClips = new ArrayList<>();
+        List<ContentValues> programs = new ArrayList<>();
+        long channelHash = 0;
 
         int weight = clips.size();
         for (int i = 0; i < clips.size(); ++i, --weight) {
             Clip clip = clips.get(i);
 
-            publishProgram(context, clip, channelId, weight);
+            if (clip.getVideoUrl() == null) {
+                // Seems like this is an ads
+                Log.e(TAG, "Clip doesn't contain url. Skipping...");
+                continue;
+            }
+
+            ContentValues values = createProgramBuilder(context, clip)
+                    .setWeight(weight)
+                    .setChannelId(channelId)
+                    .build()
+                    .toContentValues();
+            long programHash = values.hashCode();
+            values.put(COLUMN_CONTENT_HASH, programHash);
+
+            publishedClips.add(clip);
+            programs.add(values);
+            channelHash = 31 * channelHash + programHash;
         }
+
+        if (channelHash == getChannelContentHash(context, channelId)) {
+            Log.d(TAG, "Channel content not changed. Skipping update... channelId: " + channelId);
+            return;
+        }
+
+        publishPrograms(context, channelId, channelHash, publishedClips, programs);
     }
 
-    private static void cleanupChannel(Context context, long channelId) {
-        context.getContentResolver().delete(TvContractCompat.buildPreviewProgramsUriForChannel(channelId), null, null);
+    /**
+     * Reads the existing programs once and applies the difference with a single batch.
+     */
+    @WorkerThread
+    private static void publishPrograms(Context context, long channelId, long channelHash, List<Clip> clips, List<ContentValues> programs) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        // Indexes of the insert operations
+        Map<Integer, Clip> insertedClips = new HashMap<>();
+        Map<String, long[]> existingPrograms = getExistingPrograms(context, channelId, operations);
+
+        for (int i = 0; i < clips.size(); i++) {
+            Clip clip = clips.get(i);
+            ContentValues values = programs.get(i);
+            long[] existing = existingPrograms.remove(clip.getClipId());
+
+            if (existing == null) {
+                insertedClips.put(operations.size(), clip);
+                operations.add(ContentProviderOperation.newInsert(PREVIEW_PROGRAMS_CONTENT_URI)
+                        .withValues(values)
+                        .build());
+            } else {
+                clip.setProgramId(existing[0]);
+
+                if (existing[1] != values.getAsLong(COLUMN_CONTENT_HASH)) {
+                    operations.add(ContentProviderOperation.newUpdate(TvContractCompat.buildPreviewProgramUri(existing[0]))
+                            .withValues(values)
+                            .build());
+                }
+            }
+        }
+
+        for (long[] existing : existingPrograms.values()) {
+            operations.add(ContentProviderOperation.newDelete(TvContractCompat.buildPreviewProgramUri(existing[0])).build());
+        }
+
+        operations.add(ContentProviderOperation.newUpdate(TvContractCompat.buildChannelUri(channelId))
+                .withValue(COLUMN_CONTENT_HASH, channelHash)
+                .build());
+
+        try {
+            ContentProviderResult[] results = context.getContentResolver().applyBatch(TvContractCompat.AUTHORITY, operations);
+
+            for (Map.Entry<Integer, Clip> entry : insertedClips.entrySet()) {
+                Uri programUri = results[entry.getKey()].uri;
+
+                if (programUri == null || programUri.equals(Uri.EMPTY)) {
+                    Log.e(TAG, "Insert program failed");
+                    continue;
+                }
+
+                entry.getValue().setProgramId(ContentUris.parseId(programUri));
+            }
+
+            Log.d(TAG, "Channel programs updated. Operations: " + operations.size() + ", inserted: " + insertedClips.size() +
+                    ", deleted: " + existingPrograms.size());
+        } catch (RemoteException | OperationApplicationException | RuntimeException e) {
+            Log.e(TAG, "Update programs failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Internal provider id -> [program id, content hash]. Duplicates are scheduled for removal.
+     */
+    private static Map<String, long[]> getExistingPrograms(Context context, long channelId, List<ContentProviderOperation> operations) {
+        Map<String, long[]> result = new HashMap<>();
+
+        try (Cursor cursor = context.getContentResolver().query(
+                TvContractCompat.buildPreviewProgramsUriForChannel(channelId), PROGRAM_DIFF_PROJECTION, null, null, null)) {
+            if (cursor == null) {
+                return result;
+            }
+
+            while (cursor.moveToNext()) {
+                long programId = cursor.getLong(COLUMN_PROGRAM_ID_INDEX);
+                String providerId = cursor.getString(COLUMN_PROGRAM_INTERNAL_PROVIDER_ID_INDEX);
+                long contentHash = cursor.isNull(COLUMN_PROGRAM_CONTENT_HASH_INDEX) ? 0 : cursor.getLong(COLUMN_PROGRAM_CONTENT_HASH_INDEX);
+
+                if (providerId == null || result.containsKey(providerId)) {
+                    operations.add(ContentProviderOperation.newDelete(TvContractCompat.buildPreviewProgramUri(programId)).build());
+                } else {
+                    result.put(providerId, new long[] {programId, contentHash});
+                }
+            }
+        } catch (Exception e) { // channels not supported
+            Log.e(TAG, "Query programs failed: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    private static long getChannelContentHash(Context context, long channelId) {
+        try (Cursor cursor = context.getContentResolver().query(
+                TvContractCompat.buildChannelUri(channelId), new String[] {COLUMN_CONTENT_HASH}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } catch (Exception e) { // channels not supported
+            Log.e(TAG, "Query channel failed: " + e.getMessage());
+        }
+
+        return 0;
     }
 
     @WorkerThread
@@ -372,40 +518,6 @@ public class ChannelsProvider {
         }
     }
 
-    private static void publishProgram(Context context, Clip clip, long channelId, int weight) {
-        if (clip.getProgramId() != -1) {
-            Log.e(TAG, "Clip already published. Skipping...");
-            return;
-        }
-
-        if (clip.getVideoUrl() == null) {
-            // Seems like this is an ads
-            Log.e(TAG, "Clip doesn't contain url. Skipping...");
-            return;
-        }
-
-        PreviewProgram.Builder builder =
-                createProgramBuilder(context, clip)
-                        .setWeight(weight)
-                        .setChannelId(channelId);
-
-        Uri programUri = null;
-
-        try {
-            programUri = context.getContentResolver().insert(PREVIEW_PROGRAMS_CONTENT_URI, builder.build().toContentValues());
-        } catch (Exception e) {
-            Log.e(TAG, e.getMessage());
-            e.printStackTrace();
-        }
-
-        if (programUri == null || programUri.equals(Uri.EMPTY)) {
-            Log.e(TAG, "Insert program failed");
-            return;
-        }
-
-        clip.setProgramId(ContentUris.parseId(programUri));
-    }
-
     static String decodeVideoId(Uri uri) {
         List<String> paths = uri.getPathSegments();
         if (paths.size() == 2 && TextUtils.equals(paths.get(0), PLAY_VIDEO_ACTION_PATH)) {
@@ -18,6 +18,7 @@ import androidx.tvprovider.media.tv.TvContractCompat;
 
 import com.liskovsoft.googlecommon.common.helpers.ServiceHelper;
 import com.liskovsoft.leanbackassistant.media.ClipService.GroupCallback;
+import com.liskovsoft.leanbackassistant.search.SearchBackend;
 import com.liskovsoft.mediaserviceinterfaces.ContentService;
 import com.liskovsoft.mediaserviceinterfaces.ServiceManager;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaGroup;
@@ -198,6 +199,9 @@ public final class Playlist {
                 // Fix duplicated items inside ATV channels???
                 Helpers.removeDuplicates(mediaItems);
 
+                // History and subscriptions are good candidates for the instant search results
+                SearchBackend.instance().addToIndex(mediaItems);
+
                 clips = convertToClips(mediaItems);
             } else {
                 clips = new ArrayList<>();
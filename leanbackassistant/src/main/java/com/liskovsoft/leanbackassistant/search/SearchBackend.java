@@ -0,0 +1,336 @@
+package com.liskovsoft.leanbackassistant.search;
+
+import com.liskovsoft.mediaserviceinterfaces.ContentService;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaGroup;
+import com.liskovsoft.mediaserviceinterfaces.data.MediaItem;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Backend of the global search provider.<br/>
+ * The assistant queries the provider on every keystroke. Recent results are cached, the same query is never
+ * requested twice at once and the requests for the abandoned prefixes are cancelled.<br/>
+ * Videos seen before (search results, history, subscriptions) are matched locally and returned first.
+ */
+public class SearchBackend {
+    private static final String TAG = SearchBackend.class.getSimpleName();
+    private static final int CACHE_SIZE = 32;
+    private static final long CACHE_TTL_MS = 10 * 60 * 1_000;
+    private static final long NETWORK_TIMEOUT_MS = 5_000;
+    private static final int MAX_CONTINUATIONS = 3;
+    private static final int INDEX_SIZE = 500;
+    private static final int LATENCY_SAMPLES = 100;
+    private static final int LATENCY_LOG_INTERVAL = 10;
+    private static SearchBackend sInstance;
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(2);
+    private final Map<String, CacheEntry> mCache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final Map<String, Future<List<MediaItem>>> mInFlight = new HashMap<>();
+    private final Map<String, IndexEntry> mIndex = new LinkedHashMap<String, IndexEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IndexEntry> eldest) {
+            return size() > INDEX_SIZE;
+        }
+    };
+    private final long[] mLatencySamples = new long[LATENCY_SAMPLES];
+    private int mLatencyCount;
+
+    private static class CacheEntry {
+        public final List<MediaItem> mediaItems;
+        public final long timestampMs;
+
+        public CacheEntry(List<MediaItem> mediaItems, long timestampMs) {
+            this.mediaItems = mediaItems;
+            this.timestampMs = timestampMs;
+        }
+    }
+
+    private static class IndexEntry {
+        public final MediaItem mediaItem;
+        public final String title;
+
+        public IndexEntry(MediaItem mediaItem, String title) {
+            this.mediaItem = mediaItem;
+            this.title = title;
+        }
+    }
+
+    private SearchBackend() {
+    }
+
+    public static SearchBackend instance() {
+        if (sInstance == null) {
+            sInstance = new SearchBackend();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Blocks until the remote results are received or the timeout is reached.<br/>
+     * The local matches go first. On timeout only the local matches are returned
+     * and the request keeps going so the next query with the same text is served from the cache.
+     */
+    public List<MediaItem> search(String query, int limit) {
+        long startTimeMs = System.currentTimeMillis();
+        String key = normalize(query);
+
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<MediaItem> cached = getCached(key);
+
+        if (cached != null) {
+            Log.d(TAG, "Search result found in cache: " + key);
+            List<MediaItem> result = merge(findLocal(key, limit), cached, limit);
+            addLatency(System.currentTimeMillis() - startTimeMs);
+            return result;
+        }
+
+        Future<List<MediaItem>> request = obtainRequest(key, limit);
+        List<MediaItem> local = findLocal(key, limit);
+        List<MediaItem> remote = null;
+
+        try {
+            remote = request.get(NETWORK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            Log.e(TAG, "Search timeout. Local results only: " + key);
+        } catch (CancellationException e) {
+            Log.d(TAG, "Search superseded: " + key);
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Search error: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<MediaItem> result = merge(local, remote, limit);
+        addLatency(System.currentTimeMillis() - startTimeMs);
+
+        return result;
+    }
+
+    /**
+     * Makes the videos searchable locally. E.g. history or subscriptions.
+     */
+    public synchronized void addToIndex(List<MediaItem> mediaItems) {
+        if (mediaItems == null) {
+            return;
+        }
+
+        for (MediaItem mediaItem : mediaItems) {
+            if (mediaItem == null || mediaItem.getVideoId() == null || mediaItem.getTitle() == null) {
+                continue;
+            }
+
+            mIndex.put(mediaItem.getVideoId(), new IndexEntry(mediaItem, normalize(mediaItem.getTitle())));
+        }
+    }
+
+    /**
+     * Latency of the recent queries in ms.
+     *
+     * @param percentile 0-100
+     */
+    public synchronized long getLatencyPercentile(int percentile) {
+        int size = Math.min(mLatencyCount, LATENCY_SAMPLES);
+
+        if (size == 0) {
+            return 0;
+        }
+
+        long[] samples = Arrays.copyOf(mLatencySamples, size);
+        Arrays.sort(samples);
+
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+
+        return samples[Math.max(0, Math.min(size - 1, index))];
+    }
+
+    private synchronized List<MediaItem> getCached(String key) {
+        CacheEntry entry = mCache.get(key);
+
+        if (entry != null && System.currentTimeMillis() - entry.timestampMs > CACHE_TTL_MS) {
+            mCache.remove(key);
+            entry = null;
+        }
+
+        return entry != null ? entry.mediaItems : null;
+    }
+
+    /**
+     * Joins the pending request with the same text. The pending requests for the prefixes of the text are abandoned
+     * (the user kept typing) and cancelled.
+     */
+    private synchronized Future<List<MediaItem>> obtainRequest(String key, int limit) {
+        Future<List<MediaItem>> request = mInFlight.get(key);
+
+        if (request != null) {
+            Log.d(TAG, "Joining pending search: " + key);
+            return request;
+        }
+
+        Iterator<Map.Entry<String, Future<List<MediaItem>>>> iterator = mInFlight.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, Future<List<MediaItem>>> entry = iterator.next();
+
+            if (key.startsWith(entry.getKey())) {
+                Log.d(TAG, "Cancelling superseded search: " + entry.getKey());
+                Future<List<MediaItem>> superseded = entry.getValue();
+                // Remove first. The cancelled task removes itself from the map too.
+                iterator.remove();
+                superseded.cancel(true);
+            }
+        }
+
+        FutureTask<List<MediaItem>> task = new FutureTask<List<MediaItem>>(() -> load(key, limit)) {
+            @Override
+            protected void done() {
+                removeRequest(key, this);
+            }
+        };
+        mInFlight.put(key, task);
+        mExecutor.execute(task);
+
+        return task;
+    }
+
+    private List<MediaItem> load(String key, int limit) {
+        List<MediaItem> mediaItems = loadRemote(key, limit);
+        onLoaded(key, mediaItems);
+
+        return mediaItems;
+    }
+
+    private static List<MediaItem> loadRemote(String query, int limit) {
+        ContentService contentService = YouTubeServiceManager.instance().getContentService();
+        List<MediaGroup> searchRows = contentService.getSearch(query);
+        MediaGroup search = searchRows != null && !searchRows.isEmpty() ? searchRows.get(0) : null;
+        List<MediaItem> result = new ArrayList<>();
+
+        for (int i = 0; search != null && i <= MAX_CONTINUATIONS; i++) {
+            if (search.getMediaItems() != null) {
+                result.addAll(search.getMediaItems());
+            }
+
+            if (result.size() >= limit || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
+            search = contentService.continueGroup(search);
+        }
+
+        Log.d(TAG, "Search result received: " + result.size() + " items");
+
+        return result;
+    }
+
+    private synchronized void onLoaded(String key, List<MediaItem> mediaItems) {
+        if (mediaItems == null || mediaItems.isEmpty()) {
+            return;
+        }
+
+        mCache.put(key, new CacheEntry(mediaItems, System.currentTimeMillis()));
+        addToIndex(mediaItems);
+    }
+
+    /**
+     * The cancelled request may finish after a new one with the same key is started.
+     */
+    private synchronized void removeRequest(String key, Future<List<MediaItem>> request) {
+        if (mInFlight.get(key) == request) {
+            mInFlight.remove(key);
+        }
+    }
+
+    /**
+     * All the words of the query should be present in the title.
+     */
+    private synchronized List<MediaItem> findLocal(String key, int limit) {
+        String[] words = key.split(" ");
+        List<MediaItem> result = new ArrayList<>();
+
+        for (IndexEntry entry : mIndex.values()) {
+            if (containsAll(entry.title, words)) {
+                result.add(entry.mediaItem);
+
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private synchronized void addLatency(long latencyMs) {
+        mLatencySamples[mLatencyCount % LATENCY_SAMPLES] = latencyMs;
+        mLatencyCount++;
+
+        if (mLatencyCount % LATENCY_LOG_INTERVAL == 0) {
+            Log.d(TAG, "Search latency: p50 " + getLatencyPercentile(50) + " ms, p95 " + getLatencyPercentile(95) + " ms");
+        }
+    }
+
+    private static List<MediaItem> merge(List<MediaItem> local, List<MediaItem> remote, int limit) {
+        List<MediaItem> result = new ArrayList<>();
+        Set<String> videoIds = new HashSet<>();
+
+        for (List<MediaItem> mediaItems : Arrays.asList(local, remote)) {
+            if (mediaItems == null) {
+                continue;
+            }
+
+            for (MediaItem mediaItem : mediaItems) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+
+                if (mediaItem != null && (mediaItem.getVideoId() == null || videoIds.add(mediaItem.getVideoId()))) {
+                    result.add(mediaItem);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean containsAll(String title, String[] words) {
+        for (String word : words) {
+            if (!title.contains(word)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String normalize(String text) {
+        return text != null ? text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT) : "";
+    }
+}
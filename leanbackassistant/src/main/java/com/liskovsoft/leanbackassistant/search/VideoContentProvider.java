@@ -11,13 +11,11 @@ import android.provider.BaseColumns;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.liskovsoft.leanbackassistant.R;
-import com.liskovsoft.mediaserviceinterfaces.data.MediaGroup;
 import com.liskovsoft.mediaserviceinterfaces.data.MediaItem;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.prefs.GlobalPreferences;
 import com.liskovsoft.sharedutils.rx.AppSchedulerProvider;
 import com.liskovsoft.sharedutils.rx.SchedulerProvider;
-import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 import io.reactivex.disposables.CompositeDisposable;
 
 import java.util.ArrayList;
@@ -60,8 +58,7 @@ public class VideoContentProvider extends ContentProvider {
     };
     private CompositeDisposable mDisposable;
     private SchedulerProvider mSchedulerProvider;
-    private static List<MediaItem> sCachedMediaItems = new ArrayList<>();
-    private MediaGroup mSearch;
+    private static volatile List<MediaItem> sCachedMediaItems = new ArrayList<>();
 
     @Override
     public boolean onCreate() {
@@ -136,56 +133,23 @@ public class VideoContentProvider extends ContentProvider {
     private Cursor search(String query, int limit) {
         MatrixCursor matrixCursor = new MatrixCursor(queryProjection);
 
-        List<MediaGroup> searchRows = YouTubeServiceManager.instance().getContentService().getSearch(query);
-        mSearch = searchRows != null && !searchRows.isEmpty() ? searchRows.get(0) : null;
+        List<MediaItem> mediaItems = SearchBackend.instance().search(query, limit);
 
-        if (mSearch != null) {
-            List<MediaItem> mediaItems = mSearch.getMediaItems();
+        if (!mediaItems.isEmpty()) {
+            Log.d(TAG, "Search result received: " + mediaItems.size() + " items");
 
-            Log.d(TAG, "Search result received: " + mediaItems);
+            sCachedMediaItems = mediaItems;
 
-            sCachedMediaItems.clear();
-
-            apply(matrixCursor, mediaItems, limit);
+            for (MediaItem mediaItem : mediaItems) {
+                matrixCursor.addRow(convertVideoIntoRow(mediaItem));
+            }
         } else {
             Log.e(TAG, "Search is empty");
         }
 
-
         return matrixCursor;
     }
 
-    private void nextSearch(MatrixCursor cursor, int limit) {
-        mSearch = YouTubeServiceManager.instance().getContentService().continueGroup(mSearch);
-
-        if (mSearch != null) {
-            List<MediaItem> mediaItems = mSearch.getMediaItems();
-
-            Log.d(TAG, "Next search result received: " + mediaItems);
-
-            apply(cursor, mediaItems, limit);
-        } else {
-            Log.e(TAG, "Next search is empty");
-        }
-    }
-
-    private void apply(MatrixCursor matrixCursor, List<MediaItem> mediaItems, int limit) {
-        if (mediaItems != null) {
-            int idx = 0;
-
-            for (MediaItem mediaItem : mediaItems) {
-                matrixCursor.addRow(convertVideoIntoRow(mediaItem));
-                idx++;
-            }
-
-            sCachedMediaItems.addAll(mediaItems);
-
-            if (idx < limit) {
-                nextSearch(matrixCursor, limit - idx);
-            }
-        }
-    }
-
     private SchedulerProvider getSchedulerProvider() {
         if (mSchedulerProvider == null) {
             mSchedulerProvider = new AppSchedulerProvider();
@@ -10,7 +10,10 @@ import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.VideoGroup;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public class VideoGroupObjectAdapter extends ObjectAdapter {
@@ -21,6 +24,8 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
     private static final int TYPE_ADD = 0;
     private static final int TYPE_REMOVE = 1;
     private static final int TYPE_SYNC = 2;
+    // videoId -> positions of the items (ascending). Rebuilt lazily after the structural changes.
+    private Map<String, List<Integer>> mPositionIndex;
 
     public VideoGroupObjectAdapter(VideoGroup videoGroup, Presenter presenter) {
         super(presenter);
@@ -104,6 +109,9 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
             mVideoGroups.add(0, group);
         }
 
+        // All positions are shifted
+        mPositionIndex = null;
+
         // Fix double item blinking by specifying exact range
         notifyItemRangeInserted(0, mVideoItems.size() - begin);
     }
@@ -123,6 +131,8 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
             mVideoGroups.add(group);
         }
 
+        addToIndex(begin);
+
         // Fix double item blinking by specifying exact range
         notifyItemRangeInserted(begin, mVideoItems.size() - begin);
     }
@@ -131,13 +141,14 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
      * Compare by reference. Because there may be multiple same videos.
      */
     public int indexOf(Video item) {
-        // Compare by reference. Because there may be multiple same videos.
-        int index = -1;
+        if (item == null) {
+            return -1;
+        }
 
-        for (Video video : mVideoItems) {
-            index++;
-            if (video == item) {
-                return index;
+        // Compare by reference. Because there may be multiple same videos.
+        for (int position : getPositions(item.videoId)) {
+            if (mVideoItems.get(position) == item) {
+                return position;
             }
         }
 
@@ -149,12 +160,13 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
      * UI may consists of multiple rows with same video or even multiple videos in the same row.
      */
     public int indexOfAlt(Video item) {
-        int index = -1;
+        if (item == null) {
+            return -1;
+        }
 
-        for (Video video : mVideoItems) {
-            index++;
-            if (video.equals(item)) {
-                return index;
+        for (int position : getPositions(item.videoId)) {
+            if (mVideoItems.get(position).equals(item)) {
+                return position;
             }
         }
 
@@ -169,6 +181,7 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
         int itemCount = mVideoItems.size();
         mVideoItems.clear();
         mVideoGroups.clear();
+        mPositionIndex = null;
         if (itemCount != 0) {
             // NOTE: Crashes RecycleView IndexOutOfBoundsException when doing add immediately after clear
             notifyItemRangeRemoved(0, itemCount);
@@ -176,19 +189,36 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
     }
 
     public void remove(VideoGroup group) {
+        List<Integer> removed = new ArrayList<>();
+
         for (Video video : group.getVideos()) {
-            while (true) { // remove all occurrences of the same element (if present)
-                int index = mVideoItems.indexOf(video);
-                if (index != -1) {
-                    mVideoItems.remove(video);
-                    notifyItemRangeRemoved(index, 1);
+            // remove all occurrences of the same element (if present)
+            for (int position : getPositions(video.videoId)) {
+                if (mVideoItems.get(position).equals(video) && !removed.contains(position)) {
+                    removed.add(position);
                     removeFromGroup(video);
-                } else {
-                    break;
                 }
             }
         }
 
+        if (!removed.isEmpty()) {
+            Collections.sort(removed);
+
+            // From the end, so the positions of the remaining ranges stay valid
+            int end = removed.size() - 1;
+            for (int i = end; i >= 0; i--) {
+                if (i == 0 || removed.get(i - 1) != removed.get(i) - 1) {
+                    int start = removed.get(i);
+                    int count = removed.get(end) - start + 1;
+                    mVideoItems.subList(start, start + count).clear();
+                    notifyItemRangeRemoved(start, count);
+                    end = i - 1;
+                }
+            }
+
+            mPositionIndex = null;
+        }
+
         notifyOtherAdapters(group, TYPE_REMOVE);
     }
 
@@ -201,13 +231,30 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
     }
 
     public void sync(VideoGroup group) {
+        List<Integer> changed = new ArrayList<>();
+
         for (Video video : group.getVideos()) {
             // Search for multiple occurrences (e.g. History section)
-            for (int i = 0; i < mVideoItems.size(); i++) {
-                Video origin = mVideoItems.get(i);
+            for (int position : getPositions(video.videoId)) {
+                Video origin = mVideoItems.get(position);
                 if (origin.equals(video)) {
                     origin.sync(video);
-                    notifyItemRangeChanged(i, 1);
+                    if (!changed.contains(position)) {
+                        changed.add(position);
+                    }
+                }
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            Collections.sort(changed);
+
+            // One notification per continuous range
+            int start = 0;
+            for (int i = 1; i <= changed.size(); i++) {
+                if (i == changed.size() || changed.get(i) != changed.get(i - 1) + 1) {
+                    notifyItemRangeChanged(changed.get(start), i - start);
+                    start = i;
                 }
             }
         }
@@ -219,6 +266,38 @@ public class VideoGroupObjectAdapter extends ObjectAdapter {
         return size() == 0;
     }
 
+    private List<Integer> getPositions(String videoId) {
+        if (mPositionIndex == null) {
+            mPositionIndex = new HashMap<>();
+            addToIndex(0);
+        }
+
+        List<Integer> positions = mPositionIndex.get(videoId);
+
+        return positions != null ? positions : Collections.emptyList();
+    }
+
+    /**
+     * Appended items don't shift the existing positions.
+     */
+    private void addToIndex(int begin) {
+        if (mPositionIndex == null) {
+            return;
+        }
+
+        for (int i = begin; i < mVideoItems.size(); i++) {
+            String videoId = mVideoItems.get(i).videoId;
+            List<Integer> positions = mPositionIndex.get(videoId);
+
+            if (positions == null) {
+                positions = new ArrayList<>(1);
+                mPositionIndex.put(videoId, positions);
+            }
+
+            positions.add(i);
+        }
+    }
+
     private void removeFromGroup(Video video) {
         if (video != null && video.getGroup() != null) {
             video.getGroup().remove(video);
@@ -15,6 +15,7 @@ import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.smartyoutubetv2.tv.ui.common.keyhandler.DoubleBackManager2;
 import com.liskovsoft.smartyoutubetv2.tv.ui.playback.PlaybackActivity;
 import com.liskovsoft.smartyoutubetv2.tv.ui.search.tags.SearchTagsActivity;
+import com.liskovsoft.smartyoutubetv2.tv.ui.widgets.embedplayer.EmbedPlayerPool;
 
 /**
  * This parent class contains common methods that run in every activity such as search.
@@ -88,6 +89,7 @@ public abstract class LeanbackActivity extends MotherActivity {
     protected void onDestroy() {
         super.onDestroy();
         mBackgroundManager.onDestroy();
+        EmbedPlayerPool.onActivityDestroyed(this);
     }
 
     @Override
@@ -18,6 +18,7 @@ import com.liskovsoft.smartyoutubetv2.common.app.views.SignInView;
 import com.liskovsoft.smartyoutubetv2.common.app.views.SplashView;
 import com.liskovsoft.smartyoutubetv2.common.app.views.ViewManager;
 import com.liskovsoft.smartyoutubetv2.common.app.views.WebBrowserView;
+import com.liskovsoft.smartyoutubetv2.common.misc.StartupTrace;
 import com.liskovsoft.smartyoutubetv2.common.prefs.GeneralData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.NetworkData;
 import com.liskovsoft.smartyoutubetv2.common.prefs.PlayerData;
@@ -56,6 +57,14 @@ public class MainApplication extends MultiDexApplication { // fix: Didn't find c
     public void onCreate() {
         super.onCreate();
 
+        // The rest of the init tasks: SplashPresenter
+        StartupTrace trace = StartupTrace.instance();
+        trace.trace("conscrypt", this::setupConscrypt);
+        trace.trace("exception_handler", this::setupGlobalExceptionHandler);
+        trace.trace("view_manager", this::setupViewManager);
+    }
+
+    private void setupConscrypt() {
         // ByeByeDPI fix
         // https://android-review.googlesource.com/c/platform/external/conscrypt/+/89408/
         // NOTE: Android 10+ (API 29+) uses system Conscrypt TLS; custom Security providers are unnecessary
@@ -80,9 +89,6 @@ public class MainApplication extends MultiDexApplication { // fix: Didn't find c
                 // UnsatisfiedLinkError
             }
         }
-
-        setupGlobalExceptionHandler();
-        setupViewManager();
     }
 
     private void setupViewManager() {
@@ -982,6 +982,11 @@ public class PlaybackFragment extends SeekModePlaybackFragment implements Playba
         mExoPlayerController.openMerged(dashManifest, hlsPlaylistUrl);
     }
 
+    @Override
+    public void prefetch(MediaItemFormatInfo formatInfo) {
+        mExoPlayerController.prefetch(formatInfo);
+    }
+
     @Override
     public long getPositionMs() {
         return mExoPlayerController.getPositionMs();
@@ -7,6 +7,8 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.collection.ArraySet;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.CustomTarget;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.request.transition.Transition;
@@ -17,19 +19,31 @@ import com.liskovsoft.mediaserviceinterfaces.data.MediaItemStoryboard.Size;
 import com.liskovsoft.sharedutils.mylogger.Log;
 import com.liskovsoft.sharedutils.rx.RxHelper;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
-import com.liskovsoft.smartyoutubetv2.tv.util.ViewUtil;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
 import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class StoryboardManager {
     private static final String TAG = StoryboardManager.class.getSimpleName();
     private static final long FRAME_DURATION_MS = 10_000;
-    private static final int MAX_PRELOADED_IMAGES = 3;
+    private static final int MIN_PRELOADED_IMAGES = 3;
+    private static final int MAX_PRELOADED_IMAGES = 10;
+    private static final float PRELOAD_WINDOW_SEC = 2f; // how far ahead (in time) the scrubbing is predicted
     private static final int DIRECTION_RIGHT = 0;
     private static final int DIRECTION_LEFT = 1;
+    // Memory cache is skipped. The decoded sheets are stored as the tiles.
+    private static final RequestOptions SHEET_OPTIONS = new RequestOptions()
+            .diskCacheStrategy(DiskCacheStrategy.DATA)
+            .skipMemoryCache(true)
+            .disallowHardwareConfig(); // software canvas can't draw hardware bitmaps
     private final MediaItemService mMediaItemService;
     private final Context mContext;
     private long mLengthMs;
@@ -37,7 +51,13 @@ public class StoryboardManager {
     private Disposable mFormatAction;
     private long[] mSeekPositions;
     private int mCurrentImgNum = -1;
+    private long mCurrentImgTimeMs;
+    private int mPreloadCount = MIN_PRELOADED_IMAGES;
     private final Set<Integer> mCachedImageNums = new ArraySet<>();
+    private final Set<Integer> mLoadingImageNums = new ArraySet<>();
+    private final Map<Integer, List<Callback>> mPendingCallbacks = new HashMap<>();
+    private final List<CustomTarget<Bitmap>> mTargets = new ArrayList<>();
+    private final StoryboardTileCache mTileCache = new StoryboardTileCache();
     private int mSeekDirection = DIRECTION_RIGHT;
 
     public interface Callback {
@@ -55,6 +75,10 @@ public class StoryboardManager {
         mSeekPositions = null;
         mStoryboard = null;
         mCachedImageNums.clear();
+        mCurrentImgNum = -1;
+        mPreloadCount = MIN_PRELOADED_IMAGES;
+        clearTargets();
+        mTileCache.clear();
 
         RxHelper.disposeActions(mFormatAction);
 
@@ -137,52 +161,65 @@ public class StoryboardManager {
         int groupNum = (int) currentPosition / mStoryboard.getGroupDurationMS();
         long realPosMS = currentPosition % mStoryboard.getGroupDurationMS();
         Size size = mStoryboard.getGroupSize();
-        GlideThumbnailTransformation transformation =
-                new GlideThumbnailTransformation(realPosMS, size.getWidth(), size.getHeight(), size.getRowCount(), size.getColCount(), size.getDurationEachMS());
+        int tileNum = getFirstTileNum(groupNum) + Math.min((int) realPosMS / size.getDurationEachMS(), getTileCount() - 1);
 
-        //Log.d(TAG, "Loading preview. Position: %s, groupNum: %s, groupDurationMS: %s, groupSize", currentPosition, groupNum, mStoryboard.getGroupDurationMS(), size);
+        Bitmap tile = mTileCache.get(tileNum);
 
-        Glide.with(mContext)
-                .asBitmap()
-                .load(mStoryboard.getGroupUrl(groupNum))
-                .apply(ViewUtil.glideOptions())
-                .override(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL)
-                .transform(transformation)
-                .into(new CustomTarget<Bitmap>() {
-                    @Override
-                    public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
-                        //Log.d(TAG, "onPreviewLoaded: image hashCode: %s", resource.hashCode());
-                        callback.onBitmapLoaded(resource);
-                    }
-
-                    @Override
-                    public void onLoadCleared(@Nullable Drawable placeholder) {
-                        // NOP
-                    }
-                });
+        if (tile != null) {
+            callback.onBitmapLoaded(tile);
+        } else {
+            List<Callback> callbacks = mPendingCallbacks.get(tileNum);
+            if (callbacks == null) {
+                callbacks = new ArrayList<>(1);
+                mPendingCallbacks.put(tileNum, callbacks);
+            }
+            callbacks.add(callback);
+            loadImage(groupNum);
+        }
 
         if (mCurrentImgNum != groupNum) {
-            mSeekDirection = mCurrentImgNum < groupNum ? DIRECTION_RIGHT : DIRECTION_LEFT;
+            long nowMs = System.currentTimeMillis();
+
+            if (mCurrentImgNum != -1) {
+                mSeekDirection = mCurrentImgNum < groupNum ? DIRECTION_RIGHT : DIRECTION_LEFT;
+                updatePreloadCount(Math.abs(groupNum - mCurrentImgNum), nowMs - mCurrentImgTimeMs);
+            }
+
             mCachedImageNums.add(groupNum);
             mCurrentImgNum = groupNum;
+            mCurrentImgTimeMs = nowMs;
 
             preloadNextImage();
         }
     }
 
+    /**
+     * Fast scrubbing crosses more images. Look further ahead.
+     */
+    private void updatePreloadCount(int imgCount, long elapsedMs) {
+        float imagesPerSec = elapsedMs > 0 ? imgCount * 1_000f / elapsedMs : MAX_PRELOADED_IMAGES;
+        int preloadCount = MIN_PRELOADED_IMAGES + (int) (imagesPerSec * PRELOAD_WINDOW_SEC);
+        mPreloadCount = Math.min(preloadCount, MAX_PRELOADED_IMAGES);
+    }
+
     private void preloadNextImage() {
         if (mStoryboard == null) {
             return;
         }
 
-        for (int i = 1; i <= MAX_PRELOADED_IMAGES; i++) {
+        for (int i = 1; i <= mPreloadCount; i++) {
             int imgNum = mSeekDirection == DIRECTION_RIGHT ? mCurrentImgNum + i : mCurrentImgNum - i; // get next image
-            preloadImage(imgNum);
+
+            if (i == 1) {
+                loadImage(imgNum); // decode the next image to the tiles
+            } else {
+                preloadImage(imgNum);
+            }
         }
     }
 
     private void preloadImage(int imgNum) {
-        if (mCachedImageNums.contains(imgNum) || imgNum < 0) {
+        if (mCachedImageNums.contains(imgNum) || imgNum < 0 || isAfterEnd(imgNum)) {
             return;
         }
 
@@ -192,8 +229,109 @@ public class StoryboardManager {
 
         String link = mStoryboard.getGroupUrl(imgNum);
 
+        // To the disk cache only
         Glide.with(mContext)
+                .downloadOnly()
                 .load(link)
                 .preload();
     }
+
+    /**
+     * Decodes the whole image once and cuts it into the tiles.
+     */
+    private void loadImage(int imgNum) {
+        if (imgNum < 0 || isAfterEnd(imgNum) || mLoadingImageNums.contains(imgNum) || mTileCache.contains(getFirstTileNum(imgNum))) {
+            return;
+        }
+
+        mLoadingImageNums.add(imgNum);
+        mCachedImageNums.add(imgNum);
+
+        Size size = mStoryboard.getGroupSize();
+
+        CustomTarget<Bitmap> target = new CustomTarget<Bitmap>() {
+            @Override
+            public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
+                mLoadingImageNums.remove(imgNum);
+                mTileCache.putSheet(resource, getFirstTileNum(imgNum), size.getRowCount(), size.getColCount(), size.getWidth(), size.getHeight());
+                onImageLoaded(imgNum);
+                releaseTarget(this); // the sheet isn't needed anymore
+            }
+
+            @Override
+            public void onLoadFailed(@Nullable Drawable errorDrawable) {
+                mLoadingImageNums.remove(imgNum);
+                mCachedImageNums.remove(imgNum);
+                onImageLoaded(imgNum);
+                releaseTarget(this);
+            }
+
+            @Override
+            public void onLoadCleared(@Nullable Drawable placeholder) {
+                // NOP
+            }
+        };
+
+        mTargets.add(target);
+
+        Glide.with(mContext)
+                .asBitmap()
+                .load(mStoryboard.getGroupUrl(imgNum))
+                .apply(SHEET_OPTIONS)
+                .override(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL)
+                .into(target);
+    }
+
+    private void onImageLoaded(int imgNum) {
+        int firstTileNum = getFirstTileNum(imgNum);
+        Iterator<Map.Entry<Integer, List<Callback>>> iterator = mPendingCallbacks.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, List<Callback>> entry = iterator.next();
+            int tileNum = entry.getKey();
+
+            if (tileNum < firstTileNum || tileNum >= firstTileNum + getTileCount()) {
+                continue;
+            }
+
+            iterator.remove();
+
+            Bitmap tile = mTileCache.get(tileNum);
+
+            if (tile != null) {
+                for (Callback callback : entry.getValue()) {
+                    callback.onBitmapLoaded(tile);
+                }
+            }
+        }
+    }
+
+    private void releaseTarget(CustomTarget<Bitmap> target) {
+        mTargets.remove(target);
+        // Glide doesn't allow to clear the load inside the target callbacks
+        Utils.post(() -> Glide.with(mContext).clear(target));
+    }
+
+    private void clearTargets() {
+        for (CustomTarget<Bitmap> target : mTargets) {
+            Glide.with(mContext).clear(target);
+        }
+
+        mTargets.clear();
+        mLoadingImageNums.clear();
+        mPendingCallbacks.clear();
+    }
+
+    private boolean isAfterEnd(int imgNum) {
+        return mLengthMs > 0 && mStoryboard.getGroupDurationMS() > 0 && (long) imgNum * mStoryboard.getGroupDurationMS() >= mLengthMs;
+    }
+
+    private int getTileCount() {
+        Size size = mStoryboard.getGroupSize();
+        return Math.max(1, size.getRowCount() * size.getColCount());
+    }
+
+    private int getFirstTileNum(int imgNum) {
+        return imgNum * getTileCount();
+    }
 }
@@ -0,0 +1,152 @@
+package com.liskovsoft.smartyoutubetv2.tv.ui.playback.previewtimebar;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Seek preview tiles. Each storyboard sheet is decoded once and cut into the tiles.<br/>
+ * The cache is bounded by size. Bitmaps of the evicted tiles are reused for the new ones.
+ * The tiles that were handed out may still be shown by the UI, so they're never reused.
+ */
+class StoryboardTileCache {
+    private static final long MIN_SIZE_BYTES = 4L * 1024 * 1024;
+    private static final long MAX_SIZE_BYTES = 32L * 1024 * 1024;
+    private static final int MEMORY_FRACTION = 16;
+    private static final int MIN_SHEETS = 2; // current and next
+    private static final int MAX_FREE_BITMAPS = 16;
+    private final Map<Integer, Bitmap> mTiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<Bitmap> mFreeBitmaps = new ArrayList<>();
+    private final Set<Bitmap> mHandedOutTiles = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Canvas mCanvas = new Canvas();
+    private final Rect mSrcRect = new Rect();
+    private final Rect mDstRect = new Rect();
+    private long mMaxSizeBytes;
+    private long mSizeBytes;
+
+    public StoryboardTileCache() {
+        mMaxSizeBytes = Math.max(MIN_SIZE_BYTES, Math.min(MAX_SIZE_BYTES, Runtime.getRuntime().maxMemory() / MEMORY_FRACTION));
+    }
+
+    @Nullable
+    public Bitmap get(int tileNum) {
+        Bitmap tile = mTiles.get(tileNum);
+
+        if (tile != null) {
+            mHandedOutTiles.add(tile);
+        }
+
+        return tile;
+    }
+
+    public boolean contains(int tileNum) {
+        return mTiles.containsKey(tileNum);
+    }
+
+    /**
+     * Cuts the sheet into the tiles. Tiles are numbered from the beginning of the video.
+     *
+     * @param width tile width or 0 to calculate from the sheet size
+     * @param height tile height or 0 to calculate from the sheet size
+     */
+    public void putSheet(Bitmap sheet, int firstTileNum, int rowCount, int colCount, int width, int height) {
+        if (rowCount <= 0 || colCount <= 0) {
+            return;
+        }
+
+        int tileWidth = width == 0 ? sheet.getWidth() / colCount : width;
+        int tileHeight = height == 0 ? sheet.getHeight() / rowCount : height;
+
+        if (tileWidth <= 0 || tileHeight <= 0) {
+            return;
+        }
+
+        Bitmap.Config config = sheet.getConfig() != null ? sheet.getConfig() : Bitmap.Config.ARGB_8888;
+
+        // The whole sheet should fit. Otherwise the tiles of the current sheet evict each other.
+        mMaxSizeBytes = Math.max(mMaxSizeBytes, (long) MIN_SHEETS * rowCount * colCount * getSizeBytes(tileWidth, tileHeight, config));
+
+        for (int i = 0; i < rowCount * colCount; i++) {
+            int x = (i % colCount) * tileWidth;
+            int y = (i / colCount) * tileHeight;
+
+            // The last sheet is partially filled
+            if (x + tileWidth > sheet.getWidth() || y + tileHeight > sheet.getHeight()) {
+                break;
+            }
+
+            int tileNum = firstTileNum + i;
+
+            if (mTiles.containsKey(tileNum)) {
+                continue;
+            }
+
+            Bitmap tile = obtainBitmap(tileWidth, tileHeight, config);
+            mSrcRect.set(x, y, x + tileWidth, y + tileHeight);
+            mDstRect.set(0, 0, tileWidth, tileHeight);
+            mCanvas.setBitmap(tile);
+            mCanvas.drawBitmap(sheet, mSrcRect, mDstRect, null);
+
+            put(tileNum, tile);
+        }
+
+        mCanvas.setBitmap(null);
+    }
+
+    public void clear() {
+        mTiles.clear();
+        mFreeBitmaps.clear();
+        mHandedOutTiles.clear();
+        mSizeBytes = 0;
+    }
+
+    private void put(int tileNum, Bitmap tile) {
+        mTiles.put(tileNum, tile);
+        mSizeBytes += tile.getByteCount();
+
+        Iterator<Bitmap> iterator = mTiles.values().iterator();
+
+        // The least recently shown tiles. The visible ones are always at the end.
+        while (mSizeBytes > mMaxSizeBytes && iterator.hasNext()) {
+            Bitmap eldest = iterator.next();
+            iterator.remove();
+            mSizeBytes -= eldest.getByteCount();
+
+            // Left to the GC. The UI may still draw it.
+            if (mHandedOutTiles.remove(eldest)) {
+                continue;
+            }
+
+            if (mFreeBitmaps.size() < MAX_FREE_BITMAPS) {
+                mFreeBitmaps.add(eldest);
+            }
+        }
+    }
+
+    private Bitmap obtainBitmap(int width, int height, Bitmap.Config config) {
+        for (int i = 0; i < mFreeBitmaps.size(); i++) {
+            Bitmap bitmap = mFreeBitmaps.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                mFreeBitmaps.remove(i);
+                bitmap.eraseColor(0);
+                return bitmap;
+            }
+        }
+
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    private static int getSizeBytes(int width, int height, Bitmap.Config config) {
+        return width * height * (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444 ? 2 : 4);
+    }
+}
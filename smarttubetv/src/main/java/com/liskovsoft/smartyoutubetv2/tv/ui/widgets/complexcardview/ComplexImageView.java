@@ -16,6 +16,7 @@ import com.bumptech.glide.Glide;
 import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
 import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
 import com.liskovsoft.smartyoutubetv2.tv.R;
+import com.liskovsoft.smartyoutubetv2.tv.ui.widgets.embedplayer.EmbedPlayerPool;
 import com.liskovsoft.smartyoutubetv2.tv.ui.widgets.embedplayer.EmbedPlayerView;
 import com.liskovsoft.smartyoutubetv2.tv.util.ViewUtil;
 
@@ -168,6 +169,7 @@ public class ComplexImageView extends RelativeLayout {
             }
 
             Utils.postDelayed(mCreateAndStartPlayer, PLAYER_START_DELAY_MS);
+            getPlayerPool().prefetch(getContext(), getVideo(), getPreviewQuality());
         }
     }
 
@@ -177,8 +179,8 @@ public class ComplexImageView extends RelativeLayout {
         }
 
         if (mPreviewPlayer == null) {
-            mPreviewPlayer = new EmbedPlayerView(getContext());
-            mPreviewPlayer.setQuality(Math.min(mPreviewWidth, mPreviewHeight) < 300 ? EmbedPlayerView.QUALITY_LOW : EmbedPlayerView.QUALITY_NORMAL);
+            mPreviewPlayer = getPlayerPool().acquire(getContext());
+            mPreviewPlayer.setQuality(getPreviewQuality());
             mPreviewPlayer.setUseController(false);
             mPreviewPlayer.setMute(mMute);
             mPreviewPlayer.setBackgroundColor(Color.BLACK);
@@ -211,18 +213,19 @@ public class ComplexImageView extends RelativeLayout {
             }
         } else if (getVideo().videoId != null) {
             Utils.removeCallbacks(mCreateAndStartPlayer);
+            getPlayerPool().cancelPrefetch(getVideo());
 
             if (mPreviewPlayer != null) {
                 mPreviewContainer.setVisibility(View.GONE);
                 if (stopImmediately) {
-                    mPreviewPlayer.finish();
                     mPreviewContainer.removeView(mPreviewPlayer);
+                    getPlayerPool().release(mPreviewPlayer);
                 } else {
                     EmbedPlayerView epv = mPreviewPlayer;
                     epv.setMute(true);
                     Utils.postDelayed(() -> {
-                        epv.finish();
                         mPreviewContainer.removeView(epv);
+                        getPlayerPool().release(epv);
                     }, 500);
                 }
                 mPreviewPlayer = null;
@@ -265,4 +268,12 @@ public class ComplexImageView extends RelativeLayout {
     private Video getVideo() {
         return mVideo != null ? mVideo.get() : null;
     }
+
+    private int getPreviewQuality() {
+        return Math.min(mPreviewWidth, mPreviewHeight) < 300 ? EmbedPlayerView.QUALITY_LOW : EmbedPlayerView.QUALITY_NORMAL;
+    }
+
+    private EmbedPlayerPool getPlayerPool() {
+        return EmbedPlayerPool.instance(getContext());
+    }
 }
@@ -0,0 +1,225 @@
+package com.liskovsoft.smartyoutubetv2.tv.ui.widgets.embedplayer;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.os.Build;
+
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.liskovsoft.sharedutils.helpers.DeviceHelpers;
+import com.liskovsoft.sharedutils.mylogger.Log;
+import com.liskovsoft.sharedutils.rx.RxHelper;
+import com.liskovsoft.smartyoutubetv2.common.app.models.data.Video;
+import com.liskovsoft.smartyoutubetv2.common.exoplayer.ExoMediaSourceFactory;
+import com.liskovsoft.smartyoutubetv2.common.utils.Utils;
+import com.liskovsoft.youtubeapi.service.YouTubeServiceManager;
+
+import io.reactivex.disposables.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Idle preview players with the engine created ahead of time.<br/>
+ * The card only swaps the surface and the media source. The pool size depends on the device RAM and the decoder count.
+ */
+public class EmbedPlayerPool {
+    private static final String TAG = EmbedPlayerPool.class.getSimpleName();
+    private static final long PREFETCH_DELAY_MS = 300;
+    private static final long LOW_RAM_BYTES = 2L * 1024 * 1024 * 1024;
+    // Fake formats. Used to pick the closest tracks from the manifest.
+    private static final Format VIDEO_FORMAT_LOW = Format.createVideoSampleFormat(
+            null, MimeTypes.VIDEO_H264, null, Format.NO_VALUE, Format.NO_VALUE, 426, 240, Format.NO_VALUE, null, null);
+    private static final Format VIDEO_FORMAT_NORMAL = Format.createVideoSampleFormat(
+            null, MimeTypes.VIDEO_H264, null, Format.NO_VALUE, Format.NO_VALUE, 640, 360, Format.NO_VALUE, null, null);
+    private static final Format AUDIO_FORMAT = Format.createAudioSampleFormat(
+            null, MimeTypes.AUDIO_AAC, null, 128_000, Format.NO_VALUE, Format.NO_VALUE, Format.NO_VALUE, null, null, 0, null);
+    @SuppressLint("StaticFieldLeak")
+    private static EmbedPlayerPool sInstance;
+    private final Context mAppContext;
+    private final int mMaxSize;
+    private final List<EmbedPlayerView> mIdlePlayers = new ArrayList<>();
+    private final Runnable mPrefetch = this::prefetchInt;
+    private ExoMediaSourceFactory mMediaSourceFactory;
+    private Context mContext;
+    private String mPrefetchVideoId;
+    private int mPrefetchQuality;
+    private Disposable mFormatInfoAction;
+
+    private EmbedPlayerPool(Context context) {
+        mAppContext = context;
+        mMaxSize = calculateMaxSize(context);
+        Log.d(TAG, "Preview player pool size: %s", mMaxSize);
+    }
+
+    public static EmbedPlayerPool instance(Context context) {
+        if (sInstance == null) {
+            sInstance = new EmbedPlayerPool(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Returns an idle player or creates a new one.
+     */
+    public EmbedPlayerView acquire(Context context) {
+        checkContext(context);
+
+        if (!mIdlePlayers.isEmpty()) {
+            return mIdlePlayers.remove(mIdlePlayers.size() - 1);
+        }
+
+        return new EmbedPlayerView(context);
+    }
+
+    /**
+     * Player should be detached from the parent already.
+     */
+    public void release(EmbedPlayerView player) {
+        if (player == null) {
+            return;
+        }
+
+        if (player.getContext() != mContext || mIdlePlayers.size() >= mMaxSize || mIdlePlayers.contains(player)) {
+            player.finish();
+            return;
+        }
+
+        player.recycle();
+        mIdlePlayers.add(player);
+    }
+
+    /**
+     * Creates the idle player and loads the beginning of the stream while the card waits for the preview.
+     */
+    public void prefetch(Context context, Video video, int quality) {
+        if (video == null || video.videoId == null) {
+            return;
+        }
+
+        checkContext(context);
+
+        mPrefetchVideoId = video.videoId;
+        mPrefetchQuality = quality;
+        Utils.postDelayed(mPrefetch, PREFETCH_DELAY_MS);
+    }
+
+    public void cancelPrefetch(Video video) {
+        if (video != null && video.videoId != null && video.videoId.equals(mPrefetchVideoId)) {
+            Utils.removeCallbacks(mPrefetch);
+            mPrefetchVideoId = null;
+        }
+    }
+
+    /**
+     * Releases the idle players (and their engines) of the destroyed activity.<br/>
+     * Doesn't create the pool if it wasn't used.
+     */
+    public static void onActivityDestroyed(Context context) {
+        if (sInstance != null && sInstance.mContext == context) {
+            sInstance.clear();
+        }
+    }
+
+    public void clear() {
+        Utils.removeCallbacks(mPrefetch);
+        RxHelper.disposeActions(mFormatInfoAction);
+        mPrefetchVideoId = null;
+
+        for (EmbedPlayerView player : mIdlePlayers) {
+            player.finish();
+        }
+
+        mIdlePlayers.clear();
+        mContext = null;
+    }
+
+    private void prefetchInt() {
+        if (mPrefetchVideoId == null || mContext == null) {
+            return;
+        }
+
+        warmUp();
+
+        RxHelper.disposeActions(mFormatInfoAction);
+
+        Format videoFormat = mPrefetchQuality == EmbedPlayerView.QUALITY_LOW ? VIDEO_FORMAT_LOW : VIDEO_FORMAT_NORMAL;
+
+        mFormatInfoAction = YouTubeServiceManager.instance().getMediaItemService().getFormatInfoObserve(mPrefetchVideoId)
+                .subscribe(
+                        formatInfo -> getMediaSourceFactory().prefetchPreview(formatInfo, videoFormat, AUDIO_FORMAT),
+                        error -> Log.e(TAG, "Prefetch error: %s", error.getMessage())
+                );
+    }
+
+    private void warmUp() {
+        if (!mIdlePlayers.isEmpty()) {
+            return;
+        }
+
+        EmbedPlayerView player = new EmbedPlayerView(mContext);
+        player.prepareEngine();
+        mIdlePlayers.add(player);
+    }
+
+    /**
+     * Players are the views. Don't keep the ones of the destroyed activity.
+     */
+    private void checkContext(Context context) {
+        if (context != mContext) {
+            clear();
+            mContext = context;
+        }
+    }
+
+    private ExoMediaSourceFactory getMediaSourceFactory() {
+        if (mMediaSourceFactory == null) {
+            mMediaSourceFactory = new ExoMediaSourceFactory(mAppContext);
+        }
+
+        return mMediaSourceFactory;
+    }
+
+    private static int calculateMaxSize(Context context) {
+        long deviceRam = DeviceHelpers.getDeviceRam(context);
+
+        // Negative when the ram is bigger than max int (see ExoPlayerInitializer)
+        int maxSize = deviceRam > 0 && deviceRam < LOW_RAM_BYTES ? 1 : 2;
+
+        int maxDecoders = getMaxDecoderInstances();
+
+        if (maxDecoders > 0) {
+            // The previous preview may still be playing. Keep one decoder for the main player.
+            maxSize = Math.min(maxSize, maxDecoders - 1);
+        }
+
+        return Math.max(1, maxSize);
+    }
+
+    private static int getMaxDecoderInstances() {
+        if (Build.VERSION.SDK_INT < 23) {
+            return -1;
+        }
+
+        try {
+            for (MediaCodecInfo info : new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos()) {
+                if (info.isEncoder()) {
+                    continue;
+                }
+
+                for (String type : info.getSupportedTypes()) {
+                    if (MimeTypes.VIDEO_H264.equalsIgnoreCase(type)) {
+                        return info.getCapabilitiesForType(type).getMaxSupportedInstances();
+                    }
+                }
+            }
+        } catch (RuntimeException e) { // IllegalArgumentException and others on buggy firmwares
+            Log.e(TAG, "Can't get decoder info: %s", e.getMessage());
+        }
+
+        return -1;
+    }
+}
@@ -47,6 +47,7 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
     private final Runnable mStopPlayback = this::finish;
     private int mQuality;
     private float mPercentWatched;
+    private boolean mIsEngineAttached;
 
     public EmbedPlayerView(Context context) {
         super(context);
@@ -295,6 +296,11 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
         mExoPlayerController.openMerged(dashManifest, hlsPlaylistUrl);
     }
 
+    @Override
+    public void prefetch(MediaItemFormatInfo formatInfo) {
+        mExoPlayerController.prefetch(formatInfo);
+    }
+
     @Override
     public long getPositionMs() {
         return mExoPlayerController.getPositionMs();
@@ -527,26 +533,18 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
         }
     }
 
-    private void initPlayer() {
+    /**
+     * Creates the engine without touching the presenter. So the idle player could be created ahead of time.<br/>
+     * See {@link EmbedPlayerPool}
+     */
+    public void prepareEngine() {
         if (isEngineInitialized()) {
-            mPlaybackPresenter.setView(this);
             return;
         }
 
         mPlayerInitializer = new ExoPlayerInitializer(getContext());
-        mPlaybackPresenter.setView(this);
-        mExoPlayerController = new ExoPlayerController(getContext(), mPlaybackPresenter);
+        mExoPlayerController = new ExoPlayerController(getContext(), getPlaybackPresenter());
         mExoPlayerController.setOnVideoLoaded(this::onVideoLoaded);
-        mPlaybackPresenter.onViewInitialized(); // init all controllers
-
-        setResizeMode(AspectRatioFrameLayout.RESIZE_MODE_ZOOM); // Fix unfilled borders
-    }
-
-    private void createPlayerObjects() {
-        if (isEngineInitialized()) {
-            setPlayer(mPlayer);
-            return;
-        }
 
         // Use default or pass your bandwidthMeter here: bandwidthMeter = new DefaultBandwidthMeter.Builder(getContext()).build()
         DefaultTrackSelector trackSelector = new RestoreTrackSelector(new AdaptiveTrackSelection.Factory());
@@ -558,6 +556,27 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
         //mPlayer.setRepeatMode(Player.REPEAT_MODE_ONE);
 
         mExoPlayerController.setPlayer(mPlayer);
+
+        setResizeMode(AspectRatioFrameLayout.RESIZE_MODE_ZOOM); // Fix unfilled borders
+    }
+
+    private void initPlayer() {
+        if (mIsEngineAttached) {
+            mPlaybackPresenter.setView(this);
+            return;
+        }
+
+        prepareEngine();
+        mPlaybackPresenter.setView(this);
+        mPlaybackPresenter.onViewInitialized(); // init all controllers
+    }
+
+    private void createPlayerObjects() {
+        if (mIsEngineAttached) {
+            setPlayer(mPlayer);
+            return;
+        }
+
         mExoPlayerController.selectFormat(mQuality == QUALITY_LOW ? FormatItem.VIDEO_SUB_SD_AVC_30 : FormatItem.VIDEO_SD_AVC_30);
         // Don't use subs! Not efficient. High cpu load. Cause input lags.
         mExoPlayerController.selectFormat(FormatItem.SUBTITLE_NONE);
@@ -567,17 +586,43 @@ public class EmbedPlayerView extends PlayerView implements PlaybackView {
 
         setPlayer(mPlayer);
 
+        mIsEngineAttached = true;
         mPlaybackPresenter.onEngineInitialized(); // start playback
     }
 
+    /**
+     * Stops the playback but keeps the engine for the next video.<br/>
+     * See {@link EmbedPlayerPool}
+     */
+    public void recycle() {
+        if (isEngineInitialized()) {
+            detachEngine();
+            mExoPlayerController.resetPlayerState();
+            setPlayer(null);
+            hideView();
+            syncPositionIfNeeded();
+        }
+    }
+
+    private void detachEngine() {
+        Utils.removeCallbacks(mShowView);
+        Utils.removeCallbacks(mStopPlayback);
+
+        if (!mIsEngineAttached) {
+            return;
+        }
+
+        mIsEngineAttached = false;
+
+        // Don't replace main player!
+        if (mPlaybackPresenter.getView() == null || mPlaybackPresenter.getView() == this) {
+            mPlaybackPresenter.onEngineReleased();
+        }
+    }
+
     private void destroyPlayerObjects() {
         if (isEngineInitialized()) {
-            Utils.removeCallbacks(mShowView);
-            Utils.removeCallbacks(mStopPlayback);
-            // Don't replace main player!
-            if (mPlaybackPresenter.getView() == null || mPlaybackPresenter.getView() == this) {
-                mPlaybackPresenter.onEngineReleased();
-            }
+            detachEngine();
             mPlayerInitializer.release();
             mExoPlayerController.setOnVideoLoaded(null);
             // Fix access calls when player isn't initialized